@@ -0,0 +1,183 @@
+package hellfrog.common;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Наборы сообщений для тестов производительности.
+ * Сообщения генерируются детерминированно (фиксированное зерно), чтобы результаты разных
+ * версий были сопоставимы
+ */
+public final class MessageCorpus {
+
+    public enum Kind {
+        /**
+         * Длинные сообщения латиницей со ссылками и форматированием
+         */
+        LATIN,
+        /**
+         * Длинные сообщения кириллицей
+         */
+        CYRILLIC,
+        /**
+         * Короткие фразы с большим числом упоминаний пользователей, ролей, каналов и эмодзи
+         */
+        MENTIONS
+    }
+
+    public static final long SERVER_ID = 612645599132778517L;
+    public static final int MEMBERS_COUNT = 500;
+    public static final int ROLES_COUNT = 40;
+    public static final int CHANNELS_COUNT = 60;
+    public static final int EMOJI_COUNT = 120;
+    public static final int MESSAGES_COUNT = 64;
+
+    private static final long SEED = 0x48464A4DL;
+    private static final long FIRST_USER_ID = 246149070702247936L;
+    private static final long FIRST_ROLE_ID = 525728457225797656L;
+    private static final long FIRST_CHANNEL_ID = 525287388818178050L;
+    private static final long FIRST_EMOJI_ID = 530385828157980694L;
+
+    private static final String[] LATIN_WORDS = {
+            "the", "server", "is", "down", "again", "who", "broke", "it", "lol", "just", "roll", "for",
+            "initiative", "voting", "tomorrow", "at", "evening", "please", "check", "pinned", "messages",
+            "**important**", "_note_", "`code`", "https://example.com/watch?v=dQw4w9WgXcQ", "ok", "thanks",
+            "guild", "raid", "starts", "in", "ten", "minutes", "bring", "potions", "and", "snacks"
+    };
+    private static final String[] CYRILLIC_WORDS = {
+            "сервер", "опять", "упал", "кто", "сломал", "ладно", "кидаем", "инициативу", "голосование",
+            "завтра", "вечером", "посмотрите", "закреплённые", "сообщения", "**важно**", "_заметка_",
+            "спасибо", "рейд", "начинается", "через", "десять", "минут", "берите", "зелья", "и",
+            "печеньки", "Привет", "всем", "ёжик", "съешь", "же", "ещё", "этих", "мягких", "французских",
+            "булок", "да", "выпей", "чаю", "https://example.com/статья"
+    };
+    private static final String[] DICE_EXPRESSIONS = {
+            "1d20", "d20 атака по гоблину", "2d6+3", "r1d20", "ll", "лл проверка ловкости",
+            "4x3d6", "3 x 4d6--1", "10d10>=7 урон огнём", "5д8<=3", "2d20m", "3d6а среднее",
+            "-5+ 2d10", "r 20+ 1d20", "6d6xx2", "100d6 фаербол по толпе", "2d100<>50", "15x1d20",
+            "1d1000 лотерея", "3d6++2 --1 =6"
+    };
+    private static final String[] COMMAND_LINES = {
+            "vote 60 \"Куда идём вечером?\" \"В бар\" \"В кино\" 'домой спать'",
+            "dice -e \"1d20\" -t 30",
+            "srv -s -m -t",
+            "stat -s -c 200 -u 246149070702247936 -d \"2021-01-01\"",
+            "remind 'завтра в 10:00' \"не забыть про рейд\"",
+            "cc -ms -e :fire: -r 5 -c 525287388818178050",
+            "rights -a -u \"Очень Длинное Имя#1234\" -c general -r moderator",
+            "translate en \"Съешь же ещё этих мягких французских булок, да выпей чаю\""
+    };
+
+    private MessageCorpus() {
+    }
+
+    public static long userId(int index) {
+        return FIRST_USER_ID + index;
+    }
+
+    public static long roleId(int index) {
+        return FIRST_ROLE_ID + index;
+    }
+
+    public static long channelId(int index) {
+        return FIRST_CHANNEL_ID + index;
+    }
+
+    public static long emojiId(int index) {
+        return FIRST_EMOJI_ID + index;
+    }
+
+    @NotNull
+    public static String emojiName(int index) {
+        return "emoji_" + index;
+    }
+
+    /**
+     * Сгенерировать набор сообщений
+     *
+     * @param kind   вид сообщений
+     * @param length примерная длина каждого сообщения в символах
+     * @return {@link #MESSAGES_COUNT} сообщений
+     */
+    @NotNull
+    public static String[] messages(@NotNull Kind kind, int length) {
+        Random random = new Random(SEED + kind.ordinal());
+        String[] result = new String[MESSAGES_COUNT];
+        for (int i = 0; i < MESSAGES_COUNT; i++) {
+            result[i] = switch (kind) {
+                case LATIN -> words(random, LATIN_WORDS, length);
+                case CYRILLIC -> words(random, CYRILLIC_WORDS, length);
+                case MENTIONS -> mentions(random, length);
+            };
+        }
+        return result;
+    }
+
+    /**
+     * Выражения бросков кубиков, в том числе с кириллическими модификаторами и комментариями
+     */
+    @NotNull
+    public static String[] diceExpressions() {
+        return DICE_EXPRESSIONS.clone();
+    }
+
+    /**
+     * Сообщения, не являющиеся бросками кубиков (типичный поток чата)
+     */
+    @NotNull
+    public static String[] chatterMessages() {
+        Random random = new Random(SEED);
+        List<String> result = new ArrayList<>(MESSAGES_COUNT);
+        for (int i = 0; i < MESSAGES_COUNT; i++) {
+            result.add(words(random, i % 2 == 0 ? LATIN_WORDS : CYRILLIC_WORDS, 40 + random.nextInt(200)));
+        }
+        return result.toArray(new String[0]);
+    }
+
+    @NotNull
+    public static String[] commandLines() {
+        return COMMAND_LINES.clone();
+    }
+
+    @NotNull
+    private static String words(@NotNull Random random, @NotNull String[] dictionary, int length) {
+        StringBuilder result = new StringBuilder(length + 32);
+        while (result.length() < length) {
+            if (result.length() > 0) {
+                result.append(random.nextInt(12) == 0 ? '\n' : ' ');
+            }
+            result.append(dictionary[random.nextInt(dictionary.length)]);
+        }
+        return result.toString();
+    }
+
+    @NotNull
+    private static String mentions(@NotNull Random random, int length) {
+        StringBuilder result = new StringBuilder(length + 64);
+        while (result.length() < length) {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            // часть упоминаний указывает на несуществующие на сервере сущности
+            int type = random.nextInt(8);
+            switch (type) {
+                case 0, 1 -> result.append("<@").append(random.nextBoolean() ? "!" : "")
+                        .append(userId(random.nextInt(MEMBERS_COUNT + MEMBERS_COUNT / 10))).append('>');
+                case 2 -> result.append("<@&").append(roleId(random.nextInt(ROLES_COUNT + 2))).append('>');
+                case 3 -> result.append("<#").append(channelId(random.nextInt(CHANNELS_COUNT + 3))).append('>');
+                case 4 -> {
+                    int emoji = random.nextInt(EMOJI_COUNT);
+                    result.append(random.nextInt(4) == 0 ? "<a:" : "<:").append(emojiName(emoji))
+                            .append(':').append(emojiId(emoji)).append('>');
+                }
+                case 5 -> result.append(':').append(emojiName(random.nextInt(EMOJI_COUNT + 10))).append(':');
+                case 6 -> result.append(LATIN_WORDS[random.nextInt(LATIN_WORDS.length)]);
+                default -> result.append(CYRILLIC_WORDS[random.nextInt(CYRILLIC_WORDS.length)]);
+            }
+        }
+        return result.toString();
+    }
+}
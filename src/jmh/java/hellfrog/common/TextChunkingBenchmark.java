@@ -0,0 +1,49 @@
+package hellfrog.common;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбиение длинных текстов на сообщения Discord
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class TextChunkingBenchmark {
+
+    @Param({"LATIN", "CYRILLIC", "MENTIONS"})
+    public MessageCorpus.Kind kind;
+
+    @Param({"1500", "6000", "20000"})
+    public int length;
+
+    private String[] messages;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        messages = MessageCorpus.messages(kind, length);
+    }
+
+    private String nextMessage() {
+        index = (index + 1) % messages.length;
+        return messages[index];
+    }
+
+    @Benchmark
+    public List<String> splitPreserveWords() {
+        return CommonUtils.splitPreserveWords(nextMessage(), 2000);
+    }
+
+    @Benchmark
+    public List<String> longEmbedMessageChunks() {
+        return new LongEmbedMessage()
+                .append(nextMessage())
+                .getTexts();
+    }
+}
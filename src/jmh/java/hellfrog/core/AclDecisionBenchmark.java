@@ -0,0 +1,105 @@
+package hellfrog.core;
+
+import hellfrog.TestUtils;
+import hellfrog.settings.db.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Проверка права выполнения команды пользователем с большим количеством ролей:
+ * прежним способом (запросы в БД на пользователя, каждую роль, канал и категорию)
+ * и по скомпилированному снимку прав сервера. Разрешена только последняя роль пользователя -
+ * худший случай для перебора ролей. Используется тестовая БД
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AclDecisionBenchmark {
+
+    private static final String COMMAND = "test";
+    private static final int ROLES_COUNT = 50;
+
+    private MainDBController mainDBController;
+    private UserRightsDAO userRightsDAO;
+    private RoleRightsDAO roleRightsDAO;
+    private ChannelRightsDAO channelRightsDAO;
+    private ChannelCategoryRightsDAO categoryRightsDAO;
+    private ServerPreferencesDAO serverPreferencesDAO;
+    private ServerAclSnapshot snapshot;
+    private long serverId;
+    private long userId;
+    private long[] roleIds;
+    private long[] channels;
+    private LongUnaryOperator categoryOf;
+
+    @Setup
+    public void setUp() throws Exception {
+        serverId = TestUtils.randomDiscordEntityId();
+        userId = TestUtils.randomDiscordEntityId();
+        final long channelId = TestUtils.randomDiscordEntityId();
+        final long categoryId = TestUtils.randomDiscordEntityId();
+        List<Long> roles = TestUtils.randomDiscordEntitiesIds(ROLES_COUNT, ROLES_COUNT);
+        roleIds = roles.stream().mapToLong(Long::longValue).toArray();
+        channels = new long[]{channelId};
+        categoryOf = id -> id == channelId ? categoryId : 0L;
+
+        MainDBController.destroyTestDatabase();
+        mainDBController = MainDBController.getInstance(InstanceType.TEST);
+        userRightsDAO = mainDBController.getUserRightsDAO();
+        roleRightsDAO = mainDBController.getRoleRightsDAO();
+        channelRightsDAO = mainDBController.getChannelRightsDAO();
+        categoryRightsDAO = mainDBController.getChannelCategoryRightsDAO();
+        serverPreferencesDAO = mainDBController.getServerPreferencesDAO();
+
+        roleRightsDAO.allow(serverId, roleIds[roleIds.length - 1], COMMAND);
+        categoryRightsDAO.allow(serverId, categoryId, COMMAND);
+
+        snapshot = ServerAclSnapshot.compile(serverPreferencesDAO.isNewAclMode(serverId),
+                userRightsDAO.getAllAllowedByCommands(serverId).orElseThrow(),
+                roleRightsDAO.getAllAllowedByCommands(serverId).orElseThrow(),
+                channelRightsDAO.getAllAllowedByCommands(serverId).orElseThrow(),
+                categoryRightsDAO.getAllAllowedByCommands(serverId).orElseThrow());
+    }
+
+    @TearDown
+    public void tearDown() {
+        mainDBController.close();
+    }
+
+    @Benchmark
+    public boolean snapshotDecision() {
+        return snapshot.canExecute(COMMAND, userId, roleIds, true, channels, categoryOf);
+    }
+
+    @Benchmark
+    public boolean daoDecision() {
+        boolean isAllowUser = userRightsDAO.isAllowed(serverId, userId, COMMAND);
+        boolean isHasAllowedRole = false;
+        for (long roleId : roleIds) {
+            if (roleRightsDAO.isAllowed(serverId, roleId, COMMAND)) {
+                isHasAllowedRole = true;
+                break;
+            }
+        }
+        final long channelId = channels[0];
+        boolean isAllowedChannel = channelRightsDAO.isAllowed(serverId, channelId, COMMAND)
+                || categoryRightsDAO.isAllowed(serverId, categoryOf.applyAsLong(channelId), COMMAND);
+        if (!isAllowedChannel) {
+            return false;
+        }
+        if (serverPreferencesDAO.isNewAclMode(serverId)) {
+            boolean hasRequiredUsersOrRoles = roleRightsDAO.getAllowedCount(serverId, COMMAND) > 0L
+                    || userRightsDAO.getAllowedCount(serverId, COMMAND) > 0L;
+            if (!hasRequiredUsersOrRoles) {
+                return true;
+            }
+        }
+        return isAllowUser || isHasAllowedRole;
+    }
+}
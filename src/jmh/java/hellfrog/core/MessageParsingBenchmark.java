@@ -0,0 +1,154 @@
+package hellfrog.core;
+
+import hellfrog.common.MessageCorpus;
+import hellfrog.settings.db.EntityNameCacheDAO;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.emoji.KnownCustomEmoji;
+import org.javacord.api.entity.permission.Role;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор текста, выполняемый для каждого входящего сообщения:
+ * аргументы команд, поиск эмодзи для статистики, разрешение упоминаний.
+ * Сервер, участники и кэш имён заменены заглушками, обращений к Discord и базе нет
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MessageParsingBenchmark {
+
+    @Param({"LATIN", "CYRILLIC", "MENTIONS"})
+    public MessageCorpus.Kind kind;
+
+    @Param({"200", "2000"})
+    public int length;
+
+    private String[] messages;
+    private String[] commandLines;
+    private int index;
+    private Server server;
+    private DiscordApi discordApi;
+    private NameCacheService nameCacheService;
+
+    @Setup
+    public void setUp() {
+        messages = MessageCorpus.messages(kind, length);
+        commandLines = MessageCorpus.commandLines();
+
+        Map<Long, User> members = new HashMap<>();
+        Map<Long, Role> roles = new HashMap<>();
+        Map<Long, ServerTextChannel> channels = new HashMap<>();
+        List<KnownCustomEmoji> emojis = new ArrayList<>();
+        Map<String, Object> serverAnswers = new HashMap<>();
+        serverAnswers.put("getId", MessageCorpus.SERVER_ID);
+        serverAnswers.put("getName", "Тестовый сервер");
+        serverAnswers.put("getMemberById", (StubEntities.Answer) args -> Optional.ofNullable(members.get(idOf(args))));
+        serverAnswers.put("getRoleById", (StubEntities.Answer) args -> Optional.ofNullable(roles.get(idOf(args))));
+        serverAnswers.put("getTextChannelById",
+                (StubEntities.Answer) args -> Optional.ofNullable(channels.get(idOf(args))));
+        serverAnswers.put("getCustomEmojis", Collections.unmodifiableList(emojis));
+        server = StubEntities.stub(Server.class, serverAnswers);
+
+        for (int i = 0; i < MessageCorpus.MEMBERS_COUNT; i++) {
+            long userId = MessageCorpus.userId(i);
+            String name = i % 2 == 0 ? "User" + i : "Участник" + i;
+            members.put(userId, StubEntities.stub(User.class, Map.of(
+                    "getId", userId,
+                    "getName", name,
+                    "getDiscriminator", String.format("%04d", i % 10_000),
+                    "getDisplayName", i % 3 == 0 ? "Ник " + name : name)));
+        }
+        for (int i = 0; i < MessageCorpus.ROLES_COUNT; i++) {
+            long roleId = MessageCorpus.roleId(i);
+            roles.put(roleId, StubEntities.stub(Role.class, Map.of(
+                    "getId", roleId,
+                    "getName", i % 2 == 0 ? "role-" + i : "роль-" + i,
+                    "getServer", server)));
+        }
+        for (int i = 0; i < MessageCorpus.CHANNELS_COUNT; i++) {
+            long channelId = MessageCorpus.channelId(i);
+            channels.put(channelId, StubEntities.stub(ServerTextChannel.class, Map.of(
+                    "getId", channelId,
+                    "getName", i % 2 == 0 ? "channel-" + i : "канал-" + i,
+                    "getServer", server)));
+        }
+        for (int i = 0; i < MessageCorpus.EMOJI_COUNT; i++) {
+            long emojiId = MessageCorpus.emojiId(i);
+            String name = MessageCorpus.emojiName(i);
+            emojis.add(StubEntities.stub(KnownCustomEmoji.class, Map.of(
+                    "getId", emojiId,
+                    "getName", name,
+                    "getMentionTag", "<:" + name + ":" + emojiId + ">",
+                    "getServer", server)));
+        }
+
+        Map<String, Object> apiAnswers = new HashMap<>();
+        apiAnswers.put("getCachedUserById", (StubEntities.Answer) args -> Optional.ofNullable(members.get(idOf(args))));
+        apiAnswers.put("getUserById", (StubEntities.Answer) args ->
+                CompletableFuture.completedFuture(members.get(idOf(args))));
+        apiAnswers.put("getRoleById", (StubEntities.Answer) args -> Optional.ofNullable(roles.get(idOf(args))));
+        apiAnswers.put("getServerChannelById",
+                (StubEntities.Answer) args -> Optional.ofNullable(channels.get(idOf(args))));
+        apiAnswers.put("getCustomEmojiById", (StubEntities.Answer) args -> {
+            long emojiId = idOf(args);
+            return emojis.stream().filter(emoji -> emoji.getId() == emojiId).findAny();
+        });
+        discordApi = StubEntities.stub(DiscordApi.class, apiAnswers);
+        serverAnswers.put("getApi", discordApi);
+
+        nameCacheService = new NameCacheService(() -> discordApi,
+                StubEntities.stub(EntityNameCacheDAO.class, Map.of()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        nameCacheService.stop();
+    }
+
+    private static long idOf(@NotNull Object[] args) {
+        return Long.parseLong(String.valueOf(args[0]));
+    }
+
+    private String nextMessage() {
+        index = (index + 1) % messages.length;
+        return messages[index];
+    }
+
+    @Benchmark
+    public String[] translateCommandline() {
+        index = (index + 1) % commandLines.length;
+        return EventsListener.translateCommandline(commandLines[index]);
+    }
+
+    @Benchmark
+    public void customEmojiScan(Blackhole blackhole) {
+        StatisticService.forEachCustomEmojiId(nextMessage(), blackhole::consume);
+    }
+
+    @Benchmark
+    public String resolveMentions() {
+        return ServerSideResolver.resolveMentions(server, nextMessage(), nameCacheService);
+    }
+
+    @Benchmark
+    public String getReadableContent() {
+        return ServerSideResolver.getReadableContent(nextMessage(), Optional.of(server), discordApi);
+    }
+
+    @Benchmark
+    public String findReplaceSimpleEmoji() {
+        return ServerSideResolver.findReplaceSimpleEmoji(nextMessage(), server);
+    }
+}
@@ -0,0 +1,68 @@
+package hellfrog.reacts;
+
+import hellfrog.common.MessageCorpus;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка сообщений на выражение броска кубиков и полный разбор выражения с формированием результата
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DiceReactionBenchmark {
+
+    private final DiceReaction diceReaction = new DiceReaction();
+    private MessageCreateEvent[] chatterEvents;
+    private MessageCreateEvent[] diceEvents;
+    private String[] diceExpressions;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        String[] chatter = MessageCorpus.chatterMessages();
+        diceExpressions = MessageCorpus.diceExpressions();
+        chatterEvents = new MessageCreateEvent[chatter.length];
+        for (int i = 0; i < chatter.length; i++) {
+            chatterEvents[i] = messageEvent(chatter[i]);
+        }
+        diceEvents = new MessageCreateEvent[diceExpressions.length];
+        for (int i = 0; i < diceExpressions.length; i++) {
+            diceEvents[i] = messageEvent(diceExpressions[i]);
+        }
+    }
+
+    private static MessageCreateEvent messageEvent(String content) {
+        return (MessageCreateEvent) Proxy.newProxyInstance(DiceReactionBenchmark.class.getClassLoader(),
+                new Class<?>[]{MessageCreateEvent.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getMessageContent")) {
+                        return content;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public boolean canReactChatter() {
+        index = (index + 1) % chatterEvents.length;
+        return diceReaction.canReact(chatterEvents[index]);
+    }
+
+    @Benchmark
+    public boolean canReactDice() {
+        index = (index + 1) % diceEvents.length;
+        return diceReaction.canReact(diceEvents[index]);
+    }
+
+    @Benchmark
+    public Object rollDices() {
+        index = (index + 1) % diceExpressions.length;
+        return diceReaction.rollDices(diceExpressions[index], null, null);
+    }
+}
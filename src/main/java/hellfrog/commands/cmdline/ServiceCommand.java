@@ -3,7 +3,11 @@ package hellfrog.commands.cmdline;
 import groovy.lang.GroovyShell;
 import hellfrog.common.BroadCast;
 import hellfrog.common.CommonUtils;
+import hellfrog.common.DuckDuckGoSearch;
+import hellfrog.common.FFMpegUtils;
 import hellfrog.common.LongEmbedMessage;
+import hellfrog.common.SchedulerService;
+import hellfrog.common.WorldometersParser;
 import hellfrog.settings.SettingsController;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
@@ -18,6 +22,7 @@ import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -116,11 +121,34 @@ public class ServiceCommand
             .desc("Create DB backup")
             .build();
 
+    private final Option cacheInfo = Option.builder("c")
+            .longOpt("cache")
+            .desc("Show caches statistic")
+            .build();
+
+    private final Option dispatchInfo = Option.builder("t")
+            .longOpt("timings")
+            .desc("Show commands and reactions dispatch timings, events lanes, media jobs and GPT providers state")
+            .build();
+
+    private final Option httpInfo = Option.builder("p")
+            .longOpt("http")
+            .desc("Show HTTP connections pool state")
+            .build();
+
+    private final Option tasksInfo = Option.builder("k")
+            .longOpt("tasks")
+            .desc("Show scheduled tasks statistic or run specified task immediately")
+            .hasArg()
+            .optionalArg(true)
+            .argName("task name")
+            .build();
+
     public ServiceCommand() {
         super(PREF, DESCRIPTIONS);
 
         super.addCmdlineOption(stopBot, memInfo, botDate, runGc, runtimeShell, lastUsage, secureTransfer,
-                executeQuery, getDDL, executeJPQL, createBackup);
+                executeQuery, getDDL, executeJPQL, createBackup, cacheInfo, dispatchInfo, httpInfo, tasksInfo);
         super.setAdminCommand();
         super.disableUpdateLastCommandUsage();
         super.disableVisibleInHelp();
@@ -179,9 +207,14 @@ public class ServiceCommand
         boolean generateDDL = cmdline.hasOption(this.getDDL.getOpt());
         boolean executeJPQL = cmdline.hasOption(this.executeJPQL.getOpt());
         boolean createBackup = cmdline.hasOption(this.createBackup.getOpt());
+        boolean cacheInfo = cmdline.hasOption(this.cacheInfo.getOpt());
+        boolean dispatchInfo = cmdline.hasOption(this.dispatchInfo.getOpt());
+        boolean httpInfo = cmdline.hasOption(this.httpInfo.getOpt());
+        boolean tasksInfo = cmdline.hasOption(this.tasksInfo.getOpt());
 
         if (stopAction ^ memInfo ^ getDate ^ runGc ^ runtimeShell ^ lastUsageAction ^ secureTransfer
-                ^ executeQuery ^ generateDDL ^ executeJPQL ^ createBackup) {
+                ^ executeQuery ^ generateDDL ^ executeJPQL ^ createBackup ^ cacheInfo ^ dispatchInfo
+                ^ httpInfo ^ tasksInfo) {
 
             if (stopAction) {
                 doStopAction(event);
@@ -266,11 +299,77 @@ public class ServiceCommand
             if (createBackup) {
                 settingsController.getMainDBController().createBackup();
             }
+
+            if (cacheInfo) {
+                LongEmbedMessage message = LongEmbedMessage.withTitleInfoStyle("Caches statistic");
+                settingsController.getMainDBController().getCacheStatistics().forEach(cacheStatistic ->
+                        message.append(cacheStatistic.toString()).appendNewLine());
+                message.append(settingsController.getMessageCacheService().getCacheStatistic().toString())
+                        .appendNewLine();
+                message.append(WorldometersParser.getCacheStatistic().toString()).appendNewLine();
+                message.append(DuckDuckGoSearch.getCacheStatistic().toString()).appendNewLine();
+                message.send(getMessageTargetByRights(event));
+            }
+
+            if (dispatchInfo) {
+                LongEmbedMessage message = LongEmbedMessage.withTitleInfoStyle("Dispatch timings");
+                settingsController.getDispatchMetrics().describe().forEach(line ->
+                        message.append(line).appendNewLine());
+                message.send(getMessageTargetByRights(event));
+
+                LongEmbedMessage lanesMessage = LongEmbedMessage.withTitleInfoStyle("Events lanes");
+                settingsController.getEventsExecutor().describe().forEach(line ->
+                        lanesMessage.append(line).appendNewLine());
+                lanesMessage.send(getMessageTargetByRights(event));
+
+                LongEmbedMessage mediaMessage = LongEmbedMessage.withTitleInfoStyle("Media jobs");
+                FFMpegUtils.describe().forEach(line ->
+                        mediaMessage.append(line).appendNewLine());
+                mediaMessage.send(getMessageTargetByRights(event));
+
+                LongEmbedMessage gptMessage = LongEmbedMessage.withTitleInfoStyle("GPT providers");
+                settingsController.getGptOrchestrator().describe().forEach(line ->
+                        gptMessage.append(line).appendNewLine());
+                gptMessage.send(getMessageTargetByRights(event));
+            }
+
+            if (httpInfo) {
+                LongEmbedMessage message = LongEmbedMessage.withTitleInfoStyle("HTTP connections pool");
+                settingsController.getHttpClientsPool().describe().forEach(line ->
+                        message.append(line).appendNewLine());
+                message.send(getMessageTargetByRights(event));
+            }
+
+            if (tasksInfo) {
+                doTasksAction(cmdline.getOptionValue(this.tasksInfo.getOpt()), event);
+            }
         } else {
             showErrorMessage("Only one service command may be execute", event);
         }
     }
 
+    private void doTasksAction(@Nullable final String taskName, @NotNull final MessageCreateEvent event) {
+        SchedulerService schedulerService = SettingsController.getInstance().getSchedulerService();
+        if (CommonUtils.isTrStringEmpty(taskName)) {
+            LongEmbedMessage message = LongEmbedMessage.withTitleInfoStyle("Scheduled tasks");
+            schedulerService.describe().forEach(line ->
+                    message.append(line).appendNewLine());
+            SettingsController.getInstance().getSettingsWriter().describe().forEach(line ->
+                    message.append(line).appendNewLine());
+            message.send(getMessageTargetByRights(event));
+            return;
+        }
+        final String name = taskName.strip();
+        if (!schedulerService.getTaskNames().contains(name)) {
+            showErrorMessage("Unknown task. Known tasks: " + String.join(", ", schedulerService.getTaskNames()),
+                    event);
+        } else if (schedulerService.trigger(name)) {
+            showInfoMessage("Task " + name + " started", event);
+        } else {
+            showErrorMessage("Task " + name + " is already running", event);
+        }
+    }
+
     private void doStopAction(@NotNull MessageCreateEvent event) {
         BroadCast.getLogger()
                 .addUnsafeUsageCE("call bot stopping", event)
@@ -329,6 +428,7 @@ public class ServiceCommand
                         .getDiscordApi()).flatMap(api ->
                         api.getTextChannelById(channelId)).ifPresent(channel -> {
                     String result = SettingsController.getInstance().getMainDBController().executeRawQuery(queryTest);
+                    SettingsController.getInstance().getAccessControlService().resetAclSnapshots();
                     LongEmbedMessage.withTitleInfoStyle("Database SQL query output")
                             .append(result, MessageDecoration.CODE_LONG)
                             .send(channel);
@@ -385,6 +485,7 @@ public class ServiceCommand
                         .getDiscordApi()).flatMap(api ->
                         api.getTextChannelById(channelId)).ifPresent(channel -> {
                     String result = SettingsController.getInstance().getMainDBController().executeRawJPQL(queryText);
+                    SettingsController.getInstance().getAccessControlService().resetAclSnapshots();
                     LongEmbedMessage.withTitleInfoStyle("Database JPQL query output")
                             .append(result, MessageDecoration.CODE_LONG)
                             .send(channel);
@@ -3,8 +3,8 @@ package hellfrog.commands.cmdline;
 import com.vdurmont.emoji.EmojiParser;
 import hellfrog.common.CommonUtils;
 import hellfrog.common.MessageUtils;
+import hellfrog.core.EventsExecutor;
 import hellfrog.core.ServerSideResolver;
-import hellfrog.core.VoteController;
 import hellfrog.settings.ActiveVote;
 import hellfrog.settings.SettingsController;
 import hellfrog.settings.VotePoint;
@@ -23,7 +23,6 @@ import org.javacord.api.event.message.MessageCreateEvent;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
@@ -37,14 +36,11 @@ public class VoteCommand
             "point is longer than one word, it must be enclosed in quotes. Commas are not " +
             "allowed inside the voting point. It is necessary to specify the descriptive " +
             "text after double dashes and spaces.";
-    private final VoteController voteController;
 
     public VoteCommand() {
         super(BOT_PREFIX, DESCRIPTION);
         super.enableOnlyServerCommandStrict();
         super.enableStrictByChannels();
-        this.voteController = SettingsController.getInstance()
-                .getVoteController();
 
         Option timeoutOption = Option.builder("t")
                 .hasArg()
@@ -206,13 +202,20 @@ public class VoteCommand
                         boolean removeVote = false;
                         boolean messageIsExists = false;
                         String voteUrl = "";
+                        String interimResults = "";
                         if (mayBeChannel.isPresent()) {
                             ServerTextChannel textChannel = mayBeChannel.get();
                             channelTag = textChannel.getMentionTag();
 
                             try {
-                                textChannel.getMessageById(vote.getMessageId()).join();
+                                SettingsController.getInstance()
+                                        .getMessageCacheService()
+                                        .getMessage(textChannel, vote.getMessageId())
+                                        .join();
                                 messageIsExists = true;
+                                interimResults = settingsController.getVoteController()
+                                        .getInterimResults(vote, textChannel)
+                                        .orElse("");
 
                                 voteUrl = "https://discordapp.com/channels/" +
                                         server.getId() + "/" +
@@ -247,9 +250,16 @@ public class VoteCommand
                                     MessageDecoration.BOLD);
                         }
                         if (removeVote) {
+                            settingsController.getVoteTallyService().forget(vote.getMessageId());
                             settingsController.getServerPreferences(server.getId())
                                     .getActiveVotes()
                                     .remove(vote);
+                            settingsController.saveServerSideParameters(server.getId());
+                        }
+                        if (!CommonUtils.isTrStringEmpty(interimResults)) {
+                            resultMessage.appendNewLine()
+                                    .append("Current votes: ")
+                                    .append(interimResults);
                         }
                         if (!CommonUtils.isTrStringEmpty(voteUrl)) {
                             resultMessage.appendNewLine()
@@ -264,11 +274,11 @@ public class VoteCommand
             List<ActiveVote> activeVotes = settingsController.getServerPreferences(server.getId())
                     .getActiveVotes();
             if (interruptAll) {
-                CompletableFuture.runAsync(() ->
+                settingsController.getEventsExecutor().execute(server.getId(), EventsExecutor.Priority.NORMAL, () ->
                         activeVotes.forEach(v -> {
                             int cnt = 0;
                             if (canExecuteServerCommand(event, server, v.getTextChatId())) {
-                                voteController.interruptVote(server.getId(), v.getId());
+                                settingsController.getVoteController().interruptVote(server.getId(), v.getId());
                             } else {
                                 cnt++;
                             }
@@ -285,7 +295,7 @@ public class VoteCommand
                     if (activeVote.getId() == interruptId) {
                         found = true;
                         if (canExecuteServerCommand(event, server, activeVote.getTextChatId())) {
-                            voteController.interruptVote(server.getId(), interruptId);
+                            settingsController.getVoteController().interruptVote(server.getId(), interruptId);
                         } else {
                             showAccessDeniedServerMessage(event);
                             return;
@@ -478,6 +488,8 @@ public class VoteCommand
             }
             try {
                 Message msg = resultMessage.send(targetChannel).join();
+                settingsController.getVoteTallyService()
+                        .register(msg.getId(), newVote);
                 skipFirstDefault = defaultChoose;
                 for (VotePoint votePoint : votePoints) {
                     if (skipFirstDefault) {
@@ -515,6 +527,7 @@ public class VoteCommand
                         .getActiveVotes()
                         .add(newVote);
                 settingsController.saveServerSideParameters(server.getId());
+                settingsController.getVoteController().schedule(server.getId(), newVote);
 
                 String voteUrl = MessageUtils.getMessageUrl(msg);
                 showInfoMessage("Vote created: " + voteUrl, event);
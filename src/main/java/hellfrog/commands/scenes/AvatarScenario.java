@@ -18,7 +18,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 
 public class AvatarScenario
         extends OneShotScenario {
@@ -49,7 +48,7 @@ public class AvatarScenario
     }
 
     private void parallelExecute(@NotNull final MessageCreateEvent event) {
-        CompletableFuture.runAsync(() -> event.getMessageAuthor().asUser().ifPresent(author -> {
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() -> event.getMessageAuthor().asUser().ifPresent(author -> {
             if (author.isBot()) {
                 return;
             }
@@ -31,9 +31,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.regex.Pattern;
 
 public class CoubGrabberScenario
@@ -46,7 +43,6 @@ public class CoubGrabberScenario
     private final Pattern MP4_VIDEO = Pattern.compile("mp4_.*_size.*\\.mp4", Pattern.CASE_INSENSITIVE);
     private final Pattern MP4_AUDIO = Pattern.compile("m4a_.*\\.m4a", Pattern.CASE_INSENSITIVE);
     private final Pattern MP3_AUDIO = Pattern.compile(".*\\.mp3$", Pattern.CASE_INSENSITIVE);
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
 
     public CoubGrabberScenario() {
         super(PREFIX, DESCRIPTION);
@@ -73,7 +69,7 @@ public class CoubGrabberScenario
     }
 
     private void detachRun(@NotNull final MessageCreateEvent event) {
-        CompletableFuture.runAsync(() -> grabCoubVideo(event));
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() -> grabCoubVideo(event));
     }
 
     private void grabCoubVideo(@NotNull final MessageCreateEvent event) {
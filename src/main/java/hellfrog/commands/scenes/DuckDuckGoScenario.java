@@ -5,6 +5,7 @@ import hellfrog.common.DuckDuckGoSearch;
 import hellfrog.common.OperationException;
 import hellfrog.common.ddgentity.DDGSearchResult;
 import hellfrog.core.ServerSideResolver;
+import hellfrog.settings.SettingsController;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import org.apache.commons.lang3.StringUtils;
@@ -22,9 +23,6 @@ import org.jsoup.Jsoup;
 import java.awt.*;
 import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * DuckDuckGo search scenario. Based by DDG API (https://duckduckgo.com/api)
@@ -35,7 +33,6 @@ public class DuckDuckGoScenario
     private static final String PREFIX = "ddg";
     private static final String DESCRIPTION = "Search by DuckDuckGo";
     private final Bucket bucket;
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
     public DuckDuckGoScenario() {
         super(PREFIX, DESCRIPTION);
@@ -63,12 +60,14 @@ public class DuckDuckGoScenario
     }
 
     private void detachRun(@NotNull MessageCreateEvent event) {
-        CompletableFuture.runAsync(() ->
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() ->
                 requestDDGRequest(event));
     }
 
     private void requestDDGRequest(@NotNull final MessageCreateEvent event) {
-        bucket.asScheduler().consume(1, scheduler);
+        bucket.asScheduler().consume(1, SettingsController.getInstance()
+                .getSchedulerService()
+                .getExecutor());
 
         final String messageWoCommandPrefix =
                 super.getReadableMessageContentWithoutPrefix(event);
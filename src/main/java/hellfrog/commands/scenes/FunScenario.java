@@ -6,50 +6,42 @@ import hellfrog.core.ServerSideResolver;
 import hellfrog.core.SessionState;
 import hellfrog.settings.SettingsController;
 import hellfrog.settings.db.CommonPreferencesDAO;
-import org.javacord.api.DiscordApi;
 import org.javacord.api.entity.channel.PrivateChannel;
 import org.javacord.api.entity.channel.ServerTextChannel;
-import org.javacord.api.entity.message.MessageAttachment;
 import org.javacord.api.entity.message.MessageBuilder;
 import org.javacord.api.entity.message.embed.EmbedBuilder;
 import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.javacord.api.event.message.reaction.SingleReactionEvent;
-import org.javacord.api.listener.message.MessageCreateListener;
-import org.javacord.api.listener.message.MessageDeleteListener;
-import org.javacord.api.listener.message.MessageEditListener;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 public abstract class FunScenario
         extends Scenario {
 
-    protected static final List<String> BLUSH_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> HUG_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> KISS_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> PAT_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> SHOCK_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> SLAP_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> CUDDLE_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> DANCE_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> LICK_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> BITE_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> BONK_URLS = new CopyOnWriteArrayList<>();
-    protected static final List<String> SPANK_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> BLUSH_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> HUG_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> KISS_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> PAT_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> SHOCK_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> SLAP_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> CUDDLE_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> DANCE_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> LICK_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> BITE_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> BONK_URLS = new CopyOnWriteArrayList<>();
+    protected static final CopyOnWriteArrayList<String> SPANK_URLS = new CopyOnWriteArrayList<>();
 
     private String lonelyResultMessage = "";
     private String withSomeoneResultMessage = "";
@@ -99,54 +91,14 @@ public abstract class FunScenario
         return messagesLogger;
     }
 
-    private static BroadCast.MessagesLogger rebuildUrlsList(@NotNull final List<String> targetList,
+    private static BroadCast.MessagesLogger rebuildUrlsList(@NotNull final CopyOnWriteArrayList<String> targetList,
                                                             final long channelId,
                                                             @NotNull final String channelDescription,
                                                             final boolean sendBroadcastSeparately) {
 
-        final BroadCast.MessagesLogger messagesLogger = BroadCast.getLogger();
-        final DiscordApi api = SettingsController.getInstance().getDiscordApi();
-        if (api != null) {
-            Optional<ServerTextChannel> mayBeChannel = api.getServerTextChannelById(channelId);
-            if (mayBeChannel.isPresent()) {
-                ServerTextChannel channel = mayBeChannel.get();
-                if (channel.canYouSee() && channel.canYouReadMessageHistory()) {
-                    final List<String> result = new ArrayList<>();
-                    channel.getMessagesAsStream().forEach(message -> {
-                        result.addAll(message.getAttachments().stream()
-                                .map(MessageAttachment::getUrl)
-                                .map(URL::toString)
-                                .collect(Collectors.toList()));
-                        result.addAll(CommonUtils.detectAllUrls(message.getReadableContent()));
-                    });
-                    targetList.clear();
-                    targetList.addAll(result.stream().distinct().collect(Collectors.toList()));
-                    messagesLogger.addInfoMessage(String.format("Found %d URLs for \"%s\"", result.size(), channelDescription));
-                } else {
-                    messagesLogger.addErrorMessage(String.format("(Unable to load URLS from channel \"%s\" by id %d: bot cannot read messages history)",
-                            channelDescription, channelId));
-                }
-
-                List<MessageCreateListener> createListeners = channel.getMessageCreateListeners();
-                List<MessageEditListener> editListeners = channel.getMessageEditListeners();
-                List<MessageDeleteListener> deleteListeners = channel.getMessageDeleteListeners();
-
-                if (createListeners.isEmpty()) {
-                    channel.addMessageCreateListener(event -> rebuildUrlsList(targetList, channelId, channelDescription, true));
-                }
-                if (editListeners.isEmpty()) {
-                    channel.addMessageEditListener(event -> rebuildUrlsList(targetList, channelId, channelDescription, true));
-                }
-                if (deleteListeners.isEmpty()) {
-                    channel.addMessageDeleteListener(event -> rebuildUrlsList(targetList, channelId, channelDescription, true));
-                }
-            } else {
-                messagesLogger.addErrorMessage(String.format("(Unable to load URLs from channel \"%s\" by id %d)", channelDescription, channelId));
-            }
-        } else {
-            messagesLogger.addErrorMessage(String.format("(Unable to load/reload URLS from channel \"%s\" by id %d: Discord API is null)",
-                    channelDescription, channelId));
-        }
+        final SettingsController settingsController = SettingsController.getInstance();
+        final BroadCast.MessagesLogger messagesLogger = settingsController.getMediaIndexService()
+                .attach(settingsController.getDiscordApi(), channelId, targetList, channelDescription, true);
 
         if (sendBroadcastSeparately) {
             messagesLogger.send();
@@ -31,9 +31,6 @@ import java.net.URISyntaxException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 
 public class GotovScucoScenario
         extends OneShotScenario {
@@ -42,7 +39,6 @@ public class GotovScucoScenario
     private static final String DESCRIPTION = "Get a custom recipe from gotov-suka.ru";
     private static final URI SERVICE_URI = URI.create("https://gotov-suka.ru/get_recipe/-1/-1/");
     private final Bucket bucket;
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
     public GotovScucoScenario() {
         super(PREFIX, DESCRIPTION);
@@ -63,12 +59,14 @@ public class GotovScucoScenario
     }
 
     private void detachRun(@NotNull MessageCreateEvent event) {
-        CompletableFuture.runAsync(() ->
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() ->
                 requestExternalText(event));
     }
 
     private void requestExternalText(@NotNull final MessageCreateEvent event) {
-        bucket.asScheduler().consume(1, scheduler);
+        bucket.asScheduler().consume(1, SettingsController.getInstance()
+                .getSchedulerService()
+                .getExecutor());
 
         SimpleHttpClient client = SettingsController.getInstance()
                 .getHttpClientsPool()
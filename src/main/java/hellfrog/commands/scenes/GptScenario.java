@@ -1,6 +1,8 @@
 package hellfrog.commands.scenes;
 
-import hellfrog.common.*;
+import hellfrog.common.CommonUtils;
+import hellfrog.common.GptException;
+import hellfrog.settings.SettingsController;
 import org.javacord.api.entity.channel.PrivateChannel;
 import org.javacord.api.entity.channel.ServerTextChannel;
 import org.javacord.api.entity.message.Message;
@@ -10,21 +12,16 @@ import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.UnmodifiableView;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
 
 public class GptScenario
         extends OneShotScenario {
 
     private static final String PREFIX = "gpt";
     private static final String DESCRIPTION = "Randomly appends the specified text";
-    private final GptProvider porfirevichGpt = new PorfirevichProvider();
-    private final GptProvider yalmGpt = new YalmProvider();
-    private final GptProvider sberGpt = new SberGPT3Provider();
 
     public GptScenario() {
         super(PREFIX, DESCRIPTION);
@@ -54,20 +51,11 @@ public class GptScenario
             showErrorMessage("Text required", event);
             return;
         }
-        tryToAppend(event, clearedMessage, getShuffled(), 0);
-    }
-
-    private void tryToAppend(@NotNull final MessageCreateEvent event,
-                             @NotNull final String messageWoCommandPrefix,
-                             @NotNull final List<GptProvider> providerList,
-                             final int currentIndex) {
-        if (currentIndex >= providerList.size()) {
-            return;
-        }
-        GptProvider provider = providerList.get(currentIndex);
-        provider.appendText(messageWoCommandPrefix)
+        SettingsController.getInstance()
+                .getGptOrchestrator()
+                .appendText(clearedMessage)
                 .thenAccept(gptResult -> {
-                    String longText = "**" + messageWoCommandPrefix + "**" + gptResult.getResultText();
+                    String longText = "**" + clearedMessage + "**" + gptResult.getResultText();
                     List<String> listOfMessagesText = CommonUtils.splitEqually(longText, 1999);
                     for (String msgText : listOfMessagesText) {
                         EmbedBuilder embedBuilder = new EmbedBuilder()
@@ -80,33 +68,21 @@ public class GptScenario
                     }
                 })
                 .exceptionally(err -> {
-                    if (currentIndex < providerList.size() - 1) {
-                        tryToAppend(event, messageWoCommandPrefix, providerList, currentIndex + 1);
-                    } else {
-                        String footerMessage = null;
-                        if (err instanceof GptException) {
-                            footerMessage = ((GptException) err).getFooterMessage();
-                        }
-                        new MessageBuilder()
-                                .setEmbed(new EmbedBuilder()
-                                        .setAuthor(event.getApi().getYourself())
-                                        .setDescription(err.getMessage())
-                                        .setFooter(footerMessage)
-                                        .setTimestampToNow())
-                                .send(event.getChannel());
+                    Throwable cause = err instanceof CompletionException && err.getCause() != null
+                            ? err.getCause()
+                            : err;
+                    String footerMessage = null;
+                    if (cause instanceof GptException) {
+                        footerMessage = ((GptException) cause).getFooterMessage();
                     }
+                    new MessageBuilder()
+                            .setEmbed(new EmbedBuilder()
+                                    .setAuthor(event.getApi().getYourself())
+                                    .setDescription(cause.getMessage())
+                                    .setFooter(footerMessage)
+                                    .setTimestampToNow())
+                            .send(event.getChannel());
                     return null;
                 });
     }
-
-    @NotNull
-    @UnmodifiableView
-    private List<GptProvider> getShuffled() {
-        List<GptProvider> providers = new ArrayList<>();
-        providers.add(porfirevichGpt); // preferable, accepts any requests, but not always available
-        providers.add(yalmGpt); // on the capacity of the corporation, but does not take sensitive questions
-        Collections.shuffle(providers);
-        providers.add(sberGpt); // very slow, generates a lot of text, most of which is not related to the template
-        return Collections.unmodifiableList(providers);
-    }
 }
@@ -9,6 +9,8 @@ import com.optimaize.langdetect.profiles.LanguageProfile;
 import com.optimaize.langdetect.profiles.LanguageProfileReader;
 import hellfrog.common.BroadCast;
 import hellfrog.common.CommonUtils;
+import hellfrog.common.LanguageToolPool;
+import hellfrog.settings.SettingsController;
 import org.javacord.api.entity.channel.PrivateChannel;
 import org.javacord.api.entity.channel.ServerTextChannel;
 import org.javacord.api.entity.message.Message;
@@ -17,7 +19,6 @@ import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.jetbrains.annotations.NotNull;
-import org.languagetool.JLanguageTool;
 import org.languagetool.language.AmericanEnglish;
 import org.languagetool.language.Russian;
 import org.languagetool.language.Ukrainian;
@@ -25,33 +26,21 @@ import org.languagetool.rules.RuleMatch;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.locks.ReentrantLock;
 
 public class GrammarScenario extends OneShotScenario {
 
     private static final String PREFIX = "spc";
     private static final String DESCRIPTION = "Spellchecking text";
-    private final ReentrantLock langToolLock = new ReentrantLock();
-    private final JLanguageTool enTool = new JLanguageTool(new AmericanEnglish());
-    private final JLanguageTool ruTool = new JLanguageTool(new Russian());
-    private final JLanguageTool uaTool = new JLanguageTool(new Ukrainian());
-    private final LanguageDetector languageDetector;
+    private static final int TOOLS_PER_LANGUAGE = Math.min(3, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    // языковые модели загружаются при первой проверке текста на соответствующем языке
+    private final LanguageToolPool enTools = new LanguageToolPool(AmericanEnglish::new, TOOLS_PER_LANGUAGE);
+    private final LanguageToolPool ruTools = new LanguageToolPool(Russian::new, TOOLS_PER_LANGUAGE);
+    private final LanguageToolPool uaTools = new LanguageToolPool(Ukrainian::new, TOOLS_PER_LANGUAGE);
+    private volatile LanguageDetector languageDetector = null;
 
     public GrammarScenario() {
         super(PREFIX, DESCRIPTION);
         super.enableStrictByChannels();
-
-        try {
-            List<LanguageProfile> profiles = new LanguageProfileReader().readBuiltIn(List.of(LdLocale.fromString("en"),
-                    LdLocale.fromString("ru"), LdLocale.fromString("uk")));
-            languageDetector = LanguageDetectorBuilder.create(NgramExtractors.standard())
-                    .withProfiles(profiles)
-                    .build();
-        } catch (Exception err) {
-            err.printStackTrace();
-            throw new RuntimeException();
-        }
     }
 
     @Override
@@ -59,7 +48,7 @@ public class GrammarScenario extends OneShotScenario {
                              @NotNull PrivateChannel privateChannel,
                              @NotNull User user,
                              boolean isBotOwner) {
-        CompletableFuture.runAsync(() -> exec(event));
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() -> exec(event));
     }
 
     @Override
@@ -68,7 +57,7 @@ public class GrammarScenario extends OneShotScenario {
                             @NotNull ServerTextChannel serverTextChannel,
                             @NotNull User user,
                             boolean isBotOwner) {
-        CompletableFuture.runAsync(() -> exec(event));
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() -> exec(event));
     }
 
     private void exec(@NotNull final MessageCreateEvent event) {
@@ -82,101 +71,104 @@ public class GrammarScenario extends OneShotScenario {
             return;
         }
 
-        try {
-            langToolLock.lock();
-
-            language lang;
-            String checkingText;
-            boolean autodetect = true;
-
-            String[] spaceSplit = readableText.split(" ", 2);
-            if (spaceSplit.length >= 2) {
-                String rawPrefix = spaceSplit[0].toLowerCase();
-                lang = parseLanguage(rawPrefix);
-                if (lang.equals(language.UNK)) {
-                    lang = detectLanguage(readableText);
-                    checkingText = readableText;
-                } else {
-                    checkingText = spaceSplit[1];
-                    autodetect = false;
-                }
-            } else {
+        language lang;
+        String checkingText;
+        boolean autodetect = true;
+
+        String[] spaceSplit = readableText.split(" ", 2);
+        if (spaceSplit.length >= 2) {
+            String rawPrefix = spaceSplit[0].toLowerCase();
+            lang = parseLanguage(rawPrefix);
+            if (lang.equals(language.UNK)) {
                 lang = detectLanguage(readableText);
                 checkingText = readableText;
+            } else {
+                checkingText = spaceSplit[1];
+                autodetect = false;
             }
+        } else {
+            lang = detectLanguage(readableText);
+            checkingText = readableText;
+        }
 
-            if (lang.equals(language.UNK)) {
-                super.showErrorMessage("""
-                        The language cannot be detected or it's not supported.
-                        You can use language code before Your text:
-                        en/us - english, ru - russian, ua/uk - ukrainian.""", event);
-                return;
-            }
+        if (lang.equals(language.UNK)) {
+            super.showErrorMessage("""
+                    The language cannot be detected or it's not supported.
+                    You can use language code before Your text:
+                    en/us - english, ru - russian, ua/uk - ukrainian.""", event);
+            return;
+        }
 
-            List<RuleMatch> matches;
-            JLanguageTool languageTool = switch (lang) {
-                case RU -> ruTool;
-                case UA -> uaTool;
-                default -> enTool;
-            };
-            try {
-                matches = languageTool.check(checkingText);
-            } catch (IOException err) {
-                String errMsg = String.format("Unable to check text with %s languagetool: %s", lang, err.getMessage());
-                log.error(errMsg, err);
-                BroadCast.getLogger().addErrorMessage(errMsg).send();
-                showErrorMessage("Spellcheck engine error", event);
-                return;
-            }
+        List<RuleMatch> matches;
+        LanguageToolPool languageTools = switch (lang) {
+            case RU -> ruTools;
+            case UA -> uaTools;
+            default -> enTools;
+        };
+        try {
+            matches = languageTools.check(checkingText);
+        } catch (IOException err) {
+            String errMsg = String.format("Unable to check text with %s languagetool: %s", lang, err.getMessage());
+            log.error(errMsg, err);
+            BroadCast.getLogger().addErrorMessage(errMsg).send();
+            showErrorMessage("Spellcheck engine error", event);
+            return;
+        }
 
-            StringBuilder highlightText = new StringBuilder(checkingText);
-            StringBuilder errors = new StringBuilder();
+        StringBuilder highlightText = new StringBuilder(checkingText);
+        StringBuilder errors = new StringBuilder();
 
-            if (autodetect) {
-                errors.append("Detected language: ").append(lang).append('\n');
-            }
+        if (autodetect) {
+            errors.append("Detected language: ").append(lang).append('\n');
+        }
 
-            int shift = 0;
-            int pos = 1;
-            if (matches.isEmpty()) {
-                errors.append("No errors found");
-            } else {
-                for (RuleMatch match : matches) {
-                    final String pointText = "`[" + pos + "]";
-                    highlightText.insert(match.getFromPos() + shift, pointText);
-                    shift += pointText.length();
-                    highlightText.insert(match.getToPos() + shift, "`");
-                    shift++;
-                    errors.append(pos).append(") ")
-                            .append(match.getMessage().replaceAll("</?suggestion>", ""))
-                            .append(match.getSuggestedReplacements()
-                                    .stream()
-                                    .limit(3)
-                                    .reduce(CommonUtils::reduceConcat)
-                                    .map((s) -> " *(" + s + ")*")
-                                    .orElse(""))
-                            .append('\n');
-                    pos++;
-                }
+        int shift = 0;
+        int pos = 1;
+        if (matches.isEmpty()) {
+            errors.append("No errors found");
+        } else {
+            for (RuleMatch match : matches) {
+                final String pointText = "`[" + pos + "]";
+                highlightText.insert(match.getFromPos() + shift, pointText);
+                shift += pointText.length();
+                highlightText.insert(match.getToPos() + shift, "`");
+                shift++;
+                errors.append(pos).append(") ")
+                        .append(match.getMessage().replaceAll("</?suggestion>", ""))
+                        .append(match.getSuggestedReplacements()
+                                .stream()
+                                .limit(3)
+                                .reduce(CommonUtils::reduceConcat)
+                                .map((s) -> " *(" + s + ")*")
+                                .orElse(""))
+                        .append('\n');
+                pos++;
             }
+        }
 
-            List<String> listOfMessagesText = CommonUtils.splitEqually(
-                    highlightText.toString() + "\n\n" + errors.toString(), 1999);
-            for (String msgText : listOfMessagesText) {
-                EmbedBuilder embedBuilder = new EmbedBuilder()
-                        .setDescription(msgText);
-                java.util.Optional<Message> msg = super.displayMessage(embedBuilder, event.getChannel());
-                if (msg.isEmpty()) {
-                    return;
-                }
+        List<String> listOfMessagesText = CommonUtils.splitEqually(
+                highlightText.toString() + "\n\n" + errors.toString(), 1999);
+        for (String msgText : listOfMessagesText) {
+            EmbedBuilder embedBuilder = new EmbedBuilder()
+                    .setDescription(msgText);
+            java.util.Optional<Message> msg = super.displayMessage(embedBuilder, event.getChannel());
+            if (msg.isEmpty()) {
+                return;
             }
-        } finally {
-            langToolLock.unlock();
         }
     }
 
     private language detectLanguage(@NotNull final String message) {
-        Optional<LdLocale> lang = languageDetector.detect(message);
+        final LanguageDetector detector;
+        try {
+            detector = getLanguageDetector();
+        } catch (IOException err) {
+            String errMsg = String.format("Unable to load language profiles: %s", err.getMessage());
+            log.error(errMsg, err);
+            BroadCast.getLogger().addErrorMessage(errMsg).send();
+            return language.UNK;
+        }
+        Optional<LdLocale> lang = detector.detect(message);
         if (lang.isPresent()) {
             LdLocale locale = lang.get();
             return parseLanguage(locale.getLanguage());
@@ -185,6 +177,32 @@ public class GrammarScenario extends OneShotScenario {
         }
     }
 
+    /**
+     * Заранее загрузить профили определения языка. Вызывается при запуске бота
+     * одновременно с остальной инициализацией, языковые модели при этом остаются отложенными
+     */
+    public void warmUp() throws IOException {
+        getLanguageDetector();
+    }
+
+    private LanguageDetector getLanguageDetector() throws IOException {
+        LanguageDetector result = languageDetector;
+        if (result == null) {
+            synchronized (this) {
+                result = languageDetector;
+                if (result == null) {
+                    List<LanguageProfile> profiles = new LanguageProfileReader().readBuiltIn(
+                            List.of(LdLocale.fromString("en"), LdLocale.fromString("ru"), LdLocale.fromString("uk")));
+                    result = LanguageDetectorBuilder.create(NgramExtractors.standard())
+                            .withProfiles(profiles)
+                            .build();
+                    languageDetector = result;
+                }
+            }
+        }
+        return result;
+    }
+
     private language parseLanguage(@NotNull final String rawLang) {
         return switch (rawLang) {
             case "en", "us" -> language.US;
@@ -618,7 +618,7 @@ public abstract class Scenario
      * @param sessionState сохранённое состояние сценарция в виде сессии
      */
     protected final void commitState(@NotNull SessionState sessionState) {
-        SessionState.all().add(sessionState);
+        SessionState.register(sessionState);
     }
 
     /**
@@ -629,7 +629,7 @@ public abstract class Scenario
      * @param sessionState сохранённое состояние сценария в виде сессии
      */
     private void rollbackState(@NotNull SessionState sessionState) {
-        SessionState.all().add(sessionState.resetTimeout());
+        SessionState.register(sessionState.resetTimeout());
     }
 
     /**
@@ -0,0 +1,155 @@
+package hellfrog.common;
+
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ScanResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Реестр классов команд, сценариев, реакций и сущностей БД.
+ * <p>
+ * Реестр формируется при компиляции ({@link ClassRegistryProcessor}) и читается из ресурса
+ * {@link #RESOURCE}. Если ресурс отсутствует (например, классы собраны без обработчика аннотаций),
+ * выполняется одно общее сканирование classpath для всех видов классов
+ */
+public final class ClassRegistry {
+
+    public static final String RESOURCE = "META-INF/hellfrog/class-registry.txt";
+    public static final String BOT_COMMAND = "hellfrog.commands.cmdline.BotCommand";
+    public static final String SCENARIO = "hellfrog.commands.scenes.Scenario";
+    public static final String MSG_CREATE_REACTION = "hellfrog.reacts.MsgCreateReaction";
+    public static final String ENTITY = "javax.persistence.Entity";
+
+    private static final String SCAN_PACKAGE = "hellfrog";
+    private static final Logger log = LogManager.getLogger(ClassRegistry.class.getSimpleName());
+    private static volatile Map<String, List<String>> registry = null;
+
+    private ClassRegistry() {
+        throw new RuntimeException("Instance of " + ClassRegistry.class.getName() + " not allowed.");
+    }
+
+    /**
+     * @param base родительский класс ({@link #BOT_COMMAND}, {@link #SCENARIO}, {@link #MSG_CREATE_REACTION})
+     *             либо аннотация {@link #ENTITY}
+     * @return имена публичных неабстрактных классов, унаследованных от родительского класса или
+     * отмеченных аннотацией
+     */
+    @NotNull
+    @UnmodifiableView
+    public static List<String> getClassNames(@NotNull final String base) {
+        return getRegistry().getOrDefault(base, Collections.emptyList());
+    }
+
+    private static Map<String, List<String>> getRegistry() {
+        Map<String, List<String>> result = registry;
+        if (result == null) {
+            synchronized (ClassRegistry.class) {
+                result = registry;
+                if (result == null) {
+                    final long startNanos = System.nanoTime();
+                    result = load();
+                    if (result == null) {
+                        result = scan();
+                        log.warn("Class registry {} not found, classpath scanned", RESOURCE);
+                    }
+                    log.info("Class registry loaded in {} ms: {}",
+                            (System.nanoTime() - startNanos) / 1_000_000L, describe(result));
+                    registry = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    static Map<String, List<String>> load() {
+        try (InputStream in = ClassRegistry.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                return null;
+            }
+            return parse(in);
+        } catch (IOException err) {
+            String errMsg = String.format("Unable to read class registry %s: %s", RESOURCE, err.getMessage());
+            log.error(errMsg, err);
+            return null;
+        }
+    }
+
+    @NotNull
+    static Map<String, List<String>> parse(@NotNull final InputStream in) throws IOException {
+        Map<String, List<String>> result = new HashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] baseAndClass = line.split("\\s+", 2);
+            if (baseAndClass.length == 2) {
+                result.computeIfAbsent(baseAndClass[0], ignored -> new ArrayList<>()).add(baseAndClass[1]);
+            }
+        }
+        return freeze(result);
+    }
+
+    /**
+     * Одно сканирование classpath для всех видов классов
+     */
+    @NotNull
+    static Map<String, List<String>> scan() {
+        Map<String, List<String>> result = new HashMap<>();
+        try (ScanResult scanResult = new ClassGraph()
+                .enableClassInfo()
+                .enableAnnotationInfo()
+                .acceptPackages(SCAN_PACKAGE)
+                .scan()) {
+            for (ClassInfo classInfo : scanResult.getAllClasses()) {
+                if (classInfo.isAbstract() || !classInfo.isPublic()) {
+                    continue;
+                }
+                for (String superClass : List.of(BOT_COMMAND, SCENARIO, MSG_CREATE_REACTION)) {
+                    if (classInfo.extendsSuperclass(superClass)) {
+                        result.computeIfAbsent(superClass, ignored -> new ArrayList<>()).add(classInfo.getName());
+                    }
+                }
+                if (classInfo.hasAnnotation(ENTITY)) {
+                    result.computeIfAbsent(ENTITY, ignored -> new ArrayList<>()).add(classInfo.getName());
+                }
+            }
+        }
+        return freeze(result);
+    }
+
+    private static Map<String, List<String>> freeze(@NotNull final Map<String, List<String>> source) {
+        Map<String, List<String>> result = new HashMap<>();
+        source.forEach((base, classNames) -> {
+            List<String> sorted = new ArrayList<>(classNames);
+            Collections.sort(sorted);
+            result.put(base, Collections.unmodifiableList(sorted));
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String describe(@NotNull final Map<String, List<String>> registry) {
+        StringBuilder result = new StringBuilder();
+        new TreeMap<>(registry).forEach((base, classNames) -> {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(base.substring(base.lastIndexOf('.') + 1)).append(' ').append(classNames.size());
+        });
+        return result.toString();
+    }
+}
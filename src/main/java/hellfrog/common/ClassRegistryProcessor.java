@@ -0,0 +1,141 @@
+package hellfrog.common;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Обработчик аннотаций, формирующий при компиляции реестр классов {@link ClassRegistry}.
+ * <p>
+ * Просматривает все компилируемые классы и записывает в ресурс {@link ClassRegistry#RESOURCE}
+ * публичные неабстрактные наследники команд, сценариев и реакций, а также сущности БД.
+ * При инкрементальной компиляции обрабатываются не все классы, поэтому классы из ранее
+ * сформированного реестра проверяются повторно и сохраняются, если они всё ещё существуют и подходят.
+ * Подключается в pom.xml, сам компилируется отдельно перед основными исходниками
+ */
+public class ClassRegistryProcessor
+        extends AbstractProcessor {
+
+    private static final List<String> SUPER_CLASSES = List.of(ClassRegistry.BOT_COMMAND,
+            ClassRegistry.SCENARIO, ClassRegistry.MSG_CREATE_REACTION);
+
+    private final Set<String> registryLines = new TreeSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeRegistry();
+            return false;
+        }
+        for (Element element : roundEnv.getRootElements()) {
+            collect(element);
+        }
+        return false;
+    }
+
+    private void collect(Element element) {
+        if (!(element instanceof TypeElement)) {
+            return;
+        }
+        TypeElement type = (TypeElement) element;
+        for (Element enclosed : type.getEnclosedElements()) {
+            collect(enclosed);
+        }
+        register(type);
+    }
+
+    private void register(TypeElement type) {
+        Set<Modifier> modifiers = type.getModifiers();
+        if (type.getKind() != ElementKind.CLASS
+                || !modifiers.contains(Modifier.PUBLIC)
+                || modifiers.contains(Modifier.ABSTRACT)) {
+            return;
+        }
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        TypeMirror superClass = type.getSuperclass();
+        while (superClass.getKind() == TypeKind.DECLARED) {
+            TypeElement superElement = (TypeElement) ((DeclaredType) superClass).asElement();
+            String superName = superElement.getQualifiedName().toString();
+            if (SUPER_CLASSES.contains(superName)) {
+                registryLines.add(superName + ' ' + binaryName);
+            }
+            superClass = superElement.getSuperclass();
+        }
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(ClassRegistry.ENTITY)) {
+                registryLines.add(ClassRegistry.ENTITY + ' ' + binaryName);
+            }
+        }
+    }
+
+    /**
+     * Классы предыдущего реестра, не попавшие в текущую компиляцию. Удалённые классы пропускаются,
+     * остальные проверяются заново
+     */
+    private void mergePrevious() {
+        final Set<String> previousClasses = new TreeSet<>();
+        try {
+            FileObject previous = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", ClassRegistry.RESOURCE);
+            // ClassRegistry не загружается в компиляторе: она инициализирует журналирование
+            try (BufferedReader reader = new BufferedReader(previous.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] baseAndClass = line.strip().split("\\s+", 2);
+                    if (baseAndClass.length == 2 && !baseAndClass[0].startsWith("#")) {
+                        previousClasses.add(baseAndClass[1]);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException err) {
+            // реестр ещё не формировался
+            return;
+        }
+        for (String binaryName : previousClasses) {
+            TypeElement type = processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+            if (type != null) {
+                register(type);
+            }
+        }
+    }
+
+    private void writeRegistry() {
+        mergePrevious();
+        try {
+            FileObject resource = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", ClassRegistry.RESOURCE);
+            try (Writer writer = resource.openWriter()) {
+                writer.write("# Generated by " + ClassRegistryProcessor.class.getName() + '\n');
+                for (String line : registryLines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException err) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write class registry " + ClassRegistry.RESOURCE + ": " + err.getMessage());
+        }
+    }
+}
@@ -1,8 +1,5 @@
 package hellfrog.common;
 
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ScanResult;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
@@ -74,79 +71,67 @@ public final class CodeSourceUtils {
     }
 
     /**
-     * Сканирует весь classpath на дочерних классов от указанного суперкласса.
-     * Для найденных классов создаёт экземпляры и помещает в список.
+     * Создаёт экземпляры классов, унаследованных от указанного суперкласса.
+     * Список классов берётся из реестра {@link ClassRegistry}.
      *
      * @return список экземпляров дочерних классов данного родительского класса
      */
     @NotNull
     public static <T> List<T> childClassInstancesCollector(@NotNull final Class<T> superClassFQDN) {
+        final long startNanos = System.nanoTime();
         List<T> collectedCommandsList = new ArrayList<>();
         List<String> successList = new ArrayList<>();
         List<String> failList = new ArrayList<>();
-        try (ScanResult scanResult = new ClassGraph()
-                .enableAllInfo()
-                .acceptPackages("hellfrog")
-                .scan()) {
-            scanResult.getAllClasses().stream()
-                    .filter(ci -> ci.extendsSuperclass(superClassFQDN.getName()))
-                    .filter(ci -> !ci.isAbstract())
-                    .filter(ClassInfo::isPublic)
-                    .map(ClassInfo::getName)
-                    .forEachOrdered(name -> {
-                        try {
-                            Class<?> childClass = Class.forName(name);
-                            Object instance = childClass.getDeclaredConstructor()
-                                    .newInstance();
-                            if (superClassFQDN.isInstance(instance)) {
-                                collectedCommandsList.add(superClassFQDN.cast(instance));
-                            }
-                            successList.add(childClass.getName());
-                        } catch (Exception err) {
-                            failList.add(name + ": " + err);
+        ClassRegistry.getClassNames(superClassFQDN.getName())
+                .forEach(name -> {
+                    try {
+                        Class<?> childClass = Class.forName(name);
+                        Object instance = childClass.getDeclaredConstructor()
+                                .newInstance();
+                        if (superClassFQDN.isInstance(instance)) {
+                            collectedCommandsList.add(superClassFQDN.cast(instance));
                         }
-                    });
-        }
+                        successList.add(childClass.getName());
+                    } catch (Exception err) {
+                        failList.add(name + ": " + err);
+                    }
+                });
         successList.stream()
                 .reduce((s1, s2) -> s1 + ", " + s2)
                 .ifPresent(s -> log.info("Created instances of: " + s));
         failList.stream()
                 .reduce((s1, s2) -> s1 + '\n' + s2)
                 .ifPresent(s -> log.info("Unable to create instances of:\n" + s));
+        log.info("Created {} instances of {} in {} ms", collectedCommandsList.size(),
+                superClassFQDN.getSimpleName(), (System.nanoTime() - startNanos) / 1_000_000L);
         return Collections.unmodifiableList(collectedCommandsList);
     }
 
     @NotNull
     @UnmodifiableView
     public static List<Class<?>> entitiesCollector() {
+        final long startNanos = System.nanoTime();
         List<Class<?>> collectedEntityClasses = new ArrayList<>();
         List<String> successList = new ArrayList<>();
         List<String> failList = new ArrayList<>();
-        try (ScanResult scanResult = new ClassGraph()
-                .enableAllInfo()
-                .acceptPackages("hellfrog")
-                .scan()) {
-            scanResult.getAllClasses().stream()
-                    .filter(ci -> ci.hasAnnotation(Entity.class.getName()))
-                    .filter(ci -> !ci.isAbstract())
-                    .filter(ClassInfo::isPublic)
-                    .map(ClassInfo::getName)
-                    .forEachOrdered(name -> {
-                        try {
-                            Class<?> entityClass = Class.forName(name);
-                            collectedEntityClasses.add(entityClass);
-                            successList.add(entityClass.getName());
-                        } catch (Exception err) {
-                            failList.add(name + ": " + err);
-                        }
-                    });
-        }
+        ClassRegistry.getClassNames(Entity.class.getName())
+                .forEach(name -> {
+                    try {
+                        Class<?> entityClass = Class.forName(name);
+                        collectedEntityClasses.add(entityClass);
+                        successList.add(entityClass.getName());
+                    } catch (Exception err) {
+                        failList.add(name + ": " + err);
+                    }
+                });
         successList.stream()
                 .reduce((s1, s2) -> s1 + ", " + s2)
                 .ifPresent(s -> log.info("Found entity class: " + s));
         failList.stream()
                 .reduce((s1, s2) -> s1 + '\n' + s2)
                 .ifPresent(s -> log.info("Cannot parse entity classes:\n" + s));
+        log.info("Loaded {} entity classes in {} ms", collectedEntityClasses.size(),
+                (System.nanoTime() - startNanos) / 1_000_000L);
         return Collections.unmodifiableList(collectedEntityClasses);
     }
 }
@@ -0,0 +1,177 @@
+package hellfrog.common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Дисковый кэш готовых видео с Coub, ключ - идентификатор коуба.
+ * <p>
+ * Суммарный размер файлов ограничен, при превышении удаляются файлы, которые дольше всего не запрашивались.
+ * Время последнего запроса хранится во времени изменения файла, поэтому порядок вытеснения
+ * восстанавливается после перезапуска. Файлы, отправляемые в данный момент, не удаляются
+ */
+class CoubCache {
+
+    private static final String SUFFIX = ".mp4";
+    private static final Pattern COUB_ID = Pattern.compile("^\\w+$");
+
+    private final Path directory;
+    private final long maxSize;
+    private final LinkedHashMap<String, CachedCoub> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Logger log = LogManager.getLogger("Coub cache");
+    private long totalSize = 0L;
+
+    CoubCache(@NotNull final Path directory, final long maxSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(files::add);
+        }
+        Map<Path, FileTime> accessTimes = new HashMap<>();
+        for (Path file : files) {
+            accessTimes.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(accessTimes::get));
+        synchronized (entries) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String coubId = fileName.substring(0, fileName.length() - SUFFIX.length());
+                CachedCoub cachedCoub = new CachedCoub(file, Files.size(file));
+                entries.put(coubId, cachedCoub);
+                totalSize += cachedCoub.size;
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Найти видео в кэше. Найденный файл не удаляется до вызова {@link #release(String)}
+     */
+    Optional<Path> acquire(@NotNull final String coubId) {
+        synchronized (entries) {
+            CachedCoub cachedCoub = entries.get(coubId);
+            if (cachedCoub == null) {
+                return Optional.empty();
+            }
+            cachedCoub.pins++;
+            touch(cachedCoub.path);
+            return Optional.of(cachedCoub.path);
+        }
+    }
+
+    void release(@NotNull final String coubId) {
+        synchronized (entries) {
+            CachedCoub cachedCoub = entries.get(coubId);
+            if (cachedCoub != null && cachedCoub.pins > 0) {
+                cachedCoub.pins--;
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Поместить готовое видео в кэш. Исходный файл перемещается в каталог кэша
+     *
+     * @param audioTag название трека коуба, хранится только в памяти
+     * @return путь к файлу в кэше, файл не удаляется до вызова {@link #release(String)}
+     */
+    Path store(@NotNull final String coubId, @NotNull final Path source,
+               @Nullable final String audioTag) throws IOException {
+        if (!COUB_ID.matcher(coubId).matches()) {
+            throw new IOException("illegal coub id: " + coubId);
+        }
+        final Path target = directory.resolve(coubId + SUFFIX);
+        synchronized (entries) {
+            CachedCoub existing = entries.get(coubId);
+            if (existing != null) {
+                // это же видео уже получено параллельным запросом
+                Files.deleteIfExists(source);
+                existing.pins++;
+                touch(existing.path);
+                return existing.path;
+            }
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            touch(target);
+            CachedCoub cachedCoub = new CachedCoub(target, Files.size(target));
+            cachedCoub.audioTag = audioTag;
+            cachedCoub.pins++;
+            entries.put(coubId, cachedCoub);
+            totalSize += cachedCoub.size;
+            evict();
+            return target;
+        }
+    }
+
+    /**
+     * @return название трека, либо {@code null}, если видео помещено в кэш до перезапуска
+     */
+    @Nullable
+    String getAudioTag(@NotNull final String coubId) {
+        synchronized (entries) {
+            CachedCoub cachedCoub = entries.get(coubId);
+            return cachedCoub != null ? cachedCoub.audioTag : null;
+        }
+    }
+
+    long getTotalSize() {
+        synchronized (entries) {
+            return totalSize;
+        }
+    }
+
+    private void evict() {
+        Iterator<CachedCoub> eldest = entries.values().iterator();
+        while (totalSize > maxSize && eldest.hasNext()) {
+            CachedCoub cachedCoub = eldest.next();
+            if (cachedCoub.pins > 0) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(cachedCoub.path);
+            } catch (IOException err) {
+                String errMsg = String.format("Unable to delete cached coub \"%s\": %s",
+                        cachedCoub.path, err.getMessage());
+                log.error(errMsg, err);
+            }
+            totalSize -= cachedCoub.size;
+            eldest.remove();
+        }
+    }
+
+    private void touch(@NotNull final Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException err) {
+            log.warn("Unable to update access time of cached coub \"{}\": {}", path, err.getMessage());
+        }
+    }
+
+    private static class CachedCoub {
+
+        private final Path path;
+        private final long size;
+        private String audioTag = null;
+        private int pins = 0;
+
+        CachedCoub(@NotNull final Path path, final long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.message.Message;
 import org.javacord.api.entity.message.MessageBuilder;
 import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
@@ -22,17 +23,21 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,77 +54,169 @@ public class CoubGrabber {
     private static final Bucket bucket = Bucket.builder()
             .addLimit(Bandwidth.simple(1L, Duration.ofSeconds(1L)))
             .build();
-    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private static final int DOWNLOAD_THREADS = 4;
+    private static final ExecutorService downloadExecutor = createDownloadExecutor();
+
+    private static final String CACHE_DIRECTORY = "coub_cache";
+    private static final long CACHE_MAX_SIZE = 256L * 1024L * 1024L;
+    private static final long TRANSFER_CHUNK_SIZE = 64L * 1024L;
+    private static volatile CoubCache coubCache = null;
 
     private static final Logger log = LogManager.getLogger(CoubGrabber.class.getSimpleName());
 
+    /**
+     * Пул параллельной загрузки звука. Количество потоков ограничено, при их нехватке
+     * звук загружается в вызывающем потоке перед видео
+     */
+    private static ExecutorService createDownloadExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(DOWNLOAD_THREADS, DOWNLOAD_THREADS,
+                60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "coub-download-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public static void grabCoub(final @NotNull URI coubUrl,
                                 final @NotNull TextChannel target,
                                 final @Nullable User user,
                                 final @Nullable Server server) {
 
-        bucket.asScheduler().consume(1, executor);
+        // запросы к coub.com выполняются не чаще одного раза в секунду
+        bucket.asScheduler().consume(1, SettingsController.getInstance()
+                .getSchedulerService()
+                .getExecutor())
+                .join();
+
+        final String coubId = getCoubId(coubUrl);
+        final CoubCache coubCache = getCoubCache();
+        final Optional<Path> mayBeCached = coubCache != null ? coubCache.acquire(coubId) : Optional.empty();
+        if (mayBeCached.isPresent()) {
+            String audioTag = coubCache.getAudioTag(coubId);
+            if (audioTag == null) {
+                // кэш восстановлен после перезапуска, название трека неизвестно
+                try {
+                    audioTag = withClient(client -> parseCoubPage(client, coubUrl).audioTag);
+                } catch (RuntimeException err) {
+                    audioTag = "";
+                }
+            }
+            sendVideo(mayBeCached.get(), buildDescription(coubUrl, audioTag, user, server), target)
+                    .whenComplete((msg, err) -> coubCache.release(coubId));
+            return;
+        }
+
+        final ParsedCoubPage parsedCoubPage = withClient(client -> parseCoubPage(client, coubUrl));
+        final List<String> jsonUrls = CommonUtils.detectAllUrls(parsedCoubPage.coubSourcesJson);
+        final String description = buildDescription(coubUrl, parsedCoubPage.audioTag, user, server);
+        String videoForSharing = null;
+        String mp4Video = null;
+        String mp4Audio = null;
+        String mp3Audio = null;
+        for (String videoUrl : jsonUrls) {
+            if (videoUrl.contains(VIDEO_FOR_SHARING)) {
+                videoForSharing = videoUrl;
+                break;
+            } else if (mp4Video == null && MP4_VIDEO.matcher(videoUrl).find()) {
+                mp4Video = videoUrl;
+            } else if (mp4Audio == null && MP4_AUDIO.matcher(videoUrl).find()) {
+                mp4Audio = videoUrl;
+            } else if (mp3Audio == null && MP3_AUDIO.matcher(videoUrl).find()) {
+                mp3Audio = videoUrl;
+            }
+        }
+
+        Path videoPath;
+        if (videoForSharing != null) {
+            final String sharingUrl = videoForSharing;
+            videoPath = withClient(client -> downloadCoubPart(client, sharingUrl, coubUrl));
+        } else if (mp4Video != null && (mp4Audio != null || mp3Audio != null)) {
+            videoPath = mergeSeparatedSources(mp4Video, mp4Audio, mp3Audio, coubUrl);
+        } else {
+            String errMsg = String.format("Video \"%s\" does not contain links for sharing", coubUrl);
+            throw new RuntimeException(errMsg);
+        }
 
-        final SimpleHttpClient client = SettingsController.getInstance()
-                .getHttpClientsPool()
-                .borrowClient();
         try {
-            final ParsedCoubPage parsedCoubPage = parseCoubPage(client, coubUrl);
-            final List<String> jsonUrls = CommonUtils.detectAllUrls(parsedCoubPage.coubSourcesJson);
-            final String userName = user != null ? (server != null ? server.getDisplayName(user) : user.getName()) : "<unknown>";
-            final String uncleanDescription = "<" + coubUrl + "> (from " + userName + ")"
-                    + (CommonUtils.isTrStringNotEmpty(parsedCoubPage.audioTag) ? "\nTrack: " + parsedCoubPage.audioTag : "");
-            final String description = ServerSideResolver.getReadableContent(uncleanDescription, Optional.ofNullable(server));
-            boolean found = false;
-            String mp4Video = null;
-            String mp4Audio = null;
-            String mp3Audio = null;
-            for (String videoUrl : jsonUrls) {
-                if (videoUrl.contains(VIDEO_FOR_SHARING)) {
-                    found = true;
-                    Path videoForSharePath = null;
+            if (Files.size(videoPath) > CommonConstants.MAX_FILE_SIZE) {
+                String errMsg = String.format("Video from \"%s\" too large", coubUrl);
+                throw new RuntimeException(errMsg);
+            }
+            if (coubCache != null) {
+                final Path cachedPath = coubCache.store(coubId, videoPath, parsedCoubPage.audioTag);
+                videoPath = null;
+                sendVideo(cachedPath, description, target)
+                        .whenComplete((msg, err) -> coubCache.release(coubId));
+            } else {
+                final Path tempVideoPath = videoPath;
+                videoPath = null;
+                sendVideo(tempVideoPath, description, target)
+                        .whenComplete((msg, err) -> removeTempFile(tempVideoPath));
+            }
+        } catch (IOException err) {
+            String attachErrMsg = String.format("Unable to attach video from \"%s\", I/O error", coubUrl);
+            log.error(attachErrMsg, err);
+            throw new RuntimeException(attachErrMsg);
+        } finally {
+            removeTempFile(videoPath);
+        }
+    }
+
+    private static CompletableFuture<Message> sendVideo(@NotNull final Path videoPath,
+                                                        @NotNull final String description,
+                                                        @NotNull final TextChannel target) {
+        return new MessageBuilder()
+                .append(description)
+                .addAttachment(videoPath.toFile())
+                .send(target);
+    }
+
+    @NotNull
+    private static String buildDescription(@NotNull final URI coubUrl,
+                                           @Nullable final String audioTag,
+                                           @Nullable final User user,
+                                           @Nullable final Server server) {
+        final String userName = user != null ? (server != null ? server.getDisplayName(user) : user.getName()) : "<unknown>";
+        final String uncleanDescription = "<" + coubUrl + "> (from " + userName + ")"
+                + (CommonUtils.isTrStringNotEmpty(audioTag) ? "\nTrack: " + audioTag : "");
+        return ServerSideResolver.getReadableContent(uncleanDescription, Optional.ofNullable(server));
+    }
+
+    @NotNull
+    static String getCoubId(@NotNull final URI coubUrl) {
+        final String path = coubUrl.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    @Nullable
+    private static CoubCache getCoubCache() {
+        CoubCache result = coubCache;
+        if (result == null) {
+            synchronized (CoubGrabber.class) {
+                result = coubCache;
+                if (result == null) {
                     try {
-                        videoForSharePath = downloadCoubPart(client, videoUrl, coubUrl);
-                        byte[] videoFile = Files.readAllBytes(videoForSharePath);
-                        if (videoFile.length > CommonConstants.MAX_FILE_SIZE) {
-                            String errMsg = String.format("Video from \"%s\" too large", coubUrl);
-                            throw new RuntimeException(errMsg);
-                        }
-                        new MessageBuilder()
-                                .append(description)
-                                .addAttachment(videoFile, "video.mp4")
-                                .send(target);
+                        result = new CoubCache(CodeSourceUtils.resolve(CACHE_DIRECTORY), CACHE_MAX_SIZE);
+                        coubCache = result;
                     } catch (IOException err) {
-                        String attachErrMsg = String.format("Unable to attach video from \"%s\", I/O error", coubUrl);
-                        log.error(attachErrMsg, err);
-                        throw new RuntimeException(attachErrMsg);
-                    } finally {
-                        removeTempFile(videoForSharePath);
-                    }
-                } else if (mp4Video == null && MP4_VIDEO.matcher(videoUrl).find()) {
-                    mp4Video = videoUrl;
-                } else if (mp4Audio == null && MP4_AUDIO.matcher(videoUrl).find()) {
-                    mp4Audio = videoUrl;
-                } else if (mp3Audio == null && MP3_AUDIO.matcher(videoUrl).find()) {
-                    mp3Audio = videoUrl;
-                }
-            }
-            if (!found) {
-                if (mp4Video != null && (mp4Audio != null || mp3Audio != null)) {
-                    byte[] mergedVideo = mergeSeparatedSources(client, mp4Video, mp4Audio, mp3Audio, coubUrl);
-                    if (mergedVideo.length > CommonConstants.MAX_FILE_SIZE) {
-                        String errMsg = String.format("Video from \"%s\" too large", coubUrl);
-                        throw new RuntimeException(errMsg);
+                        String errMsg = String.format("Unable to open coub cache: %s", err.getMessage());
+                        log.error(errMsg, err);
                     }
-                    new MessageBuilder()
-                            .append(description)
-                            .addAttachment(mergedVideo, "video.mp4")
-                            .send(target);
-                } else {
-                    String errMsg = String.format("Video \"%s\" does not contain links for sharing", coubUrl);
-                    throw new RuntimeException(errMsg);
                 }
             }
+        }
+        return result;
+    }
+
+    private static <T> T withClient(@NotNull final Function<SimpleHttpClient, T> action) {
+        final SimpleHttpClient client = SettingsController.getInstance()
+                .getHttpClientsPool()
+                .borrowClient();
+        try {
+            return action.apply(client);
         } finally {
             SettingsController.getInstance()
                     .getHttpClientsPool()
@@ -196,42 +293,57 @@ public class CoubGrabber {
         }
     }
 
-    private static byte[] mergeSeparatedSources(@NotNull final SimpleHttpClient client,
-                                                @NotNull final String mp4Video,
-                                                @Nullable final String mp4Audio,
-                                                @Nullable final String mp3Audio,
-                                                @NotNull final URI coubUrl) throws RuntimeException {
+    private static Path mergeSeparatedSources(@NotNull final String mp4Video,
+                                              @Nullable final String mp4Audio,
+                                              @Nullable final String mp3Audio,
+                                              @NotNull final URI coubUrl) throws RuntimeException {
         if (mp4Audio == null && mp3Audio == null) {
             String errMsg = String.format("Unable to find coub audio from page \"%s\"", coubUrl);
             throw new RuntimeException(errMsg);
         }
+        final String audioUrl = mp4Audio != null ? mp4Audio : mp3Audio;
+        // видео и звук скачиваются одновременно
+        final CompletableFuture<Path> audioDownload = CompletableFuture.supplyAsync(() ->
+                withClient(client -> downloadCoubPart(client, audioUrl, coubUrl)), downloadExecutor);
         Path mp4VideoPath = null;
         Path mp4AudioPath = null;
         Path mp3AudioPath = null;
-        Path resultPath = null;
         try {
-            mp4VideoPath = downloadCoubPart(client, mp4Video, coubUrl);
+            mp4VideoPath = withClient(client -> downloadCoubPart(client, mp4Video, coubUrl));
             if (mp4Audio == null) {
-                mp3AudioPath = downloadCoubPart(client, mp3Audio, coubUrl);
+                mp3AudioPath = joinDownload(audioDownload);
                 mp4AudioPath = FFMpegUtils.convertToM4A(mp3AudioPath);
             } else {
-                mp4AudioPath = downloadCoubPart(client, mp4Audio, coubUrl);
+                mp4AudioPath = joinDownload(audioDownload);
             }
             final FFMpegDuration videoDuration = FFMpegUtils.getMediaDuration(mp4VideoPath);
             final FFMpegDuration audioDuration = FFMpegUtils.getMediaDuration(mp4AudioPath);
             final FFMpegDuration targetDuration = videoDuration.getTotalMillis() < audioDuration.getTotalMillis()
                     ? videoDuration : audioDuration;
-            resultPath = FFMpegUtils.mergeVideo(mp4VideoPath, mp4AudioPath, targetDuration);
-            return Files.readAllBytes(resultPath);
+            return FFMpegUtils.mergeVideo(mp4VideoPath, mp4AudioPath, targetDuration);
         } catch (IOException err) {
             String errMsg = String.format("Unable to convert video from page \"%s\"", coubUrl);
             log.error(errMsg, err);
             throw new RuntimeException(errMsg);
         } finally {
+            if (mp4AudioPath == null && mp3AudioPath == null) {
+                // загрузка звука могла завершиться после ошибки загрузки видео
+                audioDownload.thenAccept(CoubGrabber::removeTempFile);
+            }
             removeTempFile(mp4AudioPath);
             removeTempFile(mp4VideoPath);
             removeTempFile(mp3AudioPath);
-            removeTempFile(resultPath);
+        }
+    }
+
+    private static Path joinDownload(@NotNull final CompletableFuture<Path> download) throws RuntimeException {
+        try {
+            return download.join();
+        } catch (CompletionException err) {
+            if (err.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) err.getCause();
+            }
+            throw err;
         }
     }
 
@@ -239,7 +351,7 @@ public class CoubGrabber {
                                          @NotNull final String partUrl,
                                          @NotNull final URI coubUrl) throws RuntimeException {
         URI uri;
-        Path result;
+        Path result = null;
         try {
             uri = new URI(partUrl);
         } catch (URISyntaxException err) {
@@ -255,31 +367,45 @@ public class CoubGrabber {
                 throw new RuntimeException(statusCodeErr);
             }
             final HttpEntity httpEntity = httpResponse.getEntity();
+            if (httpEntity == null) {
+                String emptyErrMsg = String.format("Coub.com received empty media part from url \"%s\"", coubUrl);
+                throw new RuntimeException(emptyErrMsg);
+            }
             try {
-                try {
-                    result = CodeSourceUtils.getCodeSourceParent().resolve(Path.of(uri.getPath()).getFileName());
-                    try (BufferedOutputStream bufOut = new BufferedOutputStream(Files.newOutputStream(result))) {
-                        httpEntity.writeTo(bufOut);
+                result = Files.createTempFile(CodeSourceUtils.getCodeSourceParent(), "coub_",
+                        "_" + Path.of(uri.getPath()).getFileName());
+                // содержимое пишется в файл напрямую из сокета, без буферизации всего файла в памяти
+                try (ReadableByteChannel source = Channels.newChannel(httpEntity.getContent());
+                     FileChannel out = FileChannel.open(result, StandardOpenOption.WRITE,
+                             StandardOpenOption.TRUNCATE_EXISTING)) {
+                    long position = 0L;
+                    long transferred;
+                    while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0L) {
+                        position += transferred;
                     }
-                } catch (IOException fileSaveErr) {
-                    String saveErrMsg = String.format("Unable to save media from \"%s\"", coubUrl);
-                    log.error(saveErrMsg, fileSaveErr);
-                    throw new RuntimeException(saveErrMsg);
                 }
+            } catch (IOException fileSaveErr) {
+                removeTempFile(result);
+                String saveErrMsg = String.format("Unable to save media from \"%s\"", coubUrl);
+                log.error(saveErrMsg, fileSaveErr);
+                throw new RuntimeException(saveErrMsg);
             } finally {
                 EntityUtils.consume(httpEntity);
             }
         } catch (IOException err) {
+            removeTempFile(result);
             String errMsg = String.format("Unable to save media part from \"%s\"", coubUrl);
             log.error(errMsg, err);
             throw new RuntimeException(errMsg);
         }
         try {
             if (Files.size(result) == 0L) {
+                removeTempFile(result);
                 String zeroSizeErr = String.format("Coub.com received empty media part from url \"%s\"", coubUrl);
                 throw new RuntimeException(zeroSizeErr);
             }
         } catch (IOException err) {
+            removeTempFile(result);
             String errMsg = String.format("Unable to fetch media part size from url \"%s\"", coubUrl);
             log.error(errMsg, err);
             throw new RuntimeException(errMsg);
@@ -6,6 +6,7 @@ import hellfrog.common.ddgentity.DDGSearchResult;
 import hellfrog.common.ddgentity.DDGWebResult;
 import hellfrog.common.ddgentity.DDGWebResults;
 import hellfrog.settings.SettingsController;
+import hellfrog.settings.db.CacheStatistic;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -21,15 +22,49 @@ import org.jsoup.Jsoup;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class DuckDuckGoSearch {
 
     private static final Logger log = LogManager.getLogger(DuckDuckGoSearch.class.getSimpleName());
 
+    private static final long SEARCH_TIMEOUT = 3L * CommonConstants.OP_WAITING_TIMEOUT;
+
+    // повторные запросы в течение получаса не отправляются в поисковик, ещё несколько часов
+    // отдаётся прежний результат, пока в фоне выполняется новый поиск
+    private static final ResponseCache<String, List<DDGSearchResult>> searchCache =
+            new ResponseCache<>("DuckDuckGo search", 256,
+                    Duration.ofMinutes(30L), Duration.ofHours(6L), Duration.ofMinutes(2L),
+                    DuckDuckGoSearch::search,
+                    SettingsController.getInstance().getResponseCacheExecutor());
+
     public static List<DDGSearchResult> searchInEngine(@NotNull final String searchQuery) throws OperationException {
+        try {
+            return searchCache.get(searchQuery.strip()).get(SEARCH_TIMEOUT, CommonConstants.OP_TIME_UNIT);
+        } catch (ExecutionException err) {
+            if (err.getCause() instanceof OperationException) {
+                throw (OperationException) err.getCause();
+            }
+            String errMsg = String.format("DuckDuckGo search error: %s", err.getMessage());
+            throw new OperationException(errMsg, "Internal bot error", err.getCause());
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new OperationException("DuckDuckGo search interrupted", "Internal bot error", err);
+        } catch (TimeoutException err) {
+            throw new OperationException("DuckDuckGo search timeout", "DuckDuckGo does not respond", err);
+        }
+    }
+
+    public static CacheStatistic getCacheStatistic() {
+        return searchCache.getCacheStatistic();
+    }
+
+    private static List<DDGSearchResult> search(@NotNull final String searchQuery) throws OperationException {
 
         SimpleHttpClient client = SettingsController.getInstance()
                 .getHttpClientsPool()
@@ -0,0 +1,254 @@
+package hellfrog.common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выполнение процессов ffmpeg.
+ * <p>
+ * Одновременно выполняется ограниченное число процессов, остальные задания ждут своей очереди.
+ * Размер очереди ограничен, при её переполнении задание отклоняется. Процесс, не завершившийся
+ * за отведённое время, принудительно завершается. Ожидание вызывающего потока также ограничено:
+ * если задание не выполнено вовремя (долгое ожидание в очереди или зависание потока пула),
+ * оно отменяется, а запущенный процесс уничтожается. Вывод процесса пишется во временный файл,
+ * поэтому отдельные потоки для чтения вывода не нужны
+ */
+public class FFMpegExecutor {
+
+    private static final long KILL_WAITING_SECONDS = 5L;
+    private static final Duration QUEUE_WAITING = Duration.ofSeconds(60L);
+
+    private final int concurrency;
+    private final int queueCapacity;
+    private final Duration queueWaiting;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0L);
+    private final LongAdder totalRunNanos = new LongAdder();
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0L);
+    private final Logger log = LogManager.getLogger(FFMpegExecutor.class.getSimpleName());
+
+    public FFMpegExecutor(final int concurrency, final int queueCapacity) {
+        this(concurrency, queueCapacity, QUEUE_WAITING);
+    }
+
+    FFMpegExecutor(final int concurrency, final int queueCapacity, @NotNull final Duration queueWaiting) {
+        this.concurrency = concurrency;
+        this.queueCapacity = queueCapacity;
+        this.queueWaiting = queueWaiting;
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ffmpeg-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Выполнить ffmpeg и дождаться завершения
+     *
+     * @param cmdline командная строка процесса
+     * @param timeout максимальное время выполнения процесса (без учёта ожидания в очереди,
+     *                которое дополнительно ограничено минутой)
+     * @return код завершения и вывод процесса
+     * @throws IOException очередь заданий переполнена, процесс не запустился или не завершился за отведённое время
+     */
+    @NotNull
+    public FFMpegResult execute(@NotNull final List<String> cmdline,
+                                final long timeout,
+                                @NotNull final TimeUnit unit) throws IOException {
+        final FFMpegJob ffmpegJob = new FFMpegJob(cmdline, timeout, unit, System.nanoTime());
+        final Future<FFMpegResult> job;
+        try {
+            job = executor.submit(ffmpegJob);
+        } catch (RejectedExecutionException err) {
+            rejected.increment();
+            String errMsg = String.format("ffmpeg jobs queue is full, job rejected: %s", cmdline);
+            throw new IOException(errMsg, err);
+        }
+        try {
+            final long waitMillis = queueWaiting.toMillis() + TimeUnit.SECONDS.toMillis(KILL_WAITING_SECONDS)
+                    + unit.toMillis(timeout);
+            return job.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException err) {
+            ffmpegJob.abandon(job);
+            timeouts.increment();
+            String errMsg = String.format("ffmpeg job \"%s\" is not completed in time, cancelled", cmdline);
+            throw new IOException(errMsg, err);
+        } catch (InterruptedException err) {
+            ffmpegJob.abandon(job);
+            Thread.currentThread().interrupt();
+            String errMsg = String.format("interrupted while waiting ffmpeg job: %s", cmdline);
+            throw new IOException(errMsg, err);
+        } catch (ExecutionException err) {
+            if (err.getCause() instanceof IOException) {
+                throw (IOException) err.getCause();
+            }
+            String errMsg = String.format("ffmpeg job \"%s\" failed: %s", cmdline, err.getMessage());
+            throw new IOException(errMsg, err.getCause());
+        }
+    }
+
+    private FFMpegResult run(@NotNull final FFMpegJob job) throws IOException {
+        final List<String> cmdline = job.cmdline;
+        final long timeout = job.timeout;
+        final TimeUnit unit = job.unit;
+        final long startedAt = System.nanoTime();
+        final long waitNanos = startedAt - job.queuedAt;
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+        final Path outputFile = Files.createTempFile("ffmpeg_", ".log");
+        Process process = null;
+        try {
+            process = new ProcessBuilder()
+                    .command(cmdline)
+                    .redirectErrorStream(true)
+                    .redirectOutput(outputFile.toFile())
+                    .start();
+            job.started(process);
+            if (!process.waitFor(timeout, unit)) {
+                kill(process);
+                timeouts.increment();
+                String errMsg = String.format("ffmpeg execution timeout (%d ms) of \"%s\", output: %s",
+                        unit.toMillis(timeout), cmdline, readOutput(outputFile));
+                throw new IOException(errMsg);
+            }
+            completed.increment();
+            return new FFMpegResult(process.exitValue(), readOutput(outputFile));
+        } catch (InterruptedException err) {
+            kill(process);
+            if (!job.abandoned) {
+                errors.increment();
+            }
+            Thread.currentThread().interrupt();
+            String errMsg = String.format("ffmpeg execution of \"%s\" interrupted", cmdline);
+            throw new IOException(errMsg, err);
+        } catch (IOException err) {
+            if (process == null) {
+                errors.increment();
+            }
+            throw err;
+        } finally {
+            final long runNanos = System.nanoTime() - startedAt;
+            totalRunNanos.add(runNanos);
+            maxRunNanos.accumulate(runNanos);
+            try {
+                Files.deleteIfExists(outputFile);
+            } catch (IOException err) {
+                log.warn("Unable to delete ffmpeg output file \"{}\": {}", outputFile, err.getMessage());
+            }
+        }
+    }
+
+    private void kill(final Process process) {
+        if (process == null) {
+            return;
+        }
+        process.destroyForcibly();
+        try {
+            if (!process.waitFor(KILL_WAITING_SECONDS, TimeUnit.SECONDS)) {
+                log.error("ffmpeg process {} is not terminated after kill", process.pid());
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Задание ffmpeg. Хранит запущенный процесс, чтобы вызывающий поток мог уничтожить его
+     * после истечения времени ожидания
+     */
+    private final class FFMpegJob implements Callable<FFMpegResult> {
+
+        private final List<String> cmdline;
+        private final long timeout;
+        private final TimeUnit unit;
+        private final long queuedAt;
+        private volatile Process process = null;
+        private volatile boolean abandoned = false;
+
+        private FFMpegJob(@NotNull final List<String> cmdline,
+                          final long timeout,
+                          @NotNull final TimeUnit unit,
+                          final long queuedAt) {
+            this.cmdline = cmdline;
+            this.timeout = timeout;
+            this.unit = unit;
+            this.queuedAt = queuedAt;
+        }
+
+        @Override
+        public FFMpegResult call() throws IOException {
+            return run(this);
+        }
+
+        private void started(@NotNull final Process process) {
+            this.process = process;
+            if (abandoned) {
+                // вызывающий поток перестал ждать, пока процесс запускался
+                process.destroyForcibly();
+            }
+        }
+
+        private void abandon(@NotNull final Future<FFMpegResult> job) {
+            abandoned = true;
+            job.cancel(true);
+            final Process current = process;
+            if (current != null) {
+                current.destroyForcibly();
+            }
+        }
+    }
+
+    @NotNull
+    private static String readOutput(@NotNull final Path outputFile) {
+        try {
+            return new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8);
+        } catch (IOException err) {
+            return "<no proc output>";
+        }
+    }
+
+    /**
+     * Состояние очереди и время выполнения заданий
+     */
+    public List<String> describe() {
+        List<String> result = new ArrayList<>(3);
+        long completedCount = completed.sum();
+        long startedCount = executor.getCompletedTaskCount() + executor.getActiveCount();
+        result.add(String.format("ffmpeg jobs: running %d/%d, queued %d/%d, completed %d, rejected %d, " +
+                        "timeouts %d, errors %d", executor.getActiveCount(), concurrency,
+                executor.getQueue().size(), queueCapacity, completedCount, rejected.sum(),
+                timeouts.sum(), errors.sum()));
+        result.add(formatTimings("ffmpeg queue wait", startedCount, totalWaitNanos.sum(), maxWaitNanos.get()));
+        result.add(formatTimings("ffmpeg run time", executor.getCompletedTaskCount(),
+                totalRunNanos.sum(), maxRunNanos.get()));
+        return result;
+    }
+
+    private static String formatTimings(@NotNull final String name, final long count,
+                                        final long totalNanos, final long maxNanos) {
+        double avgMillis = count > 0L ? (totalNanos / (double) count) / 1_000_000.0D : 0.0D;
+        return String.format("%s: avg %.3f ms, max %d ms", name, avgMillis, TimeUnit.NANOSECONDS.toMillis(maxNanos));
+    }
+}
@@ -0,0 +1,23 @@
+package hellfrog.common;
+
+import org.jetbrains.annotations.NotNull;
+
+public class FFMpegResult {
+
+    private final int exitCode;
+    private final String output;
+
+    public FFMpegResult(final int exitCode, @NotNull final String output) {
+        this.exitCode = exitCode;
+        this.output = output;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    @NotNull
+    public String getOutput() {
+        return output;
+    }
+}
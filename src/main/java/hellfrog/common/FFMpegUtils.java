@@ -1,17 +1,23 @@
 package hellfrog.common;
 
+import hellfrog.settings.db.CacheStatistic;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Операции с медиафайлами. Все процессы ffmpeg выполняются через общий {@link FFMpegExecutor}
+ */
 public final class FFMpegUtils {
 
     private FFMpegUtils() {
@@ -21,6 +27,20 @@ public final class FFMpegUtils {
     private static final Pattern DURATION_PATTERN = Pattern.compile("\\d\\d:\\d\\d:\\d\\d\\.\\d\\d");
     private static final Pattern DURATION_SEARCH = Pattern.compile("Duration: \\d\\d:\\d\\d:\\d\\d\\.\\d\\d",
             Pattern.MULTILINE);
+    private static final int JOBS_CONCURRENCY = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int JOBS_QUEUE_CAPACITY = 16;
+    private static final long CONVERT_TIMEOUT = 6L * CommonConstants.OP_WAITING_TIMEOUT;
+    private static final int MAX_CACHED_DURATIONS = 256;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private static final FFMpegExecutor executor = new FFMpegExecutor(JOBS_CONCURRENCY, JOBS_QUEUE_CAPACITY);
+    private static final Map<String, FFMpegDuration> durationsCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FFMpegDuration> eldest) {
+            return size() > MAX_CACHED_DURATIONS;
+        }
+    };
+    private static final CacheStatistic durationsCacheStatistic = new CacheStatistic("Media durations");
     private static final Logger log = LogManager.getLogger(FFMpegUtils.class.getSimpleName());
 
     public static FFMpegDuration getMediaDuration(@NotNull final Path mediaFile) throws IOException {
@@ -28,17 +48,22 @@ public final class FFMpegUtils {
             throw new IOException("file not found: " + mediaFile);
         }
 
+        // длительность одного и того же файла не запрашивается у ffmpeg повторно
+        final String fileHash = hashOf(mediaFile);
+        synchronized (durationsCache) {
+            FFMpegDuration cached = durationsCache.get(fileHash);
+            if (cached != null) {
+                durationsCacheStatistic.hit();
+                return cached;
+            }
+        }
+        durationsCacheStatistic.miss();
+
         String procOutput = "<no proc output>";
         final List<String> cmdline = List.of("ffmpeg", "-hide_banner", "-i", mediaFile.toString());
         try {
-            final Process process = new ProcessBuilder()
-                    .command(cmdline)
-                    .start();
-            final ProcessOutputBuffer stdout = new ProcessOutputBuffer(process.getInputStream());
-            final ProcessOutputBuffer stderr = new ProcessOutputBuffer(process.getErrorStream());
-            process.waitFor(CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT);
-
-            procOutput = stdout.getOutput() + stderr.getOutput();
+            procOutput = executor.execute(cmdline, CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT)
+                    .getOutput();
 
             final Matcher durationsFound = DURATION_SEARCH.matcher(procOutput);
             if (!durationsFound.find()) {
@@ -52,18 +77,17 @@ public final class FFMpegUtils {
                 throw new IOException(errMsg);
             }
             final String rawDurationValue = durationsLength.group();
-            return FFMpegDuration.parseDuration(rawDurationValue);
+            final FFMpegDuration duration = FFMpegDuration.parseDuration(rawDurationValue);
+            synchronized (durationsCache) {
+                durationsCache.put(fileHash, duration);
+            }
+            return duration;
         } catch (IOException err) {
             String errMsg = String.format("cannot execute ffmpeg for run \"%s\": %s",
                     cmdline.toString(), err.getMessage());
             log.error(errMsg, err);
             log.error(procOutput);
             throw new IOException(errMsg, err);
-        } catch (InterruptedException err) {
-            String errMsg = String.format("to long ffmpeg execution of \"%s\"", cmdline.toString());
-            log.error(errMsg, err);
-            log.error(procOutput);
-            throw new IOException(errMsg, err);
         }
     }
 
@@ -81,38 +105,26 @@ public final class FFMpegUtils {
                 "-i", inputAudio.toString(), "-c", "copy", "-t", duration.toString(), resultFile.toString());
 
         try {
-            final Process process = new ProcessBuilder()
-                    .command(cmdline)
-                    .start();
-            final ProcessOutputBuffer stdout = new ProcessOutputBuffer(process.getInputStream());
-            final ProcessOutputBuffer stderr = new ProcessOutputBuffer(process.getErrorStream());
-            process.waitFor(CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT);
-
-            procOutput = stdout.getOutput() + stderr.getOutput();
-            if (process.exitValue() != 0) {
+            final FFMpegResult result = executor.execute(cmdline, CommonConstants.OP_WAITING_TIMEOUT,
+                    CommonConstants.OP_TIME_UNIT);
+            procOutput = result.getOutput();
+            if (result.getExitCode() != 0) {
                 String errMsg = String.format("cannot merge video and audio \"%s\" \"%s\": ffmpeg returned: %d",
-                        inputVideo, inputAudio, process.exitValue());
+                        inputVideo, inputAudio, result.getExitCode());
+                throw new IOException(errMsg);
+            }
+            if (Files.size(resultFile) == 0L) {
+                String errMsg = String.format("cannot merge video and audio \"%s\" \"%s\": output file has zero size",
+                        inputVideo, inputAudio);
                 throw new IOException(errMsg);
             }
         } catch (IOException err) {
+            Files.deleteIfExists(resultFile);
             String errMsg = String.format("cannot execute ffmpeg for run \"%s\": %s",
                     cmdline.toString(), err.getMessage());
             log.error(errMsg, err);
             log.error(procOutput);
             throw new IOException(errMsg, err);
-        } catch (InterruptedException err) {
-            String errMsg = String.format("to long ffmpeg execution of \"%s\"", cmdline.toString());
-            log.error(errMsg, err);
-            log.error(procOutput);
-            throw new IOException(errMsg, err);
-        }
-
-        if (Files.size(resultFile) == 0L) {
-            String errMsg = String.format("cannot merge video and audio \"%s\" \"%s\": output file has zero size",
-                    inputVideo, inputAudio);
-            log.error(errMsg);
-            log.error(procOutput);
-            throw new IOException(errMsg);
         }
 
         return resultFile;
@@ -131,47 +143,59 @@ public final class FFMpegUtils {
                 resultFile.toString());
 
         try {
-            final Process process = new ProcessBuilder()
-                    .command(cmdline)
-                    .start();
-            final ProcessOutputBuffer stdout = new ProcessOutputBuffer(process.getInputStream());
-            final ProcessOutputBuffer stderr = new ProcessOutputBuffer(process.getErrorStream());
-            final int waitCount = 6;
-            int count = 0;
-            while (!process.waitFor(CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT)) {
-                count++;
-                if (count == waitCount) {
-                    throw new IOException("ffmpeg waiting timeout");
-                }
-            }
-
-            procOutput = stdout.getOutput() + stderr.getOutput();
-            if (process.exitValue() != 0) {
+            final FFMpegResult result = executor.execute(cmdline, CONVERT_TIMEOUT, CommonConstants.OP_TIME_UNIT);
+            procOutput = result.getOutput();
+            if (result.getExitCode() != 0) {
                 String errMsg = String.format("cannot convert audio file from \"%s\" to \"%s\": ffmpeg returned: %d",
-                        inputAudio, resultFile, process.exitValue());
+                        inputAudio, resultFile, result.getExitCode());
+                throw new IOException(errMsg);
+            }
+            if (Files.size(resultFile) == 0L) {
+                String errMsg = String.format("cannot convert audio file from \"%s\" to \"%s\": output file has zero size",
+                        inputAudio, resultFile);
                 throw new IOException(errMsg);
             }
         } catch (IOException err) {
+            Files.deleteIfExists(resultFile);
             String errMsg = String.format("cannot execute ffmpeg for run \"%s\": %s",
                     cmdline.toString(), err.getMessage());
             log.error(errMsg, err);
             log.error(procOutput);
             throw new IOException(errMsg, err);
-        } catch (InterruptedException err) {
-            String errMsg = String.format("to long ffmpeg execution of \"%s\"", cmdline.toString());
-            log.error(errMsg, err);
-            log.error(procOutput);
-            throw new IOException(errMsg, err);
-        }
-
-        if (Files.size(resultFile) == 0L) {
-            String errMsg = String.format("cannot convert audio file from \"%s\" to \"%s\": output file has zero size",
-                    inputAudio, resultFile);
-            log.error(errMsg);
-            log.error(procOutput);
-            throw new IOException(errMsg);
         }
 
         return resultFile;
     }
+
+    /**
+     * Состояние очереди заданий ffmpeg и кэша длительностей
+     */
+    public static List<String> describe() {
+        List<String> result = new ArrayList<>(executor.describe());
+        result.add(durationsCacheStatistic.toString());
+        return result;
+    }
+
+    @NotNull
+    static String hashOf(@NotNull final Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException err) {
+            throw new IOException("SHA-256 is not supported", err);
+        }
+        final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
 }
@@ -0,0 +1,292 @@
+package hellfrog.common;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выполнение запросов к нескольким GPT-сервисам.
+ * <p>
+ * Сервисы опрашиваются по приоритету, сервисы с одинаковым приоритетом - в случайном порядке.
+ * При ошибке запрос передаётся следующему сервису. Если сервис не ответил за заданное время,
+ * запрос дополнительно отправляется следующему сервису и используется первый полученный ответ.
+ * Для каждого сервиса ограничено время ответа и количество одновременных запросов, сервис,
+ * исчерпавший лимит, пропускается. Одинаковые запросы, поступившие во время выполнения,
+ * получают один и тот же ответ
+ */
+public class GptOrchestrator
+        implements GptProvider {
+
+    private static final long[] LATENCY_BOUNDS_MS = {250L, 500L, 1_000L, 2_000L, 4_000L, 8_000L, 16_000L, 32_000L};
+    private static final Duration HEDGE_DELAY = Duration.ofSeconds(5L);
+
+    private final List<Backend> backends = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, CompletableFuture<GptResult>> inFlight = new ConcurrentHashMap<>();
+    private final long hedgeDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+
+    GptOrchestrator(@NotNull final Duration hedgeDelay,
+                    @NotNull final ScheduledExecutorService scheduler,
+                    @NotNull final ExecutorService executor) {
+        this.hedgeDelayMillis = hedgeDelay.toMillis();
+        this.scheduler = scheduler;
+        this.executor = executor;
+    }
+
+    /**
+     * Porfirevich и Yalm равноценны, Sber GPT-3 медленный и используется в последнюю очередь.
+     * Таймауты, дублирующие запросы и ожидание лимитов выполняются общим планировщиком
+     */
+    public static GptOrchestrator createDefault(@NotNull final SchedulerService schedulerService) {
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        final ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "gpt-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        final ScheduledExecutorService scheduler = schedulerService.getExecutor();
+        final ExecutorService executor = Executors.newFixedThreadPool(5, threadFactory);
+        return new GptOrchestrator(HEDGE_DELAY, scheduler, executor)
+                .addProvider("Porfirevich", 0, 2, Duration.ofSeconds(20L),
+                        new PorfirevichProvider(executor, scheduler))
+                .addProvider("Yalm", 0, 2, Duration.ofSeconds(15L),
+                        new YalmProvider(executor, scheduler))
+                .addProvider("Sber GPT-3", 1, 1, Duration.ofSeconds(45L),
+                        new SberGPT3Provider(executor, scheduler));
+    }
+
+    /**
+     * @param priority      сервисы с меньшим значением опрашиваются раньше
+     * @param maxConcurrent максимальное количество одновременных запросов к сервису
+     * @param timeout       максимальное время ответа сервиса
+     */
+    GptOrchestrator addProvider(@NotNull final String name,
+                                final int priority,
+                                final int maxConcurrent,
+                                @NotNull final Duration timeout,
+                                @NotNull final GptProvider provider) {
+        backends.add(new Backend(name, priority, maxConcurrent, timeout, provider));
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<GptResult> appendText(final String sourceText) {
+        requests.increment();
+        final Attempts attempts = new Attempts(sourceText, getOrdered());
+        final CompletableFuture<GptResult> existing = inFlight.putIfAbsent(sourceText, attempts.result);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+        attempts.result.whenComplete((result, err) -> inFlight.remove(sourceText, attempts.result));
+        attempts.launchNext();
+        return attempts.result.copy();
+    }
+
+    @NotNull
+    private List<Backend> getOrdered() {
+        List<Backend> ordered = new ArrayList<>(backends);
+        Collections.shuffle(ordered);
+        ordered.sort(Comparator.comparingInt(backend -> backend.priority));
+        return ordered;
+    }
+
+    /**
+     * Количество запросов и распределение времени ответа каждого сервиса
+     */
+    public List<String> describe() {
+        List<String> result = new ArrayList<>(backends.size() + 1);
+        result.add(String.format("GPT requests %d, coalesced %d, hedged %d, in flight %d",
+                requests.sum(), coalesced.sum(), hedged.sum(), inFlight.size()));
+        backends.forEach(backend -> result.add(backend.toString()));
+        return result;
+    }
+
+    public void stop() {
+        executor.shutdown();
+    }
+
+    private class Attempts {
+
+        private final String prompt;
+        private final List<Backend> order;
+        private final CompletableFuture<GptResult> result = new CompletableFuture<>();
+        private int next = 0;
+        private int running = 0;
+        private boolean hedgeScheduled = false;
+        private Throwable lastError = null;
+
+        Attempts(@NotNull final String prompt,
+                 @NotNull final List<Backend> order) {
+            this.prompt = prompt;
+            this.order = order;
+        }
+
+        void launchNext() {
+            Backend toStart = null;
+            Throwable failure = null;
+            boolean scheduleHedge = false;
+            synchronized (this) {
+                while (!result.isDone() && next < order.size()) {
+                    Backend backend = order.get(next++);
+                    if (backend.tryAcquire()) {
+                        running++;
+                        toStart = backend;
+                        break;
+                    }
+                    lastError = new GptException("All cortex chips are busy, try again later");
+                }
+                if (toStart == null && !result.isDone() && running == 0) {
+                    failure = lastError != null ? lastError : new GptException("No cortex chips available");
+                }
+                if (toStart != null && !hedgeScheduled && hedgeDelayMillis > 0L) {
+                    hedgeScheduled = true;
+                    scheduleHedge = true;
+                }
+            }
+            // завершение и запуск выполняются без блокировки: обработчики ответа могут выполняться долго
+            if (toStart != null) {
+                start(toStart);
+            }
+            if (scheduleHedge) {
+                scheduler.schedule(this::hedge, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        private void start(@NotNull final Backend backend) {
+            final long startedAt = System.nanoTime();
+            CompletableFuture<GptResult> call;
+            try {
+                call = backend.provider.appendText(prompt);
+            } catch (Exception err) {
+                call = CompletableFuture.failedFuture(err);
+            }
+            // по истечении времени ожидания запрос продолжает выполняться и занимать поток,
+            // поэтому разрешение сервиса возвращается только после его фактического завершения
+            final CompletableFuture<GptResult> answer = call.copy()
+                    .orTimeout(backend.timeoutMillis, TimeUnit.MILLISECONDS);
+            call.handle((value, err) -> err)
+                    .thenAcceptBoth(answer.handle((value, err) -> err), (callErr, answerErr) ->
+                            backend.release(System.nanoTime() - startedAt, answerErr));
+            answer.whenComplete((value, err) -> onComplete(backend, value, err));
+        }
+
+        private void hedge() {
+            boolean launch;
+            synchronized (this) {
+                launch = !result.isDone() && running > 0 && next < order.size();
+            }
+            if (launch) {
+                hedged.increment();
+                launchNext();
+            }
+        }
+
+        private void onComplete(@NotNull final Backend backend,
+                                final GptResult value,
+                                final Throwable err) {
+            synchronized (this) {
+                running--;
+                if (err != null) {
+                    Throwable cause = err instanceof CompletionException && err.getCause() != null
+                            ? err.getCause()
+                            : err;
+                    if (cause instanceof TimeoutException) {
+                        GptException gptException = new GptException("The cortex chip does not response");
+                        gptException.setFooterMessage(String.format("%s timeout: %d ms",
+                                backend.name, backend.timeoutMillis));
+                        cause = gptException;
+                    }
+                    lastError = cause;
+                }
+            }
+            if (err == null) {
+                result.complete(value);
+            } else {
+                launchNext();
+            }
+        }
+    }
+
+    private static class Backend {
+
+        private final String name;
+        private final int priority;
+        private final int maxConcurrent;
+        private final long timeoutMillis;
+        private final GptProvider provider;
+        private final Semaphore permits;
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder busy = new LongAdder();
+        private final LongAdder[] latencies = new LongAdder[LATENCY_BOUNDS_MS.length + 1];
+
+        Backend(@NotNull final String name,
+                final int priority,
+                final int maxConcurrent,
+                @NotNull final Duration timeout,
+                @NotNull final GptProvider provider) {
+            this.name = name;
+            this.priority = priority;
+            this.maxConcurrent = maxConcurrent;
+            this.timeoutMillis = timeout.toMillis();
+            this.provider = provider;
+            this.permits = new Semaphore(maxConcurrent);
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LongAdder();
+            }
+        }
+
+        boolean tryAcquire() {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            busy.increment();
+            return false;
+        }
+
+        void release(final long elapsedNanos, final Throwable err) {
+            permits.release();
+            if (err == null) {
+                succeeded.increment();
+            } else if (err instanceof TimeoutException || err.getCause() instanceof TimeoutException) {
+                timeouts.increment();
+            } else {
+                failed.increment();
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+            int bucket = 0;
+            while (bucket < LATENCY_BOUNDS_MS.length && elapsedMillis >= LATENCY_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            latencies[bucket].increment();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder()
+                    .append(String.format("%s: ok %d, failed %d, timeouts %d, busy %d, running %d/%d; latency",
+                            name, succeeded.sum(), failed.sum(), timeouts.sum(), busy.sum(),
+                            maxConcurrent - permits.availablePermits(), maxConcurrent));
+            for (int i = 0; i < latencies.length; i++) {
+                String bound = i < LATENCY_BOUNDS_MS.length
+                        ? "<" + LATENCY_BOUNDS_MS[i]
+                        : ">=" + LATENCY_BOUNDS_MS[LATENCY_BOUNDS_MS.length - 1];
+                result.append(i == 0 ? " " : ", ").append(bound).append(" ms: ").append(latencies[i].sum());
+            }
+            return result.toString();
+        }
+    }
+}
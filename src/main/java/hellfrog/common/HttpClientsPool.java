@@ -1,67 +1,183 @@
 package hellfrog.common;
 
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.cookie.CookieSpecProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Общий пул HTTP-соединений.
+ * <p>
+ * Все клиенты используют один менеджер соединений с ограничением общего числа соединений и
+ * числа соединений на один хост, поэтому соединения с одним и тем же хостом переиспользуются
+ * между запросами. Каждый выданный клиент имеет собственный контекст и хранилище cookie.
+ * Время установки соединения и ожидания данных ограничено, поэтому зависший сервер не занимает
+ * поток и соединение бесконечно.
+ * Просроченные и простаивающие соединения периодически закрываются
+ */
 public class HttpClientsPool
         implements Runnable {
 
-    private final ConcurrentLinkedQueue<SimpleHttpClient> pool = new ConcurrentLinkedQueue<>();
-    private final ScheduledExecutorService executorService;
-    private static final int MIN_OBJECTS = 3;
-    private static final int MAX_OBJECTS = 10;
-    private static final long VALIDATION_INTERVAL = 60L;
+    private static final int MAX_TOTAL_CONNECTIONS = 40;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 8;
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2_000;
+    private static final long DEFAULT_KEEP_ALIVE_MS = 30_000L;
+    private static final long IDLE_TIMEOUT_SECONDS = 60L;
+    private static final long EVICTION_INTERVAL = 15L;
+    private static final int CONNECTION_REQUEST_TIMEOUT_MS = 30_000;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int SOCKET_TIMEOUT_MS = 60_000;
+    private static final String COOKIE_SPEC = "easy";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final Registry<CookieSpecProvider> cookieSpecRegistry = RegistryBuilder.<CookieSpecProvider>create()
+            .register(COOKIE_SPEC, new HttpClientAnyCookieProvider())
+            .build();
+    private final RequestConfig requestConfig = RequestConfig.custom()
+            .setCookieSpec(COOKIE_SPEC)
+            .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MS)
+            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+            .setSocketTimeout(SOCKET_TIMEOUT_MS)
+            .build();
+    private final SchedulerService.ScheduledTask evictionTask;
     private final Logger log = LogManager.getLogger("HTTP clients pool");
 
-    public HttpClientsPool() {
-        run();
-        executorService = Executors.newSingleThreadScheduledExecutor();
-        executorService.scheduleWithFixedDelay(this,
-                VALIDATION_INTERVAL, VALIDATION_INTERVAL, TimeUnit.SECONDS);
+    public HttpClientsPool(@NotNull final SchedulerService schedulerService) {
+        connectionManager = new PoolingHttpClientConnectionManager(buildSocketFactoryRegistry());
+        connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(buildKeepAliveStrategy())
+                .setDefaultHeaders(buildDefaultHeaders())
+                .setDefaultCookieSpecRegistry(cookieSpecRegistry)
+                .setDefaultRequestConfig(requestConfig)
+                .build();
+        evictionTask = schedulerService.schedule("http-connections-eviction",
+                EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.SECONDS, this);
     }
 
+    /**
+     * Получить клиент для выполнения запросов. Клиент не требует закрытия,
+     * но ответы на запросы должны быть закрыты, чтобы соединение вернулось в пул
+     */
     public SimpleHttpClient borrowClient() {
-        SimpleHttpClient client;
-        if ((client = pool.poll()) == null) {
-            client = new SimpleHttpClient();
-        }
-        return client;
+        return new SimpleHttpClient(httpClient, requestConfig, cookieSpecRegistry);
     }
 
     public void returnClient(SimpleHttpClient client) {
         if (client == null) {
             return;
         }
-        this.pool.offer(client);
+        client.close();
     }
 
     @Override
     public void run() {
-        int size = pool.size();
-        log.info("Current size: {}", size);
+        try {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            log.debug(describeTotal());
+        } catch (Exception err) {
+            log.error("Unable to evict idle connections: " + err.getMessage(), err);
+        }
+    }
 
-        if (size < MIN_OBJECTS) {
-            int sizeToBeAdded = MIN_OBJECTS + size;
-            for (int i = 0; i < sizeToBeAdded; i++) {
-                pool.add(new SimpleHttpClient());
-            }
-        } else if (size > MAX_OBJECTS) {
-            int sizeToBeRemoved = size - MAX_OBJECTS;
-            for (int i = 0; i < sizeToBeRemoved; i++) {
-                SimpleHttpClient client = pool.poll();
-                if (client != null) {
-                    client.close();
-                }
-            }
+    /**
+     * Состояние пула: общее и по каждому хосту
+     */
+    public List<String> describe() {
+        List<String> result = new ArrayList<>();
+        result.add(describeTotal());
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            PoolStats stats = connectionManager.getStats(route);
+            result.add(String.format("%s: leased %d, available %d, pending %d",
+                    route.getTargetHost().toHostString(), stats.getLeased(), stats.getAvailable(),
+                    stats.getPending()));
         }
+        return result;
+    }
+
+    private String describeTotal() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return String.format("HTTP connections: leased %d, available %d, pending %d, max %d (%d per host)",
+                stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(),
+                connectionManager.getDefaultMaxPerRoute());
     }
 
     public void stop() {
-        executorService.shutdown();
+        evictionTask.cancel();
+        try {
+            httpClient.close();
+        } catch (IOException err) {
+            log.warn("Unable to close HTTP connections pool: {}", err.getMessage());
+        }
+    }
+
+    @NotNull
+    private Registry<ConnectionSocketFactory> buildSocketFactoryRegistry() {
+        SSLConnectionSocketFactory sslSocketFactory;
+        try {
+            SSLContext sslContext = SSLContextBuilder.create()
+                    .loadTrustMaterial(new HttpClientSSLIgnoreStrategy())
+                    .build();
+            sslSocketFactory = new SSLConnectionSocketFactory(sslContext, new NoopHostnameVerifier());
+        } catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException err) {
+            String errMsg = String.format("Unable to set SSL certificate ignoration context: %s", err.getMessage());
+            log.fatal(errMsg, err);
+            sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+        }
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory)
+                .build();
+    }
+
+    @NotNull
+    private static ConnectionKeepAliveStrategy buildKeepAliveStrategy() {
+        // если сервер не сообщил время жизни соединения, оно не держится дольше заданного
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive > 0L ? Math.min(keepAlive, DEFAULT_KEEP_ALIVE_MS) : DEFAULT_KEEP_ALIVE_MS;
+        };
+    }
+
+    @NotNull
+    private static Collection<Header> buildDefaultHeaders() {
+        List<Header> headers = new ArrayList<>();
+        headers.add(new BasicHeader("User-Agent",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/87.0.4280.88 Safari/537.36"));
+        headers.add(new BasicHeader("DNT", "1"));
+        headers.add(new BasicHeader("Accept-Language","ru-RU,ru;q=0.9,en-US;q=0.8,en;q=0.7,lb;q=0.6,fr;q=0.5,zh-CN;q=0.4,zh;q=0.3,de;q=0.2"));
+        return headers;
     }
 }
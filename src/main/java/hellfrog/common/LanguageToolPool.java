@@ -0,0 +1,102 @@
+package hellfrog.common;
+
+import org.jetbrains.annotations.NotNull;
+import org.languagetool.JLanguageTool;
+import org.languagetool.Language;
+import org.languagetool.rules.RuleMatch;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Пул экземпляров {@link JLanguageTool} одного языка.
+ * <p>
+ * Экземпляры создаются при первой необходимости, их количество ограничено, поэтому одновременно
+ * выполняется не больше проверок, чем экземпляров. Экземпляры используют общий объект языка,
+ * словари и теггеры загружаются один раз. Результаты проверки последних текстов кэшируются
+ */
+public class LanguageToolPool {
+
+    private static final int MAX_CACHED_RESULTS = 256;
+
+    private final Supplier<Language> languageFactory;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<JLanguageTool> idle = new ConcurrentLinkedDeque<>();
+    private final Map<String, List<RuleMatch>> results = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<RuleMatch>> eldest) {
+            return size() > MAX_CACHED_RESULTS;
+        }
+    };
+    private volatile Language language = null;
+
+    /**
+     * @param languageFactory создание объекта языка, вызывается при первой проверке
+     * @param maxInstances    максимальное количество экземпляров
+     */
+    public LanguageToolPool(@NotNull final Supplier<Language> languageFactory,
+                            final int maxInstances) {
+        this.languageFactory = languageFactory;
+        this.permits = new Semaphore(maxInstances);
+    }
+
+    /**
+     * Проверить текст. Если все экземпляры заняты, ожидает освобождения одного из них
+     */
+    public List<RuleMatch> check(@NotNull final String text) throws IOException {
+        synchronized (results) {
+            List<RuleMatch> cached = results.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for spellchecker", err);
+        }
+        final List<RuleMatch> matches;
+        try {
+            // занятых и свободных экземпляров не больше, чем разрешений
+            JLanguageTool languageTool = idle.pollFirst();
+            if (languageTool == null) {
+                languageTool = new JLanguageTool(getLanguage());
+            }
+            try {
+                matches = List.copyOf(languageTool.check(text));
+            } finally {
+                idle.offerFirst(languageTool);
+            }
+        } finally {
+            permits.release();
+        }
+        synchronized (results) {
+            results.put(text, matches);
+        }
+        return matches;
+    }
+
+    int getInstancesCount() {
+        return idle.size();
+    }
+
+    private Language getLanguage() {
+        Language result = language;
+        if (result == null) {
+            synchronized (this) {
+                result = language;
+                if (result == null) {
+                    result = languageFactory.get();
+                    language = result;
+                }
+            }
+        }
+        return result;
+    }
+}
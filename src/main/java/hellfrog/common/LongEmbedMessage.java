@@ -353,7 +353,7 @@ public class LongEmbedMessage
 
     @NotNull
     @UnmodifiableView
-    private List<String> getTexts() {
+    List<String> getTexts() {
         if (messageBuffer.length() <= 2000) {
             return List.of(messageBuffer.toString());
         } else {
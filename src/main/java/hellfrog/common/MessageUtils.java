@@ -47,21 +47,34 @@ public class MessageUtils
         if (discordApi == null) {
             return eventMessage;
         }
-        final User yourself = discordApi.getYourself();
+        String serverBotPrefix = eventServer.isPresent()
+                ? settingsController.getBotPrefix(eventServer.get().getId())
+                : settingsController.getGlobalCommonPrefix();
+        return getEventMessageWithoutBotPrefix(eventMessage, discordApi.getYourself(), serverBotPrefix);
+    }
+
+    /**
+     * Удалить из сообщения упоминание бота либо префикс бота сервера
+     *
+     * @param eventMessage текст сообщения
+     * @param yourself     пользователь бота
+     * @param botPrefix    префикс бота сервера сообщения либо общий префикс для личных сообщений
+     */
+    @NotNull
+    public static String getEventMessageWithoutBotPrefix(@NotNull String eventMessage,
+                                                         @NotNull User yourself,
+                                                         @NotNull String botPrefix) {
         String botMentionTag = yourself.getMentionTag();
         String botMentionNicknameTag = yourself.getNicknameMentionTag();
-        String botPrefix;
+        String prefix;
         if (eventMessage.startsWith(botMentionTag)) {
-            botPrefix = botMentionTag;
+            prefix = botMentionTag;
         } else if (eventMessage.startsWith(botMentionNicknameTag)) {
-            botPrefix = botMentionNicknameTag;
-        } else if (eventServer.isPresent()) {
-            Server server = eventServer.get();
-            botPrefix = settingsController.getBotPrefix(server.getId());
+            prefix = botMentionNicknameTag;
         } else {
-            botPrefix = settingsController.getGlobalCommonPrefix();
+            prefix = botPrefix;
         }
-        return getCmdlineWithoutPrefix(botPrefix, eventMessage);
+        return getCmdlineWithoutPrefix(prefix, eventMessage);
     }
 
     public static Optional<Message> resolveByLink(String messageWithLink) {
@@ -171,7 +184,10 @@ public class MessageUtils
                 ServerTextChannel tch = mayBeChannel.get();
 
                 try {
-                    return Optional.ofNullable(tch.getMessageById(messageId).get(10L, TimeUnit.SECONDS));
+                    return Optional.ofNullable(SettingsController.getInstance()
+                            .getMessageCacheService()
+                            .getMessage(tch, messageId)
+                            .get(10L, TimeUnit.SECONDS));
                 } catch (Exception ignore) {
                 }
             }
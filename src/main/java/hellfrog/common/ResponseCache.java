@@ -0,0 +1,209 @@
+package hellfrog.common;
+
+import hellfrog.settings.db.CacheStatistic;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Асинхронный кэш ответов внешних сервисов.
+ * <p>
+ * Полученное значение считается свежим в течение заданного времени. После этого, пока не истекло
+ * время устаревания, запрашивающим сразу отдаётся старое значение, а обновление выполняется
+ * в фоне, не более одного обновления на ключ одновременно. Параллельные запросы отсутствующего
+ * значения ожидают одну и ту же загрузку. Ошибки загрузки тоже кэшируются на короткое время,
+ * чтобы недоступный сервис не запрашивался каждым пользователем. Число ключей ограничено,
+ * вытесняются давно не запрашиваемые
+ *
+ * @param <K> ключ запроса
+ * @param <V> ответ сервиса
+ */
+public class ResponseCache<K, V> {
+
+    private final Loader<K, V> loader;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier clock;
+    private final Executor executor;
+    private final CacheStatistic cacheStatistic;
+    private final Map<K, CachedResponse<V>> entries;
+
+    /**
+     * @param name        название кэша в статистике
+     * @param maxSize     максимальное количество ключей
+     * @param ttl         время, в течение которого значение считается свежим
+     * @param stale       время после устаревания, в течение которого отдаётся старое значение
+     * @param negativeTtl время хранения ошибки загрузки
+     * @param loader      загрузка значения из внешнего сервиса
+     * @param executor    пул загрузок ({@link #createLoadersExecutor(int, int)})
+     */
+    public ResponseCache(@NotNull final String name,
+                         final int maxSize,
+                         @NotNull final Duration ttl,
+                         @NotNull final Duration stale,
+                         @NotNull final Duration negativeTtl,
+                         @NotNull final Loader<K, V> loader,
+                         @NotNull final Executor executor) {
+        this(name, maxSize, ttl, stale, negativeTtl, loader, System::nanoTime, executor);
+    }
+
+    ResponseCache(@NotNull final String name,
+                  final int maxSize,
+                  @NotNull final Duration ttl,
+                  @NotNull final Duration stale,
+                  @NotNull final Duration negativeTtl,
+                  @NotNull final Loader<K, V> loader,
+                  @NotNull final LongSupplier clock,
+                  @NotNull final Executor executor) {
+        this.loader = loader;
+        this.ttlNanos = ttl.toNanos();
+        this.staleNanos = stale.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.clock = clock;
+        this.executor = executor;
+        this.cacheStatistic = new CacheStatistic(name);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedResponse<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Пул загрузок, общий для всех кэшей. Количество потоков и размер очереди ограничены,
+     * при переполнении очереди загрузка завершается ошибкой, которая не кэшируется
+     */
+    @NotNull
+    public static ExecutorService createLoadersExecutor(final int threads, final int queueCapacity) {
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "response-cache-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Получить значение. Свежее или устаревшее значение и закэшированная ошибка возвращаются
+     * уже завершёнными, иначе возвращается ожидание загрузки
+     */
+    @NotNull
+    public CompletableFuture<V> get(@NotNull final K key) {
+        synchronized (entries) {
+            final long now = clock.getAsLong();
+            CachedResponse<V> entry = entries.get(key);
+            if (entry != null && entry.hasValue) {
+                if (now - entry.freshUntil < 0L) {
+                    cacheStatistic.hit();
+                    return CompletableFuture.completedFuture(entry.value);
+                }
+                if (now - entry.staleUntil < 0L) {
+                    cacheStatistic.hit();
+                    if (entry.loading == null && now - entry.retryAt >= 0L) {
+                        load(key, entry);
+                    }
+                    return CompletableFuture.completedFuture(entry.value);
+                }
+            }
+            if (entry != null && entry.failure != null && now - entry.freshUntil < 0L) {
+                cacheStatistic.hit();
+                return CompletableFuture.failedFuture(entry.failure);
+            }
+            cacheStatistic.miss();
+            if (entry == null) {
+                entry = new CachedResponse<>();
+                entries.put(key, entry);
+            }
+            final CompletableFuture<V> loading = entry.loading != null ? entry.loading : load(key, entry);
+            return loading.copy();
+        }
+    }
+
+    private CompletableFuture<V> load(@NotNull final K key, @NotNull final CachedResponse<V> entry) {
+        final CompletableFuture<V> loading = new CompletableFuture<>();
+        entry.loading = loading;
+        try {
+            executor.execute(() -> complete(key, entry, loading));
+        } catch (RejectedExecutionException err) {
+            entry.loading = null;
+            loading.completeExceptionally(err);
+        }
+        return loading;
+    }
+
+    private void complete(@NotNull final K key, @NotNull final CachedResponse<V> entry,
+                          @NotNull final CompletableFuture<V> loading) {
+        V value = null;
+        Throwable failure = null;
+        try {
+            value = loader.load(key);
+            if (value == null) {
+                failure = new NullPointerException("loader returned null for " + key);
+            }
+        } catch (Throwable err) {
+            failure = err;
+        }
+        synchronized (entries) {
+            final long now = clock.getAsLong();
+            entry.loading = null;
+            if (failure == null) {
+                entry.value = value;
+                entry.hasValue = true;
+                entry.failure = null;
+                entry.freshUntil = now + ttlNanos;
+                entry.staleUntil = entry.freshUntil + staleNanos;
+                entry.retryAt = now;
+            } else if (entry.hasValue && now - entry.staleUntil < 0L) {
+                // фоновое обновление не удалось - старое значение отдаётся дальше,
+                // повторная попытка не раньше, чем истечёт время хранения ошибки
+                entry.retryAt = now + negativeTtlNanos;
+            } else {
+                entry.value = null;
+                entry.hasValue = false;
+                entry.failure = failure;
+                entry.freshUntil = now + negativeTtlNanos;
+            }
+        }
+        if (failure == null) {
+            loading.complete(value);
+        } else {
+            loading.completeExceptionally(failure);
+        }
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public CacheStatistic getCacheStatistic() {
+        return cacheStatistic;
+    }
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(@NotNull K key) throws Exception;
+    }
+
+    private static class CachedResponse<V> {
+
+        private V value = null;
+        private boolean hasValue = false;
+        private Throwable failure = null;
+        private long freshUntil = 0L;
+        private long staleUntil = 0L;
+        private long retryAt = 0L;
+        private CompletableFuture<V> loading = null;
+    }
+}
@@ -0,0 +1,270 @@
+package hellfrog.common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Общий планировщик периодических задач.
+ * <p>
+ * Все фоновые задачи бота выполняются небольшим общим пулом потоков вместо отдельного потока на задачу.
+ * Задачи именованы, интервал между запусками увеличивается на случайную добавку (до {@link #JITTER_PERCENT}%
+ * интервала), чтобы задачи с одинаковым интервалом не запускались одновременно. Если предыдущий запуск
+ * задачи ещё не завершился, очередной запуск пропускается. Для каждой задачи собирается статистика
+ * запусков и времени выполнения, задачу можно запустить вручную.
+ * Пул также используется для разовых отложенных действий ({@link #getExecutor()})
+ */
+public class SchedulerService {
+
+    static final int JITTER_PERCENT = 10;
+    private static final long STOP_TIMEOUT_SECONDS = 30L;
+
+    private final Logger log = LogManager.getLogger("Scheduler");
+    private final ScheduledThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, ScheduledTask> tasks = new ConcurrentHashMap<>();
+    private final ThreadLocal<Boolean> insideTask = ThreadLocal.withInitial(() -> false);
+    private volatile boolean stopped = false;
+
+    /**
+     * @param poolSize количество потоков пула
+     */
+    public SchedulerService(final int poolSize) {
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        executor = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "scheduler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Запланировать периодическую задачу
+     *
+     * @param name         уникальное название задачи
+     * @param initialDelay задержка первого запуска
+     * @param period       интервал между запусками (без учёта случайной добавки)
+     * @param unit         единицы измерения задержки и интервала
+     * @param action       действие задачи
+     * @return задача, её можно отменить
+     * @throws IllegalArgumentException если задача с таким названием уже запланирована
+     */
+    public ScheduledTask schedule(@NotNull final String name,
+                                  final long initialDelay,
+                                  final long period,
+                                  @NotNull final TimeUnit unit,
+                                  @NotNull final Runnable action) {
+        final ScheduledTask task = new ScheduledTask(name, unit.toNanos(period), action);
+        if (tasks.putIfAbsent(name, task) != null) {
+            throw new IllegalArgumentException("Task \"" + name + "\" already scheduled");
+        }
+        scheduleNext(task, unit.toNanos(initialDelay));
+        return task;
+    }
+
+    /**
+     * Запустить задачу немедленно, не дожидаясь очередного запуска по расписанию
+     *
+     * @param name название задачи
+     * @return {@code false}, если задача не найдена, отменена или уже выполняется
+     */
+    public boolean trigger(@NotNull final String name) {
+        final ScheduledTask task = tasks.get(name);
+        if (task == null || task.cancelled || stopped || !task.running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> runAcquired(task));
+        } catch (RejectedExecutionException err) {
+            task.running.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Пул для разовых отложенных действий (таймауты, ожидание лимитов запросов)
+     */
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    public List<String> getTaskNames() {
+        return new ArrayList<>(new TreeMap<>(tasks).keySet());
+    }
+
+    /**
+     * Статистика задач: количество запусков, пропусков, ошибок и время выполнения
+     */
+    public List<String> describe() {
+        List<String> result = new ArrayList<>(tasks.size() + 1);
+        result.add(String.format("Scheduler: %d tasks, %d threads, %d active, %d queued",
+                tasks.size(), executor.getPoolSize(), executor.getActiveCount(), executor.getQueue().size()));
+        for (Map.Entry<String, ScheduledTask> entry : new TreeMap<>(tasks).entrySet()) {
+            result.add(entry.getValue().toString());
+        }
+        return result;
+    }
+
+    /**
+     * Остановить планировщик: отменить все задачи и дождаться завершения выполняющихся
+     */
+    public void stop() {
+        stopped = true;
+        tasks.values().forEach(ScheduledTask::cancel);
+        executor.shutdown();
+        if (insideTask.get()) {
+            // остановка вызвана из задачи, ожидание завершения привело бы к ожиданию самой себя
+            return;
+        }
+        try {
+            if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Scheduled tasks are not completed in {} seconds, interrupting", STOP_TIMEOUT_SECONDS);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException err) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleNext(@NotNull final ScheduledTask task, final long delayNanos) {
+        if (task.cancelled || stopped) {
+            return;
+        }
+        final long jitterNanos = task.periodNanos * JITTER_PERCENT / 100L;
+        final long nextDelayNanos = delayNanos
+                + (jitterNanos > 0L ? ThreadLocalRandom.current().nextLong(jitterNanos) : 0L);
+        try {
+            final ScheduledFuture<?> scheduled = executor.schedule(() -> tick(task), nextDelayNanos,
+                    TimeUnit.NANOSECONDS);
+            task.next = scheduled;
+            if (task.cancelled) {
+                // задача отменена во время планирования
+                scheduled.cancel(false);
+            }
+        } catch (RejectedExecutionException ignored) {
+            // планировщик остановлен
+        }
+    }
+
+    private void tick(@NotNull final ScheduledTask task) {
+        if (task.cancelled) {
+            return;
+        }
+        // следующий запуск планируется до выполнения, чтобы долгое выполнение не сдвигало расписание
+        scheduleNext(task, task.periodNanos);
+        if (!task.running.compareAndSet(false, true)) {
+            task.skipped.increment();
+            log.warn("Task \"{}\" skipped: previous run is still in progress", task.name);
+            return;
+        }
+        runAcquired(task);
+    }
+
+    private void runAcquired(@NotNull final ScheduledTask task) {
+        final long startNanos = System.nanoTime();
+        insideTask.set(true);
+        try {
+            task.action.run();
+        } catch (Throwable err) {
+            task.failures.increment();
+            String errMsg = String.format("Task \"%s\" failed: %s", task.name, err.getMessage());
+            log.error(errMsg, err);
+        } finally {
+            insideTask.set(false);
+            final long durationNanos = System.nanoTime() - startNanos;
+            task.runs.increment();
+            task.totalNanos.add(durationNanos);
+            task.maxNanos.accumulate(durationNanos);
+            task.lastDurationNanos = durationNanos;
+            task.lastRunAt = Instant.now();
+            task.running.set(false);
+        }
+    }
+
+    /**
+     * Периодическая задача планировщика
+     */
+    public class ScheduledTask {
+
+        private final String name;
+        private final long periodNanos;
+        private final Runnable action;
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private volatile long lastDurationNanos = 0L;
+        private volatile Instant lastRunAt = null;
+        private volatile ScheduledFuture<?> next = null;
+        private volatile boolean cancelled = false;
+
+        private ScheduledTask(@NotNull final String name,
+                              final long periodNanos,
+                              @NotNull final Runnable action) {
+            this.name = name;
+            this.periodNanos = periodNanos;
+            this.action = action;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isRunning() {
+            return running.get();
+        }
+
+        long getRuns() {
+            return runs.sum();
+        }
+
+        long getSkipped() {
+            return skipped.sum();
+        }
+
+        long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * Отменить последующие запуски задачи. Выполняющийся запуск не прерывается
+         */
+        public void cancel() {
+            cancelled = true;
+            tasks.remove(name, this);
+            ScheduledFuture<?> scheduled = next;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long runsCount = runs.sum();
+            return String.format("%s: every %d s, runs %d, skipped %d, failed %d, " +
+                            "last %d ms, avg %d ms, max %d ms, last run %s%s",
+                    name, TimeUnit.NANOSECONDS.toSeconds(periodNanos), runsCount, skipped.sum(), failures.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(lastDurationNanos),
+                    runsCount > 0L ? TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / runsCount) : 0L,
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos.get()),
+                    lastRunAt != null ? lastRunAt.toString() : "never",
+                    running.get() ? " (running)" : "");
+        }
+    }
+}
@@ -3,6 +3,7 @@ package hellfrog.common;
 import hellfrog.common.worldometers.CovidStatistic;
 import hellfrog.common.worldometers.TwoLettersCountries;
 import hellfrog.settings.SettingsController;
+import hellfrog.settings.db.CacheStatistic;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -10,52 +11,60 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.util.EntityUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import java.io.IOException;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
 public class WorldometersParser {
 
     private static final String SITE_PAGE = "https://www.worldometers.info";
     private static final String COVID_PAGE = SITE_PAGE + "/coronavirus/";
     private static final Logger log = LogManager.getLogger("Worldometers Parser");
-    private static final ReentrantLock covidStatisticUpdateLock = new ReentrantLock();
+    private static final long LOADING_TIMEOUT = 3L * CommonConstants.OP_WAITING_TIMEOUT;
 
-    private static volatile Map<String, CovidStatistic> actualCovidStatistic = null;
-    private static volatile Instant covidStatisticLastUpdate = null;
+    // страница обновляется раз в 4 часа, до суток после этого отдаётся прежняя статистика,
+    // пока в фоне загружается новая
+    private static final ResponseCache<String, Map<String, CovidStatistic>> covidStatisticCache =
+            new ResponseCache<>("Covid statistic", 1,
+                    Duration.ofHours(4L), Duration.ofHours(20L), Duration.ofMinutes(5L),
+                    WorldometersParser::loadCoronavirusPage,
+                    SettingsController.getInstance().getResponseCacheExecutor());
 
     public static Map<String, CovidStatistic> getActualCovidStatistic() {
-        if (requiredUpdate()) {
-            covidStatisticUpdateLock.lock();
-            try {
-                if (requiredUpdate()) {
-                    actualCovidStatistic = parseCoronavirusPage();
-                    covidStatisticLastUpdate = Instant.now();
-                }
-            } finally {
-                covidStatisticUpdateLock.unlock();
-            }
+        try {
+            return covidStatisticCache.get(COVID_PAGE).get(LOADING_TIMEOUT, CommonConstants.OP_TIME_UNIT);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyMap();
+        } catch (ExecutionException | TimeoutException err) {
+            return Collections.emptyMap();
         }
-        return actualCovidStatistic;
     }
 
     public static String getCovidPage() {
         return COVID_PAGE;
     }
 
-    private static boolean requiredUpdate() {
-        return actualCovidStatistic == null
-                || actualCovidStatistic.isEmpty()
-                || covidStatisticLastUpdate == null
-                || Math.abs(Duration.between(covidStatisticLastUpdate, Instant.now()).toHours()) >= 4.0;
+    public static CacheStatistic getCacheStatistic() {
+        return covidStatisticCache.getCacheStatistic();
+    }
+
+    private static Map<String, CovidStatistic> loadCoronavirusPage(@NotNull final String page) throws IOException {
+        Map<String, CovidStatistic> result = parseCoronavirusPage();
+        if (result.isEmpty()) {
+            throw new IOException("Unable to load statistic from " + page);
+        }
+        return result;
     }
 
     private static Map<String, CovidStatistic> parseCoronavirusPage() {
@@ -21,7 +21,7 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 
 public class YalmProvider
@@ -31,9 +31,13 @@ public class YalmProvider
     private static final String FOOTER_TEXT = "by Yandex.Balaboba";
     private final Bucket bucket;
     private final Logger log = LogManager.getLogger(this.getClass().getSimpleName());
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
 
-    public YalmProvider() {
+    public YalmProvider(@NotNull final Executor executor,
+                        @NotNull final ScheduledExecutorService scheduler) {
+        this.executor = executor;
+        this.scheduler = scheduler;
         Bandwidth bandwidth = Bandwidth.simple(1L, Duration.ofSeconds(3L));
         bucket = Bucket.builder().addLimit(bandwidth).build();
     }
@@ -41,9 +45,8 @@ public class YalmProvider
     @Override
     public CompletableFuture<GptResult> appendText(final String sourceText) {
         final CompletableFuture<GptResult> future = new CompletableFuture<>();
-        CompletableFuture.runAsync(() -> {
-            bucket.asScheduler().consume(1, scheduler);
-
+        // ожидание ограничения частоты запросов не занимает поток
+        bucket.asScheduler().consume(1, scheduler).thenRunAsync(() -> {
             BroadCast.MessagesLogger messagesLogger = BroadCast.getLogger();
             ObjectMapper objectMapper = new ObjectMapper();
             GptRequest gptRequest = new GptRequest();
@@ -131,6 +134,10 @@ public class YalmProvider
                         .returnClient(client);
                 messagesLogger.send();
             }
+        }, executor).whenComplete((ignored, err) -> {
+            if (err != null) {
+                future.completeExceptionally(err);
+            }
         });
         return future;
     }
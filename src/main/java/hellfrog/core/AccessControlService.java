@@ -18,9 +18,14 @@ import org.javacord.api.entity.user.User;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.javacord.api.event.message.reaction.SingleReactionEvent;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 public class AccessControlService {
 
@@ -37,6 +42,15 @@ public class AccessControlService {
     private final BotOwnersDAO botOwnersDAO;
     private final NameCacheService nameCacheService;
 
+    // снимок, собранный при ошибке чтения прав, запрещает команды и хранится недолго,
+    // чтобы при сбое БД каждая проверка не повторяла загрузку
+    private static final long FAILED_SNAPSHOT_TTL_NANOS = TimeUnit.SECONDS.toNanos(5L);
+
+    private final ConcurrentHashMap<Long, CachedAcl> aclSnapshots = new ConcurrentHashMap<>();
+    // загрузка и изменение прав разных серверов не блокируют друг друга
+    private final ConcurrentHashMap<Long, ReentrantLock> aclLocks = new ConcurrentHashMap<>();
+    private final AtomicLong aclResets = new AtomicLong(0L);
+
     public AccessControlService(@NotNull final MainDBController mainDBController,
                                 @NotNull final NameCacheService nameCacheService) {
         this.userRightsDAO = mainDBController.getUserRightsDAO();
@@ -52,74 +66,32 @@ public class AccessControlService {
                                       @NotNull Server server, @NotNull ServerChannel channel,
                                       boolean strictByChannels, long... anotherTargetChannel) {
 
-        checkAndFixAcl(server); // legacy conversion fix
-
         // Administrator cannot be strict
         boolean isServerAdmin = server.isAdmin(user) || server.canManage(user);
         if (isServerAdmin) {
             return true;
         }
 
-        long userId = user.getId();
-        long serverId = server.getId();
-        long channelId = channel.getId();
-
-        // Check that command is allowed for user or his one or more roles
-        boolean isAllowUser = userRightsDAO.isAllowed(serverId, userId, commandPrefix);
-        boolean isHasAllowedRole = user.getRoles(server).stream()
-                .anyMatch(role -> roleRightsDAO.isAllowed(serverId, role.getId(), commandPrefix));
-
-        if (!strictByChannels) {
-            // No channel strict, skipping channel check
-            return isAllowUser || isHasAllowedRole;
-        }
-
-        boolean isAllowedChannel;
-        if (anotherTargetChannel != null && anotherTargetChannel.length > 0) {
-            // If has another target channels, skip origin channel
-            isAllowedChannel = true;
-            for (long anotherId : anotherTargetChannel) {
-                isAllowedChannel &= isAllowedServerChannel(server, commandPrefix, anotherId);
-            }
-        } else {
-            isAllowedChannel = isAllowedServerChannel(server, commandPrefix, channelId);
-        }
-
-        if (!isAllowedChannel) {
-            return false;
-        }
-
-        boolean isNewAclMode = serverPreferencesDAO.isNewAclMode(serverId);
-        if (isNewAclMode) {
-            // New ACL mode: required allowed channel(s). Allowed role/user is optional
-            boolean hasRequiredUsersOrRoles = roleRightsDAO.getAllowedCount(serverId, commandPrefix) > 0L
-                    || userRightsDAO.getAllowedCount(serverId, commandPrefix) > 0L;
-            if (!hasRequiredUsersOrRoles) {
-                return true;
-            }
-        }
-        // Old ACL mode: required allowed channel(s) and allowed role/user
-        return isAllowUser || isHasAllowedRole;
+        ServerAclSnapshot aclSnapshot = getAclSnapshot(server); // legacy conversion fix applied on build
+        long[] roleIds = user.getRoles(server).stream()
+                .mapToLong(Role::getId)
+                .toArray();
+        // If has another target channels, skip origin channel
+        long[] channelIds = anotherTargetChannel != null && anotherTargetChannel.length > 0
+                ? anotherTargetChannel
+                : new long[]{channel.getId()};
+
+        return aclSnapshot.canExecute(commandPrefix, user.getId(), roleIds, strictByChannels, channelIds,
+                channelId -> getChannelCategoryId(server, channelId));
     }
 
-    private boolean isAllowedServerChannel(@NotNull Server server, @NotNull String commandPrefix, long channelId) {
-        if (channelRightsDAO.isAllowed(server.getId(), channelId, commandPrefix)) {
-            return true;
-        }
-
-        boolean allowedTextChatCategory = server.getTextChannelById(channelId)
+    private long getChannelCategoryId(@NotNull Server server, long channelId) {
+        return server.getTextChannelById(channelId)
                 .flatMap(ServerTextChannel::getCategory)
-                .map(category -> isAllowedChannelCategory(category, commandPrefix))
-                .orElse(false);
-        boolean allowedVoiceChatCategory = server.getVoiceChannelById(channelId)
-                .flatMap(ServerVoiceChannel::getCategory)
-                .map(category -> isAllowedChannelCategory(category, commandPrefix))
-                .orElse(false);
-        return allowedTextChatCategory || allowedVoiceChatCategory;
-    }
-
-    private boolean isAllowedChannelCategory(@NotNull ChannelCategory category, @NotNull final String commandPrefix) {
-        return categoryRightsDAO.isAllowed(category.getServer().getId(), category.getId(), commandPrefix);
+                .or(() -> server.getVoiceChannelById(channelId)
+                        .flatMap(ServerVoiceChannel::getCategory))
+                .map(ChannelCategory::getId)
+                .orElse(0L);
     }
 
     public boolean canExecuteOnServer(@NotNull String commandPrefix, @NotNull MessageCreateEvent event,
@@ -161,16 +133,10 @@ public class AccessControlService {
     public <T extends DiscordEntity> boolean allow(@NotNull final Server server,
                                                    @NotNull final T entity,
                                                    @NotNull final String command) {
-        if (getAllCommandPrefix().contains(command)) {
-            if (entity instanceof User) {
-                return userRightsDAO.allow(server.getId(), entity.getId(), command);
-            } else if (entity instanceof Role) {
-                return roleRightsDAO.allow(server.getId(), entity.getId(), command);
-            } else if (entity instanceof ChannelCategory) {
-                return categoryRightsDAO.allow(server.getId(), entity.getId(), command);
-            } else if (entity instanceof ServerChannel) {
-                return channelRightsDAO.allow(server.getId(), entity.getId(), command);
-            }
+        RightsDAO rightsDAO = getRightsDAO(entity);
+        if (rightsDAO != null && getAllCommandPrefix().contains(command)) {
+            return changeRights(server.getId(), command,
+                    () -> rightsDAO.allow(server.getId(), entity.getId(), command));
         }
         return false;
     }
@@ -178,87 +144,203 @@ public class AccessControlService {
     public <T extends DiscordEntity> boolean deny(@NotNull final Server server,
                                                   @NotNull final T entity,
                                                   @NotNull final String command) {
-        if (getAllCommandPrefix().contains(command)) {
-            if (entity instanceof User) {
-                return userRightsDAO.deny(server.getId(), entity.getId(), command);
-            } else if (entity instanceof Role) {
-                return roleRightsDAO.deny(server.getId(), entity.getId(), command);
-            } else if (entity instanceof ChannelCategory) {
-                return categoryRightsDAO.deny(server.getId(), entity.getId(), command);
-            } else if (entity instanceof ServerChannel) {
-                return channelRightsDAO.deny(server.getId(), entity.getId(), command);
-            }
+        RightsDAO rightsDAO = getRightsDAO(entity);
+        if (rightsDAO != null && getAllCommandPrefix().contains(command)) {
+            return changeRights(server.getId(), command,
+                    () -> rightsDAO.deny(server.getId(), entity.getId(), command));
         }
         return false;
     }
 
     public <T extends DiscordEntity> void denyAll(@NotNull final Server server,
                                                   @NotNull final T entity) {
-        getAllCommandPrefix().forEach(command -> deny(server, entity, command));
+        RightsDAO rightsDAO = getRightsDAO(entity);
+        if (rightsDAO == null) {
+            return;
+        }
+        final ReentrantLock aclLock = getAclLock(server.getId());
+        aclLock.lock();
+        try {
+            boolean changed = false;
+            for (String command : getAllCommandPrefix()) {
+                changed |= rightsDAO.deny(server.getId(), entity.getId(), command);
+            }
+            if (changed && aclSnapshots.containsKey(server.getId())) {
+                refreshAclSnapshot(server.getId());
+            }
+        } finally {
+            aclLock.unlock();
+        }
     }
 
     public <T extends DiscordEntity> boolean isAllowed(@NotNull final Server server,
                                                        @NotNull final T entity,
                                                        @NotNull final String command) {
         if (getAllCommandPrefix().contains(command)) {
+            ServerAclSnapshot.CommandAcl commandAcl = getAclSnapshot(server).getCommandAcl(command);
             if (entity instanceof User) {
-                return userRightsDAO.isAllowed(server.getId(), entity.getId(), command);
+                return commandAcl.getUsers().contains(entity.getId());
             } else if (entity instanceof Role) {
-                return roleRightsDAO.isAllowed(server.getId(), entity.getId(), command);
+                return commandAcl.getRoles().contains(entity.getId());
             } else if (entity instanceof ChannelCategory) {
-                return categoryRightsDAO.isAllowed(server.getId(), entity.getId(), command);
+                return commandAcl.getCategories().contains(entity.getId());
             } else if (entity instanceof ServerChannel) {
-                return channelRightsDAO.isAllowed(server.getId(), entity.getId(), command);
+                return commandAcl.getChannels().contains(entity.getId());
             }
         }
         return false;
     }
 
     public boolean isNewAclMode(@NotNull final Server server) {
-        return serverPreferencesDAO.isNewAclMode(server.getId());
+        return getAclSnapshot(server).isNewAclMode();
     }
 
     public void setNewAclMode(@NotNull final Server server, boolean isNewMode) {
-        serverPreferencesDAO.setNewAclMode(server.getId(), isNewMode);
+        final ReentrantLock aclLock = getAclLock(server.getId());
+        aclLock.lock();
+        try {
+            serverPreferencesDAO.setNewAclMode(server.getId(), isNewMode);
+            aclSnapshots.computeIfPresent(server.getId(), (id, cached) -> cached.isFailed()
+                    ? null
+                    : new CachedAcl(cached.snapshot.withNewAclMode(isNewMode), 0L));
+        } finally {
+            aclLock.unlock();
+        }
     }
 
     public boolean notHasAnyRights(@NotNull final Server server, @NotNull final String command) {
-        return userRightsDAO.getAllowedCount(server.getId(), command) == 0L
-                && roleRightsDAO.getAllowedCount(server.getId(), command) == 0L
-                && channelRightsDAO.getAllowedCount(server.getId(), command) == 0L
-                && categoryRightsDAO.getAllowedCount(server.getId(), command) == 0L;
+        return getAclSnapshot(server).getCommandAcl(command).isEmpty();
     }
 
     public boolean noHasUsersRights(@NotNull final Server server, @NotNull final String command) {
-        return userRightsDAO.getAllowedCount(server.getId(), command) == 0L;
+        return getAclSnapshot(server).getCommandAcl(command).getUsers().isEmpty();
     }
 
     public boolean noHasRolesRights(@NotNull final Server server, @NotNull final String command) {
-        return roleRightsDAO.getAllowedCount(server.getId(), command) == 0L;
+        return getAclSnapshot(server).getCommandAcl(command).getRoles().isEmpty();
     }
 
     public boolean noHasChannelRights(@NotNull final Server server, @NotNull final String command) {
-        return channelRightsDAO.getAllowedCount(server.getId(), command) == 0L;
+        return getAclSnapshot(server).getCommandAcl(command).getChannels().isEmpty();
     }
 
     public boolean noHasCategoryRights(@NotNull final Server server, @NotNull final String command) {
-        return categoryRightsDAO.getAllowedCount(server.getId(), command) == 0L;
+        return getAclSnapshot(server).getCommandAcl(command).getCategories().isEmpty();
     }
 
     public boolean hasUsersRights(@NotNull final Server server, @NotNull final String command) {
-        return userRightsDAO.getAllowedCount(server.getId(), command) > 0L;
+        return !noHasUsersRights(server, command);
     }
 
     public boolean hasRolesRights(@NotNull final Server server, @NotNull final String command) {
-        return roleRightsDAO.getAllowedCount(server.getId(), command) > 0L;
+        return !noHasRolesRights(server, command);
     }
 
     public boolean hasChannelRights(@NotNull final Server server, @NotNull final String command) {
-        return channelRightsDAO.getAllowedCount(server.getId(), command) > 0L;
+        return !noHasChannelRights(server, command);
     }
 
     public boolean hasCategoryRights(@NotNull final Server server, @NotNull final String command) {
-        return categoryRightsDAO.getAllowedCount(server.getId(), command) > 0L;
+        return !noHasCategoryRights(server, command);
+    }
+
+    /**
+     * Сбросить все скомпилированные снимки прав. Требуется после изменения прав в обход сервиса,
+     * например, прямыми запросами к БД
+     */
+    public void resetAclSnapshots() {
+        // загрузки, начатые до сброса, не кэшируют свой результат
+        aclResets.incrementAndGet();
+        aclSnapshots.clear();
+    }
+
+    @NotNull
+    private ServerAclSnapshot getAclSnapshot(@NotNull final Server server) {
+        final long serverId = server.getId();
+        CachedAcl cached = aclSnapshots.get(serverId);
+        if (cached != null && !cached.isExpired()) {
+            return cached.snapshot;
+        }
+        final ReentrantLock aclLock = getAclLock(serverId);
+        aclLock.lock();
+        try {
+            cached = aclSnapshots.get(serverId);
+            if (cached != null && !cached.isExpired()) {
+                return cached.snapshot;
+            }
+            checkAndFixAcl(server);
+            final long resets = aclResets.get();
+            cached = loadAclSnapshot(serverId);
+            if (resets == aclResets.get()) {
+                aclSnapshots.put(serverId, cached);
+            }
+            return cached.snapshot;
+        } finally {
+            aclLock.unlock();
+        }
+    }
+
+    @NotNull
+    private ReentrantLock getAclLock(long serverId) {
+        return aclLocks.computeIfAbsent(serverId, id -> new ReentrantLock());
+    }
+
+    /**
+     * @return снимок прав сервера. Если хотя бы часть прав не удалось прочитать из БД, команды запрещаются,
+     * как и при ошибке запроса без снимка, а снимок хранится недолго
+     */
+    @NotNull
+    private CachedAcl loadAclSnapshot(long serverId) {
+        Optional<Map<String, List<Long>>> allowedUsers = userRightsDAO.getAllAllowedByCommands(serverId);
+        Optional<Map<String, List<Long>>> allowedRoles = roleRightsDAO.getAllAllowedByCommands(serverId);
+        Optional<Map<String, List<Long>>> allowedChannels = channelRightsDAO.getAllAllowedByCommands(serverId);
+        Optional<Map<String, List<Long>>> allowedCategories = categoryRightsDAO.getAllAllowedByCommands(serverId);
+        final boolean isNewAclMode = serverPreferencesDAO.isNewAclMode(serverId);
+        if (allowedUsers.isEmpty() || allowedRoles.isEmpty()
+                || allowedChannels.isEmpty() || allowedCategories.isEmpty()) {
+            ServerAclSnapshot denyAll = ServerAclSnapshot.compile(isNewAclMode,
+                    Collections.emptyMap(), Collections.emptyMap(),
+                    Collections.emptyMap(), Collections.emptyMap());
+            return new CachedAcl(denyAll, System.nanoTime() + FAILED_SNAPSHOT_TTL_NANOS);
+        }
+        return new CachedAcl(ServerAclSnapshot.compile(isNewAclMode,
+                allowedUsers.get(), allowedRoles.get(), allowedChannels.get(), allowedCategories.get()), 0L);
+    }
+
+    /**
+     * Перечитать снимок прав сервера. Вызывается под блокировкой прав сервера
+     */
+    private void refreshAclSnapshot(long serverId) {
+        aclSnapshots.put(serverId, loadAclSnapshot(serverId));
+    }
+
+    private boolean changeRights(long serverId, @NotNull String command, @NotNull BooleanSupplier change) {
+        final ReentrantLock aclLock = getAclLock(serverId);
+        aclLock.lock();
+        try {
+            boolean changed = change.getAsBoolean();
+            if (changed && aclSnapshots.containsKey(serverId)) {
+                // по одной команде ошибку чтения не отличить от отсутствия прав, поэтому снимок перечитывается целиком
+                refreshAclSnapshot(serverId);
+            }
+            return changed;
+        } finally {
+            aclLock.unlock();
+        }
+    }
+
+    @Nullable
+    private <T extends DiscordEntity> RightsDAO getRightsDAO(@NotNull final T entity) {
+        if (entity instanceof User) {
+            return userRightsDAO;
+        } else if (entity instanceof Role) {
+            return roleRightsDAO;
+        } else if (entity instanceof ChannelCategory) {
+            return categoryRightsDAO;
+        } else if (entity instanceof ServerChannel) {
+            return channelRightsDAO;
+        }
+        return null;
     }
 
     public void checkAndFixAcl(@NotNull final Server server) {
@@ -293,6 +375,17 @@ public class AccessControlService {
                 });
             });
             serverPreferencesDAO.setAclFixRequired(server.getId(), false);
+            resetAclSnapshot(server.getId());
+        }
+    }
+
+    private void resetAclSnapshot(long serverId) {
+        final ReentrantLock aclLock = getAclLock(serverId);
+        aclLock.lock();
+        try {
+            aclSnapshots.remove(serverId);
+        } finally {
+            aclLock.unlock();
         }
     }
 
@@ -386,7 +479,7 @@ public class AccessControlService {
             if (mayBeUser.isPresent()) {
                 return nameCacheService.printEntityDetailed(mayBeUser.get(), server);
             } else {
-                userRightsDAO.deny(server.getId(), userId, command);
+                denyStaleRight(userRightsDAO, server.getId(), userId, command);
                 return null;
             }
         })
@@ -398,7 +491,7 @@ public class AccessControlService {
             if (mayBeRole.isPresent()) {
                 return nameCacheService.printEntityDetailed(mayBeRole.get(), server);
             } else {
-                roleRightsDAO.deny(server.getId(), roleId, command);
+                denyStaleRight(roleRightsDAO, server.getId(), roleId, command);
                 return null;
             }
         })
@@ -408,11 +501,11 @@ public class AccessControlService {
         Optional<String> allowedChannels = channelRightsDAO.getAllAllowed(server.getId(), command).stream().map(channelId -> {
             Optional<ServerChannel> mayBeChannel = server.getChannelById(channelId);
             if (mayBeChannel.isEmpty()) {
-                channelRightsDAO.deny(server.getId(), channelId, command);
+                denyStaleRight(channelRightsDAO, server.getId(), channelId, command);
             } else {
                 ServerChannel serverChannel = mayBeChannel.get();
                 if (serverChannel instanceof ChannelCategory) {
-                    channelRightsDAO.deny(server.getId(), channelId, command);
+                    denyStaleRight(channelRightsDAO, server.getId(), channelId, command);
                 } else {
                     return nameCacheService.printEntityDetailed(serverChannel, server);
                 }
@@ -425,7 +518,7 @@ public class AccessControlService {
         Optional<String> allowedCategories = categoryRightsDAO.getAllAllowed(server.getId(), command).stream().map(categoryId -> {
             Optional<ChannelCategory> mayBeCategory = server.getChannelCategoryById(categoryId);
             if (mayBeCategory.isEmpty()) {
-                categoryRightsDAO.deny(server.getId(), categoryId, command);
+                denyStaleRight(categoryRightsDAO, server.getId(), categoryId, command);
             } else {
                 return nameCacheService.printEntityDetailed(mayBeCategory.get(), server);
             }
@@ -473,4 +566,28 @@ public class AccessControlService {
 
         return false;
     }
+
+    private void denyStaleRight(@NotNull RightsDAO rightsDAO, long serverId, long entityId, @NotNull String command) {
+        changeRights(serverId, command, () -> rightsDAO.deny(serverId, entityId, command));
+    }
+
+    private static final class CachedAcl {
+
+        private final ServerAclSnapshot snapshot;
+        // 0 - снимок не устаревает
+        private final long expiresAt;
+
+        CachedAcl(@NotNull ServerAclSnapshot snapshot, long expiresAt) {
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isFailed() {
+            return expiresAt != 0L;
+        }
+
+        boolean isExpired() {
+            return isFailed() && System.nanoTime() - expiresAt >= 0L;
+        }
+    }
 }
@@ -1,19 +1,18 @@
 package hellfrog.core;
 
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.SettingsController;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class AutoBackupService
         implements Runnable {
 
-    private final ScheduledFuture<?> scheduled;
+    private final SchedulerService.ScheduledTask scheduled;
 
-    public AutoBackupService() {
-        scheduled = Executors.newSingleThreadScheduledExecutor()
-                .scheduleWithFixedDelay(this, 1L, 1L, TimeUnit.HOURS);
+    public AutoBackupService(@NotNull final SchedulerService schedulerService) {
+        scheduled = schedulerService.schedule("database-backup", 1L, 1L, TimeUnit.HOURS, this);
     }
 
     @Override
@@ -24,13 +23,6 @@ public class AutoBackupService
     }
 
     public void stop() {
-        scheduled.cancel(false);
-        while (!scheduled.isCancelled() || !scheduled.isDone()) {
-            try {
-                Thread.sleep(50L);
-            } catch (InterruptedException brE) {
-                scheduled.cancel(true);
-            }
-        }
+        scheduled.cancel();
     }
 }
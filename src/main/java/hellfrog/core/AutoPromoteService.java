@@ -1,5 +1,6 @@
 package hellfrog.core;
 
+import hellfrog.common.SchedulerService;
 import hellfrog.common.UserUtils;
 import hellfrog.settings.SettingsController;
 import hellfrog.settings.db.AutoPromoteRolesDAO;
@@ -19,9 +20,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class AutoPromoteService
@@ -30,16 +28,16 @@ public class AutoPromoteService
     private final AutoPromoteRolesDAO promoteRolesDAO;
     private final RoleAssignDAO roleAssignDAO;
     private final ServerPreferencesDAO serverPreferencesDAO;
-    private final ScheduledFuture<?> scheduledFuture;
+    private final SchedulerService.ScheduledTask scheduledFuture;
 
     public AutoPromoteService(@NotNull AutoPromoteRolesDAO promoteRolesDAO,
                               @NotNull RoleAssignDAO roleAssignDAO,
-                              @NotNull ServerPreferencesDAO serverPreferencesDAO) {
+                              @NotNull ServerPreferencesDAO serverPreferencesDAO,
+                              @NotNull SchedulerService schedulerService) {
         this.promoteRolesDAO = promoteRolesDAO;
         this.roleAssignDAO = roleAssignDAO;
         this.serverPreferencesDAO = serverPreferencesDAO;
-        ScheduledExecutorService voiceService = Executors.newSingleThreadScheduledExecutor();
-        scheduledFuture = voiceService.scheduleWithFixedDelay(this, 5L, 5L, TimeUnit.SECONDS);
+        scheduledFuture = schedulerService.schedule("auto-promote", 5L, 5L, TimeUnit.SECONDS, this);
     }
 
     @NotNull
@@ -125,13 +123,6 @@ public class AutoPromoteService
     }
 
     public void stop() {
-        scheduledFuture.cancel(false);
-        while (!scheduledFuture.isCancelled() || !scheduledFuture.isDone()) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException brk) {
-                scheduledFuture.cancel(true);
-            }
-        }
+        scheduledFuture.cancel();
     }
 }
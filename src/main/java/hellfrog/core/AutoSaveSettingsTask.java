@@ -1,39 +1,39 @@
 package hellfrog.core;
 
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.SettingsController;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Периодическая запись изменённых json-настроек.
+ * <p>
+ * Каждый {@link #VERIFY_EVERY_RUNS}-й запуск проверяет и настройки без отмеченных изменений:
+ * вложенные объекты (права команд, голосования, статистика) могут изменяться без вызова методов сохранения
+ */
 public class AutoSaveSettingsTask
         implements Runnable {
 
-    private final ScheduledFuture<?> scheduled;
+    private static final int VERIFY_EVERY_RUNS = 60;
 
-    public AutoSaveSettingsTask() {
-        scheduled = Executors.newSingleThreadScheduledExecutor()
-                .scheduleWithFixedDelay(this, 5L, 5L, TimeUnit.SECONDS);
+    private final SchedulerService.ScheduledTask scheduled;
+    private long runsCount = 0L;
+
+    public AutoSaveSettingsTask(@NotNull final SchedulerService schedulerService) {
+        scheduled = schedulerService.schedule("settings-autosave", 5L, 5L, TimeUnit.SECONDS, this);
     }
 
     @Override
     public void run() {
-        SettingsController settingsController = SettingsController.getInstance();
-        settingsController.getServerListWithStatistic()
-                .forEach(settingsController::saveServerSideStatistic);
-        settingsController.getServerListWithConfig()
-                .forEach(settingsController::saveServerSideParameters);
-        settingsController.saveCommonPreferences();
+        // планировщик не запускает задачу повторно, пока не завершён предыдущий запуск
+        runsCount++;
+        SettingsController.getInstance()
+                .getSettingsWriter()
+                .flush(runsCount % VERIFY_EVERY_RUNS == 0L);
     }
 
     public void stop() {
-        scheduled.cancel(false);
-        while (!scheduled.isCancelled() || !scheduled.isDone()) {
-            try {
-                Thread.sleep(50L);
-            } catch (InterruptedException brE) {
-                scheduled.cancel(true);
-            }
-        }
+        scheduled.cancel();
     }
 }
@@ -0,0 +1,219 @@
+package hellfrog.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запуск этапов инициализации в виде графа зависимостей.
+ * <p>
+ * Каждый этап запускается в отдельном потоке сразу после завершения всех этапов, от которых
+ * он зависит, поэтому независимые этапы (открытие БД, чтение настроек, вход в Discord)
+ * выполняются одновременно. Если этап завершился ошибкой, зависящие от него этапы не запускаются.
+ * Для каждого этапа запоминается время ожидания и время выполнения, отчёт доступен в {@link #describe()}
+ */
+public class Bootstrap {
+
+    private final Logger log = LogManager.getLogger("Bootstrap");
+    private final String name;
+    private final ExecutorService executor;
+    private final long createdNanos = System.nanoTime();
+    private final List<Phase<?>> phases = new CopyOnWriteArrayList<>();
+    private volatile long completedNanos = 0L;
+
+    /**
+     * @param name название инициализируемой части, используется в именах потоков и в отчёте
+     */
+    public Bootstrap(@NotNull final String name) {
+        this.name = name;
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-bootstrap-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Добавить этап
+     *
+     * @param name         название этапа
+     * @param action       действие этапа, его результат доступен через {@link Phase#get()}
+     * @param dependencies этапы, которые должны завершиться до начала этого
+     * @return этап, от которого могут зависеть другие
+     */
+    public <T> Phase<T> phase(@NotNull final String name,
+                              @NotNull final Callable<T> action,
+                              @NotNull final Phase<?>... dependencies) {
+        final Phase<T> phase = new Phase<>(name);
+        CompletableFuture<?>[] awaited = new CompletableFuture<?>[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            awaited[i] = dependencies[i].future;
+        }
+        CompletableFuture.allOf(awaited).thenApplyAsync(ignored -> {
+            phase.startNanos = System.nanoTime();
+            boolean succeeded = false;
+            try {
+                T result = action.call();
+                succeeded = true;
+                return result;
+            } catch (Exception err) {
+                throw new CompletionException(err);
+            } finally {
+                finishPhase(phase, succeeded);
+            }
+        }, executor).whenComplete((result, err) -> {
+            if (err != null) {
+                Throwable cause = err instanceof CompletionException && err.getCause() != null
+                        ? err.getCause()
+                        : err;
+                // ошибка этапа-зависимости передаётся как есть, с названием этапа, где она произошла
+                phase.future.completeExceptionally(cause instanceof BootstrapException
+                        ? cause
+                        : new BootstrapException(name, cause));
+            } else {
+                phase.future.complete(result);
+            }
+        });
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     * Выполнить этап в текущем потоке, пока выполняются ранее добавленные этапы.
+     * Используется для действий, которые нельзя выполнять в других потоках, например,
+     * во время инициализации класса, к статическим членам которого обращается действие
+     *
+     * @param name   название этапа
+     * @param action действие этапа
+     * @return результат этапа
+     * @throws BootstrapException если действие завершилось ошибкой
+     */
+    public <T> T run(@NotNull final String name,
+                     @NotNull final Callable<T> action) throws BootstrapException {
+        final Phase<T> phase = new Phase<>(name);
+        phases.add(phase);
+        phase.startNanos = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = action.call();
+            succeeded = true;
+            phase.future.complete(result);
+            return result;
+        } catch (Exception err) {
+            BootstrapException bootstrapErr = new BootstrapException(name, err);
+            phase.future.completeExceptionally(bootstrapErr);
+            throw bootstrapErr;
+        } finally {
+            finishPhase(phase, succeeded);
+        }
+    }
+
+    private void finishPhase(@NotNull final Phase<?> phase, final boolean succeeded) {
+        phase.endNanos = System.nanoTime();
+        final long elapsedMs = (phase.endNanos - phase.startNanos) / 1_000_000L;
+        if (succeeded) {
+            log.info("Startup phase \"{}\" of {} completed in {} ms", phase.name, name, elapsedMs);
+        } else {
+            log.warn("Startup phase \"{}\" of {} failed after {} ms", phase.name, name, elapsedMs);
+        }
+    }
+
+    /**
+     * Дождаться завершения всех этапов. Потоки инициализации после этого завершаются
+     *
+     * @throws BootstrapException ошибка первого (в порядке добавления) неудачного этапа
+     */
+    public void await() throws BootstrapException {
+        try {
+            for (Phase<?> phase : phases) {
+                phase.get();
+            }
+        } finally {
+            completedNanos = System.nanoTime();
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return отчёт: общее время и по одной строке на этап с временем ожидания и выполнения
+     */
+    @NotNull
+    public List<String> describe() {
+        final long endNanos = completedNanos > 0L ? completedNanos : System.nanoTime();
+        List<String> result = new ArrayList<>(phases.size() + 1);
+        result.add(String.format("%s: %d ms total", name, (endNanos - createdNanos) / 1_000_000L));
+        for (Phase<?> phase : phases) {
+            final String state;
+            if (phase.startNanos == 0L) {
+                state = phase.future.isDone() ? "skipped" : "waiting";
+            } else if (phase.endNanos == 0L) {
+                state = "running";
+            } else if (phase.future.isCompletedExceptionally()) {
+                state = "failed";
+            } else {
+                state = "ok";
+            }
+            String timing = phase.startNanos == 0L
+                    ? ""
+                    : String.format(", started at %d ms", (phase.startNanos - createdNanos) / 1_000_000L)
+                    + (phase.endNanos == 0L
+                    ? ""
+                    : String.format(", took %d ms", (phase.endNanos - phase.startNanos) / 1_000_000L));
+            result.add("  " + phase.name + ": " + state + timing);
+        }
+        return result;
+    }
+
+    /**
+     * Этап инициализации
+     */
+    public static class Phase<T> {
+
+        private final String name;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile long startNanos = 0L;
+        private volatile long endNanos = 0L;
+
+        private Phase(@NotNull final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Дождаться завершения этапа
+         *
+         * @return результат этапа
+         * @throws BootstrapException если этап или один из этапов, от которых он зависит, завершился ошибкой
+         */
+        public T get() throws BootstrapException {
+            try {
+                return future.get();
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                throw new BootstrapException(name, err);
+            } catch (ExecutionException err) {
+                if (err.getCause() instanceof BootstrapException) {
+                    throw (BootstrapException) err.getCause();
+                }
+                throw new BootstrapException(name, err.getCause() != null ? err.getCause() : err);
+            }
+        }
+
+        /**
+         * Результат этапа без ожидания проверяемых исключений,
+         * используется после успешного завершения {@link Bootstrap#await()}
+         */
+        public T join() {
+            return future.join();
+        }
+    }
+}
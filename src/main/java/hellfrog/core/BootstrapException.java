@@ -0,0 +1,21 @@
+package hellfrog.core;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ошибка этапа инициализации {@link Bootstrap}
+ */
+public class BootstrapException
+        extends Exception {
+
+    private final String phaseName;
+
+    public BootstrapException(@NotNull String phaseName, @NotNull Throwable cause) {
+        super("Startup phase \"" + phaseName + "\" failed: " + cause.getMessage(), cause);
+        this.phaseName = phaseName;
+    }
+
+    public String getPhaseName() {
+        return phaseName;
+    }
+}
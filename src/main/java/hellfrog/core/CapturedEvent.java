@@ -0,0 +1,206 @@
+package hellfrog.core;
+
+import org.javacord.api.entity.emoji.CustomEmoji;
+import org.javacord.api.entity.emoji.Emoji;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAttachment;
+import org.javacord.api.entity.message.MessageAuthor;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.javacord.api.event.message.MessageDeleteEvent;
+import org.javacord.api.event.message.reaction.SingleReactionEvent;
+import org.javacord.api.event.server.member.ServerMemberEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Сохранённое событие Discord для последующего воспроизведения.
+ * Хранит только идентификаторы и данные, необходимые обработчикам статистики, кэша имён и прав доступа
+ */
+public final class CapturedEvent {
+
+    public enum Type {
+        MESSAGE_CREATE, MESSAGE_DELETE, REACTION_ADD, REACTION_REMOVE, MEMBER_JOIN, MEMBER_LEAVE
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final int MAX_TEXT_LENGTH = 8192;
+
+    private final Type type;
+    private final long timestamp;
+    private final long serverId;
+    private final long channelId;
+    private final long userId;
+    private final long messageId;
+    private final long emojiId;
+    private final boolean bot;
+    private final String userName;
+    private final String text;
+    private final long attachmentsSize;
+
+    public CapturedEvent(@NotNull Type type, long timestamp, long serverId, long channelId, long userId,
+                         long messageId, long emojiId, boolean bot, @NotNull String userName,
+                         @NotNull String text, long attachmentsSize) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.serverId = serverId;
+        this.channelId = channelId;
+        this.userId = userId;
+        this.messageId = messageId;
+        this.emojiId = emojiId;
+        this.bot = bot;
+        this.userName = userName;
+        this.text = text.length() > MAX_TEXT_LENGTH ? text.substring(0, MAX_TEXT_LENGTH) : text;
+        this.attachmentsSize = attachmentsSize;
+    }
+
+    @NotNull
+    public static CapturedEvent from(@NotNull MessageCreateEvent event) {
+        MessageAuthor author = event.getMessageAuthor();
+        long attachmentsSize = event.getMessage().getAttachments().stream()
+                .mapToLong(MessageAttachment::getSize)
+                .sum();
+        return new CapturedEvent(Type.MESSAGE_CREATE, event.getMessage().getCreationTimestamp().toEpochMilli(),
+                serverIdOf(event.getServer()), event.getChannel().getId(), author.getId(), event.getMessageId(),
+                0L, author.isBotUser(), author.getDiscriminatedName(), event.getMessageContent(), attachmentsSize);
+    }
+
+    @NotNull
+    public static CapturedEvent from(@NotNull MessageDeleteEvent event) {
+        Optional<MessageAuthor> author = event.getMessageAuthor();
+        long attachmentsSize = event.getMessage().stream()
+                .flatMap(message -> message.getAttachments().stream())
+                .mapToLong(MessageAttachment::getSize)
+                .sum();
+        return new CapturedEvent(Type.MESSAGE_DELETE, Instant.now().toEpochMilli(),
+                serverIdOf(event.getServer()), event.getChannel().getId(),
+                author.map(MessageAuthor::getId).orElse(0L), event.getMessageId(), 0L,
+                author.map(MessageAuthor::isBotUser).orElse(false),
+                author.map(MessageAuthor::getDiscriminatedName).orElse(""),
+                event.getMessage().map(Message::getContent).orElse(""), attachmentsSize);
+    }
+
+    @NotNull
+    public static CapturedEvent from(@NotNull SingleReactionEvent event, boolean isAdd) {
+        Emoji emoji = event.getEmoji();
+        Optional<User> user = event.getUser();
+        return new CapturedEvent(isAdd ? Type.REACTION_ADD : Type.REACTION_REMOVE, Instant.now().toEpochMilli(),
+                serverIdOf(event.getServer()), event.getChannel().getId(), event.getUserId(), event.getMessageId(),
+                emoji.asCustomEmoji().map(CustomEmoji::getId).orElse(0L),
+                user.map(User::isBot).orElse(false),
+                user.map(User::getDiscriminatedName).orElse(""),
+                emoji.asUnicodeEmoji().orElse(""), 0L);
+    }
+
+    @NotNull
+    public static CapturedEvent from(@NotNull ServerMemberEvent event, boolean isJoin) {
+        User user = event.getUser();
+        return new CapturedEvent(isJoin ? Type.MEMBER_JOIN : Type.MEMBER_LEAVE, Instant.now().toEpochMilli(),
+                event.getServer().getId(), 0L, user.getId(), 0L, 0L, user.isBot(),
+                user.getDiscriminatedName(), "", 0L);
+    }
+
+    private static long serverIdOf(@NotNull Optional<Server> server) {
+        return server.map(Server::getId).orElse(0L);
+    }
+
+    void writeTo(@NotNull DataOutputStream out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeLong(timestamp);
+        out.writeLong(serverId);
+        out.writeLong(channelId);
+        out.writeLong(userId);
+        out.writeLong(messageId);
+        out.writeLong(emojiId);
+        out.writeBoolean(bot);
+        out.writeUTF(userName);
+        out.writeUTF(text);
+        out.writeLong(attachmentsSize);
+    }
+
+    /**
+     * Прочитать следующее событие
+     *
+     * @return событие либо null, если поток закончился
+     */
+    @Nullable
+    static CapturedEvent readFrom(@NotNull DataInputStream in) throws IOException {
+        int typeIndex = in.read();
+        if (typeIndex < 0) {
+            return null;
+        }
+        if (typeIndex >= TYPES.length) {
+            throw new IOException("Unknown event type: " + typeIndex);
+        }
+        try {
+            return new CapturedEvent(TYPES[typeIndex], in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                    in.readLong(), in.readLong(), in.readBoolean(), in.readUTF(), in.readUTF(), in.readLong());
+        } catch (EOFException err) {
+            // последняя запись могла быть записана не полностью при аварийном завершении
+            return null;
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getServerId() {
+        return serverId;
+    }
+
+    public long getChannelId() {
+        return channelId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public long getEmojiId() {
+        return emojiId;
+    }
+
+    public boolean isBot() {
+        return bot;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getAttachmentsSize() {
+        return attachmentsSize;
+    }
+
+    @Override
+    public String toString() {
+        return "CapturedEvent{" +
+                "type=" + type +
+                ", serverId=" + serverId +
+                ", channelId=" + channelId +
+                ", userId=" + userId +
+                ", messageId=" + messageId +
+                '}';
+    }
+}
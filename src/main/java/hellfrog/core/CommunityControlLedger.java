@@ -0,0 +1,246 @@
+package hellfrog.core;
+
+import hellfrog.common.CommonConstants;
+import hellfrog.settings.db.CommunityControlDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.block.predicate.primitive.LongPredicate;
+import org.eclipse.collections.api.block.procedure.primitive.LongIntProcedure;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.javacord.api.entity.DiscordEntity;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.Reaction;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.reaction.SingleReactionEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Учёт реакций участников общественного контроля на сообщениях.
+ * <p>
+ * Реакции учитываются по событиям добавления и удаления реакций отдельно для каждой пары
+ * сообщения и эмодзи. Текущие реакции сообщения запрашиваются у Discord однократно, при первом
+ * событии по этой паре, поэтому последующая проверка порога обращений к Discord и базе не требует.
+ * Запросы выполняются в пуле ввода-вывода обработчика событий, время ожидания ответа Discord ограничено.
+ * Количество отслеживаемых пар ограничено, давно не изменявшиеся пары вытесняются
+ */
+public class CommunityControlLedger {
+
+    private static final int MAX_TRACKED_REACTIONS = 10_000;
+
+    private final CommunityControlDAO controlDAO;
+    private final Map<ReactionKey, ReactionCounter> counters = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ReactionKey, ReactionCounter> eldest) {
+            return size() > MAX_TRACKED_REACTIONS;
+        }
+    };
+    // запросы реакций не задерживают обработку событий
+    private final EventsExecutor eventsExecutor;
+    private final Logger log = LogManager.getLogger("Community control ledger");
+
+    public CommunityControlLedger(@NotNull final CommunityControlDAO controlDAO,
+                                  @NotNull final EventsExecutor eventsExecutor) {
+        this.controlDAO = controlDAO;
+        this.eventsExecutor = eventsExecutor;
+    }
+
+    /**
+     * Учесть реакцию участника общественного контроля
+     *
+     * @param emojiKey идентификатор эмодзи общественного контроля
+     * @param added    реакция добавлена (иначе - удалена)
+     * @param onCount  получает идентификатор автора сообщения и число реакций участников общественного контроля.
+     *                 Вызывается сразу, если реакции сообщения уже известны, иначе - после их получения из Discord
+     */
+    public void onControlReaction(@NotNull final SingleReactionEvent event,
+                                  @NotNull final String emojiKey,
+                                  final boolean added,
+                                  @NotNull final LongIntProcedure onCount) {
+        final long serverId = event.getServer().map(DiscordEntity::getId).orElse(0L);
+        final ReactionKey key = new ReactionKey(event.getMessageId(), emojiKey);
+        final ReactionCounter counter;
+        synchronized (counters) {
+            counter = counters.computeIfAbsent(key, k -> new ReactionCounter());
+        }
+        if (counter.apply(event.getUserId(), added)) {
+            onCount.value(counter.getAuthorId(), counter.count(userId -> controlDAO.isControlUser(serverId, userId)));
+        } else if (counter.beginSeed()) {
+            final boolean accepted = eventsExecutor.executeBlocking(() -> {
+                if (seed(event, serverId, counter)) {
+                    onCount.value(counter.getAuthorId(),
+                            counter.count(userId -> controlDAO.isControlUser(serverId, userId)));
+                }
+            });
+            if (!accepted) {
+                // повторный запрос будет выполнен при следующем событии
+                counter.finishSeed(0L, null);
+            }
+        }
+    }
+
+    public void onReactionRemoveAll(final long messageId) {
+        forget(messageId);
+    }
+
+    public void onMessageDelete(final long messageId) {
+        forget(messageId);
+    }
+
+    private void forget(final long messageId) {
+        synchronized (counters) {
+            counters.keySet().removeIf(key -> key.messageId == messageId);
+        }
+    }
+
+    private boolean seed(@NotNull final SingleReactionEvent event, final long serverId,
+                         @NotNull final ReactionCounter counter) {
+        try {
+            final Message message = event.getMessage().isPresent()
+                    ? event.getMessage().get()
+                    : event.getChannel().getMessageById(event.getMessageId())
+                    .get(CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT);
+            final long authorId = message.getUserAuthor().map(User::getId).orElse(0L);
+            final MutableLongSet actual = LongSets.mutable.empty();
+            Optional<Reaction> mayBeReaction = message.getReactionByEmoji(event.getEmoji());
+            if (mayBeReaction.isPresent()) {
+                for (User user : mayBeReaction.get().getUsers()
+                        .get(CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT)) {
+                    if (controlDAO.isControlUser(serverId, user.getId())) {
+                        actual.add(user.getId());
+                    }
+                }
+            }
+            counter.finishSeed(authorId, actual);
+            return true;
+        } catch (ExecutionException | TimeoutException err) {
+            // сообщение удалено, либо Discord не отдал реакции вовремя
+            counter.finishSeed(0L, null);
+            log.warn("Unable to fetch community control reactions of message with id {}: {}",
+                    event.getMessageId(), err.getMessage());
+        } catch (InterruptedException err) {
+            counter.finishSeed(0L, null);
+            Thread.currentThread().interrupt();
+        } catch (Exception err) {
+            counter.finishSeed(0L, null);
+            String errMsg = String.format("Unable to fetch community control reactions of message with id %d: %s",
+                    event.getMessageId(), err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+        }
+        return false;
+    }
+
+    private static final class ReactionKey {
+
+        private final long messageId;
+        private final String emojiKey;
+
+        ReactionKey(long messageId, @NotNull String emojiKey) {
+            this.messageId = messageId;
+            this.emojiKey = emojiKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ReactionKey that = (ReactionKey) o;
+            return messageId == that.messageId && emojiKey.equals(that.emojiKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(messageId, emojiKey);
+        }
+    }
+
+    /**
+     * Участники общественного контроля, поставившие реакцию на сообщение.
+     * <p>
+     * Пока реакции сообщения запрашиваются у Discord, изменения запоминаются и применяются
+     * поверх полученного результата
+     */
+    static class ReactionCounter {
+
+        private static final long ADD = 1L;
+        private static final long REMOVE = 2L;
+
+        private final MutableLongSet voters = LongSets.mutable.empty();
+        private final List<long[]> pendingChanges = new ArrayList<>();
+        private long authorId = 0L;
+        private boolean seeded = false;
+        private boolean seeding = false;
+
+        /**
+         * @return изменение учтено, иначе реакции сообщения ещё не получены
+         */
+        synchronized boolean apply(long userId, boolean added) {
+            if (!seeded) {
+                if (seeding) {
+                    pendingChanges.add(new long[]{added ? ADD : REMOVE, userId});
+                }
+                return false;
+            }
+            change(userId, added);
+            return true;
+        }
+
+        private void change(long userId, boolean added) {
+            if (added) {
+                voters.add(userId);
+            } else {
+                voters.remove(userId);
+            }
+        }
+
+        /**
+         * @return запрос реакций сообщения нужно выполнить
+         */
+        synchronized boolean beginSeed() {
+            if (seeded || seeding) {
+                return false;
+            }
+            seeding = true;
+            pendingChanges.clear();
+            return true;
+        }
+
+        synchronized void finishSeed(long authorId, @Nullable MutableLongSet actual) {
+            seeding = false;
+            if (actual == null) {
+                // повторный запрос будет выполнен при следующем событии
+                pendingChanges.clear();
+                return;
+            }
+            this.authorId = authorId;
+            voters.clear();
+            voters.addAll(actual);
+            for (long[] pending : pendingChanges) {
+                change(pending[1], pending[0] == ADD);
+            }
+            pendingChanges.clear();
+            seeded = true;
+        }
+
+        synchronized boolean isSeeded() {
+            return seeded;
+        }
+
+        synchronized long getAuthorId() {
+            return authorId;
+        }
+
+        /**
+         * @param isControlUser отбрасывает исключённых из общественного контроля после их реакции
+         */
+        synchronized int count(@NotNull LongPredicate isControlUser) {
+            return voters.count(isControlUser);
+        }
+    }
+}
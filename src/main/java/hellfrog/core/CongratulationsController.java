@@ -6,6 +6,7 @@ import hellfrog.common.CodeSourceUtils;
 import hellfrog.common.CommonConstants;
 import hellfrog.common.CommonUtils;
 import hellfrog.common.Congratulation;
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.ServerPreferences;
 import hellfrog.settings.SettingsController;
 import hellfrog.settings.db.ServerPreferencesDAO;
@@ -39,16 +40,18 @@ import java.util.concurrent.*;
 public class CongratulationsController
         implements Runnable, CommonConstants {
 
-    private final ScheduledFuture<?> scheduledFuture;
+    private final SchedulerService.ScheduledTask scheduledFuture;
+    private final ServerPreferencesDAO serverPreferencesDAO;
     private static final String CONGRATULATIONS_ATTACHMENTS_DIR = "congratulations_attaches";
     private static final String CONGRATULATIONS_DIR = "congratulations";
     private final Logger log = LogManager.getLogger(this.getClass().getSimpleName());
     private static final DirectoryStream.Filter<Path> ONLY_JSONS_FILTER = (path) -> Files.isRegularFile(path)
             && path.toString().toLowerCase().endsWith(".json");
 
-    public CongratulationsController() {
-        ScheduledExecutorService voiceService = Executors.newSingleThreadScheduledExecutor();
-        scheduledFuture = voiceService.scheduleWithFixedDelay(this, 30L, 30L, TimeUnit.MINUTES);
+    public CongratulationsController(@NotNull final ServerPreferencesDAO serverPreferencesDAO,
+                                     @NotNull final SchedulerService schedulerService) {
+        this.serverPreferencesDAO = serverPreferencesDAO;
+        scheduledFuture = schedulerService.schedule("congratulations", 30L, 30L, TimeUnit.MINUTES, this);
     }
 
     @Override
@@ -203,14 +206,7 @@ public class CongratulationsController
     }
 
     public void stop() {
-        scheduledFuture.cancel(false);
-        while (!scheduledFuture.isCancelled() || !scheduledFuture.isDone()) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException brk) {
-                scheduledFuture.cancel(true);
-            }
-        }
+        scheduledFuture.cancel();
     }
 
     public void processAndSave(@NotNull final MessageCreateEvent event) {
@@ -222,9 +218,6 @@ public class CongratulationsController
             event.getServer().ifPresent(server -> {
                 event.getServerTextChannel().ifPresent(ch -> {
 
-                    final ServerPreferencesDAO serverPreferencesDAO = SettingsController.getInstance()
-                            .getMainDBController()
-                            .getServerPreferencesDAO();
                     if (!serverPreferencesDAO.isCongratulationsEnabled(server.getId())) {
                         return;
                     }
@@ -0,0 +1,192 @@
+package hellfrog.core;
+
+import hellfrog.commands.cmdline.BotCommand;
+import hellfrog.commands.scenes.Scenario;
+import hellfrog.common.CommonUtils;
+import hellfrog.reacts.MsgCreateReaction;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Индекс для выбора обработчиков сообщения, строится один раз при запуске.
+ * <ul>
+ *     <li>сценарии ищутся по префиксному дереву их команд;</li>
+ *     <li>команды - по хэш-таблице префиксов;</li>
+ *     <li>реакции - общим предварительным фильтром, объединяющим шаблоны срабатывания всех реакций
+ *     в одно регулярное выражение. Если фильтр не нашёл совпадений, то {@link MsgCreateReaction#canReact}
+ *     не вызывается вовсе, иначе вызывается ровно один раз для каждой реакции.</li>
+ * </ul>
+ */
+public class DispatchIndex {
+
+    private final List<Scenario> scenarios;
+    private final PrefixNode scenariosRoot = new PrefixNode();
+    private final Map<String, List<BotCommand>> commandsByPrefix;
+    private final List<MsgCreateReaction> filteredReactions = new ArrayList<>();
+    private final List<MsgCreateReaction> unfilteredReactions = new ArrayList<>();
+    private final Pattern reactionsTrigger;
+
+    public DispatchIndex() {
+        this(Scenario.all(), BotCommand.all(), MsgCreateReaction.all());
+    }
+
+    DispatchIndex(@NotNull List<Scenario> scenarios,
+                  @NotNull List<BotCommand> commands,
+                  @NotNull List<MsgCreateReaction> reactions) {
+        this.scenarios = scenarios;
+        for (int i = 0; i < scenarios.size(); i++) {
+            scenariosRoot.add(scenarios.get(i).getPrefix(), i);
+        }
+
+        Map<String, List<BotCommand>> byPrefix = new HashMap<>();
+        for (BotCommand command : commands) {
+            byPrefix.computeIfAbsent(command.getPrefix(), k -> new ArrayList<>(1)).add(command);
+        }
+        this.commandsByPrefix = Collections.unmodifiableMap(byPrefix);
+
+        List<Pattern> triggers = new ArrayList<>();
+        for (MsgCreateReaction reaction : reactions) {
+            List<Pattern> reactionTriggers = reaction.getTriggerPatterns();
+            if (!reactionTriggers.isEmpty() && reactionTriggers.stream().allMatch(DispatchIndex::isCombinable)) {
+                triggers.addAll(reactionTriggers);
+                filteredReactions.add(reaction);
+            } else {
+                unfilteredReactions.add(reaction);
+            }
+        }
+        this.reactionsTrigger = triggers.isEmpty() ? null : combinePatterns(triggers);
+    }
+
+    /**
+     * Найти сценарий, запускаемый командой. Если подходят несколько сценариев,
+     * то выбирается первый в порядке {@link Scenario#all()}
+     *
+     * @param rawCommand команда без префикса бота
+     * @return сценарий либо null
+     */
+    @Nullable
+    public Scenario findScenario(@Nullable String rawCommand) {
+        if (CommonUtils.isTrStringEmpty(rawCommand)) {
+            return null;
+        }
+        String command = rawCommand.strip().toLowerCase();
+        int found = scenariosRoot.findFirstPrefixOf(command);
+        if (found >= 0) {
+            Scenario scenario = scenarios.get(found);
+            if (scenario.canExecute(rawCommand)) {
+                return scenario;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    public List<BotCommand> findCommands(@NotNull String commandPrefix) {
+        return commandsByPrefix.getOrDefault(commandPrefix, Collections.emptyList());
+    }
+
+    /**
+     * Реакции, которые должны сработать на сообщение
+     *
+     * @param event событие нового сообщения
+     * @return реакции в порядке {@link MsgCreateReaction#all()} для отфильтрованных,
+     * затем реакции без шаблонов срабатывания
+     */
+    @NotNull
+    public List<MsgCreateReaction> findReactions(@NotNull MessageCreateEvent event) {
+        List<MsgCreateReaction> result = new ArrayList<>(1);
+        if (reactionsTrigger != null && reactionsTrigger.matcher(event.getMessageContent()).find()) {
+            for (MsgCreateReaction reaction : filteredReactions) {
+                if (reaction.canReact(event)) {
+                    result.add(reaction);
+                }
+            }
+        }
+        for (MsgCreateReaction reaction : unfilteredReactions) {
+            if (reaction.canReact(event)) {
+                result.add(reaction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Объединение шаблонов в одно регулярное выражение, которое находит совпадение тогда и только тогда,
+     * когда его находит хотя бы один из шаблонов. Флаги каждого шаблона переносятся во встроенные флаги группы
+     */
+    @NotNull
+    static Pattern combinePatterns(@NotNull List<Pattern> patterns) {
+        StringBuilder combined = new StringBuilder();
+        for (Pattern pattern : patterns) {
+            if (!isCombinable(pattern)) {
+                throw new IllegalArgumentException("Pattern cannot be combined: " + pattern.pattern());
+            }
+            if (combined.length() > 0) {
+                combined.append('|');
+            }
+            combined.append("(?")
+                    .append(inlineFlags(pattern.flags()))
+                    .append(':')
+                    .append(pattern.pattern())
+                    .append(')');
+        }
+        return Pattern.compile(combined.toString());
+    }
+
+    static boolean isCombinable(@NotNull Pattern pattern) {
+        // для этих флагов нет встроенной формы, нумерованные обратные ссылки при объединении сдвигаются
+        return (pattern.flags() & (Pattern.CANON_EQ | Pattern.LITERAL)) == 0
+                && !pattern.pattern().matches("(?s).*\\\\[1-9].*");
+    }
+
+    @NotNull
+    private static String inlineFlags(int flags) {
+        StringBuilder result = new StringBuilder();
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) result.append('i');
+        if ((flags & Pattern.UNIX_LINES) != 0) result.append('d');
+        if ((flags & Pattern.MULTILINE) != 0) result.append('m');
+        if ((flags & Pattern.DOTALL) != 0) result.append('s');
+        if ((flags & Pattern.UNICODE_CASE) != 0) result.append('u');
+        if ((flags & Pattern.COMMENTS) != 0) result.append('x');
+        if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0) result.append('U');
+        return result.toString();
+    }
+
+    private static final class PrefixNode {
+
+        private final Map<Character, PrefixNode> children = new HashMap<>();
+        private int firstIndex = -1;
+
+        void add(@NotNull String prefix, int index) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PrefixNode());
+            }
+            if (node.firstIndex < 0 || index < node.firstIndex) {
+                node.firstIndex = index;
+            }
+        }
+
+        /**
+         * Наименьший индекс среди префиксов, с которых начинается строка
+         */
+        int findFirstPrefixOf(@NotNull String value) {
+            int result = firstIndex;
+            PrefixNode node = this;
+            for (int i = 0; i < value.length(); i++) {
+                node = node.children.get(value.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.firstIndex >= 0 && (result < 0 || node.firstIndex < result)) {
+                    result = node.firstIndex;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package hellfrog.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Время передачи сообщений обработчикам (сценариям, командам и реакциям)
+ */
+public class DispatchMetrics {
+
+    private final ConcurrentHashMap<String, HandlerStatistic> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Учесть вызов обработчика
+     *
+     * @param handler    название обработчика
+     * @param startNanos значение {@link System#nanoTime()} перед вызовом
+     */
+    public void record(@NotNull String handler, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        handlers.computeIfAbsent(handler, HandlerStatistic::new).add(elapsed);
+    }
+
+    /**
+     * Статистика обработчиков, упорядоченная по суммарному времени
+     */
+    public List<String> describe() {
+        List<HandlerStatistic> statistics = new ArrayList<>(handlers.values());
+        statistics.sort(Comparator.comparingLong(HandlerStatistic::getTotalNanos).reversed());
+        List<String> result = new ArrayList<>(statistics.size());
+        statistics.forEach(statistic -> result.add(statistic.toString()));
+        return result;
+    }
+
+    private static class HandlerStatistic {
+
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+
+        HandlerStatistic(@NotNull String name) {
+            this.name = name;
+        }
+
+        void add(long elapsedNanos) {
+            calls.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
+
+        long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            long callsCount = calls.sum();
+            long total = totalNanos.sum();
+            double avgMillis = callsCount > 0L ? (total / (double) callsCount) / 1_000_000.0D : 0.0D;
+            return String.format("%s: calls %d, avg %.3f ms, max %d ms, total %d ms", name, callsCount, avgMillis,
+                    TimeUnit.NANOSECONDS.toMillis(maxNanos.get()), TimeUnit.NANOSECONDS.toMillis(total));
+        }
+    }
+}
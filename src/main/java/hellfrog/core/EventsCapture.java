@@ -0,0 +1,128 @@
+package hellfrog.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Запись входящих событий в файл для последующего воспроизведения без подключения к Discord.
+ * <p>
+ * События дописываются в конец файла отдельным потоком, поток событий только ставит их в
+ * ограниченную очередь. При переполнении очереди события отбрасываются, запись не должна
+ * замедлять обработку
+ */
+public class EventsCapture
+        implements Closeable {
+
+    private static final int FILE_MAGIC = 0x48464556; // "HFEV"
+    private static final int FILE_VERSION = 1;
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private final Logger log = LogManager.getLogger("Events capture");
+    private final Path file;
+    private final BlockingQueue<CapturedEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final DataOutputStream out;
+    private final Thread writer;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean closed = false;
+
+    public EventsCapture(@NotNull Path file) throws IOException {
+        this.file = file;
+        boolean isNewFile = Files.notExists(file) || Files.size(file) == 0L;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)));
+        if (isNewFile) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.flush();
+        }
+        this.writer = new Thread(this::writeLoop, "Events capture");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        log.info("Capturing events to {}", file);
+    }
+
+    public void record(@NotNull CapturedEvent event) {
+        if (closed || !queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                CapturedEvent event = queue.poll(1L, TimeUnit.SECONDS);
+                if (event == null) {
+                    out.flush();
+                    continue;
+                }
+                event.writeTo(out);
+                written.increment();
+            } catch (InterruptedException err) {
+                closed = true;
+            } catch (IOException err) {
+                String errMsg = String.format("Unable to write captured event to %s: %s", file, err.getMessage());
+                log.error(errMsg, err);
+                LogsStorage.addErrorMessage(errMsg);
+                closed = true;
+            }
+        }
+    }
+
+    /**
+     * Прочитать все события из файла записи
+     *
+     * @param file     файл записи
+     * @param consumer получатель событий в порядке записи
+     * @return количество прочитанных событий
+     */
+    public static long readAll(@NotNull Path file, @NotNull Consumer<CapturedEvent> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not an events capture file: " + file);
+            }
+            int version = in.readInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Unsupported events capture version: " + version);
+            }
+            long count = 0L;
+            CapturedEvent event;
+            while ((event = CapturedEvent.readFrom(in)) != null) {
+                consumer.accept(event);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30L));
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        log.info("Events capture to {} closed, written {}, dropped {}", file, written.sum(), dropped.sum());
+    }
+}
@@ -0,0 +1,58 @@
+package hellfrog.core;
+
+import hellfrog.settings.ServerPreferences;
+import hellfrog.settings.db.MainDBController;
+import org.javacord.api.DiscordApi;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Настройки и службы, используемые обработчиком событий {@link EventsListener}.
+ * <p>
+ * Реализуется {@link hellfrog.settings.SettingsController}. Передаётся обработчику при создании,
+ * что позволяет воспроизводить события на тестовой базе без подключения к Discord
+ */
+public interface EventsContext {
+
+    @Nullable
+    DiscordApi getDiscordApi();
+
+    MainDBController getMainDBController();
+
+    String getBotName();
+
+    String getBotPrefix(long serverId);
+
+    String getGlobalCommonPrefix();
+
+    ServerPreferences getServerPreferences(long serverId);
+
+    List<Long> getServerListWithConfig();
+
+    EventsExecutor getEventsExecutor();
+
+    DispatchMetrics getDispatchMetrics();
+
+    StatisticService getStatisticService();
+
+    NameCacheService getNameCacheService();
+
+    MessageCacheService getMessageCacheService();
+
+    MessagesForwarder getMessagesForwarder();
+
+    AccessControlService getAccessControlService();
+
+    VoteTallyService getVoteTallyService();
+
+    VoteController getVoteController();
+
+    CommunityControlLedger getCommunityControlLedger();
+
+    CongratulationsController getCongratulationsController();
+
+    InvitesController getInvitesController();
+
+    AutoPromoteService getAutoPromoteService();
+}
@@ -0,0 +1,364 @@
+package hellfrog.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.server.Server;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выполнение обработки событий в отдельных потоках-полосах.
+ * <p>
+ * Задачи распределяются по полосам по идентификатору сервера, поэтому задачи одного сервера
+ * выполняются строго в порядке поступления. В полосах выполняются только короткие задачи,
+ * для которых важен порядок (статистика, кэш имён). Очередь каждой полосы ограничена. При её переполнении
+ * задачи обычного приоритета задерживают отправителя (обратное давление), а задачи
+ * низкого приоритета обрабатываются согласно настраиваемой политике.
+ * <p>
+ * Блокирующая обработка (сетевые запросы, ожидание ответов Discord, ffmpeg, проверка грамматики)
+ * выполняется отдельным ограниченным пулом ввода-вывода ({@link #executeBlocking(Runnable)}),
+ * чтобы долгая обработка на одном сервере не задерживала другие серверы его полосы.
+ * При остановке уже поставленные в очередь задачи выполняются, новые задачи не принимаются
+ */
+public class EventsExecutor {
+
+    private static final long BLOCK_TIMEOUT_SECONDS = 30L;
+    private static final long STOP_TIMEOUT_SECONDS = 30L;
+    private static final long POLL_TIMEOUT_MILLIS = 200L;
+    private static final long DROP_WARN_EVERY = 1000L;
+
+    private final Logger log = LogManager.getLogger("Events executor");
+    private final Lane[] lanes;
+    private final OverflowPolicy lowPriorityOverflow;
+    private final ThreadPoolExecutor ioExecutor;
+    private final LongAdder ioExecuted = new LongAdder();
+    private final LongAdder ioBlocked = new LongAdder();
+    private final LongAdder ioRejected = new LongAdder();
+    private final LongAccumulator ioMaxLagNanos = new LongAccumulator(Long::max, 0L);
+    private final ThreadLocal<Boolean> insideExecutor = ThreadLocal.withInitial(() -> false);
+    private volatile boolean stopped = false;
+
+    public enum Priority {
+        NORMAL, LOW
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Ожидать освобождения места в очереди
+         */
+        BLOCK,
+        /**
+         * Отбросить задачу
+         */
+        DROP;
+
+        @NotNull
+        public static OverflowPolicy parse(@Nullable String value, @NotNull OverflowPolicy defaultValue) {
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return OverflowPolicy.valueOf(value.strip().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException err) {
+                return defaultValue;
+            }
+        }
+    }
+
+    /**
+     * @param lanesCount          количество полос
+     * @param queueCapacity       ёмкость очереди каждой полосы и очереди пула ввода-вывода
+     * @param ioThreads           количество потоков пула ввода-вывода
+     * @param lowPriorityOverflow политика переполнения очереди полосы для задач низкого приоритета
+     */
+    public EventsExecutor(int lanesCount, int queueCapacity, int ioThreads,
+                          @NotNull OverflowPolicy lowPriorityOverflow) {
+        if (lanesCount < 1 || queueCapacity < 1 || ioThreads < 1) {
+            throw new IllegalArgumentException("Lanes count, queue capacity and I/O threads must be positive");
+        }
+        this.lowPriorityOverflow = lowPriorityOverflow;
+        this.lanes = new Lane[lanesCount];
+        for (int i = 0; i < lanesCount; i++) {
+            lanes[i] = new Lane(i, queueCapacity);
+            lanes[i].worker.start();
+        }
+        final AtomicInteger ioThreadNumber = new AtomicInteger(0);
+        this.ioExecutor = new ThreadPoolExecutor(ioThreads, ioThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "Events I/O " + ioThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ключ распределения по полосам: идентификатор сервера либо, для личных сообщений,
+     * идентификатор канала
+     */
+    public static long shardKey(@Nullable Server server, @NotNull TextChannel channel) {
+        return server != null ? server.getId() : channel.getId();
+    }
+
+    public static long shardKey(@NotNull TextChannel channel) {
+        return channel.asServerChannel()
+                .map(serverChannel -> serverChannel.getServer().getId())
+                .orElse(channel.getId());
+    }
+
+    /**
+     * Поставить задачу в очередь полосы сервера
+     *
+     * @param shardKey идентификатор сервера (см. {@link #shardKey(Server, TextChannel)})
+     * @param priority приоритет задачи
+     * @param task     задача
+     * @return false, если задача была отброшена
+     */
+    public boolean execute(long shardKey, @NotNull Priority priority, @NotNull Runnable task) {
+        Lane lane = lanes[Math.floorMod(Long.hashCode(shardKey), lanes.length)];
+        QueuedTask queued = new QueuedTask(task);
+        if (stopped) {
+            lane.rejected.increment();
+            return false;
+        }
+        if (lane.queue.offer(queued)) {
+            return true;
+        }
+        OverflowPolicy policy = priority == Priority.LOW ? lowPriorityOverflow : OverflowPolicy.BLOCK;
+        if (policy == OverflowPolicy.DROP) {
+            lane.dropped.increment();
+            long droppedCount = lane.dropped.sum();
+            if (droppedCount == 1L || droppedCount % DROP_WARN_EVERY == 0L) {
+                String errMsg = String.format("Events lane %d is overloaded, low priority tasks are dropped " +
+                        "(%d dropped in total)", lane.index, droppedCount);
+                log.warn(errMsg);
+                LogsStorage.addWarnMessage(errMsg);
+            }
+            return false;
+        }
+        lane.blocked.increment();
+        if (insideExecutor.get()) {
+            // ожидание из потока полосы может привести к взаимной блокировке полос
+            lane.run(queued);
+            return true;
+        }
+        try {
+            if (lane.queue.offer(queued, BLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+        String errMsg = String.format("Events lane %d is overloaded, task executed in the caller thread", lane.index);
+        log.warn(errMsg);
+        LogsStorage.addWarnMessage(errMsg);
+        lane.run(queued);
+        return true;
+    }
+
+    /**
+     * Поставить задачу обычного приоритета в очередь полосы сервера канала
+     */
+    public boolean execute(@NotNull TextChannel channel, @NotNull Runnable task) {
+        return execute(shardKey(channel), Priority.NORMAL, task);
+    }
+
+    /**
+     * Выполнить блокирующую задачу в пуле ввода-вывода. Порядок выполнения задач не гарантируется.
+     * При переполнении очереди пула отправитель ожидает освобождения места
+     *
+     * @param task задача
+     * @return false, если задача не принята: исполнитель остановлен или очередь не освободилась за время ожидания
+     */
+    public boolean executeBlocking(@NotNull Runnable task) {
+        if (stopped) {
+            ioRejected.increment();
+            return false;
+        }
+        final long queuedAt = System.nanoTime();
+        final Runnable wrapped = () -> runBlocking(task, queuedAt);
+        try {
+            ioExecutor.execute(wrapped);
+            return true;
+        } catch (RejectedExecutionException overflow) {
+            // все потоки пула заняты и очередь заполнена
+            if (stopped) {
+                ioRejected.increment();
+                return false;
+            }
+        }
+        ioBlocked.increment();
+        if (insideExecutor.get()) {
+            // ожидание места в очереди из потока пула может привести к ожиданию самого себя
+            runBlocking(task, queuedAt);
+            return true;
+        }
+        try {
+            if (ioExecutor.getQueue().offer(wrapped, BLOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                if (ioExecutor.isShutdown() && ioExecutor.remove(wrapped)) {
+                    ioRejected.increment();
+                    return false;
+                }
+                return true;
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+        ioRejected.increment();
+        String errMsg = String.format("Events I/O pool is overloaded, task rejected after %d seconds of waiting",
+                BLOCK_TIMEOUT_SECONDS);
+        log.warn(errMsg);
+        LogsStorage.addWarnMessage(errMsg);
+        return false;
+    }
+
+    private void runBlocking(@NotNull Runnable task, long queuedAt) {
+        ioMaxLagNanos.accumulate(System.nanoTime() - queuedAt);
+        ioExecuted.increment();
+        final boolean nested = insideExecutor.get();
+        insideExecutor.set(true);
+        try {
+            task.run();
+        } catch (Exception err) {
+            String errMsg = String.format("Unhandled error in events I/O pool: %s", err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+        } finally {
+            insideExecutor.set(nested);
+        }
+    }
+
+    /**
+     * Состояние полос: глубина очереди, задержка начала выполнения, отброшенные задачи,
+     * а также состояние пула ввода-вывода
+     */
+    public List<String> describe() {
+        List<String> result = new ArrayList<>(lanes.length + 1);
+        for (Lane lane : lanes) {
+            result.add(lane.toString());
+        }
+        result.add(String.format("I/O pool: %d threads, active %d, queued %d, executed %d, max lag %d ms, " +
+                        "blocked %d, rejected %d", ioExecutor.getPoolSize(), ioExecutor.getActiveCount(),
+                ioExecutor.getQueue().size(), ioExecuted.sum(), TimeUnit.NANOSECONDS.toMillis(ioMaxLagNanos.get()),
+                ioBlocked.sum(), ioRejected.sum()));
+        return result;
+    }
+
+    /**
+     * Остановить исполнитель: новые задачи не принимаются, уже поставленные в очереди
+     * (в том числе отложенные обновления статистики) выполняются до завершения
+     */
+    public void stop() {
+        stopped = true;
+        ioExecutor.shutdown();
+        if (insideExecutor.get()) {
+            // остановка вызвана из задачи исполнителя, ожидание привело бы к ожиданию самой себя
+            return;
+        }
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STOP_TIMEOUT_SECONDS);
+        try {
+            for (Lane lane : lanes) {
+                lane.worker.join(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+            ioExecutor.awaitTermination(Math.max(1L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+        int notCompleted = ioExecutor.getQueue().size();
+        for (Lane lane : lanes) {
+            if (lane.worker.isAlive()) {
+                notCompleted += lane.queue.size();
+                lane.worker.interrupt();
+            }
+        }
+        if (!ioExecutor.isTerminated()) {
+            ioExecutor.shutdownNow();
+        }
+        if (notCompleted > 0) {
+            log.warn("Events executor stopped with {} not completed tasks after {} seconds of waiting",
+                    notCompleted, STOP_TIMEOUT_SECONDS);
+        }
+    }
+
+    private static final class QueuedTask {
+
+        private final Runnable task;
+        private final long queuedAt = System.nanoTime();
+
+        QueuedTask(@NotNull Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private final class Lane {
+
+        private final int index;
+        private final BlockingQueue<QueuedTask> queue;
+        private final Thread worker;
+        private final LongAdder executed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder blocked = new LongAdder();
+        private final LongAdder totalLagNanos = new LongAdder();
+        private final LongAccumulator maxLagNanos = new LongAccumulator(Long::max, 0L);
+
+        Lane(int index, int queueCapacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.worker = new Thread(this::loop, "Events lane " + index);
+            this.worker.setDaemon(true);
+        }
+
+        private void loop() {
+            insideExecutor.set(true);
+            while (true) {
+                final QueuedTask queued;
+                try {
+                    // после остановки очередь дочитывается без ожидания
+                    queued = stopped ? queue.poll() : queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException err) {
+                    break;
+                }
+                if (queued != null) {
+                    run(queued);
+                } else if (stopped) {
+                    break;
+                }
+            }
+        }
+
+        private void run(@NotNull QueuedTask queued) {
+            long lag = System.nanoTime() - queued.queuedAt;
+            totalLagNanos.add(lag);
+            maxLagNanos.accumulate(lag);
+            executed.increment();
+            try {
+                queued.task.run();
+            } catch (Exception err) {
+                String errMsg = String.format("Unhandled error in events lane %d: %s", index, err.getMessage());
+                log.error(errMsg, err);
+                LogsStorage.addErrorMessage(errMsg);
+            }
+        }
+
+        @Override
+        public String toString() {
+            long executedCount = executed.sum();
+            double avgLagMillis = executedCount > 0L
+                    ? (totalLagNanos.sum() / (double) executedCount) / 1_000_000.0D
+                    : 0.0D;
+            return String.format("Lane %d: queued %d, executed %d, avg lag %.3f ms, max lag %d ms, " +
+                            "blocked %d, rejected %d, dropped %d", index, queue.size(), executedCount, avgLagMillis,
+                    TimeUnit.NANOSECONDS.toMillis(maxLagNanos.get()), blocked.sum(), rejected.sum(),
+                    dropped.sum());
+        }
+    }
+}
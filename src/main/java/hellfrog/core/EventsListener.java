@@ -24,6 +24,7 @@ import org.javacord.api.entity.user.User;
 import org.javacord.api.event.channel.server.ServerChannelDeleteEvent;
 import org.javacord.api.event.channel.server.invite.ServerChannelInviteCreateEvent;
 import org.javacord.api.event.channel.server.invite.ServerChannelInviteDeleteEvent;
+import org.javacord.api.event.connection.ReconnectEvent;
 import org.javacord.api.event.message.MessageCreateEvent;
 import org.javacord.api.event.message.MessageDeleteEvent;
 import org.javacord.api.event.message.MessageEditEvent;
@@ -38,6 +39,7 @@ import org.javacord.api.event.server.role.RoleDeleteEvent;
 import org.javacord.api.listener.channel.server.ServerChannelDeleteListener;
 import org.javacord.api.listener.channel.server.invite.ServerChannelInviteCreateListener;
 import org.javacord.api.listener.channel.server.invite.ServerChannelInviteDeleteListener;
+import org.javacord.api.listener.connection.ReconnectListener;
 import org.javacord.api.listener.message.MessageCreateListener;
 import org.javacord.api.listener.message.MessageDeleteListener;
 import org.javacord.api.listener.message.MessageEditListener;
@@ -54,6 +56,7 @@ import org.javacord.api.listener.server.role.RoleChangePermissionsListener;
 import org.javacord.api.listener.server.role.RoleDeleteListener;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.ocpsoft.prettytime.PrettyTime;
 
 import java.awt.*;
@@ -65,7 +68,7 @@ import java.util.*;
 
 public class EventsListener
         implements MessageCreateListener, MessageEditListener, MessageDeleteListener,
-        ReactionAddListener, ReactionRemoveListener, ReactionRemoveAllListener,
+        ReactionAddListener, ReactionRemoveListener, ReactionRemoveAllListener, ReconnectListener,
         ServerJoinListener, ServerLeaveListener, ServerMemberJoinListener, ServerMemberLeaveListener,
         ServerMemberBanListener, ServerMemberUnbanListener, CommonConstants,
         RoleChangePermissionsListener, ServerChannelInviteCreateListener, ServerChannelInviteDeleteListener,
@@ -73,40 +76,60 @@ public class EventsListener
 
     private static final String VERSION_STRING = "2021-01-07";
 
-    private final VoteReactFilter asVoteReaction = new VoteReactFilter();
-    private final CommunityControlReaction communityControlReaction = new CommunityControlReaction();
     private static final Logger log = LogManager.getLogger(EventsListener.class.getSimpleName());
     private static final Logger cmdlog = LogManager.getLogger("Commands debug");
 
+    private final EventsContext context;
+    private final DispatchIndex dispatchIndex;
+    private final VoteReactFilter asVoteReaction;
+    private final CommunityControlReaction communityControlReaction;
+
     private String botInviteUrl = "";
+    private volatile EventsCapture eventsCapture = null;
+
+    public EventsListener() {
+        this(SettingsController.getInstance(), new DispatchIndex());
+    }
+
+    /**
+     * @param context       настройки и службы, используемые при обработке событий
+     * @param dispatchIndex индекс сценариев, команд и реакций на сообщения
+     */
+    EventsListener(@NotNull EventsContext context, @NotNull DispatchIndex dispatchIndex) {
+        this.context = context;
+        this.dispatchIndex = dispatchIndex;
+        this.asVoteReaction = new VoteReactFilter(context.getVoteTallyService());
+        this.communityControlReaction = new CommunityControlReaction(
+                context.getMainDBController().getCommunityControlDAO(),
+                context.getMainDBController().getServerPreferencesDAO(),
+                context.getCommunityControlLedger());
+    }
 
     @Override
     public void onMessageCreate(MessageCreateEvent event) {
 
+        EventsCapture capture = eventsCapture;
+        if (capture != null) {
+            capture.record(CapturedEvent.from(event));
+        }
+
         boolean isPlainMessage = true;
 
-        SettingsController settingsController = SettingsController.getInstance();
-        settingsController.getStatisticService().onMessageCreate(event);
-        settingsController.getNameCacheService().update(event);
+        context.getMessageCacheService().onMessageCreate(event);
+        executeLowPriority(EventsExecutor.shardKey(event.getChannel()), () -> {
+            context.getStatisticService().onMessageCreate(event);
+            context.getNameCacheService().update(event);
+        });
 
-        settingsController.getMessagesForwarder()
+        context.getMessagesForwarder()
                 .onMessageCreate(event);
 
         String strMessage = event.getMessageContent();
-        Optional<Server> mayBeServer = event.getServer();
         Optional<User> mayBeUser = event.getMessageAuthor().asUser();
 
         String botMentionTag = event.getApi().getYourself().getMentionTag();
         String botMentionNicknameTag = event.getApi().getYourself().getNicknameMentionTag();
-        String botPrefix;
-        if (mayBeServer.isPresent()) {
-            Server server = mayBeServer.get();
-            botPrefix = SettingsController.getInstance()
-                    .getBotPrefix(server.getId());
-        } else {
-            botPrefix = SettingsController.getInstance()
-                    .getGlobalCommonPrefix();
-        }
+        String botPrefix = getBotPrefix(event.getServer());
         boolean startedNewScenario = false;
         if (strMessage.startsWith(botPrefix) || strMessage.startsWith(botMentionTag)
                 || strMessage.startsWith(botMentionNicknameTag)) {
@@ -115,39 +138,46 @@ public class EventsListener
         }
 
         if (!startedNewScenario && mayBeUser.isPresent() && !mayBeUser.get().isBot()) {
-            for (SessionState sessionState : SessionState.all()) {
-                if (sessionState.isAccept(event)) {
-                    SessionState.all().remove(sessionState);
-                    sessionState.getScenario().executeMessageStep(event, sessionState);
-                    return;
-                }
+            Optional<SessionState> mayBeSession = SessionState.pollAccepted(event);
+            if (mayBeSession.isPresent()) {
+                SessionState sessionState = mayBeSession.get();
+                sessionState.getScenario().executeMessageStep(event, sessionState);
+                return;
             }
         }
 
-        isPlainMessage &= MsgCreateReaction.all().stream()
-                .noneMatch(r -> r.canReact(event));
+        DispatchMetrics dispatchMetrics = context.getDispatchMetrics();
+        long prefilterStart = System.nanoTime();
+        List<MsgCreateReaction> reactions = dispatchIndex.findReactions(event);
+        dispatchMetrics.record("reactions prefilter", prefilterStart);
+        isPlainMessage &= reactions.isEmpty();
 
-        MsgCreateReaction.all().stream()
-                .filter(r -> r.canReact(event))
-                .forEach(r -> r.onMessageCreate(event));
+        for (MsgCreateReaction reaction : reactions) {
+            long started = System.nanoTime();
+            reaction.onMessageCreate(event);
+            dispatchMetrics.record(reaction.getClass().getSimpleName(), started);
+        }
 
         if (isPlainMessage) {
             if (event.getServer().isPresent()) {
-                SettingsController.getInstance()
-                        .getCongratulationsController()
+                context.getCongratulationsController()
                         .processAndSave(event);
             }
         }
     }
 
+    @NotNull
+    private String getBotPrefix(@NotNull Optional<Server> mayBeServer) {
+        return mayBeServer.map(server -> context.getBotPrefix(server.getId()))
+                .orElseGet(context::getGlobalCommonPrefix);
+    }
+
     private boolean parseCmdLine(@NotNull MessageCreateEvent event) {
 
         Optional<User> mayBeUser = event.getMessageAuthor().asUser();
         if (mayBeUser.isPresent() && !mayBeUser.get().isBot()) {
-            for (SessionState sessionState : SessionState.all()) {
-                if (sessionState.isAccept(event)) {
-                    return false;
-                }
+            if (SessionState.hasAccepted(event)) {
+                return false;
             }
         }
 
@@ -160,16 +190,17 @@ public class EventsListener
         ArrayList<String> anotherStrings = inputLines.size() > 1 ?
                 new ArrayList<>(inputLines.subList(1, inputLines.size())) : new ArrayList<>(0);
 
-        SettingsController settingsController = SettingsController.getInstance();
-        String withoutCommonPrefix =
-                MessageUtils.getEventMessageWithoutBotPrefix(inputLines.get(0), mayBeServer);
+        String withoutCommonPrefix = MessageUtils.getEventMessageWithoutBotPrefix(inputLines.get(0),
+                event.getApi().getYourself(), getBotPrefix(mayBeServer));
 
+        DispatchMetrics dispatchMetrics = context.getDispatchMetrics();
         if (mayBeUser.isPresent() && !mayBeUser.get().isBot()) {
-            for (Scenario scenario : Scenario.all()) {
-                if (scenario.canExecute(withoutCommonPrefix)) {
-                    scenario.firstRun(event);
-                    return true;
-                }
+            Scenario scenario = dispatchIndex.findScenario(withoutCommonPrefix);
+            if (scenario != null) {
+                long started = System.nanoTime();
+                scenario.firstRun(event);
+                dispatchMetrics.record(scenario.getClass().getSimpleName(), started);
+                return true;
             }
         }
 
@@ -178,15 +209,17 @@ public class EventsListener
 
         if (rawCmdline.length >= 1) {
             String commandPrefix = rawCmdline[0].toLowerCase();
-            BotCommand.all().stream()
-                    .filter(c -> c.getPrefix().equals(commandPrefix))
-                    .forEach(c -> c.executeCreateMessageEvent(event, rawCmdline, anotherStrings));
+            for (BotCommand command : dispatchIndex.findCommands(commandPrefix)) {
+                long started = System.nanoTime();
+                command.executeCreateMessageEvent(event, rawCmdline, anotherStrings);
+                dispatchMetrics.record(command.getClass().getSimpleName(), started);
+            }
             if (commandPrefix.equals("help") ||
                     commandPrefix.equals("-h") ||
                     commandPrefix.equals("--help")) {
 
                 MessageBuilder embedMessageText = new MessageBuilder()
-                        .append(settingsController.getBotName())
+                        .append(context.getBotName())
                         .append(" ")
                         .append(VERSION_STRING, MessageDecoration.BOLD)
                         .appendNewLine()
@@ -260,8 +293,7 @@ public class EventsListener
 
     private void showFirstLoginHelp(@NotNull ServerTextChannel channel) {
         MessageBuilder msgBuilder = new MessageBuilder();
-        String botPrefix = SettingsController.getInstance()
-                .getServerPreferences(channel.getServer().getId())
+        String botPrefix = context.getServerPreferences(channel.getServer().getId())
                 .getBotPrefix();
         msgBuilder.append("Current bot prefix is \"" + botPrefix + "\"");
         msgBuilder.appendNewLine();
@@ -269,49 +301,70 @@ public class EventsListener
         msgBuilder.send(channel);
         if (channel.getServer().canYouChangeOwnNickname()) {
             User ownUser = channel.getApi().getYourself();
-            channel.getServer().updateNickname(ownUser, SettingsController.getInstance().getBotName() + " ("
+            channel.getServer().updateNickname(ownUser, context.getBotName() + " ("
                     + botPrefix + " help)");
         }
     }
 
     @Override
     public void onMessageDelete(MessageDeleteEvent event) {
-        SettingsController.getInstance().getStatisticService().onMessageDelete(event);
+        EventsCapture capture = eventsCapture;
+        if (capture != null) {
+            capture.record(CapturedEvent.from(event));
+        }
+        context.getVoteTallyService().onMessageDelete(event.getMessageId());
+        context.getCommunityControlLedger().onMessageDelete(event.getMessageId());
+        context.getMessageCacheService().onMessageDelete(event.getMessageId());
+        executeLowPriority(EventsExecutor.shardKey(event.getChannel()), () ->
+                context.getStatisticService().onMessageDelete(event));
     }
 
     @Override
     public void onMessageEdit(MessageEditEvent event) {
-        SettingsController.getInstance().getNameCacheService().update(event);
+        context.getMessageCacheService().onMessageEdit(event);
+        executeLowPriority(EventsExecutor.shardKey(event.getChannel()), () ->
+                context.getNameCacheService().update(event));
     }
 
     @Override
     public void onReactionAdd(ReactionAddEvent event) {
-        SettingsController settingsController = SettingsController.getInstance();
-        settingsController.getStatisticService().onReactionAdd(event);
+        EventsCapture capture = eventsCapture;
+        if (capture != null) {
+            capture.record(CapturedEvent.from(event, true));
+        }
+        executeLowPriority(EventsExecutor.shardKey(event.getChannel()), () -> {
+            context.getStatisticService().onReactionAdd(event);
+            context.getNameCacheService().update(event);
+        });
 
+        context.getVoteTallyService().onReactionAdd(event);
         asVoteReaction.parseAction(event);
-        communityControlReaction.parseReaction(event);
+        communityControlReaction.parseReaction(event, true);
         if (event.getUser().isPresent() && !event.getUser().get().isBot()) {
-            for (SessionState sessionState : SessionState.all()) {
-                if (sessionState.isAccept(event)) {
-                    if (sessionState.isRemoveReaction()) {
-                        event.removeReaction();
-                    }
-                    SessionState.all().remove(sessionState);
-                    sessionState.getScenario().executeReactionStep(event, sessionState);
-                    break;
-                } else {
-                    if (sessionState.getMessageId() == event.getMessageId()) {
-                        event.removeReaction();
-                    }
+            Optional<SessionState> mayBeSession = SessionState.pollAccepted(event);
+            if (mayBeSession.isPresent()) {
+                SessionState sessionState = mayBeSession.get();
+                if (sessionState.isRemoveReaction()) {
+                    event.removeReaction();
                 }
+                sessionState.getScenario().executeReactionStep(event, sessionState);
+            } else if (SessionState.isSessionMessage(event.getMessageId())) {
+                // reaction to another user's scenario message
+                event.removeReaction();
             }
         }
-        settingsController.getNameCacheService().update(event);
     }
 
     @Override
     public void onReactionRemoveAll(ReactionRemoveAllEvent event) {
+        context.getVoteTallyService().onReactionRemoveAll(event.getMessageId());
+        context.getCommunityControlLedger().onReactionRemoveAll(event.getMessageId());
+    }
+
+    @Override
+    public void onReconnect(ReconnectEvent event) {
+        // события, пришедшие во время разрыва соединения, потеряны
+        context.getVoteTallyService().reconcileAll(event.getApi());
     }
 
     @Override
@@ -319,15 +372,16 @@ public class EventsListener
         final Server server = event.getServer();
         server.getSystemChannel()
                 .ifPresent(this::showFirstLoginHelp);
-        SettingsController.getInstance().getInvitesController().addInvitesToCache(server);
-        SettingsController.getInstance().getNameCacheService().deepServerUpdate(event.getServer());
+        context.getInvitesController().addInvitesToCache(server);
+        context.getNameCacheService().deepServerUpdate(event.getServer());
     }
 
     @Override
     public void onServerLeave(@NotNull ServerLeaveEvent event) {
-        SettingsController.getInstance()
-                .getInvitesController()
+        context.getInvitesController()
                 .dropInvitesFromCache(event.getServer());
+        context.getVoteController()
+                .onServerLeave(event.getServer().getId());
     }
 
     @Override
@@ -337,7 +391,7 @@ public class EventsListener
                 .stream()
                 .anyMatch(User::isYourself);
         if (isBotRoleChanged) {
-            final InvitesController invitesController = SettingsController.getInstance().getInvitesController();
+            final InvitesController invitesController = context.getInvitesController();
             final boolean canBotViewInvites = event.getServer().canYouManage();
             final boolean invitesPresentInStore = invitesController.hasServerInvites(event.getServer());
             if (canBotViewInvites && !invitesPresentInStore) {
@@ -350,44 +404,44 @@ public class EventsListener
 
     @Override
     public void onReactionRemove(ReactionRemoveEvent event) {
-        SettingsController settingsController = SettingsController.getInstance();
-        settingsController.getStatisticService().onReactionRemove(event);
+        EventsCapture capture = eventsCapture;
+        if (capture != null) {
+            capture.record(CapturedEvent.from(event, false));
+        }
+        executeLowPriority(EventsExecutor.shardKey(event.getChannel()), () -> {
+            context.getStatisticService().onReactionRemove(event);
+            context.getNameCacheService().update(event);
+        });
 
-        communityControlReaction.parseReaction(event);
+        context.getVoteTallyService().onReactionRemove(event);
+        communityControlReaction.parseReaction(event, false);
         if (event.getUser().isPresent() && !event.getUser().get().isBot()) {
-            for (SessionState sessionState : SessionState.all()) {
-                if (sessionState.isAccept(event)) {
-                    SessionState.all().remove(sessionState);
-                    sessionState.getScenario().executeReactionStep(event, sessionState);
-                    break;
-                }
-            }
+            SessionState.pollAccepted(event).ifPresent(sessionState ->
+                    sessionState.getScenario().executeReactionStep(event, sessionState));
         }
-        settingsController.getNameCacheService().update(event);
+    }
+
+    /**
+     * Обновление статистики и кэша имён выполняется вне потока событий,
+     * при перегрузке задерживается либо отбрасывается согласно настройке
+     */
+    private void executeLowPriority(long shardKey, @NotNull Runnable task) {
+        context.getEventsExecutor()
+                .execute(shardKey, EventsExecutor.Priority.LOW, task);
+    }
+
+    /**
+     * Включить запись входящих событий для последующего воспроизведения
+     */
+    void setEventsCapture(@Nullable EventsCapture eventsCapture) {
+        this.eventsCapture = eventsCapture;
     }
 
     void onReady() {
         final BroadCast.MessagesLogger messagesLogger = BroadCast.getLogger()
                 .add(DiceReaction.rebuildRoflIndexes(false));
-        final SettingsController settingsController = SettingsController.getInstance();
-        final long highRollImagesChannelId = settingsController.getMainDBController()
-                .getCommonPreferencesDAO()
-                .getHighRollChannelId();
-        final long lowRollImagesChannelId = settingsController.getMainDBController()
-                .getCommonPreferencesDAO()
-                .getLowRollChannelId();
-        Optional<DiscordApi> mayBeApi = Optional.ofNullable(settingsController.getDiscordApi());
+        Optional<DiscordApi> mayBeApi = Optional.ofNullable(context.getDiscordApi());
         mayBeApi.ifPresentOrElse(discordApi -> {
-            discordApi.getServerTextChannelById(highRollImagesChannelId).ifPresent(textChannel -> {
-                textChannel.addMessageCreateListener(event -> DiceReaction.rebuildRoflIndexes(true));
-                textChannel.addMessageEditListener(event -> DiceReaction.rebuildRoflIndexes(true));
-                textChannel.addMessageDeleteListener(event -> DiceReaction.rebuildRoflIndexes(true));
-            });
-            discordApi.getServerTextChannelById(lowRollImagesChannelId).ifPresent(textChannel -> {
-                textChannel.addMessageCreateListener(event -> DiceReaction.rebuildRoflIndexes(true));
-                textChannel.addMessageEditListener(event -> DiceReaction.rebuildRoflIndexes(true));
-                textChannel.addMessageDeleteListener(event -> DiceReaction.rebuildRoflIndexes(true));
-            });
             messagesLogger.add(FunScenario.InitUrlIndexes());
             botInviteUrl = discordApi.createBotInvite(Permissions.fromBitmask(335932481));
 
@@ -397,65 +451,81 @@ public class EventsListener
             log.info(readyMsg);
             messagesLogger.addInfoMessage(invite)
                     .addInfoMessage(readyMsg);
-            settingsController.getInvitesController().updateInvitesList();
+            context.getInvitesController().updateInvitesList();
+            for (long serverId : context.getServerListWithConfig()) {
+                context.getVoteTallyService().restore(discordApi,
+                        context.getServerPreferences(serverId).getActiveVotes());
+            }
+            context.getVoteController().scheduleActiveVotes(discordApi);
             messagesLogger.send();
-            SettingsController.getInstance().getMessagesForwarder().readSettingsFromMessage();
+            context.getMessagesForwarder().readSettingsFromMessage();
         }, () -> log.fatal("Unable to start - api is null!"));
     }
 
     @Override
     public void onServerMemberJoin(ServerMemberJoinEvent event) {
-        SettingsController.getInstance().getNameCacheService().update(event.getUser(), event.getServer());
+        EventsCapture capture = eventsCapture;
+        if (capture != null) {
+            capture.record(CapturedEvent.from(event, true));
+        }
+        executeLowPriority(event.getServer().getId(), () ->
+                context.getNameCacheService().update(event.getUser(), event.getServer()));
         serverMemberStateDisplay(event, MemberEventCode.JOIN);
-        SettingsController.getInstance()
-                .getAutoPromoteService()
+        context.getAutoPromoteService()
                 .promoteNewMember(event);
     }
 
     @Override
     public void onServerMemberLeave(ServerMemberLeaveEvent event) {
-        SettingsController.getInstance().getNameCacheService().update(event.getUser());
+        EventsCapture capture = eventsCapture;
+        if (capture != null) {
+            capture.record(CapturedEvent.from(event, false));
+        }
+        executeLowPriority(event.getServer().getId(), () ->
+                context.getNameCacheService().update(event.getUser()));
         serverMemberStateDisplay(event, MemberEventCode.LEAVE);
-        SettingsController.getInstance().getAccessControlService().denyAll(event.getServer(), event.getUser());
+        context.getAccessControlService().denyAll(event.getServer(), event.getUser());
     }
 
     @Override
     public void onServerMemberBan(ServerMemberBanEvent event) {
-        SettingsController.getInstance().getNameCacheService().update(event.getUser());
+        executeLowPriority(event.getServer().getId(), () ->
+                context.getNameCacheService().update(event.getUser()));
         serverMemberStateDisplay(event, MemberEventCode.BAN);
-        SettingsController.getInstance().getAccessControlService().denyAll(event.getServer(), event.getUser());
+        context.getAccessControlService().denyAll(event.getServer(), event.getUser());
     }
 
     @Override
     public void onServerMemberUnban(ServerMemberUnbanEvent event) {
-        SettingsController.getInstance().getNameCacheService().update(event.getUser());
+        executeLowPriority(event.getServer().getId(), () ->
+                context.getNameCacheService().update(event.getUser()));
         serverMemberStateDisplay(event, MemberEventCode.UNBAN);
     }
 
     @Override
     public void onServerChannelInviteCreate(ServerChannelInviteCreateEvent event) {
-        SettingsController.getInstance()
-                .getInvitesController()
+        context.getInvitesController()
                 .addInvitesToCache(event.getServer());
-        SettingsController.getInstance().getNameCacheService().update(event.getChannel());
+        context.getNameCacheService().update(event.getChannel());
     }
 
     @Override
     public void onServerChannelInviteDelete(ServerChannelInviteDeleteEvent event) {
-        SettingsController.getInstance()
-                .getInvitesController()
+        context.getInvitesController()
                 .addInvitesToCache(event.getServer());
-        SettingsController.getInstance().getNameCacheService().update(event.getChannel());
+        context.getNameCacheService().update(event.getChannel());
     }
 
     @Override
     public void onServerChannelDelete(ServerChannelDeleteEvent event) {
-        SettingsController.getInstance().getAccessControlService().denyAll(event.getServer(), event.getChannel());
+        context.getAccessControlService().denyAll(event.getServer(), event.getChannel());
+        context.getVoteController()
+                .onChannelDelete(event.getServer().getId(), event.getChannel().getId());
     }
 
     @Override
     public void onRoleDelete(RoleDeleteEvent event) {
-        SettingsController.getInstance().getAccessControlService().denyAll(event.getServer(), event.getRole());
+        context.getAccessControlService().denyAll(event.getServer(), event.getRole());
     }
 
     private void serverMemberStateDisplay(@NotNull ServerMemberEvent event, MemberEventCode code) {
@@ -464,8 +534,8 @@ public class EventsListener
             return;
         }
         final long serverId = event.getServer().getId();
-        final ServerPreferences preferences = SettingsController.getInstance().getServerPreferences(serverId);
-        final InvitesController invitesController = SettingsController.getInstance().getInvitesController();
+        final ServerPreferences preferences = context.getServerPreferences(serverId);
+        final InvitesController invitesController = context.getInvitesController();
         if (preferences.isJoinLeaveDisplay() && preferences.getJoinLeaveChannel() > 0) {
             final Optional<ServerTextChannel> mayBeChannel = event.getServer()
                     .getTextChannelById(preferences.getJoinLeaveChannel());
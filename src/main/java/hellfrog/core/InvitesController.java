@@ -2,6 +2,7 @@ package hellfrog.core;
 
 import hellfrog.common.CommonConstants;
 import hellfrog.common.InviteInfo;
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.ServerPreferences;
 import hellfrog.settings.SettingsController;
 import org.apache.logging.log4j.LogManager;
@@ -23,13 +24,12 @@ import java.util.concurrent.*;
 public class InvitesController
         implements Runnable, CommonConstants {
 
-    private final ScheduledFuture<?> scheduledFuture;
+    private final SchedulerService.ScheduledTask scheduledFuture;
     private final ConcurrentHashMap<Long, List<InviteInfo>> invitesCache = new ConcurrentHashMap<>();
     private final Logger log = LogManager.getLogger(this.getClass().getSimpleName());
 
-    public InvitesController() {
-        ScheduledExecutorService voiceService = Executors.newSingleThreadScheduledExecutor();
-        scheduledFuture = voiceService.scheduleWithFixedDelay(this, 60L, 60L, TimeUnit.SECONDS);
+    public InvitesController(@NotNull final SchedulerService schedulerService) {
+        scheduledFuture = schedulerService.schedule("invites-update", 60L, 60L, TimeUnit.SECONDS, this);
     }
 
     @Override
@@ -151,13 +151,6 @@ public class InvitesController
     }
 
     public void stop() {
-        scheduledFuture.cancel(false);
-        while (!scheduledFuture.isCancelled() || !scheduledFuture.isDone()) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException brk) {
-                scheduledFuture.cancel(true);
-            }
-        }
+        scheduledFuture.cancel();
     }
 }
@@ -1,27 +1,37 @@
 package hellfrog.core;
 
 import hellfrog.commands.cmdline.BotCommand;
+import hellfrog.commands.scenes.GrammarScenario;
 import hellfrog.commands.scenes.Scenario;
+import hellfrog.common.BroadCast;
 import hellfrog.reacts.MsgCreateReaction;
 import hellfrog.settings.ApiKeyStorage;
 import hellfrog.settings.SettingsController;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.javacord.api.DiscordApi;
 import org.javacord.api.DiscordApiBuilder;
 import org.javacord.api.entity.activity.ActivityType;
-import org.jetbrains.annotations.Contract;
 
 import java.io.Console;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 public class Loader {
 
     private static final Logger log = LogManager.getLogger("Core");
+    private static final String CAPTURE_ARG = "--capture";
 
     public static void main(String... args) {
 
-        if (args.length > 0) {
+        Path capturePath = null;
+        if (args.length == 2 && args[0].equals(CAPTURE_ARG)) {
+            capturePath = Paths.get(args[1]);
+        } else if (args.length > 0) {
             System.err.print("First cmdline value rewrite api key. Continue? [y/n]> ");
             Console console = System.console();
             String answer;
@@ -42,67 +52,112 @@ public class Loader {
             System.exit(0);
         }
 
-        SettingsController.getInstance().init();
-
-        final EventsListener eventsListener = new EventsListener();
-        for (BotCommand cmd : BotCommand.all()) { // заранее инициируем поиск и инстантинацию классов команд
-            if (log.isDebugEnabled()) {
-                log.debug(cmd.getClass());
+        EventsCapture eventsCapture = null;
+        if (capturePath != null) {
+            try {
+                eventsCapture = new EventsCapture(capturePath);
+                final EventsCapture captureToClose = eventsCapture;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        captureToClose.close();
+                    } catch (IOException err) {
+                        log.error("Unable to close events capture: " + err.getMessage(), err);
+                    }
+                }));
+            } catch (IOException err) {
+                String errMsg = String.format("Unable to start events capture to %s: %s", capturePath, err.getMessage());
+                log.fatal(errMsg, err);
+                System.err.println(errMsg);
+                System.exit(2);
             }
         }
-        for (MsgCreateReaction react : MsgCreateReaction.all()) {
-            if (log.isDebugEnabled()) {
-                log.debug(react.getClass());
+
+        // вход в Discord (ожидание серверов и пользователей) самый долгий этап, он не зависит
+        // от настроек и выполняется одновременно с загрузкой БД и инстантинацией команд
+        final EventsCapture capture = eventsCapture;
+        final Bootstrap bootstrap = new Bootstrap("bot");
+        final Bootstrap.Phase<Void> settings = bootstrap.phase("settings", () -> {
+            SettingsController.getInstance().init();
+            return null;
+        });
+        final Bootstrap.Phase<EventsListener> commands = bootstrap.phase("commands", () -> {
+            // заранее инициируем поиск и инстантинацию классов команд
+            for (BotCommand cmd : BotCommand.all()) {
+                if (log.isDebugEnabled()) {
+                    log.debug(cmd.getClass());
+                }
             }
-        }
-        for (Scenario scene : Scenario.all()) {
-            if (log.isDebugEnabled()) {
-                log.debug(scene.getClass());
+            for (MsgCreateReaction react : MsgCreateReaction.all()) {
+                if (log.isDebugEnabled()) {
+                    log.debug(react.getClass());
+                }
             }
-        }
+            for (Scenario scene : Scenario.all()) {
+                if (log.isDebugEnabled()) {
+                    log.debug(scene.getClass());
+                }
+            }
+            final EventsListener eventsListener = new EventsListener();
+            if (capture != null) {
+                eventsListener.setEventsCapture(capture);
+            }
+            return eventsListener;
+        }, settings);
+        bootstrap.phase("language detector", () -> {
+            for (Scenario scene : Scenario.all()) {
+                if (scene instanceof GrammarScenario) {
+                    ((GrammarScenario) scene).warmUp();
+                }
+            }
+            return null;
+        }, commands);
+        final Bootstrap.Phase<String> apiKey = bootstrap.phase("api key", ApiKeyStorage::readApiKey);
+        final Bootstrap.Phase<DiscordApi> login = bootstrap.phase("discord login", () -> new DiscordApiBuilder()
+                .setToken(apiKey.join())
+                .setAllIntents()
+                .setWaitForUsersOnStartup(true)
+                .setWaitForServersOnStartup(true)
+                .login()
+                .join(), apiKey);
+        bootstrap.phase("listeners", () -> {
+            final DiscordApi api = login.join();
+            final EventsListener eventsListener = commands.join();
+            api.addMessageCreateListener(eventsListener);
+            api.addMessageEditListener(eventsListener);
+            api.addMessageDeleteListener(eventsListener);
+            api.addReactionAddListener(eventsListener);
+            api.addReactionRemoveListener(eventsListener);
+            api.addReactionRemoveAllListener(eventsListener);
+            api.addReconnectListener(eventsListener);
+            api.addServerMemberJoinListener(eventsListener);
+            api.addServerMemberLeaveListener(eventsListener);
+            api.addServerMemberBanListener(eventsListener);
+            api.addServerMemberUnbanListener(eventsListener);
+            api.updateActivity(ActivityType.LISTENING, "<prefix> help");
+            SettingsController.getInstance().setDiscordApi(api);
+            api.addServerJoinListener(eventsListener);
+            api.addServerLeaveListener(eventsListener);
+            api.addRoleChangePermissionsListener(eventsListener);
+            api.addServerChannelDeleteListener(eventsListener);
+            eventsListener.onReady();
+            return null;
+        }, commands, login);
 
-        String apiKey = "";
         try {
-            apiKey = ApiKeyStorage.readApiKey();
-        } catch (Exception err) {
+            bootstrap.await();
+        } catch (BootstrapException err) {
             String errMsg = String.format("Unable to start BOT: %s. Emergency terminated", err.getMessage());
             log.fatal(errMsg, err);
             System.err.println(errMsg);
             System.exit(2);
         }
 
-        new DiscordApiBuilder()
-                .setToken(apiKey)
-                .setAllIntents()
-                .setWaitForUsersOnStartup(true)
-                .setWaitForServersOnStartup(true)
-                .login()
-                .thenAccept(api -> {
-                    api.addMessageCreateListener(eventsListener);
-                    api.addMessageEditListener(eventsListener);
-                    api.addMessageDeleteListener(eventsListener);
-                    api.addReactionAddListener(eventsListener);
-                    api.addReactionRemoveListener(eventsListener);
-                    api.addReactionRemoveAllListener(eventsListener);
-                    api.addServerMemberJoinListener(eventsListener);
-                    api.addServerMemberLeaveListener(eventsListener);
-                    api.addServerMemberBanListener(eventsListener);
-                    api.addServerMemberUnbanListener(eventsListener);
-                    api.updateActivity(ActivityType.LISTENING, "<prefix> help");
-                    SettingsController.getInstance().setDiscordApi(api);
-                    api.addServerJoinListener(eventsListener);
-                    api.addServerLeaveListener(eventsListener);
-                    api.addRoleChangePermissionsListener(eventsListener);
-                    eventsListener.onReady();
-                })
-                .exceptionally(Loader::onException);
-    }
-
-    @Contract("null -> null")
-    private static Void onException(Throwable th) {
-        if (th != null) {
-            log.error(th);
-        }
-        return null;
+        List<String> startupReport = new ArrayList<>(bootstrap.describe());
+        startupReport.addAll(SettingsController.getInstance().getStartupReport());
+        String report = String.join("\n", startupReport);
+        log.info("Startup completed:\n{}", report);
+        BroadCast.getLogger()
+                .addInfoMessage("Startup completed:\n" + report)
+                .send();
     }
 }
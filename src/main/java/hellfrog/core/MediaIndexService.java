@@ -0,0 +1,218 @@
+package hellfrog.core;
+
+import hellfrog.common.BroadCast;
+import hellfrog.common.CommonUtils;
+import hellfrog.settings.db.MediaUrlsChange;
+import hellfrog.settings.db.MediaUrlsDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.DiscordEntity;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAttachment;
+import org.javacord.api.event.message.MessageEditEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс ссылок на картинки из каналов-источников (картинки для кубиков и fun-команд).
+ * <p>
+ * Ссылки хранятся в базе вместе с идентификатором последнего проиндексированного сообщения канала.
+ * При запуске индекс загружается из базы и из Discord запрашиваются только более новые сообщения,
+ * далее создание, изменение и удаление сообщений в канале применяются к индексу по одному сообщению.
+ * Сообщения, изменённые или удалённые пока бот был выключен, не отслеживаются
+ */
+public class MediaIndexService {
+
+    private final MediaUrlsDAO mediaUrlsDAO;
+    private final ConcurrentHashMap<Long, ChannelIndex> indexes = new ConcurrentHashMap<>();
+    private final Logger log = LogManager.getLogger("Media index");
+
+    public MediaIndexService(@NotNull final MediaUrlsDAO mediaUrlsDAO) {
+        this.mediaUrlsDAO = mediaUrlsDAO;
+    }
+
+    /**
+     * Подключить канал-источник к списку ссылок: загрузить сохранённые ссылки, проиндексировать
+     * новые сообщения канала и подписаться на его изменения
+     *
+     * @param api                Discord API
+     * @param channelId          канал-источник
+     * @param target             список ссылок, с которым работают команды
+     * @param channelDescription описание канала для служебных сообщений
+     * @param withTextUrls       учитывать ссылки из текста сообщений, а не только вложения
+     * @return служебные сообщения о результате
+     */
+    public BroadCast.MessagesLogger attach(@Nullable final DiscordApi api,
+                                           final long channelId,
+                                           @NotNull final CopyOnWriteArrayList<String> target,
+                                           @NotNull final String channelDescription,
+                                           final boolean withTextUrls) {
+
+        final BroadCast.MessagesLogger messagesLogger = BroadCast.getLogger();
+        final ChannelIndex channelIndex = indexes.computeIfAbsent(channelId, id -> new ChannelIndex(withTextUrls));
+        channelIndex.addTarget(target);
+        final int storedCount = refresh(channelId, channelIndex);
+
+        if (api == null) {
+            messagesLogger.addErrorMessage(String.format("(Unable to load/reload URLS from channel \"%s\" by id %d: Discord API is null)",
+                    channelDescription, channelId));
+            return messagesLogger;
+        }
+        Optional<ServerTextChannel> mayBeChannel = api.getServerTextChannelById(channelId);
+        if (mayBeChannel.isEmpty()) {
+            messagesLogger.addErrorMessage(String.format("(Unable to load URLs from channel \"%s\" by id %d, %d stored URLs used)",
+                    channelDescription, channelId, storedCount));
+            return messagesLogger;
+        }
+        ServerTextChannel channel = mayBeChannel.get();
+        if (channel.canYouSee() && channel.canYouReadMessageHistory()) {
+            if (channelIndex.catchUpDone.compareAndSet(false, true)) {
+                try {
+                    int indexed = catchUp(channel, channelIndex);
+                    int count = refresh(channelId, channelIndex);
+                    messagesLogger.addInfoMessage(String.format("Found %d URLs for \"%s\" (%d new messages indexed)",
+                            count, channelDescription, indexed));
+                } catch (Exception err) {
+                    channelIndex.catchUpDone.set(false);
+                    String errMsg = String.format("Unable to index messages of channel \"%s\" by id %d: %s",
+                            channelDescription, channelId, err.getMessage());
+                    log.error(errMsg, err);
+                    messagesLogger.addErrorMessage(errMsg);
+                }
+            } else {
+                messagesLogger.addInfoMessage(String.format("Found %d URLs for \"%s\"", storedCount, channelDescription));
+            }
+        } else {
+            messagesLogger.addErrorMessage(String.format("(Unable to load URLS from channel \"%s\" by id %d: bot cannot read messages history, %d stored URLs used)",
+                    channelDescription, channelId, storedCount));
+        }
+        if (channelIndex.listenersAdded.compareAndSet(false, true)) {
+            channel.addMessageCreateListener(event -> onMessageChanged(channelId, event.getMessage()));
+            channel.addMessageEditListener(event -> onMessageEdit(channelId, event));
+            channel.addMessageDeleteListener(event -> onMessageDelete(channelId, event.getMessageId()));
+        }
+        return messagesLogger;
+    }
+
+    /**
+     * Проиндексировать сообщения новее сохранённой отметки, либо весь канал при первом запуске.
+     * Отметка сдвигается только здесь и только после обработки всех полученных сообщений, поэтому
+     * при прерывании, а также после сообщений, полученных по событиям, она не опережает индекс
+     */
+    private int catchUp(@NotNull final ServerTextChannel channel, @NotNull final ChannelIndex channelIndex) {
+        final long channelId = channel.getId();
+        final long lastMessageId = mediaUrlsDAO.getLastMessageId(channelId);
+        final List<Message> messages = (lastMessageId > 0L
+                ? channel.getMessagesAfterAsStream(lastMessageId)
+                : channel.getMessagesAsStream())
+                .sorted(Comparator.comparingLong(DiscordEntity::getId))
+                .collect(Collectors.toList());
+        long latestMessageId = lastMessageId;
+        for (Message message : messages) {
+            List<String> urls = extractUrls(message, channelIndex.withTextUrls);
+            if (!urls.isEmpty()) {
+                mediaUrlsDAO.setMessageUrls(channelId, message.getId(), urls);
+            }
+            latestMessageId = Math.max(latestMessageId, message.getId());
+        }
+        if (latestMessageId > lastMessageId) {
+            mediaUrlsDAO.updateLastMessageId(channelId, latestMessageId);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Channel {}: indexed {} messages after message {}", channelId, messages.size(), lastMessageId);
+        }
+        return messages.size();
+    }
+
+    private void onMessageChanged(final long channelId, @NotNull final Message message) {
+        ChannelIndex channelIndex = indexes.get(channelId);
+        if (channelIndex != null) {
+            apply(channelIndex, mediaUrlsDAO.setMessageUrls(channelId, message.getId(),
+                    extractUrls(message, channelIndex.withTextUrls)));
+        }
+    }
+
+    private void onMessageEdit(final long channelId, @NotNull final MessageEditEvent event) {
+        // изменённое сообщение может отсутствовать в кэше
+        event.getMessage().ifPresentOrElse(message -> onMessageChanged(channelId, message),
+                () -> event.requestMessage().thenAccept(message -> onMessageChanged(channelId, message)));
+    }
+
+    private void onMessageDelete(final long channelId, final long messageId) {
+        ChannelIndex channelIndex = indexes.get(channelId);
+        if (channelIndex != null) {
+            apply(channelIndex, mediaUrlsDAO.removeMessage(channelId, messageId));
+        }
+    }
+
+    /**
+     * Применить к спискам ссылок изменение одного сообщения, не перечитывая все ссылки канала
+     */
+    private void apply(@NotNull final ChannelIndex channelIndex, @NotNull final MediaUrlsChange change) {
+        if (change.isEmpty()) {
+            return;
+        }
+        for (CopyOnWriteArrayList<String> target : channelIndex.targets) {
+            target.removeAll(change.getRemoved());
+            target.addAllAbsent(change.getAdded());
+        }
+    }
+
+    /**
+     * Перечитать все ссылки канала из базы. Выполняется только при подключении канала
+     * и после индексации его истории
+     */
+    private int refresh(final long channelId, @NotNull final ChannelIndex channelIndex) {
+        final List<String> urls = mediaUrlsDAO.getUrls(channelId);
+        final Set<String> actual = new HashSet<>(urls);
+        for (CopyOnWriteArrayList<String> target : channelIndex.targets) {
+            // списком пользуются команды, поэтому он не очищается полностью
+            target.retainAll(actual);
+            target.addAllAbsent(urls);
+        }
+        return urls.size();
+    }
+
+    @NotNull
+    static List<String> extractUrls(@NotNull final Message message, final boolean withTextUrls) {
+        List<String> result = message.getAttachments().stream()
+                .map(MessageAttachment::getUrl)
+                .map(URL::toString)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (withTextUrls) {
+            result.addAll(CommonUtils.detectAllUrls(message.getReadableContent()));
+        }
+        return result;
+    }
+
+    private static class ChannelIndex {
+
+        private final boolean withTextUrls;
+        private final CopyOnWriteArrayList<CopyOnWriteArrayList<String>> targets = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean catchUpDone = new AtomicBoolean(false);
+        private final AtomicBoolean listenersAdded = new AtomicBoolean(false);
+
+        ChannelIndex(boolean withTextUrls) {
+            this.withTextUrls = withTextUrls;
+        }
+
+        synchronized void addTarget(@NotNull CopyOnWriteArrayList<String> target) {
+            // пустые списки равны между собой, поэтому сравнение только по ссылке
+            for (CopyOnWriteArrayList<String> existing : targets) {
+                if (existing == target) {
+                    return;
+                }
+            }
+            targets.add(target);
+        }
+    }
+}
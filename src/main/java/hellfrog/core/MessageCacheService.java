@@ -0,0 +1,159 @@
+package hellfrog.core;
+
+import hellfrog.settings.db.CacheStatistic;
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.javacord.api.event.message.MessageEditEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш сообщений для поиска по ссылке или идентификатору (цитирование, настройки пересылки, голосования).
+ * <p>
+ * Кэш заполняется событиями создания и изменения сообщений и результатами запросов к Discord,
+ * удалённые сообщения из кэша исключаются. Размер кэша ограничен числом сообщений и их суммарным
+ * "весом" (примерным объёмом содержимого), давно не запрашиваемые сообщения вытесняются первыми.
+ * Одновременные запросы одного сообщения выполняются одним обращением к Discord.
+ * <p>
+ * Реакции сообщений в кэше могут быть неактуальны, поэтому для подсчёта реакций кэш не используется
+ */
+public class MessageCacheService {
+
+    private static final int MAX_MESSAGES = 5_000;
+    private static final long MAX_WEIGHT = 8L * 1024L * 1024L;
+    private static final int BASE_WEIGHT = 256;
+    private static final int ATTACHMENT_WEIGHT = 128;
+    private static final int EMBED_WEIGHT = 1024;
+
+    private final int maxMessages;
+    private final long maxWeight;
+    private final LinkedHashMap<Long, CachedMessage> messages = new LinkedHashMap<>(256, 0.75f, true);
+    private final ConcurrentHashMap<Long, CompletableFuture<Message>> inFlight = new ConcurrentHashMap<>();
+    private final CacheStatistic cacheStatistic = new CacheStatistic("Messages");
+    private long totalWeight = 0L;
+
+    public MessageCacheService() {
+        this(MAX_MESSAGES, MAX_WEIGHT);
+    }
+
+    MessageCacheService(final int maxMessages, final long maxWeight) {
+        this.maxMessages = maxMessages;
+        this.maxWeight = maxWeight;
+    }
+
+    public void onMessageCreate(@NotNull final MessageCreateEvent event) {
+        put(event.getMessage());
+    }
+
+    public void onMessageEdit(@NotNull final MessageEditEvent event) {
+        if (event.getMessage().isPresent()) {
+            put(event.getMessage().get());
+        } else {
+            // содержимое сообщения в кэше устарело
+            evict(event.getMessageId());
+        }
+    }
+
+    public void onMessageDelete(final long messageId) {
+        inFlight.remove(messageId);
+        evict(messageId);
+    }
+
+    /**
+     * Найти сообщение в кэше без обращения к Discord
+     */
+    public Optional<Message> getCached(final long messageId) {
+        synchronized (messages) {
+            CachedMessage cached = messages.get(messageId);
+            return cached != null ? Optional.of(cached.message) : Optional.empty();
+        }
+    }
+
+    /**
+     * Получить сообщение из кэша, либо запросить его у Discord. Пока запрос выполняется,
+     * повторные запросы этого же сообщения получают результат первого. Каждый вызывающий
+     * получает собственную копию future, поэтому её отмена или завершение не затрагивают других
+     */
+    public CompletableFuture<Message> getMessage(@NotNull final TextChannel channel, final long messageId) {
+        Optional<Message> cached = getCached(messageId);
+        if (cached.isPresent() && cached.get().getChannel().getId() == channel.getId()) {
+            cacheStatistic.hit();
+            return CompletableFuture.completedFuture(cached.get());
+        }
+        cacheStatistic.miss();
+        final CompletableFuture<Message> created = new CompletableFuture<>();
+        final CompletableFuture<Message> existing = inFlight.putIfAbsent(messageId, created);
+        if (existing != null) {
+            return existing.copy();
+        }
+        channel.getMessageById(messageId).whenComplete((message, err) -> {
+            // сообщение, удалённое во время запроса, в кэш не попадает
+            if (inFlight.remove(messageId, created) && message != null) {
+                put(message);
+            }
+            if (err != null) {
+                created.completeExceptionally(err);
+            } else {
+                created.complete(message);
+            }
+        });
+        return created.copy();
+    }
+
+    private void put(@NotNull final Message message) {
+        final CachedMessage cachedMessage = new CachedMessage(message);
+        synchronized (messages) {
+            CachedMessage previous = messages.put(message.getId(), cachedMessage);
+            if (previous != null) {
+                totalWeight -= previous.weight;
+            }
+            totalWeight += cachedMessage.weight;
+            Iterator<CachedMessage> eldest = messages.values().iterator();
+            while ((messages.size() > maxMessages || totalWeight > maxWeight) && eldest.hasNext()) {
+                CachedMessage evicted = eldest.next();
+                if (evicted == cachedMessage) {
+                    break;
+                }
+                totalWeight -= evicted.weight;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void evict(final long messageId) {
+        synchronized (messages) {
+            CachedMessage removed = messages.remove(messageId);
+            if (removed != null) {
+                totalWeight -= removed.weight;
+            }
+        }
+    }
+
+    public CacheStatistic getCacheStatistic() {
+        return cacheStatistic;
+    }
+
+    static long weightOf(@NotNull final Message message) {
+        return BASE_WEIGHT
+                + 2L * message.getContent().length()
+                + (long) ATTACHMENT_WEIGHT * message.getAttachments().size()
+                + (long) EMBED_WEIGHT * message.getEmbeds().size();
+    }
+
+    private static class CachedMessage {
+
+        private final Message message;
+        private final long weight;
+
+        CachedMessage(@NotNull final Message message) {
+            this.message = message;
+            this.weight = weightOf(message);
+        }
+    }
+}
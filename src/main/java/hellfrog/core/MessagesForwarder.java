@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import hellfrog.common.CommonConstants;
 import hellfrog.common.InMemoryAttach;
 import hellfrog.common.MessageUtils;
+import hellfrog.settings.SettingsController;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.javacord.api.entity.channel.TextChannel;
@@ -18,7 +19,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
@@ -93,7 +93,7 @@ public class MessagesForwarder
                 Long targetId = remapMap.get(fromId);
                 if (targetId != null) {
                     event.getApi().getTextChannelById(targetId).ifPresent(targetChannel ->
-                            CompletableFuture.runAsync(() -> forwardMessage(event.getMessage(), targetChannel)));
+                            forwardMessage(event.getMessage(), targetChannel));
                 }
             }
         }
@@ -150,7 +150,7 @@ public class MessagesForwarder
 
     private void sendHistoryMessages(@NotNull final List<Message> historyMessages,
                                      @NotNull final TextChannel targetChannel) {
-        CompletableFuture.runAsync(() -> {
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() -> {
             String infoMessage = String.format("Start dending %d messages to %s", historyMessages.size(), targetChannel);
             log.info(infoMessage);
             historyMessages.sort(Comparator.naturalOrder());
@@ -181,7 +181,7 @@ public class MessagesForwarder
     }
 
     public void forwardMessage(final @NotNull Message sourceMessage, final @NotNull TextChannel targetChannel) {
-        CompletableFuture.runAsync(() -> {
+        SettingsController.getInstance().getEventsExecutor().executeBlocking(() -> {
             try {
                 generateAndSendEmbeddedMessage(sourceMessage, targetChannel);
             } catch (Exception err) {
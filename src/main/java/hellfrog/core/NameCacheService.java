@@ -1,6 +1,7 @@
 package hellfrog.core;
 
 import com.vdurmont.emoji.EmojiParser;
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.SettingsController;
 import hellfrog.settings.db.EntityNameCacheDAO;
 import hellfrog.settings.db.entity.EntityNameCache;
@@ -20,28 +21,33 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 public class NameCacheService
         implements Runnable {
 
-    private final ScheduledFuture<?> scheduled;
+    private final SchedulerService.ScheduledTask scheduled;
     private final EntityNameCacheDAO entityNameCacheDAO;
-    private final SettingsController settingsController;
+    private final Supplier<DiscordApi> discordApiSupplier;
     private final Pattern DELETER_USERS_PATTERN = Pattern.compile("^Deleted User(#0{4}| [a-h0-9]*#\\d{4})");
 
     private static final String SPEAKER_EMOJI = EmojiParser.parseToUnicode(":loud_sound:");
     private static final String CATEGORY_EMOJI = "`v`";
 
     public NameCacheService(@NotNull final SettingsController settingsController,
-                            @NotNull final EntityNameCacheDAO entityNameCacheDAO) {
-        this.settingsController = settingsController;
+                            @NotNull final EntityNameCacheDAO entityNameCacheDAO,
+                            @NotNull final SchedulerService schedulerService) {
+        this(settingsController::getDiscordApi, entityNameCacheDAO, schedulerService);
+    }
+
+    NameCacheService(@NotNull final Supplier<DiscordApi> discordApiSupplier,
+                     @NotNull final EntityNameCacheDAO entityNameCacheDAO,
+                     @NotNull final SchedulerService schedulerService) {
+        this.discordApiSupplier = discordApiSupplier;
         this.entityNameCacheDAO = entityNameCacheDAO;
-        scheduled = Executors.newSingleThreadScheduledExecutor()
-                .scheduleWithFixedDelay(this, 10L, 10L, TimeUnit.MINUTES);
+        scheduled = schedulerService.schedule("names-cache-update", 10L, 10L, TimeUnit.MINUTES, this);
     }
 
     public boolean isDeletedUserDiscriminatedName(@NotNull String discriminatedName) {
@@ -253,7 +259,7 @@ public class NameCacheService
 
     @Override
     public void run() {
-        DiscordApi api = settingsController.getDiscordApi();
+        DiscordApi api = discordApiSupplier.get();
         if (api == null) {
             return;
         }
@@ -261,13 +267,6 @@ public class NameCacheService
     }
 
     public void stop() {
-        scheduled.cancel(false);
-        while (!scheduled.isCancelled() || !scheduled.isDone()) {
-            try {
-                Thread.sleep(50L);
-            } catch (InterruptedException brE) {
-                scheduled.cancel(true);
-            }
-        }
+        scheduled.cancel();
     }
 }
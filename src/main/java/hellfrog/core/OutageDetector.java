@@ -1,29 +1,29 @@
 package hellfrog.core;
 
 import hellfrog.common.CommonConstants;
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.SettingsController;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
 
 public class OutageDetector
         implements Runnable, CommonConstants {
 
-    private final ScheduledFuture<?> scheduledFuture;
+    private final SchedulerService.ScheduledTask scheduledFuture;
     private final Logger log = LogManager.getLogger(this.getClass().getSimpleName());
 
-    public OutageDetector() {
-        ScheduledExecutorService voiceService = Executors.newSingleThreadScheduledExecutor();
-        scheduledFuture = voiceService.scheduleWithFixedDelay(this, 5L, 5L, TimeUnit.MINUTES);
+    public OutageDetector(@NotNull final SchedulerService schedulerService) {
+        scheduledFuture = schedulerService.schedule("outage-detector", 5L, 5L, TimeUnit.MINUTES, this);
     }
 
+    /**
+     * Выполняется в потоке планировщика, который не допускает наложения запусков
+     */
     @Override
     public void run() {
-        CompletableFuture.runAsync(this::detachedThread);
-    }
-
-    private void detachedThread() {
         try {
             final SettingsController settingsController = SettingsController.getInstance();
             final long serviceChannelId = settingsController.getMainDBController()
@@ -46,13 +46,6 @@ public class OutageDetector
     }
 
     public void stop() {
-        scheduledFuture.cancel(true);
-        while (!scheduledFuture.isCancelled() || !scheduledFuture.isDone()) {
-            try {
-                scheduledFuture.wait();
-            } catch (InterruptedException brk) {
-                scheduledFuture.cancel(true);
-            }
-        }
+        scheduledFuture.cancel();
     }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package hellfrog.core;
+
+import org.eclipse.collections.api.set.primitive.ImmutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Неизменяемый скомпилированный снимок прав доступа к командам на сервере.
+ * Изменения прав не модифицируют снимок, а создают новый (copy-on-write)
+ */
+final class ServerAclSnapshot {
+
+    private static final CommandAcl EMPTY_COMMAND_ACL = new CommandAcl(LongSets.immutable.empty(),
+            LongSets.immutable.empty(), LongSets.immutable.empty(), LongSets.immutable.empty());
+
+    private final boolean newAclMode;
+    private final Map<String, CommandAcl> commands;
+
+    private ServerAclSnapshot(boolean newAclMode, @NotNull Map<String, CommandAcl> commands) {
+        this.newAclMode = newAclMode;
+        this.commands = commands;
+    }
+
+    static ServerAclSnapshot compile(boolean newAclMode,
+                                     @NotNull Map<String, List<Long>> allowedUsers,
+                                     @NotNull Map<String, List<Long>> allowedRoles,
+                                     @NotNull Map<String, List<Long>> allowedChannels,
+                                     @NotNull Map<String, List<Long>> allowedCategories) {
+        Set<String> prefixes = new HashSet<>(allowedUsers.keySet());
+        prefixes.addAll(allowedRoles.keySet());
+        prefixes.addAll(allowedChannels.keySet());
+        prefixes.addAll(allowedCategories.keySet());
+        Map<String, CommandAcl> commands = new HashMap<>(prefixes.size());
+        for (String prefix : prefixes) {
+            CommandAcl commandAcl = CommandAcl.compile(allowedUsers.get(prefix), allowedRoles.get(prefix),
+                    allowedChannels.get(prefix), allowedCategories.get(prefix));
+            if (!commandAcl.isEmpty()) {
+                commands.put(prefix, commandAcl);
+            }
+        }
+        return new ServerAclSnapshot(newAclMode, Collections.unmodifiableMap(commands));
+    }
+
+    ServerAclSnapshot withCommand(@NotNull String commandPrefix, @NotNull CommandAcl commandAcl) {
+        Map<String, CommandAcl> updated = new HashMap<>(commands);
+        if (commandAcl.isEmpty()) {
+            updated.remove(commandPrefix);
+        } else {
+            updated.put(commandPrefix, commandAcl);
+        }
+        return new ServerAclSnapshot(newAclMode, Collections.unmodifiableMap(updated));
+    }
+
+    ServerAclSnapshot withNewAclMode(boolean newAclMode) {
+        return newAclMode == this.newAclMode ? this : new ServerAclSnapshot(newAclMode, commands);
+    }
+
+    boolean isNewAclMode() {
+        return newAclMode;
+    }
+
+    @NotNull
+    CommandAcl getCommandAcl(@NotNull String commandPrefix) {
+        return commands.getOrDefault(commandPrefix, EMPTY_COMMAND_ACL);
+    }
+
+    /**
+     * Проверка права выполнения команды без обращения к БД
+     *
+     * @param commandPrefix    префикс команды
+     * @param userId           пользователь
+     * @param roleIds          роли пользователя на сервере
+     * @param strictByChannels проверять ли разрешённые каналы
+     * @param channelIds       каналы, в которых выполняется команда
+     * @param categoryOf       категория канала по его идентификатору (0, если категории нет)
+     * @return можно ли выполнить команду
+     */
+    boolean canExecute(@NotNull String commandPrefix, long userId, @NotNull long[] roleIds,
+                       boolean strictByChannels, @NotNull long[] channelIds,
+                       @NotNull LongUnaryOperator categoryOf) {
+
+        CommandAcl acl = getCommandAcl(commandPrefix);
+        boolean isAllowedUserOrRole = acl.users.contains(userId) || acl.roles.containsAny(roleIds);
+
+        if (!strictByChannels) {
+            return isAllowedUserOrRole;
+        }
+
+        for (long channelId : channelIds) {
+            if (!acl.isAllowedChannel(channelId, categoryOf)) {
+                return false;
+            }
+        }
+
+        if (newAclMode && acl.users.isEmpty() && acl.roles.isEmpty()) {
+            // New ACL mode: required allowed channel(s). Allowed role/user is optional
+            return true;
+        }
+        return isAllowedUserOrRole;
+    }
+
+    /**
+     * Разрешения одной команды: пользователи, роли, каналы и категории каналов
+     */
+    static final class CommandAcl {
+
+        private final ImmutableLongSet users;
+        private final ImmutableLongSet roles;
+        private final ImmutableLongSet channels;
+        private final ImmutableLongSet categories;
+
+        private CommandAcl(@NotNull ImmutableLongSet users,
+                           @NotNull ImmutableLongSet roles,
+                           @NotNull ImmutableLongSet channels,
+                           @NotNull ImmutableLongSet categories) {
+            this.users = users;
+            this.roles = roles;
+            this.channels = channels;
+            this.categories = categories;
+        }
+
+        static CommandAcl compile(List<Long> users, List<Long> roles,
+                                  List<Long> channels, List<Long> categories) {
+            return new CommandAcl(toSet(users), toSet(roles), toSet(channels), toSet(categories));
+        }
+
+        private static ImmutableLongSet toSet(List<Long> ids) {
+            if (ids == null || ids.isEmpty()) {
+                return LongSets.immutable.empty();
+            }
+            return LongSets.immutable.of(ids.stream().mapToLong(Long::longValue).toArray());
+        }
+
+        boolean isEmpty() {
+            return users.isEmpty() && roles.isEmpty() && channels.isEmpty() && categories.isEmpty();
+        }
+
+        boolean isAllowedChannel(long channelId, @NotNull LongUnaryOperator categoryOf) {
+            if (channels.contains(channelId)) {
+                return true;
+            }
+            if (categories.isEmpty()) {
+                return false;
+            }
+            long categoryId = categoryOf.applyAsLong(channelId);
+            return categoryId != 0L && categories.contains(categoryId);
+        }
+
+        ImmutableLongSet getUsers() {
+            return users;
+        }
+
+        ImmutableLongSet getRoles() {
+            return roles;
+        }
+
+        ImmutableLongSet getChannels() {
+            return channels;
+        }
+
+        ImmutableLongSet getCategories() {
+            return categories;
+        }
+    }
+}
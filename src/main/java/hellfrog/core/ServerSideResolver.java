@@ -47,7 +47,11 @@ public class ServerSideResolver
     private static final String CATEGORY_EMOJI = "`v`";
 
     public static Optional<User> resolveUser(Server server, String rawValue) {
-        NameCacheService nameCacheService = SettingsController.getInstance().getNameCacheService();
+        return resolveUser(server, rawValue, SettingsController.getInstance().getNameCacheService());
+    }
+
+    static Optional<User> resolveUser(Server server, String rawValue,
+                                      @NotNull NameCacheService nameCacheService) {
         // 1. вначале ищем по явному id
         if (CommonUtils.isLong(rawValue)) {
             long unresolvedUserId = Long.parseLong(rawValue);
@@ -103,7 +107,11 @@ public class ServerSideResolver
     }
 
     public static Optional<Role> resolveRole(Server server, String rawValue) {
-        NameCacheService nameCacheService = SettingsController.getInstance().getNameCacheService();
+        return resolveRole(server, rawValue, SettingsController.getInstance().getNameCacheService());
+    }
+
+    static Optional<Role> resolveRole(Server server, String rawValue,
+                                      @NotNull NameCacheService nameCacheService) {
         // 1. Вначале ищем по явному id роли
         if (CommonUtils.isLong(rawValue)) {
             long unresolvedRole = Long.parseLong(rawValue);
@@ -135,7 +143,11 @@ public class ServerSideResolver
     }
 
     public static Optional<ServerTextChannel> resolveTextChannel(Server server, String rawValue) {
-        NameCacheService nameCacheService = SettingsController.getInstance().getNameCacheService();
+        return resolveTextChannel(server, rawValue, SettingsController.getInstance().getNameCacheService());
+    }
+
+    static Optional<ServerTextChannel> resolveTextChannel(Server server, String rawValue,
+                                                          @NotNull NameCacheService nameCacheService) {
         // 1. Вначале ищем по явному id канала
         if (CommonUtils.isLong(rawValue)) {
             long unresolvedChannel = CommonUtils.onlyNumbersToLong(rawValue);
@@ -457,10 +469,15 @@ public class ServerSideResolver
     }
 
     public static @NotNull String resolveMentions(Server server, String message) {
+        return resolveMentions(server, message, SettingsController.getInstance().getNameCacheService());
+    }
+
+    static @NotNull String resolveMentions(Server server, String message,
+                                           @NotNull NameCacheService nameCacheService) {
         Matcher userMentionMatcher = USER_TAG_SEARCH.matcher(message);
         while (userMentionMatcher.find()) {
             String userMention = userMentionMatcher.group();
-            Optional<User> resolvedUser = resolveUser(server, userMention);
+            Optional<User> resolvedUser = resolveUser(server, userMention, nameCacheService);
             if (resolvedUser.isPresent()) {
                 message = message.replace(userMention, "@" + server.getDisplayName(resolvedUser.get()));
             }
@@ -468,7 +485,7 @@ public class ServerSideResolver
         Matcher roleMentionMatcher = ROLE_TAG_SEARCH.matcher(message);
         while (roleMentionMatcher.find()) {
             String roleMention = roleMentionMatcher.group();
-            Optional<Role> resulvedRole = resolveRole(server, roleMention);
+            Optional<Role> resulvedRole = resolveRole(server, roleMention, nameCacheService);
             if (resulvedRole.isPresent()) {
                 message = message.replace(roleMention, "@" + resulvedRole.get().getName());
             }
@@ -476,7 +493,7 @@ public class ServerSideResolver
         Matcher textChannelMentionMatcher = CHANNEL_TAG_SEARCH.matcher(message);
         while (textChannelMentionMatcher.find()) {
             String textChannelMention = textChannelMentionMatcher.group();
-            Optional<ServerTextChannel> serverTextChannel = resolveTextChannel(server, textChannelMention);
+            Optional<ServerTextChannel> serverTextChannel = resolveTextChannel(server, textChannelMention, nameCacheService);
             if (serverTextChannel.isPresent()) {
                 message = message.replace(textChannelMention, "#" + serverTextChannel.get().getName());
             }
@@ -504,8 +521,12 @@ public class ServerSideResolver
      */
     public static String getReadableContent(@Nullable String messageContent,
                                             Optional<Server> mayBeServer) {
+        return getReadableContent(messageContent, mayBeServer, SettingsController.getInstance().getDiscordApi());
+    }
 
-        DiscordApi api = SettingsController.getInstance().getDiscordApi();
+    static String getReadableContent(@Nullable String messageContent,
+                                     Optional<Server> mayBeServer,
+                                     @NotNull DiscordApi api) {
         if (CommonUtils.isTrStringEmpty(messageContent)) {
             return "";
         } else {
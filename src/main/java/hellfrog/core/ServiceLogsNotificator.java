@@ -1,13 +1,12 @@
 package hellfrog.core;
 
 import hellfrog.common.BroadCast;
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.SettingsController;
 import org.javacord.api.DiscordApi;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Queue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class ServiceLogsNotificator
@@ -17,11 +16,10 @@ public class ServiceLogsNotificator
     private static final int SEVERITY_WARN = 1;
     private static final int SEVERITY_ERROR = 2;
 
-    private final ScheduledFuture<?> scheduled;
+    private final SchedulerService.ScheduledTask scheduled;
 
-    public ServiceLogsNotificator() {
-        scheduled = Executors.newSingleThreadScheduledExecutor()
-                .scheduleWithFixedDelay(this, 5L, 5L, TimeUnit.SECONDS);
+    public ServiceLogsNotificator(@NotNull final SchedulerService schedulerService) {
+        scheduled = schedulerService.schedule("service-logs", 5L, 5L, TimeUnit.SECONDS, this);
     }
 
     @Override
@@ -51,13 +49,6 @@ public class ServiceLogsNotificator
     }
 
     public void stop() {
-        scheduled.cancel(false);
-        while (!scheduled.isCancelled() || !scheduled.isDone()) {
-            try {
-                Thread.sleep(50L);
-            } catch (InterruptedException brE) {
-                scheduled.cancel(true);
-            }
-        }
+        scheduled.cancel();
     }
 }
@@ -14,10 +14,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
-import java.util.Queue;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class SessionState {
 
@@ -32,12 +32,57 @@ public class SessionState {
 
     private static final long MAX_SESSION_TIMEOUT = 150L;
 
-    private static final ConcurrentLinkedQueue<SessionState> ALL_STATES = new ConcurrentLinkedQueue<>();
+    private static final SessionsIndex INDEX = new SessionsIndex();
     private final ConcurrentHashMap<String, Object> objectsMap;
 
-    @Contract(pure = true)
-    public static Queue<SessionState> all() {
-        return ALL_STATES;
+    /**
+     * Все активные сессии (снимок на момент вызова)
+     */
+    public static List<SessionState> all() {
+        return INDEX.all();
+    }
+
+    public static void register(@NotNull final SessionState sessionState) {
+        INDEX.add(sessionState);
+    }
+
+    public static boolean remove(@NotNull final SessionState sessionState) {
+        return INDEX.remove(sessionState);
+    }
+
+    /**
+     * Изъять сессию, ожидающую сообщение от автора события в данном канале
+     */
+    public static Optional<SessionState> pollAccepted(@NotNull final MessageCreateEvent event) {
+        return Optional.ofNullable(INDEX.claim(event.getMessageAuthor().getId(), event.getChannel().getId(),
+                sessionState -> sessionState.isAccept(event)));
+    }
+
+    /**
+     * Изъять сессию, ожидающую реакцию от пользователя события в данном канале
+     */
+    public static Optional<SessionState> pollAccepted(@NotNull final SingleReactionEvent event) {
+        return Optional.ofNullable(INDEX.claim(event.getUserId(), event.getChannel().getId(),
+                sessionState -> sessionState.isAccept(event)));
+    }
+
+    public static boolean hasAccepted(@NotNull final MessageCreateEvent event) {
+        return INDEX.contains(event.getMessageAuthor().getId(), event.getChannel().getId(),
+                sessionState -> sessionState.isAccept(event));
+    }
+
+    /**
+     * Привязана ли к сообщению какая-либо сессия (любого пользователя)
+     */
+    public static boolean isSessionMessage(final long messageId) {
+        return INDEX.hasMessage(messageId);
+    }
+
+    /**
+     * Изъять все сессии с истёкшим таймаутом
+     */
+    static List<SessionState> pollExpired() {
+        return INDEX.pollExpired();
     }
 
     private SessionState(@NotNull final Scenario scenario,
@@ -46,7 +91,8 @@ public class SessionState {
                          final long textChannelId,
                          final long messageId,
                          final boolean removeReaction,
-                         @NotNull final ConcurrentHashMap<String, Object> objectsMap
+                         @NotNull final ConcurrentHashMap<String, Object> objectsMap,
+                         @NotNull final Duration timeout
     ) {
         this.scenario = scenario;
         this.stepId = stepId;
@@ -55,7 +101,7 @@ public class SessionState {
         this.messageId = messageId;
         this.removeReaction = removeReaction;
         this.objectsMap = objectsMap;
-        this.timeoutAt = Instant.now().plus(Duration.ofSeconds(MAX_SESSION_TIMEOUT));
+        this.timeoutAt = Instant.now().plus(timeout);
     }
 
     public boolean isAccept(@NotNull MessageCreateEvent event) {
@@ -75,6 +121,10 @@ public class SessionState {
         return Instant.now().isBefore(timeoutAt);
     }
 
+    Instant getTimeoutAt() {
+        return timeoutAt;
+    }
+
     public Scenario getScenario() {
         return scenario;
     }
@@ -157,7 +207,15 @@ public class SessionState {
     }
 
     public SessionState resetTimeout() {
-        return new SessionState(scenario, stepId, userId, textChannelId, messageId, removeReaction, objectsMap);
+        return withTimeout(Duration.ofSeconds(MAX_SESSION_TIMEOUT));
+    }
+
+    /**
+     * Клон сессии с указанным таймаутом, отсчитываемым от текущего момента
+     */
+    SessionState withTimeout(@NotNull final Duration timeout) {
+        return new SessionState(scenario, stepId, userId, textChannelId, messageId, removeReaction, objectsMap,
+                timeout);
     }
 
     public static class Builder {
@@ -290,7 +348,8 @@ public class SessionState {
             if (textChannelId == 0L)
                 throw new IllegalArgumentException("Text channel cannot be empty");
             Objects.requireNonNull(scenario, "Scenario cannot be null");
-            return new SessionState(scenario, stepId, userId, textChannelId, messageId, removeReaction, objectsMap);
+            return new SessionState(scenario, stepId, userId, textChannelId, messageId, removeReaction, objectsMap,
+                    Duration.ofSeconds(MAX_SESSION_TIMEOUT));
         }
     }
 }
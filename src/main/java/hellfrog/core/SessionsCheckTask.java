@@ -1,5 +1,6 @@
 package hellfrog.core;
 
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.SettingsController;
 import org.javacord.api.entity.message.Message;
 import org.javacord.api.entity.message.MessageBuilder;
@@ -9,31 +10,29 @@ import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class SessionsCheckTask
         implements Runnable {
 
-    private final ScheduledFuture<?> scheduled;
+    private final SchedulerService.ScheduledTask scheduled;
 
-    public SessionsCheckTask() {
-        scheduled = Executors.newSingleThreadScheduledExecutor()
-                .scheduleWithFixedDelay(this, 5L, 5L, TimeUnit.SECONDS);
+    public SessionsCheckTask(@NotNull final SchedulerService schedulerService) {
+        scheduled = schedulerService.schedule("sessions-check", 5L, 5L, TimeUnit.SECONDS, this);
     }
 
     @Override
     public void run() {
-        SessionState.all().forEach(sessionState -> {
-            if (!sessionState.inTimeout()) {
-                terminateSessionState(sessionState);
-            }
-        });
+        SessionState.pollExpired().forEach(SessionsCheckTask::notifyTimeout);
     }
 
     public static void terminateSessionState(@NotNull SessionState sessionState) {
-        SessionState.all().remove(sessionState);
+        if (SessionState.remove(sessionState)) {
+            notifyTimeout(sessionState);
+        }
+    }
+
+    private static void notifyTimeout(@NotNull SessionState sessionState) {
         Optional.ofNullable(SettingsController.getInstance().getDiscordApi()).ifPresent(api ->
                 api.getUserById(sessionState.getUserId()).thenAccept(user ->
                         api.getTextChannelById(sessionState.getTextChannelId()).ifPresent(textChannel -> {
@@ -52,13 +51,6 @@ public class SessionsCheckTask
     }
 
     public void stop() {
-        scheduled.cancel(false);
-        while (!scheduled.isCancelled() || !scheduled.isDone()) {
-            try {
-                Thread.sleep(50L);
-            } catch (InterruptedException brE) {
-                scheduled.cancel(true);
-            }
-        }
+        scheduled.cancel();
     }
 }
@@ -0,0 +1,181 @@
+package hellfrog.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Индекс сессий сценариев по паре (пользователь, текстовый канал) и по сообщению.
+ * Списки сессий в индексах неизменяемы и заменяются целиком при изменениях (copy-on-write),
+ * поэтому поиск выполняется без блокировок. Истечение таймаутов отслеживается очередью
+ * с задержкой вместо периодического обхода всех сессий
+ */
+final class SessionsIndex {
+
+    private final ConcurrentHashMap<UserChannelKey, List<SessionState>> byUserChannel = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, List<SessionState>> byMessage = new ConcurrentHashMap<>();
+    private final DelayQueue<Expiration> expirations = new DelayQueue<>();
+
+    void add(@NotNull SessionState sessionState) {
+        byUserChannel.compute(new UserChannelKey(sessionState), (key, list) -> with(list, sessionState));
+        if (sessionState.getMessageId() > 0L) {
+            byMessage.compute(sessionState.getMessageId(), (key, list) -> with(list, sessionState));
+        }
+        expirations.add(new Expiration(sessionState));
+    }
+
+    /**
+     * Удалить сессию из индекса
+     *
+     * @param sessionState сессия
+     * @return true, если сессия была удалена именно этим вызовом
+     */
+    boolean remove(@NotNull SessionState sessionState) {
+        final boolean[] removed = new boolean[1];
+        byUserChannel.computeIfPresent(new UserChannelKey(sessionState), (key, list) -> {
+            removed[0] = list.contains(sessionState);
+            return without(list, sessionState);
+        });
+        if (removed[0] && sessionState.getMessageId() > 0L) {
+            byMessage.computeIfPresent(sessionState.getMessageId(), (key, list) -> without(list, sessionState));
+        }
+        return removed[0];
+    }
+
+    /**
+     * Найти первую подходящую сессию пользователя в текстовом канале и изъять её из индекса.
+     * Сессия достаётся только одному из конкурирующих вызовов
+     */
+    @Nullable
+    SessionState claim(long userId, long textChannelId, @NotNull Predicate<SessionState> accept) {
+        for (SessionState sessionState : find(userId, textChannelId)) {
+            if (accept.test(sessionState) && remove(sessionState)) {
+                return sessionState;
+            }
+        }
+        return null;
+    }
+
+    boolean contains(long userId, long textChannelId, @NotNull Predicate<SessionState> accept) {
+        for (SessionState sessionState : find(userId, textChannelId)) {
+            if (accept.test(sessionState)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean hasMessage(long messageId) {
+        return messageId > 0L && byMessage.containsKey(messageId);
+    }
+
+    /**
+     * Изъять из индекса все сессии с истёкшим таймаутом
+     */
+    @NotNull
+    List<SessionState> pollExpired() {
+        List<SessionState> result = new ArrayList<>();
+        Expiration expiration;
+        while ((expiration = expirations.poll()) != null) {
+            // сессии, уже изъятые при обработке событий, пропускаются
+            if (remove(expiration.sessionState)) {
+                result.add(expiration.sessionState);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    List<SessionState> all() {
+        List<SessionState> result = new ArrayList<>();
+        byUserChannel.values().forEach(result::addAll);
+        return Collections.unmodifiableList(result);
+    }
+
+    @NotNull
+    private List<SessionState> find(long userId, long textChannelId) {
+        return byUserChannel.getOrDefault(new UserChannelKey(userId, textChannelId), Collections.emptyList());
+    }
+
+    @NotNull
+    private static List<SessionState> with(@Nullable List<SessionState> list, @NotNull SessionState sessionState) {
+        if (list == null) {
+            return Collections.singletonList(sessionState);
+        }
+        List<SessionState> updated = new ArrayList<>(list.size() + 1);
+        updated.addAll(list);
+        updated.add(sessionState);
+        return Collections.unmodifiableList(updated);
+    }
+
+    @Nullable
+    private static List<SessionState> without(@NotNull List<SessionState> list, @NotNull SessionState sessionState) {
+        if (!list.contains(sessionState)) {
+            return list;
+        }
+        List<SessionState> updated = new ArrayList<>(list);
+        updated.remove(sessionState);
+        return updated.isEmpty() ? null : Collections.unmodifiableList(updated);
+    }
+
+    private static final class UserChannelKey {
+
+        private final long userId;
+        private final long textChannelId;
+
+        UserChannelKey(long userId, long textChannelId) {
+            this.userId = userId;
+            this.textChannelId = textChannelId;
+        }
+
+        UserChannelKey(@NotNull SessionState sessionState) {
+            this(sessionState.getUserId(), sessionState.getTextChannelId());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            UserChannelKey that = (UserChannelKey) o;
+            return userId == that.userId && textChannelId == that.textChannelId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, textChannelId);
+        }
+    }
+
+    private static final class Expiration
+            implements Delayed {
+
+        private final SessionState sessionState;
+        private final Instant timeoutAt;
+
+        Expiration(@NotNull SessionState sessionState) {
+            this.sessionState = sessionState;
+            this.timeoutAt = sessionState.getTimeoutAt();
+        }
+
+        @Override
+        public long getDelay(@NotNull TimeUnit unit) {
+            long delayMillis = timeoutAt.toEpochMilli() - System.currentTimeMillis();
+            return unit.convert(delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(@NotNull Delayed o) {
+            if (o instanceof Expiration) {
+                return timeoutAt.compareTo(((Expiration) o).timeoutAt);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
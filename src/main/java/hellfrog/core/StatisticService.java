@@ -33,6 +33,7 @@ import org.ocpsoft.prettytime.PrettyTime;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.function.LongConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -155,12 +156,7 @@ public class StatisticService
             totalStatisticDAO.decrementChannelStats(serverId, channelId, userId, messageLength, bytesCount);
         }
 
-        Matcher smileMatcher = CUSTOM_EMOJI_SEARCH.matcher(messageContent);
-        while (smileMatcher.find()) {
-            String matched = smileMatcher.group();
-            String[] sub = matched.split(":");
-            if (sub.length == 3) {
-                long customSmileId = CommonUtils.onlyNumbersToLong(sub[2]);
+        forEachCustomEmojiId(messageContent, customSmileId ->
                 serverTextChannel.getServer().getCustomEmojiById(customSmileId)
                         .map(KnownCustomEmoji::getId)
                         .ifPresent(emojiId -> {
@@ -169,7 +165,17 @@ public class StatisticService
                             } else {
                                 totalStatisticDAO.decrementEmoji(serverId, emojiId);
                             }
-                        });
+                        }));
+    }
+
+    static void forEachCustomEmojiId(@NotNull final String messageContent,
+                                     @NotNull final LongConsumer consumer) {
+        Matcher smileMatcher = CUSTOM_EMOJI_SEARCH.matcher(messageContent);
+        while (smileMatcher.find()) {
+            String matched = smileMatcher.group();
+            String[] sub = matched.split(":");
+            if (sub.length == 3) {
+                consumer.accept(CommonUtils.onlyNumbersToLong(sub[2]));
             }
         }
     }
@@ -1,67 +1,116 @@
 package hellfrog.core;
 
+import hellfrog.common.SchedulerService;
 import hellfrog.settings.ActiveVote;
 import hellfrog.settings.SettingsController;
 import hellfrog.settings.VotePoint;
+import org.eclipse.collections.api.iterator.LongIterator;
+import org.eclipse.collections.api.set.primitive.ImmutableLongSet;
+import org.eclipse.collections.api.set.primitive.LongSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
 import org.javacord.api.DiscordApi;
 import org.javacord.api.entity.channel.ServerTextChannel;
-import org.javacord.api.entity.emoji.Emoji;
 import org.javacord.api.entity.emoji.KnownCustomEmoji;
-import org.javacord.api.entity.message.Message;
 import org.javacord.api.entity.message.MessageBuilder;
 import org.javacord.api.entity.message.MessageDecoration;
-import org.javacord.api.entity.message.Reaction;
 import org.javacord.api.entity.permission.PermissionType;
 import org.javacord.api.entity.permission.Role;
+import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
-public class VoteController
-        implements Runnable {
+/**
+ * Завершение голосований.
+ * <p>
+ * Голосования с таймером завершаются по расписанию точно в срок окончания: срок каждого голосования
+ * ставится в очередь отложенных задач (упорядоченную по времени срабатывания), поэтому периодический
+ * обход всех серверов и голосований не выполняется. Голосования, канал которых удалён или сервер
+ * которых покинут ботом, завершаются по соответствующим событиям
+ */
+public class VoteController {
 
-    private final ScheduledFuture<?> scheduledFuture;
+    private final ScheduledExecutorService deadlines;
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<Short, ScheduledFuture<?>>> scheduledVotes =
+            new ConcurrentHashMap<>();
 
-    public VoteController() {
-        ScheduledExecutorService voiceService = Executors.newSingleThreadScheduledExecutor();
-        scheduledFuture = voiceService.scheduleWithFixedDelay(this, 60L, 60L, TimeUnit.SECONDS);
+    public VoteController(@NotNull final SchedulerService schedulerService) {
+        this.deadlines = schedulerService.getExecutor();
     }
 
-    @Override
-    public void run() {
+    /**
+     * Запланировать завершение голосований всех серверов при запуске. Голосования без таймера,
+     * канал которых был удалён, пока бот был выключен, завершаются сразу
+     */
+    public void scheduleActiveVotes(@NotNull DiscordApi discordApi) {
         SettingsController settingsController = SettingsController.getInstance();
-        DiscordApi discordApi = settingsController.getDiscordApi();
-        if (discordApi == null) return;
-
-        for (long knownServerId : settingsController.getServerListWithConfig()) {
-            List<ActiveVote> activeVotes = settingsController.getServerPreferences(knownServerId).getActiveVotes();
-            for (ActiveVote activeVote : activeVotes) {
+        for (long serverId : settingsController.getServerListWithConfig()) {
+            for (ActiveVote activeVote : settingsController.getServerPreferences(serverId).getActiveVotes()) {
                 if (activeVote.isHasTimer()) {
-                    Instant now = Instant.now();
-                    Instant voteEndDate = Instant.ofEpochSecond(activeVote.getEndDate());
-                    long estimateMinutes = ChronoUnit.MINUTES.between(now, voteEndDate);
-                    if (estimateMinutes <= 0) {
-                        interruptVote(knownServerId, activeVote.getId());
-                    }
-                } else {
-                    if (activeVote.getTextChatId() == null) {
-                        interruptVote(knownServerId, activeVote.getId());
-                    } else {
-                        if (discordApi.getServerTextChannelById(activeVote.getTextChatId()).isEmpty()) {
-                            interruptVote(knownServerId, activeVote.getId());
-                        }
-                    }
+                    schedule(serverId, activeVote);
+                } else if (activeVote.getTextChatId() == null
+                        || discordApi.getServerTextChannelById(activeVote.getTextChatId()).isEmpty()) {
+                    interruptVote(serverId, activeVote.getId());
                 }
             }
         }
     }
 
+    /**
+     * Запланировать завершение голосования в срок его окончания
+     */
+    public void schedule(final long serverId, @NotNull final ActiveVote activeVote) {
+        if (!activeVote.isHasTimer()) {
+            return;
+        }
+        final short voteId = activeVote.getId();
+        final long delay = Math.max(0L, Instant.ofEpochSecond(activeVote.getEndDate()).toEpochMilli()
+                - System.currentTimeMillis());
+        final ScheduledFuture<?> scheduled = deadlines.schedule(() -> interruptVote(serverId, voteId),
+                delay, TimeUnit.MILLISECONDS);
+        final ScheduledFuture<?> previous = scheduledVotes.computeIfAbsent(serverId, id -> new ConcurrentHashMap<>())
+                .put(voteId, scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Завершить голосования удалённого канала
+     */
+    public void onChannelDelete(final long serverId, final long channelId) {
+        for (ActiveVote activeVote : SettingsController.getInstance().getServerPreferences(serverId).getActiveVotes()) {
+            if (activeVote.getTextChatId() != null && activeVote.getTextChatId() == channelId) {
+                interruptVote(serverId, activeVote.getId());
+            }
+        }
+    }
+
+    /**
+     * Завершить голосования сервера, который покинул бот
+     */
+    public void onServerLeave(final long serverId) {
+        for (ActiveVote activeVote : SettingsController.getInstance().getServerPreferences(serverId).getActiveVotes()) {
+            interruptVote(serverId, activeVote.getId());
+        }
+    }
+
     public void interruptVote(final long serverId, final short voteId) {
-        CompletableFuture.runAsync(() -> parallelInterrupt(serverId, voteId));
+        ConcurrentHashMap<Short, ScheduledFuture<?>> serverVotes = scheduledVotes.get(serverId);
+        if (serverVotes != null) {
+            ScheduledFuture<?> scheduled = serverVotes.remove(voteId);
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+        SettingsController.getInstance()
+                .getEventsExecutor()
+                .executeBlocking(() -> parallelInterrupt(serverId, voteId));
     }
 
     private void parallelInterrupt(long serverId, short voteId) {
@@ -69,6 +118,7 @@ public class VoteController
         DiscordApi discordApi = settingsController.getDiscordApi();
         if (discordApi == null)
             return;
+        VoteTallyService voteTallyService = settingsController.getVoteTallyService();
 
         List<ActiveVote> activeVotes = settingsController.getServerPreferences(serverId).getActiveVotes();
         for (ActiveVote activeVote : activeVotes) {
@@ -80,107 +130,17 @@ public class VoteController
                             activeVote.getVotePoints() != null &&
                             activeVote.getReadableVoteText() != null) {
 
-                        Map<VotePoint, Integer> pointsLevel = new HashMap<>();
-                        for (VotePoint point : activeVote.getVotePoints()) {
-                            pointsLevel.put(point, 0);
-                        }
-
                         Optional<ServerTextChannel> mayBeChannel = discordApi
                                 .getServerTextChannelById(activeVote.getTextChatId());
-                        if (mayBeChannel.isPresent()) {
+                        Optional<Map<Long, ImmutableLongSet>> mayBeBallots = mayBeChannel.isPresent()
+                                ? voteTallyService.getBallots(discordApi, activeVote)
+                                : Optional.empty();
+                        if (mayBeChannel.isPresent() && mayBeBallots.isPresent()) {
                             ServerTextChannel channel = mayBeChannel.get();
-                            Message voteMsg = channel.getMessageById(activeVote.getMessageId()).join();
-
-                            List<Long> alreadyVoted = new ArrayList<>();
-                            Map<Long, KnownCustomEmoji> emojiCache = new HashMap<>();
-
-                            activeVote.getVotePoints()
-                                    .stream()
-                                    .filter(VotePoint::isCustomEmojiVP)
-                                    .filter(vp -> vp.getCustomEmoji() != null && vp.getCustomEmoji() > 0)
-                                    .map(vp -> channel.getServer().getCustomEmojiById(vp.getCustomEmoji()))
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .forEach(kqe -> emojiCache.put(kqe.getId(), kqe));
-
-                            TreeSet<Long> globalVoted = new TreeSet<>();
-                            boolean withDefaultPoint = (activeVote.isWithDefaultPoint()
-                                    || activeVote.getWinThreshold() > 0)
-                                    && activeVote.getVotePoints().size() > 0;
-
-                            for (Reaction reaction : voteMsg.getReactions()) {
-
-                                Emoji emoji = reaction.getEmoji();
-                                VotePoint associatePoint = null;
-                                for (VotePoint point : activeVote.getVotePoints()) {
-                                    if (point.equalsEmoji(emoji)) {
-                                        associatePoint = point;
-                                        break;
-                                    }
-                                }
-
-                                if (associatePoint == null) {
-                                    continue;
-                                }
-
-                                if (withDefaultPoint && activeVote.getVotePoints().get(0).equalsEmoji(emoji)) {
-                                    continue;
-                                    // дефолтный обсчитываем далее
-                                }
+                            Map<Long, KnownCustomEmoji> emojiCache = buildEmojiCache(activeVote, channel.getServer());
 
-                                int addToPoint = 0;
-
-                                List<User> votedUsers = reaction.getUsers().join();
-                                for (User votedUser : votedUsers) {
-                                    if (votedUser.isBot()) continue;
-                                    if (activeVote.isExceptionalVote() &&
-                                            alreadyVoted.contains(votedUser.getId())) continue;
-
-                                    if (activeVote.getRolesFilter() != null && activeVote.getRolesFilter().size() > 0) {
-                                        for (Role role : votedUser.getRoles(channel.getServer())) {
-                                            if (activeVote.getRolesFilter().contains(role.getId())) {
-                                                addToPoint++;
-                                                alreadyVoted.add(votedUser.getId());
-                                                break;
-                                            }
-                                        }
-                                    } else {
-                                        alreadyVoted.add(votedUser.getId());
-                                        addToPoint++;
-                                    }
-                                }
-                                List<Long> collectedUserIds = votedUsers.stream()
-                                        .map(User::getId)
-                                        .collect(Collectors.toList());
-                                globalVoted.addAll(collectedUserIds);
-
-                                int currentPoints = pointsLevel.get(associatePoint);
-                                currentPoints += addToPoint;
-                                pointsLevel.put(associatePoint, currentPoints);
-                            }
-
-                            if (withDefaultPoint) {
-                                VotePoint defaultPoint = activeVote.getVotePoints().get(0);
-                                long noCaresUser = channel.getServer().getMembers().stream()
-                                        .filter(m -> !m.isBot())
-                                        .filter(m -> {
-                                            Collection<PermissionType> pt = channel.getEffectiveAllowedPermissions(m);
-                                            return pt.contains(PermissionType.READ_MESSAGES)
-                                                    && pt.contains(PermissionType.ADD_REACTIONS);
-                                        }).filter(m -> {
-                                            if (activeVote.getRolesFilter() != null && activeVote.getRolesFilter().size() > 0) {
-                                                for (Role role : m.getRoles(channel.getServer())) {
-                                                    if (activeVote.getRolesFilter().contains(role.getId())) {
-                                                        return true;
-                                                    }
-                                                }
-                                                return false;
-                                            }
-                                            return true;
-                                        }).filter(m -> !globalVoted.contains(m.getId()))
-                                        .count();
-                                pointsLevel.put(defaultPoint, (int) noCaresUser);
-                            }
+                            boolean withDefaultPoint = isWithDefaultPoint(activeVote);
+                            Map<VotePoint, Integer> pointsLevel = countVotes(activeVote, mayBeBallots.get(), channel);
 
                             MessageBuilder result = new MessageBuilder()
                                     .append("Voting is over:", MessageDecoration.BOLD)
@@ -243,6 +203,9 @@ public class VoteController
                 } catch (Exception err) {
                     err.printStackTrace();
                 } finally {
+                    if (activeVote.getMessageId() != null) {
+                        voteTallyService.forget(activeVote.getMessageId());
+                    }
                     activeVotes.remove(activeVote);
                     settingsController.saveServerSideParameters(serverId);
                 }
@@ -250,19 +213,127 @@ public class VoteController
         }
     }
 
+    /**
+     * Промежуточные результаты голосования по текущим итогам
+     *
+     * @param activeVote голосование
+     * @param channel    канал голосования
+     * @return строка с количеством голосов по пунктам, либо пустое значение, если итоги недоступны
+     */
+    public Optional<String> getInterimResults(@NotNull ActiveVote activeVote, @NotNull ServerTextChannel channel) {
+        if (activeVote.getVotePoints() == null) {
+            return Optional.empty();
+        }
+        return SettingsController.getInstance()
+                .getVoteTallyService()
+                .getBallots(channel.getApi(), activeVote)
+                .map(ballots -> {
+                    Map<Long, KnownCustomEmoji> emojiCache = buildEmojiCache(activeVote, channel.getServer());
+                    StringJoiner result = new StringJoiner(", ");
+                    countVotes(activeVote, ballots, channel).forEach((point, level) ->
+                            result.add(point.buildVoteString(emojiCache) + ": " + level));
+                    return result.toString();
+                });
+    }
+
+    @NotNull
+    private static Map<Long, KnownCustomEmoji> buildEmojiCache(@NotNull ActiveVote activeVote, @NotNull Server server) {
+        Map<Long, KnownCustomEmoji> emojiCache = new HashMap<>();
+        activeVote.getVotePoints()
+                .stream()
+                .filter(VotePoint::isCustomEmojiVP)
+                .filter(vp -> vp.getCustomEmoji() != null && vp.getCustomEmoji() > 0)
+                .map(vp -> server.getCustomEmojiById(vp.getCustomEmoji()))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .forEach(kqe -> emojiCache.put(kqe.getId(), kqe));
+        return emojiCache;
+    }
+
+    private static boolean isWithDefaultPoint(@NotNull ActiveVote activeVote) {
+        return (activeVote.isWithDefaultPoint() || activeVote.getWinThreshold() > 0)
+                && activeVote.getVotePoints().size() > 0;
+    }
+
+    /**
+     * Подсчёт голосов по текущим итогам голосования. Участники, роли и права берутся из кэша сервера,
+     * обращений к Discord нет
+     *
+     * @param activeVote голосование
+     * @param ballots    голоса по идентификаторам пунктов
+     * @param channel    канал голосования
+     * @return количество голосов по пунктам в порядке пунктов голосования
+     */
+    @NotNull
+    static Map<VotePoint, Integer> countVotes(@NotNull ActiveVote activeVote,
+                                              @NotNull Map<Long, ImmutableLongSet> ballots,
+                                              @NotNull ServerTextChannel channel) {
+        Server server = channel.getServer();
+        List<VotePoint> votePoints = activeVote.getVotePoints();
+        boolean withDefaultPoint = isWithDefaultPoint(activeVote);
+        MutableLongSet rolesFilter = activeVote.getRolesFilter() != null
+                ? LongSets.mutable.of(activeVote.getRolesFilter().stream().mapToLong(Long::longValue).toArray())
+                : LongSets.mutable.empty();
+        MutableLongSet alreadyVoted = LongSets.mutable.empty();
+        MutableLongSet globalVoted = LongSets.mutable.empty();
+
+        Map<VotePoint, Integer> pointsLevel = new LinkedHashMap<>();
+        for (VotePoint point : votePoints) {
+            pointsLevel.put(point, 0);
+        }
+        for (int i = withDefaultPoint ? 1 : 0; i < votePoints.size(); i++) {
+            VotePoint point = votePoints.get(i);
+            ImmutableLongSet voters = ballots.getOrDefault(point.getId(), LongSets.immutable.empty());
+            globalVoted.addAll(voters);
+            int addToPoint = 0;
+            for (LongIterator iterator = voters.longIterator(); iterator.hasNext(); ) {
+                long userId = iterator.next();
+                Optional<User> member = server.getMemberById(userId);
+                if (member.isPresent() && member.get().isBot()) continue;
+                if (activeVote.isExceptionalVote() && alreadyVoted.contains(userId)) continue;
+                if (!rolesFilter.isEmpty() && !hasAnyRole(server, member.orElse(null), rolesFilter)) continue;
+                alreadyVoted.add(userId);
+                addToPoint++;
+            }
+            pointsLevel.put(point, addToPoint);
+        }
+
+        if (withDefaultPoint) {
+            VotePoint defaultPoint = votePoints.get(0);
+            long noCaresUser = server.getMembers().stream()
+                    .filter(m -> !m.isBot())
+                    .filter(m -> {
+                        Collection<PermissionType> pt = channel.getEffectiveAllowedPermissions(m);
+                        return pt.contains(PermissionType.READ_MESSAGES)
+                                && pt.contains(PermissionType.ADD_REACTIONS);
+                    }).filter(m -> rolesFilter.isEmpty() || hasAnyRole(server, m, rolesFilter))
+                    .filter(m -> !globalVoted.contains(m.getId()))
+                    .count();
+            pointsLevel.put(defaultPoint, (int) noCaresUser);
+        }
+        return pointsLevel;
+    }
+
+    private static boolean hasAnyRole(@NotNull Server server, @Nullable User member, @NotNull LongSet rolesFilter) {
+        if (member == null) {
+            return false;
+        }
+        for (Role role : member.getRoles(server)) {
+            if (rolesFilter.contains(role.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void buildVotePointString(Map<Long, KnownCustomEmoji> emojiCache, MessageBuilder result, VotePoint point) {
         result.append("  *")
                 .append(point.buildVoteString(emojiCache));
     }
 
     public void stop() {
-        scheduledFuture.cancel(false);
-        while (!scheduledFuture.isCancelled() || !scheduledFuture.isDone()) {
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException brk) {
-                scheduledFuture.cancel(true);
-            }
-        }
+        scheduledVotes.values().forEach(serverVotes -> serverVotes.values()
+                .forEach(scheduled -> scheduled.cancel(false)));
+        scheduledVotes.clear();
     }
 }
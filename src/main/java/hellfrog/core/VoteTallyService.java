@@ -0,0 +1,473 @@
+package hellfrog.core;
+
+import hellfrog.common.CommonConstants;
+import hellfrog.settings.ActiveVote;
+import hellfrog.settings.VotePoint;
+import hellfrog.settings.db.VotesDAO;
+import hellfrog.settings.db.entity.VoteBallot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.map.primitive.MutableLongIntMap;
+import org.eclipse.collections.api.set.primitive.ImmutableLongSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongIntMaps;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.emoji.Emoji;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.Reaction;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.reaction.SingleReactionEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Текущие итоги активных голосований.
+ * <p>
+ * Голоса участников (реакции на пункты голосования) учитываются по событиям добавления и удаления
+ * реакций и сохраняются в базе по одному. Сверка с реакциями сообщения голосования в Discord выполняется
+ * только при запуске бота и после переподключения, когда события могли быть пропущены. Запросы к Discord
+ * при сверке выполняются асинхронно и ограничены по времени, поэтому медленное сообщение одного голосования
+ * не задерживает запись голосов и сверку остальных.
+ * Подсчёт результатов голосования обращений к Discord не требует
+ */
+public class VoteTallyService {
+
+    private static final long STOP_TIMEOUT_SECONDS = 10L;
+    private static final long RECONCILE_TIMEOUT = 3L * CommonConstants.OP_WAITING_TIMEOUT;
+
+    private final VotesDAO votesDAO;
+    private final ConcurrentHashMap<Long, VoteTally> tallies = new ConcurrentHashMap<>();
+    // запись в базу и применение результатов сверки выполняются по очереди, поэтому порядок изменений сохраняется
+    private final ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
+    private final Logger log = LogManager.getLogger("Vote tally");
+
+    public VoteTallyService(@NotNull final VotesDAO votesDAO) {
+        this.votesDAO = votesDAO;
+    }
+
+    /**
+     * Начать учёт голосов только что опубликованного голосования
+     */
+    public void register(final long messageId, @NotNull final ActiveVote activeVote) {
+        tallies.put(messageId, new VoteTally(activeVote, true));
+    }
+
+    /**
+     * Найти активное голосование по идентификатору его сообщения
+     */
+    public Optional<ActiveVote> findVote(final long messageId) {
+        final VoteTally tally = tallies.get(messageId);
+        return tally != null ? Optional.of(tally.activeVote) : Optional.empty();
+    }
+
+    /**
+     * Проверить, голосовал ли участник за другие пункты голосования, кроме пункта с указанной реакцией
+     */
+    public boolean hasAnotherPoint(final long messageId, @NotNull final Emoji emoji, final long userId) {
+        final VoteTally tally = tallies.get(messageId);
+        if (tally == null) {
+            return false;
+        }
+        final OptionalLong pointId = tally.findPointId(emoji);
+        return pointId.isPresent() && tally.hasAnotherPoint(pointId.getAsLong(), userId);
+    }
+
+    /**
+     * Загрузить сохранённые голоса активных голосований и запланировать их сверку с Discord
+     */
+    public void restore(@NotNull final DiscordApi api, @NotNull final List<ActiveVote> activeVotes) {
+        for (ActiveVote activeVote : activeVotes) {
+            if (activeVote.getMessageId() == null || activeVote.getTextChatId() == null
+                    || activeVote.getVotePoints() == null) {
+                continue;
+            }
+            final long messageId = activeVote.getMessageId();
+            if (tallies.containsKey(messageId)) {
+                continue;
+            }
+            final VoteTally tally = new VoteTally(activeVote, false);
+            tally.load(votesDAO.getBallots(messageId));
+            // голоса, поступившие до окончания сверки, будут применены поверх её результата
+            final long generation = tally.beginReconcile();
+            tallies.put(messageId, tally);
+            reconcile(api, messageId, tally, generation);
+        }
+    }
+
+    /**
+     * Сверить все итоги с Discord (после переподключения часть событий могла быть потеряна)
+     */
+    public void reconcileAll(@NotNull final DiscordApi api) {
+        tallies.forEach((messageId, tally) -> {
+            final long generation = tally.beginReconcile();
+            reconcile(api, messageId, tally, generation);
+        });
+    }
+
+    public void onReactionAdd(@NotNull final SingleReactionEvent event) {
+        onReaction(event, true);
+    }
+
+    public void onReactionRemove(@NotNull final SingleReactionEvent event) {
+        onReaction(event, false);
+    }
+
+    private void onReaction(@NotNull final SingleReactionEvent event, final boolean added) {
+        final long messageId = event.getMessageId();
+        final VoteTally tally = tallies.get(messageId);
+        if (tally == null) {
+            return;
+        }
+        final long userId = event.getUserId();
+        if (userId == event.getApi().getYourself().getId()
+                || event.getUser().map(User::isBot).orElse(false)) {
+            return;
+        }
+        final OptionalLong pointId = tally.findPointId(event.getEmoji());
+        if (pointId.isEmpty()) {
+            return;
+        }
+        if (tally.apply(pointId.getAsLong(), userId, added)) {
+            storeExecutor.execute(() -> {
+                if (added) {
+                    votesDAO.addBallot(messageId, pointId.getAsLong(), userId);
+                } else {
+                    votesDAO.removeBallot(messageId, pointId.getAsLong(), userId);
+                }
+            });
+        }
+    }
+
+    public void onReactionRemoveAll(final long messageId) {
+        final VoteTally tally = tallies.get(messageId);
+        if (tally != null) {
+            tally.clear();
+            storeExecutor.execute(() -> votesDAO.deleteBallots(messageId));
+        }
+    }
+
+    public void onMessageDelete(final long messageId) {
+        final VoteTally tally = tallies.get(messageId);
+        if (tally != null) {
+            tally.markMessageDeleted();
+        }
+    }
+
+    /**
+     * Получить текущие голоса по пунктам голосования. Если итоги голосования неизвестны
+     * или не сверены с Discord, сверка выполняется перед подсчётом
+     *
+     * @return голоса по идентификаторам пунктов, либо пустое значение, если сообщение голосования удалено
+     * или недоступно
+     */
+    public Optional<Map<Long, ImmutableLongSet>> getBallots(@NotNull final DiscordApi api,
+                                                           @NotNull final ActiveVote activeVote) {
+        if (activeVote.getMessageId() == null || activeVote.getTextChatId() == null
+                || activeVote.getVotePoints() == null) {
+            return Optional.empty();
+        }
+        final long messageId = activeVote.getMessageId();
+        VoteTally tally = tallies.computeIfAbsent(messageId, id -> new VoteTally(activeVote, false));
+        if (tally.isMessageDeleted()) {
+            return Optional.empty();
+        }
+        if (!tally.isReconciled()) {
+            final long generation = tally.beginReconcile();
+            try {
+                // результат применяется после уже поставленных в очередь записей голосов
+                reconcile(api, messageId, tally, generation)
+                        .get(2L * RECONCILE_TIMEOUT, CommonConstants.OP_TIME_UNIT);
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            } catch (ExecutionException | TimeoutException err) {
+                String errMsg = String.format("Unable to count ballots of vote with message id %d: %s",
+                        messageId, err.getMessage());
+                log.warn(errMsg);
+                return Optional.empty();
+            }
+            if (!tally.isReconciled() || tally.isMessageDeleted()) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(tally.snapshot());
+    }
+
+    /**
+     * Прекратить учёт голосов завершённого голосования и удалить сохранённые голоса
+     */
+    public void forget(final long messageId) {
+        if (tallies.remove(messageId) != null) {
+            storeExecutor.execute(() -> votesDAO.deleteBallots(messageId));
+        }
+    }
+
+    /**
+     * Запросить реакции сообщения голосования и применить их к итогам в очереди записи в базу
+     *
+     * @return завершается после применения результата сверки
+     */
+    private CompletableFuture<Void> reconcile(@NotNull final DiscordApi api, final long messageId,
+                                              @NotNull final VoteTally tally, final long generation) {
+        CompletableFuture<Map<Long, MutableLongSet>> request;
+        try {
+            request = requestVoters(api, messageId, tally);
+        } catch (Exception err) {
+            request = CompletableFuture.failedFuture(err);
+        }
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        request.orTimeout(RECONCILE_TIMEOUT, CommonConstants.OP_TIME_UNIT)
+                .whenComplete((actual, err) -> {
+                    try {
+                        storeExecutor.execute(() -> {
+                            applyReconcile(messageId, tally, generation, actual, err);
+                            result.complete(null);
+                        });
+                    } catch (RejectedExecutionException rejected) {
+                        tally.finishReconcile(generation, null);
+                        result.completeExceptionally(rejected);
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * @return голоса по идентификаторам пунктов, либо null, если канала голосования больше нет
+     */
+    private CompletableFuture<Map<Long, MutableLongSet>> requestVoters(@NotNull final DiscordApi api,
+                                                                       final long messageId,
+                                                                       @NotNull final VoteTally tally) {
+        final Long textChatId = tally.activeVote.getTextChatId();
+        Optional<ServerTextChannel> mayBeChannel = textChatId != null
+                ? api.getServerTextChannelById(textChatId)
+                : Optional.empty();
+        if (mayBeChannel.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final long yourselfId = api.getYourself().getId();
+        return mayBeChannel.get().getMessageById(messageId).thenCompose(message -> {
+            final List<Long> pointIds = new ArrayList<>();
+            final List<CompletableFuture<List<User>>> usersRequests = new ArrayList<>();
+            for (Reaction reaction : message.getReactions()) {
+                OptionalLong pointId = tally.findPointId(reaction.getEmoji());
+                if (pointId.isPresent()) {
+                    pointIds.add(pointId.getAsLong());
+                    usersRequests.add(reaction.getUsers());
+                }
+            }
+            return CompletableFuture.allOf(usersRequests.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+                final Map<Long, MutableLongSet> actual = new HashMap<>();
+                for (int i = 0; i < pointIds.size(); i++) {
+                    MutableLongSet voters = actual.computeIfAbsent(pointIds.get(i), id -> LongSets.mutable.empty());
+                    for (User user : usersRequests.get(i).join()) {
+                        if (!user.isBot() && user.getId() != yourselfId) {
+                            voters.add(user.getId());
+                        }
+                    }
+                }
+                return actual;
+            });
+        });
+    }
+
+    private void applyReconcile(final long messageId, @NotNull final VoteTally tally, final long generation,
+                                @Nullable final Map<Long, MutableLongSet> actual, @Nullable final Throwable err) {
+        if (err != null) {
+            // сообщения голосования больше нет, либо Discord не отдал реакции вовремя
+            tally.finishReconcile(generation, null);
+            String errMsg = String.format("Unable to reconcile ballots of vote with message id %d: %s",
+                    messageId, err.getMessage());
+            log.warn(errMsg);
+            return;
+        }
+        try {
+            if (tally.finishReconcile(generation, actual)) {
+                votesDAO.replaceBallots(messageId, tally.toBallots(messageId));
+            }
+        } catch (Exception storeErr) {
+            String errMsg = String.format("Unable to store reconciled ballots of vote with message id %d: %s",
+                    messageId, storeErr.getMessage());
+            log.error(errMsg, storeErr);
+            LogsStorage.addErrorMessage(errMsg);
+        }
+    }
+
+    public void stop() {
+        storeExecutor.shutdown();
+        try {
+            if (!storeExecutor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                storeExecutor.shutdownNow();
+            }
+        } catch (InterruptedException err) {
+            storeExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Голоса одного голосования: множества идентификаторов проголосовавших по пунктам и
+     * количество пунктов, выбранных каждым участником.
+     * <p>
+     * Во время сверки изменения дополнительно запоминаются и повторно применяются поверх
+     * полученных из Discord реакций, поэтому события, пришедшие во время запроса, не теряются
+     */
+    static class VoteTally {
+
+        private static final int REMOVE = 0;
+        private static final int ADD = 1;
+        private static final int CLEAR = 2;
+
+        private final ActiveVote activeVote;
+        private final Map<Long, MutableLongSet> voters = new HashMap<>();
+        private final MutableLongIntMap pointsByVoter = LongIntMaps.mutable.empty();
+        private final List<long[]> pendingChanges = new ArrayList<>();
+        private long generation = 0L;
+        private boolean reconciling = false;
+        private boolean reconciled;
+        private boolean messageDeleted = false;
+
+        VoteTally(@NotNull ActiveVote activeVote, boolean reconciled) {
+            this.activeVote = activeVote;
+            this.reconciled = reconciled;
+        }
+
+        @NotNull
+        OptionalLong findPointId(@Nullable Emoji emoji) {
+            List<VotePoint> votePoints = activeVote.getVotePoints();
+            if (votePoints == null) {
+                return OptionalLong.empty();
+            }
+            for (VotePoint votePoint : votePoints) {
+                if (votePoint.equalsEmoji(emoji)) {
+                    return OptionalLong.of(votePoint.getId());
+                }
+            }
+            return OptionalLong.empty();
+        }
+
+        synchronized void load(@NotNull Collection<VoteBallot> ballots) {
+            for (VoteBallot ballot : ballots) {
+                change(ballot.getPointId(), ballot.getUserId(), true);
+            }
+        }
+
+        /**
+         * @return true, если голоса изменились
+         */
+        synchronized boolean apply(long pointId, long userId, boolean added) {
+            if (reconciling) {
+                pendingChanges.add(new long[]{added ? ADD : REMOVE, pointId, userId});
+            }
+            return change(pointId, userId, added);
+        }
+
+        private boolean change(long pointId, long userId, boolean added) {
+            if (added) {
+                if (voters.computeIfAbsent(pointId, id -> LongSets.mutable.empty()).add(userId)) {
+                    pointsByVoter.addToValue(userId, 1);
+                    return true;
+                }
+                return false;
+            }
+            MutableLongSet pointVoters = voters.get(pointId);
+            if (pointVoters != null && pointVoters.remove(userId)) {
+                if (pointsByVoter.addToValue(userId, -1) <= 0) {
+                    pointsByVoter.remove(userId);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean hasAnotherPoint(long pointId, long userId) {
+            MutableLongSet pointVoters = voters.get(pointId);
+            int samePoint = pointVoters != null && pointVoters.contains(userId) ? 1 : 0;
+            return pointsByVoter.get(userId) > samePoint;
+        }
+
+        synchronized void clear() {
+            if (reconciling) {
+                pendingChanges.add(new long[]{CLEAR, 0L, 0L});
+            }
+            voters.clear();
+            pointsByVoter.clear();
+        }
+
+        /**
+         * Начать сверку. Изменения, поступившие до этого момента, будут учтены в полученных из Discord реакциях
+         *
+         * @return номер сверки
+         */
+        synchronized long beginReconcile() {
+            reconciling = true;
+            pendingChanges.clear();
+            return ++generation;
+        }
+
+        /**
+         * Завершить сверку
+         *
+         * @param generation номер сверки
+         * @param actual     голоса, полученные из Discord, либо null, если их получить не удалось
+         * @return true, если голоса заменены полученными из Discord
+         */
+        synchronized boolean finishReconcile(long generation, @Nullable Map<Long, MutableLongSet> actual) {
+            if (generation != this.generation) {
+                // уже запланирована более поздняя сверка
+                return false;
+            }
+            reconciling = false;
+            if (actual == null) {
+                pendingChanges.clear();
+                return false;
+            }
+            voters.clear();
+            pointsByVoter.clear();
+            actual.forEach((pointId, pointVoters) ->
+                    pointVoters.forEach(userId -> change(pointId, userId, true)));
+            for (long[] pending : pendingChanges) {
+                if (pending[0] == CLEAR) {
+                    voters.clear();
+                    pointsByVoter.clear();
+                } else {
+                    change(pending[1], pending[2], pending[0] == ADD);
+                }
+            }
+            pendingChanges.clear();
+            reconciled = true;
+            return true;
+        }
+
+        synchronized boolean isReconciled() {
+            return reconciled;
+        }
+
+        synchronized void markMessageDeleted() {
+            messageDeleted = true;
+        }
+
+        synchronized boolean isMessageDeleted() {
+            return messageDeleted;
+        }
+
+        @NotNull
+        synchronized Map<Long, ImmutableLongSet> snapshot() {
+            Map<Long, ImmutableLongSet> result = new HashMap<>(voters.size());
+            voters.forEach((pointId, pointVoters) -> result.put(pointId, pointVoters.toImmutable()));
+            return Collections.unmodifiableMap(result);
+        }
+
+        @NotNull
+        synchronized List<VoteBallot> toBallots(long messageId) {
+            List<VoteBallot> result = new ArrayList<>();
+            voters.forEach((pointId, pointVoters) ->
+                    pointVoters.forEach(userId -> result.add(new VoteBallot(messageId, pointId, userId))));
+            return result;
+        }
+    }
+}
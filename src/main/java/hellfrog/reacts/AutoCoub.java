@@ -10,6 +10,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.net.URI;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -40,6 +41,11 @@ public class AutoCoub extends MsgCreateReaction {
         }
     }
 
+    @Override
+    public List<Pattern> getTriggerPatterns() {
+        return List.of(SEARCH_PATTERN);
+    }
+
     @Override
     void parallelExecuteReact(final String strMessage,
                               final @Nullable Server server,
@@ -1,71 +1,75 @@
 package hellfrog.reacts;
 
-import hellfrog.common.BroadCast;
 import hellfrog.common.CommonConstants;
 import hellfrog.common.CommonUtils;
 import hellfrog.common.UserUtils;
-import hellfrog.settings.SettingsController;
+import hellfrog.core.CommunityControlLedger;
 import hellfrog.settings.db.CommunityControlDAO;
 import hellfrog.settings.db.ServerPreferencesDAO;
 import hellfrog.settings.db.entity.CommunityControlSettings;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.javacord.api.entity.channel.ServerTextChannel;
 import org.javacord.api.entity.emoji.Emoji;
 import org.javacord.api.entity.emoji.KnownCustomEmoji;
-import org.javacord.api.entity.message.Message;
 import org.javacord.api.entity.permission.Role;
 import org.javacord.api.entity.server.Server;
 import org.javacord.api.entity.user.User;
 import org.javacord.api.event.message.reaction.SingleReactionEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
+/**
+ * Выдаёт роль автору сообщения, набравшего заданное число реакций участников общественного контроля.
+ * <p>
+ * Настройки и список участников берутся из кэша, а реакции учитываются по событиям в
+ * {@link CommunityControlLedger}, поэтому проверка порога не требует обращений к Discord и базе
+ */
 public class CommunityControlReaction
         implements CommonConstants {
 
     private static final Logger log = LogManager.getLogger(CommunityControlReaction.class.getSimpleName());
 
-    public void parseReaction(@NotNull SingleReactionEvent event) {
-        event.getServer().ifPresent(server ->
-                event.getServerTextChannel().ifPresent(serverTextChannel -> {
+    private final CommunityControlDAO controlDAO;
+    private final ServerPreferencesDAO preferencesDAO;
+    private final CommunityControlLedger communityControlLedger;
 
-                    final CommunityControlDAO controlDAO = SettingsController.getInstance()
-                            .getMainDBController()
-                            .getCommunityControlDAO();
+    public CommunityControlReaction(@NotNull CommunityControlDAO controlDAO,
+                                    @NotNull ServerPreferencesDAO preferencesDAO,
+                                    @NotNull CommunityControlLedger communityControlLedger) {
+        this.controlDAO = controlDAO;
+        this.preferencesDAO = preferencesDAO;
+        this.communityControlLedger = communityControlLedger;
+    }
+
+    public void parseReaction(@NotNull SingleReactionEvent event, boolean added) {
+        event.getServer().ifPresent(server -> {
 
-                    controlDAO.getSettings(server.getId()).ifPresent(controlSettings ->
-                            event.getUser().ifPresent(reactionAuthor ->
-                                    baseCheck(controlDAO, server, serverTextChannel, event, controlSettings, reactionAuthor)));
-                }));
+            controlDAO.getSettings(server.getId()).ifPresent(controlSettings ->
+                    baseCheck(controlDAO, server, event, controlSettings, added));
+        });
     }
 
     private void baseCheck(@NotNull final CommunityControlDAO controlDAO,
                            @NotNull final Server server,
-                           @NotNull final ServerTextChannel serverTextChannel,
                            @NotNull final SingleReactionEvent event,
                            @NotNull final CommunityControlSettings controlSettings,
-                           @NotNull final User reactionAuthor) {
+                           final boolean added) {
 
-        if (controlDAO.isControlUser(server.getId(), reactionAuthor.getId())
+        if (controlDAO.isControlUser(server.getId(), event.getUserId())
                 && controlSettings.getThreshold() > 0L
                 && controlSettings.getRoleId() > 0L
                 && (CommonUtils.isTrStringNotEmpty(controlSettings.getUnicodeEmoji())
                 || controlSettings.getCustomEmojiId() > 0L)) {
 
-            deepCheck(controlDAO, server, serverTextChannel, event, controlSettings);
+            deepCheck(server, event, controlSettings, added);
         }
     }
 
-    private void deepCheck(@NotNull final CommunityControlDAO controlDAO,
-                           @NotNull final Server server,
-                           @NotNull final ServerTextChannel serverTextChannel,
+    private void deepCheck(@NotNull final Server server,
                            @NotNull final SingleReactionEvent event,
-                           @NotNull final CommunityControlSettings controlSettings) {
+                           @NotNull final CommunityControlSettings controlSettings,
+                           final boolean added) {
 
         Optional<KnownCustomEmoji> mayBeCustomEmoji = server.getCustomEmojiById(controlSettings.getCustomEmojiId());
         Optional<String> mayBeUnicodeEmoji = Optional.ofNullable(controlSettings.getUnicodeEmoji());
@@ -78,7 +82,7 @@ public class CommunityControlReaction
         if (mayBeAssignRole.isEmpty()) {
             return;
         }
-        Role assignRole = mayBeAssignRole.get();
+        final Role assignRole = mayBeAssignRole.get();
 
         Emoji emoji = event.getEmoji();
         boolean equalsCustomEmoji = emoji.isKnownCustomEmoji()
@@ -93,67 +97,36 @@ public class CommunityControlReaction
             return;
         }
 
-        List<User> communityControlUsers = controlDAO.getUsers(server.getId())
-                .stream()
-                .map(server::getMemberById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toUnmodifiableList());
+        final String emojiKey = equalsCustomEmoji
+                ? String.valueOf(mayBeCustomEmoji.get().getId())
+                : mayBeUnicodeEmoji.get();
+        final long threshold = controlSettings.getThreshold();
 
-        if (communityControlUsers.size() < controlSettings.getThreshold()) {
-            return;
-        }
-
-        Message msg = null;
-        if (event.getMessage().isPresent()) {
-            msg = event.getMessage().get();
-        } else {
-            try {
-                msg = serverTextChannel.getMessageById(event.getMessageId())
-                        .get(10_000L, TimeUnit.SECONDS);
-            } catch (Exception warn) {
-                String warnMessage = String.format("Unable extract history message with id %d for community control check: %s",
-                        event.getMessageId(), warn.getMessage());
-                log.warn(warnMessage, warn);
-                BroadCast.getLogger()
-                        .addWarnMessage(warnMessage)
-                        .send();
+        communityControlLedger.onControlReaction(event, emojiKey, added, (messageAuthorId, reactionsCount) -> {
+            if (reactionsCount >= threshold) {
+                assignRole(server, messageAuthorId, assignRole);
             }
-        }
-        if (msg == null) {
-            return;
-        }
+        });
+    }
 
-        Optional<User> mayBeMessageAuthor = msg.getUserAuthor();
-        if (mayBeMessageAuthor.isEmpty()){
+    private void assignRole(@NotNull final Server server, final long messageAuthorId, @NotNull final Role assignRole) {
+        Optional<User> mayBeMessageAuthor = server.getMemberById(messageAuthorId);
+        if (mayBeMessageAuthor.isEmpty()) {
             return;
         }
         final User messageAuthor = mayBeMessageAuthor.get();
-
-        msg.getReactionByEmoji(emoji).ifPresent(reaction -> {
-            try {
-                long reactionsCount = reaction.getUsers().get(CommonConstants.OP_WAITING_TIMEOUT, CommonConstants.OP_TIME_UNIT)
-                        .stream()
-                        .filter(communityControlUsers::contains)
-                        .count();
-                if (reactionsCount >= controlSettings.getThreshold()) {
-                    if (!server.getRoles(messageAuthor).contains(assignRole)) {
-                        server.addRoleToUser(messageAuthor, assignRole, "Community control threshold")
-                                .thenAccept(v -> displayIntoLog(server, messageAuthor, assignRole));
-                    }
-                }
-            } catch (Exception err) {
-                log.error("Error while get users by reaction", err);
-            }
-        });
+        if (!server.getRoles(messageAuthor).contains(assignRole)) {
+            server.addRoleToUser(messageAuthor, assignRole, "Community control threshold")
+                    .thenAccept(v -> displayIntoLog(server, messageAuthor, assignRole))
+                    .exceptionally(err -> {
+                        log.error("Unable to assign community control role", err);
+                        return null;
+                    });
+        }
     }
 
     private void displayIntoLog(Server server, User member, Role role) {
 
-        ServerPreferencesDAO preferencesDAO = SettingsController.getInstance()
-                .getMainDBController()
-                .getServerPreferencesDAO();
-
         if (preferencesDAO.isDisplayEventLog(server.getId())
                 && preferencesDAO.getEventLogChannel(server.getId()) > 0L) {
 
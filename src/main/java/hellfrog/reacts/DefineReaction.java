@@ -16,6 +16,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
@@ -49,6 +50,11 @@ public class DefineReaction
         return DEFINE_PATTERN.matcher(message).find();
     }
 
+    @Override
+    public List<Pattern> getTriggerPatterns() {
+        return List.of(DEFINE_PATTERN);
+    }
+
     @Override
     void parallelExecuteReact(String strMessage,
                               @Nullable Server server,
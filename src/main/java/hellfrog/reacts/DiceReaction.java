@@ -5,6 +5,7 @@ import hellfrog.common.BroadCast;
 import hellfrog.common.CommonUtils;
 import hellfrog.common.LongEmbedMessage;
 import hellfrog.common.MessageUtils;
+import hellfrog.core.MediaIndexService;
 import hellfrog.core.ServerSideResolver;
 import hellfrog.reacts.dice.*;
 import hellfrog.settings.SettingsController;
@@ -83,8 +84,8 @@ public class DiceReaction
                     "(-\\s?)?\\d+\\s?(\\+{1,2}|-{1,2})",
             Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
 
-    private static final List<String> LOW_ROFL_LIST = new CopyOnWriteArrayList<>();
-    private static final List<String> HIGH_ROFL_LIST = new CopyOnWriteArrayList<>();
+    private static final CopyOnWriteArrayList<String> LOW_ROFL_LIST = new CopyOnWriteArrayList<>();
+    private static final CopyOnWriteArrayList<String> HIGH_ROFL_LIST = new CopyOnWriteArrayList<>();
     private static final long MAX_DICES = 100L;
     private static final long MAX_FACES = 1000L;
     private static final long MIN_INITIAL_VALUE = -10_000L;
@@ -112,6 +113,11 @@ public class DiceReaction
         return matcher.find();
     }
 
+    @Override
+    public List<Pattern> getTriggerPatterns() {
+        return List.of(SEARCH_PATTERN);
+    }
+
     @Override
     void parallelExecuteReact(String strMessage, @Nullable Server server,
                               @Nullable User user, TextChannel textChannel,
@@ -119,287 +125,305 @@ public class DiceReaction
 
         try {
             SettingsController.getInstance().updateLastCommandUsage();
-            List<String> lines = Arrays.asList(strMessage.split("\n"));
-            for (int i = 0; i < lines.size(); i++) {
-                String currentLine = lines.get(i).trim();
-                Matcher patternMatcher = DICE_PATTERN.matcher(currentLine);
-                if (patternMatcher.find()) {
-                    String diceValue = patternMatcher.group()
-                            .replaceAll(SHORT_ROLL_PREFIX, DEFAULT_ROLL);
-                    String anotherString = EmojiParser.parseToUnicode(":game_die: ")
-                            + CommonUtils.cutLeftString(currentLine, patternMatcher.group(0)).trim();
-                    if ((i + 1) < lines.size()) {
-                        Optional<String> anotherLast = lines.subList(i + 1, lines.size())
-                                .stream()
-                                .reduce((l1, l2) -> l1 + '\n' + l2);
-                        if (anotherLast.isPresent()) {
-                            anotherString += '\n' + anotherLast.get();
-                        }
-                    }
+            DiceRoll diceRoll = rollDices(strMessage, server, user);
+            if (diceRoll != null) {
+                diceRoll.message.send(textChannel);
+                if (diceRoll.rofl) {
+                    rofling(textChannel, diceRoll.totalSum, diceRoll.maxSum);
+                }
+            }
+        } catch (Exception err) {
+            log.error(err.getMessage(), err);
+        }
+    }
 
-                    if (server != null) {
-                        anotherString = ServerSideResolver.resolveMentions(server, anotherString);
+    /**
+     * Разбор выражения броска и формирование сообщения с результатом без отправки
+     *
+     * @param strMessage текст сообщения с выражением
+     * @param server     сервер, на котором выполняется бросок (для разрешения упоминаний)
+     * @param user       автор броска
+     * @return результат броска, либо null, если выражение не распознано или выходит за допустимые пределы
+     */
+    @Nullable
+    DiceRoll rollDices(String strMessage, @Nullable Server server, @Nullable User user) {
+        List<String> lines = Arrays.asList(strMessage.split("\n"));
+        for (int i = 0; i < lines.size(); i++) {
+            String currentLine = lines.get(i).trim();
+            Matcher patternMatcher = DICE_PATTERN.matcher(currentLine);
+            if (patternMatcher.find()) {
+                String diceValue = patternMatcher.group()
+                        .replaceAll(SHORT_ROLL_PREFIX, DEFAULT_ROLL);
+                String anotherString = EmojiParser.parseToUnicode(":game_die: ")
+                        + CommonUtils.cutLeftString(currentLine, patternMatcher.group(0)).trim();
+                if ((i + 1) < lines.size()) {
+                    Optional<String> anotherLast = lines.subList(i + 1, lines.size())
+                            .stream()
+                            .reduce((l1, l2) -> l1 + '\n' + l2);
+                    if (anotherLast.isPresent()) {
+                        anotherString += '\n' + anotherLast.get();
                     }
+                }
 
-                    boolean doRofl = ROFL_PATTERN.matcher(diceValue).find();
-                    Matcher valueMatcher = VALUE_PATTERN.matcher(diceValue);
-                    if (!valueMatcher.find()) return;
-                    String rawDiceValues = valueMatcher.group();
-                    String[] rawDiceArrayValues = rawDiceValues.split("[dDдД]");
-                    long numOfDice = rawDiceArrayValues.length == 2
-                            ? CommonUtils.onlyNumbersToLong(rawDiceArrayValues[0])
-                            : 1L;
-                    long numOfFaces = rawDiceArrayValues.length == 2
-                            ? CommonUtils.onlyNumbersToLong(rawDiceArrayValues[1])
-                            : 20L;
-
-                    Matcher multiplierMatcher = MULTIPLIER_PATTERN.matcher(diceValue);
-                    long linesCount = 1L;
-                    if (multiplierMatcher.find()) {
-                        linesCount = CommonUtils.onlyNumbersToLong(multiplierMatcher.group());
-                        if (linesCount < MIN_LINES_COUNT) {
-                            linesCount = MIN_LINES_COUNT;
-                        } else if (linesCount > MAX_LINES_COUNT) {
-                            linesCount = MAX_LINES_COUNT;
-                        }
+                if (server != null) {
+                    anotherString = ServerSideResolver.resolveMentions(server, anotherString);
+                }
+
+                boolean doRofl = ROFL_PATTERN.matcher(diceValue).find();
+                Matcher valueMatcher = VALUE_PATTERN.matcher(diceValue);
+                if (!valueMatcher.find()) return null;
+                String rawDiceValues = valueMatcher.group();
+                String[] rawDiceArrayValues = rawDiceValues.split("[dDдД]");
+                long numOfDice = rawDiceArrayValues.length == 2
+                        ? CommonUtils.onlyNumbersToLong(rawDiceArrayValues[0])
+                        : 1L;
+                long numOfFaces = rawDiceArrayValues.length == 2
+                        ? CommonUtils.onlyNumbersToLong(rawDiceArrayValues[1])
+                        : 20L;
+
+                Matcher multiplierMatcher = MULTIPLIER_PATTERN.matcher(diceValue);
+                long linesCount = 1L;
+                if (multiplierMatcher.find()) {
+                    linesCount = CommonUtils.onlyNumbersToLong(multiplierMatcher.group());
+                    if (linesCount < MIN_LINES_COUNT) {
+                        linesCount = MIN_LINES_COUNT;
+                    } else if (linesCount > MAX_LINES_COUNT) {
+                        linesCount = MAX_LINES_COUNT;
                     }
-                    diceValue = diceValue.replaceAll(MULTIPLIER_PATTERN.pattern(), "");
-
-                    if (numOfDice > 0 && numOfDice <= MAX_DICES
-                            && numOfFaces > 0 && numOfFaces <= MAX_FACES) {
-
-                        Matcher rawInitialMatcher = INITIAL_VALUE_PATTERN.matcher(diceValue);
-                        long initialValue = 0L;
-                        InitialModifierType initialModifierType = InitialModifierType.NONE;
-                        if (rawInitialMatcher.find()) {
-                            String rawInitialExpression = rawInitialMatcher.group().replaceAll("[^\\d-+]", "");
-                            String rawInitialValue = rawInitialExpression.replaceAll("[-+]+$", "");
-                            String rawInitialModifier = rawInitialExpression.replaceAll("^-?\\d+", "");
-                            long override = 0L;
-                            try {
-                                override = Long.parseLong(rawInitialValue);
-                            } catch (NumberFormatException ignore) {
-                            }
-                            if (override != 0L && override >= MIN_INITIAL_VALUE && override <= MAX_INITIAL_VALUE) {
-                                initialValue = override;
-                                if (rawInitialModifier.startsWith("++")) {
-                                    initialModifierType = InitialModifierType.ADD_VAL;
-                                } else if (rawInitialModifier.startsWith("--")) {
-                                    initialModifierType = InitialModifierType.SUB_VAL;
-                                } else if (rawInitialModifier.startsWith("+")) {
-                                    initialModifierType = InitialModifierType.ADD_SUM;
-                                } else if (rawInitialModifier.startsWith("-")) {
-                                    initialModifierType = InitialModifierType.SUB_SUM;
-                                }
-                            }
+                }
+                diceValue = diceValue.replaceAll(MULTIPLIER_PATTERN.pattern(), "");
+
+                if (numOfDice > 0 && numOfDice <= MAX_DICES
+                        && numOfFaces > 0 && numOfFaces <= MAX_FACES) {
+
+                    Matcher rawInitialMatcher = INITIAL_VALUE_PATTERN.matcher(diceValue);
+                    long initialValue = 0L;
+                    InitialModifierType initialModifierType = InitialModifierType.NONE;
+                    if (rawInitialMatcher.find()) {
+                        String rawInitialExpression = rawInitialMatcher.group().replaceAll("[^\\d-+]", "");
+                        String rawInitialValue = rawInitialExpression.replaceAll("[-+]+$", "");
+                        String rawInitialModifier = rawInitialExpression.replaceAll("^-?\\d+", "");
+                        long override = 0L;
+                        try {
+                            override = Long.parseLong(rawInitialValue);
+                        } catch (NumberFormatException ignore) {
                         }
-                        diceValue = diceValue.replaceAll(INITIAL_VALUE_PATTERN.pattern(), "");
-
-                        List<ResultFilter> resultFilters = new ArrayList<>();
-                        Matcher filterModifiers = FILTER_PATTERN.matcher(diceValue);
-                        while (filterModifiers.find()) {
-                            String rawFilter = filterModifiers.group();
-                            FilterType filterType = FilterType.NOP;
-                            if (rawFilter.startsWith(">=")) {
-                                filterType = FilterType.GE;
-                            } else if (rawFilter.startsWith("<=")) {
-                                filterType = FilterType.LE;
-                            } else if (rawFilter.startsWith("<>")) {
-                                filterType = FilterType.NE;
-                            } else if (rawFilter.startsWith("=")) {
-                                filterType = FilterType.EQ;
-                            } else if (rawFilter.startsWith("<")) {
-                                filterType = FilterType.LT;
-                            } else if (rawFilter.startsWith(">")) {
-                                filterType = FilterType.GT;
-                            }
-                            long filterValue = CommonUtils.onlyNumbersToLong(rawFilter);
-                            if (filterValue > 0 && !filterType.equals(FilterType.NOP)) {
-                                resultFilters.add(new ResultFilter(filterType, filterValue));
+                        if (override != 0L && override >= MIN_INITIAL_VALUE && override <= MAX_INITIAL_VALUE) {
+                            initialValue = override;
+                            if (rawInitialModifier.startsWith("++")) {
+                                initialModifierType = InitialModifierType.ADD_VAL;
+                            } else if (rawInitialModifier.startsWith("--")) {
+                                initialModifierType = InitialModifierType.SUB_VAL;
+                            } else if (rawInitialModifier.startsWith("+")) {
+                                initialModifierType = InitialModifierType.ADD_SUM;
+                            } else if (rawInitialModifier.startsWith("-")) {
+                                initialModifierType = InitialModifierType.SUB_SUM;
                             }
                         }
+                    }
+                    diceValue = diceValue.replaceAll(INITIAL_VALUE_PATTERN.pattern(), "");
+
+                    List<ResultFilter> resultFilters = new ArrayList<>();
+                    Matcher filterModifiers = FILTER_PATTERN.matcher(diceValue);
+                    while (filterModifiers.find()) {
+                        String rawFilter = filterModifiers.group();
+                        FilterType filterType = FilterType.NOP;
+                        if (rawFilter.startsWith(">=")) {
+                            filterType = FilterType.GE;
+                        } else if (rawFilter.startsWith("<=")) {
+                            filterType = FilterType.LE;
+                        } else if (rawFilter.startsWith("<>")) {
+                            filterType = FilterType.NE;
+                        } else if (rawFilter.startsWith("=")) {
+                            filterType = FilterType.EQ;
+                        } else if (rawFilter.startsWith("<")) {
+                            filterType = FilterType.LT;
+                        } else if (rawFilter.startsWith(">")) {
+                            filterType = FilterType.GT;
+                        }
+                        long filterValue = CommonUtils.onlyNumbersToLong(rawFilter);
+                        if (filterValue > 0 && !filterType.equals(FilterType.NOP)) {
+                            resultFilters.add(new ResultFilter(filterType, filterValue));
+                        }
+                    }
 
-                        RandomSource randomSource = RandomSource.getInstance();
+                    RandomSource randomSource = RandomSource.getInstance();
 
-                        final List<SumModifier> diceModifiers = parseModifiers(diceValue, false);
-                        final List<SumModifier> summaryModifiers = parseModifiers(diceValue, true);
+                    final List<SumModifier> diceModifiers = parseModifiers(diceValue, false);
+                    final List<SumModifier> summaryModifiers = parseModifiers(diceValue, true);
 
-                        final boolean modifyInitialDices = initialValue != 0L && !initialModifierType.summary;
-                        final boolean modifyInitialSum = initialValue != 0L && initialModifierType.summary;
-                        final boolean modifyDices = !diceModifiers.isEmpty() || modifyInitialDices;
-                        final boolean modifyTotalSum = !summaryModifiers.isEmpty() || modifyInitialSum;
+                    final boolean modifyInitialDices = initialValue != 0L && !initialModifierType.summary;
+                    final boolean modifyInitialSum = initialValue != 0L && initialModifierType.summary;
+                    final boolean modifyDices = !diceModifiers.isEmpty() || modifyInitialDices;
+                    final boolean modifyTotalSum = !summaryModifiers.isEmpty() || modifyInitialSum;
 
-                        final String diceModifiersString = generatePrintable(diceModifiers);
-                        final String summaryModifiersString = generatePrintable(summaryModifiers);
+                    final String diceModifiersString = generatePrintable(diceModifiers);
+                    final String summaryModifiersString = generatePrintable(summaryModifiers);
 
-                        final boolean showAverage = AVERAGE_PATTERN.matcher(diceValue).find();
-                        final boolean showMedian = MEDIAN_PATTERN.matcher(diceValue).find();
+                    final boolean showAverage = AVERAGE_PATTERN.matcher(diceValue).find();
+                    final boolean showMedian = MEDIAN_PATTERN.matcher(diceValue).find();
 
-                        LongEmbedMessage resultMessage = new LongEmbedMessage();
-                        long registeredTotalSum = 0L;
-                        long registeredMax = 0L;
+                    LongEmbedMessage resultMessage = new LongEmbedMessage();
+                    long registeredTotalSum = 0L;
+                    long registeredMax = 0L;
 
-                        for (long lineNum = 1L; lineNum <= linesCount; lineNum++) {
-                            int success = 0;
-                            long totalSumResult = 0;
-                            MessageBuilder dicesOutput = new MessageBuilder();
-                            final MutableDoubleList allDices = new DoubleArrayList((int) numOfDice);
+                    for (long lineNum = 1L; lineNum <= linesCount; lineNum++) {
+                        int success = 0;
+                        long totalSumResult = 0;
+                        MessageBuilder dicesOutput = new MessageBuilder();
+                        final MutableDoubleList allDices = new DoubleArrayList((int) numOfDice);
 
-                            if (lineNum > 1L) {
-                                resultMessage.append('\n');
+                        if (lineNum > 1L) {
+                            resultMessage.append('\n');
+                        }
+                        if (linesCount > 1L) {
+                            resultMessage.append(lineNum).append(": ");
+                        }
+
+                        for (long d = 1; d <= numOfDice; d++) {
+                            long tr = randomSource.getDice(numOfFaces);
+                            final long origin = tr;
+                            if (modifyDices) {
+                                for (SumModifier diceModifier : diceModifiers) {
+                                    tr = diceModifier.modify(tr);
+                                }
                             }
-                            if (linesCount > 1L) {
-                                resultMessage.append(lineNum).append(": ");
+                            if (modifyInitialDices) {
+                                switch (initialModifierType) {
+                                    case ADD_VAL -> tr = initialValue + tr;
+                                    case SUB_VAL -> tr = initialValue - tr;
+                                }
                             }
-
-                            for (long d = 1; d <= numOfDice; d++) {
-                                long tr = randomSource.getDice(numOfFaces);
-                                final long origin = tr;
-                                if (modifyDices) {
-                                    for (SumModifier diceModifier : diceModifiers) {
-                                        tr = diceModifier.modify(tr);
+                            boolean strike = false;
+                            if (!resultFilters.isEmpty()) {
+                                for (ResultFilter resultFilter : resultFilters) {
+                                    if (resultFilter.notOk(tr)) {
+                                        strike = true;
+                                        break;
                                     }
                                 }
+                            }
+                            if (!strike) {
+                                success++;
+                                totalSumResult += tr;
+                                allDices.add((double) tr);
+                            }
+                            dicesOutput.append("[");
+                            if (!strike) {
+                                dicesOutput.append(tr);
+                            } else {
+                                dicesOutput.append(String.valueOf(tr), MessageDecoration.STRIKEOUT);
+                            }
+                            if (modifyDices) {
+                                dicesOutput.append(" (");
                                 if (modifyInitialDices) {
+                                    dicesOutput.append(initialValue);
                                     switch (initialModifierType) {
-                                        case ADD_VAL -> tr = initialValue + tr;
-                                        case SUB_VAL -> tr = initialValue - tr;
-                                    }
-                                }
-                                boolean strike = false;
-                                if (!resultFilters.isEmpty()) {
-                                    for (ResultFilter resultFilter : resultFilters) {
-                                        if (resultFilter.notOk(tr)) {
-                                            strike = true;
-                                            break;
-                                        }
-                                    }
-                                }
-                                if (!strike) {
-                                    success++;
-                                    totalSumResult += tr;
-                                    allDices.add((double) tr);
-                                }
-                                dicesOutput.append("[");
-                                if (!strike) {
-                                    dicesOutput.append(tr);
-                                } else {
-                                    dicesOutput.append(String.valueOf(tr), MessageDecoration.STRIKEOUT);
-                                }
-                                if (modifyDices) {
-                                    dicesOutput.append(" (");
-                                    if (modifyInitialDices) {
-                                        dicesOutput.append(initialValue);
-                                        switch (initialModifierType) {
-                                            case ADD_VAL -> dicesOutput.append("+");
-                                            case SUB_VAL -> dicesOutput.append("-");
-                                        }
-                                        if (CommonUtils.isTrStringNotEmpty(diceModifiersString)) {
-                                            dicesOutput.append("(");
-                                        }
+                                        case ADD_VAL -> dicesOutput.append("+");
+                                        case SUB_VAL -> dicesOutput.append("-");
                                     }
-                                    dicesOutput.append(origin)
-                                            .append(diceModifiersString)
-                                            .append(")");
-                                    if (modifyInitialDices && CommonUtils.isTrStringNotEmpty(diceModifiersString)) {
-                                        dicesOutput.append(")");
+                                    if (CommonUtils.isTrStringNotEmpty(diceModifiersString)) {
+                                        dicesOutput.append("(");
                                     }
                                 }
-                                dicesOutput.append("]");
-                                if (d < numOfDice) {
-                                    dicesOutput.append(" ");
+                                dicesOutput.append(origin)
+                                        .append(diceModifiersString)
+                                        .append(")");
+                                if (modifyInitialDices && CommonUtils.isTrStringNotEmpty(diceModifiersString)) {
+                                    dicesOutput.append(")");
                                 }
                             }
-
-                            final long origTotalSum = totalSumResult;
-                            for (SumModifier summaryModifier : summaryModifiers) {
-                                totalSumResult = summaryModifier.modify(totalSumResult);
+                            dicesOutput.append("]");
+                            if (d < numOfDice) {
+                                dicesOutput.append(" ");
                             }
-                            if (initialValue != 0L && initialModifierType.summary) {
-                                switch (initialModifierType) {
-                                    case ADD_SUM -> totalSumResult = initialValue + totalSumResult;
-                                    case SUB_SUM -> totalSumResult = initialValue - totalSumResult;
-                                }
+                        }
+
+                        final long origTotalSum = totalSumResult;
+                        for (SumModifier summaryModifier : summaryModifiers) {
+                            totalSumResult = summaryModifier.modify(totalSumResult);
+                        }
+                        if (initialValue != 0L && initialModifierType.summary) {
+                            switch (initialModifierType) {
+                                case ADD_SUM -> totalSumResult = initialValue + totalSumResult;
+                                case SUB_SUM -> totalSumResult = initialValue - totalSumResult;
                             }
+                        }
 
-                            final Median medianCalculator = new Median();
-                            final Mean averageCalculator = new Mean();
-                            final double[] sortedDices = allDices.toSortedArray();
-                            final double median = medianCalculator.evaluate(sortedDices);
-                            final double average = averageCalculator.evaluate(sortedDices);
+                        final Median medianCalculator = new Median();
+                        final Mean averageCalculator = new Mean();
+                        final double[] sortedDices = allDices.toSortedArray();
+                        final double median = medianCalculator.evaluate(sortedDices);
+                        final double average = averageCalculator.evaluate(sortedDices);
 
-                            if (!resultFilters.isEmpty()) {
-                                dicesOutput.append(" (")
-                                        .append(String.valueOf(success))
-                                        .append(" success)");
-                            }
-                            long max = numOfDice * numOfFaces + 1;
-                            String defName = "You";
-                            if (user != null) {
-                                defName = MessageUtils.escapeSpecialSymbols(server != null ?
-                                        server.getDisplayName(user) :
-                                        user.getName());
-                            }
-                            MessageBuilder msg = new MessageBuilder()
-                                    .append(defName, MessageDecoration.BOLD)
-                                    .append(" rolled ")
-                                    .append(String.valueOf(numOfDice))
-                                    .append("-")
-                                    .append(String.valueOf(max - 1))
-                                    .append(" and got ")
-                                    .append(dicesOutput.getStringBuilder().toString())
-                                    .append("...");
-
-                            if (!showAverage && !showMedian) {
-                                msg.append(String.valueOf(totalSumResult), MessageDecoration.BOLD);
-                                if (modifyTotalSum) {
-                                    msg.append(" (");
-                                    if (modifyInitialSum) {
-                                        msg.append(initialValue);
-                                        switch (initialModifierType) {
-                                            case ADD_SUM -> msg.append("+");
-                                            case SUB_SUM -> msg.append("-");
-                                        }
-                                        if (CommonUtils.isTrStringNotEmpty(summaryModifiersString)) {
-                                            msg.append("(");
-                                        }
+                        if (!resultFilters.isEmpty()) {
+                            dicesOutput.append(" (")
+                                    .append(String.valueOf(success))
+                                    .append(" success)");
+                        }
+                        long max = numOfDice * numOfFaces + 1;
+                        String defName = "You";
+                        if (user != null) {
+                            defName = MessageUtils.escapeSpecialSymbols(server != null ?
+                                    server.getDisplayName(user) :
+                                    user.getName());
+                        }
+                        MessageBuilder msg = new MessageBuilder()
+                                .append(defName, MessageDecoration.BOLD)
+                                .append(" rolled ")
+                                .append(String.valueOf(numOfDice))
+                                .append("-")
+                                .append(String.valueOf(max - 1))
+                                .append(" and got ")
+                                .append(dicesOutput.getStringBuilder().toString())
+                                .append("...");
+
+                        if (!showAverage && !showMedian) {
+                            msg.append(String.valueOf(totalSumResult), MessageDecoration.BOLD);
+                            if (modifyTotalSum) {
+                                msg.append(" (");
+                                if (modifyInitialSum) {
+                                    msg.append(initialValue);
+                                    switch (initialModifierType) {
+                                        case ADD_SUM -> msg.append("+");
+                                        case SUB_SUM -> msg.append("-");
                                     }
-                                    msg.append(origTotalSum)
-                                            .append(summaryModifiersString)
-                                            .append(")");
                                     if (CommonUtils.isTrStringNotEmpty(summaryModifiersString)) {
-                                        msg.append(")");
+                                        msg.append("(");
                                     }
                                 }
-                            } else if (showAverage) {
-                                msg.append(String.valueOf(average), MessageDecoration.BOLD)
-                                        .append(" (average)");
-                            } else {
-                                msg.append(String.valueOf(median), MessageDecoration.BOLD)
-                                        .append(" (median)");
+                                msg.append(origTotalSum)
+                                        .append(summaryModifiersString)
+                                        .append(")");
+                                if (CommonUtils.isTrStringNotEmpty(summaryModifiersString)) {
+                                    msg.append(")");
+                                }
                             }
-
-                            resultMessage.append(msg.getStringBuilder().toString());
-                            registeredTotalSum += totalSumResult;
-                            registeredMax += max;
+                        } else if (showAverage) {
+                            msg.append(String.valueOf(average), MessageDecoration.BOLD)
+                                    .append(" (average)");
+                        } else {
+                            msg.append(String.valueOf(median), MessageDecoration.BOLD)
+                                    .append(" (median)");
                         }
 
-                        resultMessage.setTitle(anotherString)
-                                .setColor(Color.CYAN)
-                                .send(textChannel);
-
-                        if (doRofl && !showAverage && !showMedian) {
-                            rofling(textChannel, registeredTotalSum, registeredTotalSum < registeredMax ?
-                                    registeredMax - 1 : registeredTotalSum);
-                        }
+                        resultMessage.append(msg.getStringBuilder().toString());
+                        registeredTotalSum += totalSumResult;
+                        registeredMax += max;
                     }
 
-                    break;
+                    resultMessage.setTitle(anotherString)
+                            .setColor(Color.CYAN);
+
+                    return new DiceRoll(resultMessage, doRofl && !showAverage && !showMedian,
+                            registeredTotalSum, registeredTotalSum < registeredMax ?
+                            registeredMax - 1 : registeredTotalSum);
                 }
+
+                return null;
             }
-        } catch (Exception err) {
-            log.error(err.getMessage(), err);
         }
+        return null;
     }
 
     @NotNull
@@ -469,45 +493,15 @@ public class DiceReaction
         final long lowRollImagesChannelId = settingsController.getMainDBController()
                 .getCommonPreferencesDAO()
                 .getLowRollChannelId();
-        Optional<DiscordApi> mayBeApi = Optional.ofNullable(settingsController.getDiscordApi());
-        mayBeApi.ifPresentOrElse(discordApi -> {
-            List<String> highRoflUrls = new ArrayList<>();
-            discordApi.getServerTextChannelById(highRollImagesChannelId).ifPresentOrElse(textChannel -> {
-                if (textChannel.canYouReadMessageHistory()
-                        && textChannel.canYouSee()) {
-                    textChannel.getMessagesAsStream().forEach(message ->
-                            message.getAttachments().forEach(messageAttachment ->
-                                    highRoflUrls.add(messageAttachment.getUrl().toString())));
-                    HIGH_ROFL_LIST.clear();
-                    HIGH_ROFL_LIST.addAll(highRoflUrls);
-                    messagesLogger.addInfoMessage("Found " + HIGH_ROFL_LIST.size()
-                            + " URLs images into channel " + textChannel.getName());
-                } else {
-                    messagesLogger.addErrorMessage("Unable to see messages and history for " +
-                            "channel " + textChannel.getName() + " (channel with high rofl images)");
-                }
-            }, () ->
-                    messagesLogger.addErrorMessage("Unable to find server text channel "
-                            + highRollImagesChannelId + " with high rofl images"));
-            List<String> lowRoflUrls = new ArrayList<>();
-            discordApi.getServerTextChannelById(lowRollImagesChannelId).ifPresentOrElse(textChannel -> {
-                if (textChannel.canYouReadMessageHistory()
-                        && textChannel.canYouSee()) {
-                    textChannel.getMessagesAsStream().forEach(message ->
-                            message.getAttachments().forEach(messageAttachment ->
-                                    lowRoflUrls.add(messageAttachment.getUrl().toString())));
-                    LOW_ROFL_LIST.clear();
-                    LOW_ROFL_LIST.addAll(lowRoflUrls);
-                    messagesLogger.addInfoMessage("Found " + LOW_ROFL_LIST.size()
-                            + " URLs images into channel " + textChannel.getName());
-                } else {
-                    messagesLogger.addErrorMessage("Unable to see messages and history for " +
-                            "channel " + textChannel.getName() + " (channel with low rofl images)");
-                }
-            }, () -> messagesLogger.addErrorMessage("Unable to find server text channel "
-                    + lowRollImagesChannelId + " with low rofl images"));
-
-        }, () -> log.fatal("Unable to rebuild dice reaction rofl indexes - api is null!"));
+        final MediaIndexService mediaIndexService = settingsController.getMediaIndexService();
+        final DiscordApi discordApi = settingsController.getDiscordApi();
+        if (discordApi == null) {
+            log.fatal("Unable to rebuild dice reaction rofl indexes - api is null!");
+        }
+        messagesLogger.add(mediaIndexService.attach(discordApi, highRollImagesChannelId, HIGH_ROFL_LIST,
+                "high rofl images", false));
+        messagesLogger.add(mediaIndexService.attach(discordApi, lowRollImagesChannelId, LOW_ROFL_LIST,
+                "low rofl images", false));
 
         if (sendBroadcastSeparately) {
             messagesLogger.send();
@@ -515,4 +509,22 @@ public class DiceReaction
         return messagesLogger;
     }
 
+    static class DiceRoll {
+
+        private final LongEmbedMessage message;
+        private final boolean rofl;
+        private final long totalSum;
+        private final long maxSum;
+
+        DiceRoll(LongEmbedMessage message, boolean rofl, long totalSum, long maxSum) {
+            this.message = message;
+            this.rofl = rofl;
+            this.totalSum = totalSum;
+            this.maxSum = maxSum;
+        }
+
+        LongEmbedMessage getMessage() {
+            return message;
+        }
+    }
 }
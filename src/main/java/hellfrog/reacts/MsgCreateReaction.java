@@ -18,9 +18,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
 
 public abstract class MsgCreateReaction
         implements MessageCreateListener, CommonConstants {
@@ -65,6 +66,17 @@ public abstract class MsgCreateReaction
 
     public abstract boolean canReact(MessageCreateEvent event);
 
+    /**
+     * Шаблоны срабатывания реакции: {@link #canReact(MessageCreateEvent)} может вернуть <code>true</code>
+     * только если хотя бы один из них найден в тексте сообщения. Используются общим предварительным
+     * фильтром сообщений {@link hellfrog.core.DispatchIndex}.
+     *
+     * @return шаблоны срабатывания. Пустой список - реакция проверяется для каждого сообщения
+     */
+    public List<Pattern> getTriggerPatterns() {
+        return Collections.emptyList();
+    }
+
     public boolean isAdminCommand() {
         return adminCommand;
     }
@@ -106,7 +118,9 @@ public abstract class MsgCreateReaction
         final User user = mayBeUser.orElse(null);
         final TextChannel textChannel = event.getChannel();
         final Instant messageCreateDate = event.getMessage().getCreationTimestamp();
-        CompletableFuture.runAsync(() -> parallelExecuteReact(strMessage, server, user, textChannel, messageCreateDate, sourceMessage));
+        SettingsController.getInstance()
+                .getEventsExecutor()
+                .executeBlocking(() -> parallelExecuteReact(strMessage, server, user, textChannel, messageCreateDate, sourceMessage));
     }
 
     abstract void parallelExecuteReact(String strMessage, @Nullable Server server,
@@ -48,6 +48,11 @@ public class QuoteReaction
                 || SIMPLE_SEARCH.matcher(message).find();
     }
 
+    @Override
+    public List<Pattern> getTriggerPatterns() {
+        return List.of(QUOTE_SEARCH, SIMPLE_SEARCH);
+    }
+
     @Override
     void parallelExecuteReact(String strMessage,
                               @Nullable Server server, @Nullable User user,
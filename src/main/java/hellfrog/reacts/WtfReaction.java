@@ -19,6 +19,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.Instant;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
@@ -56,6 +57,11 @@ public class WtfReaction
                 || SEARCH_ALL_PATTERN.matcher(message).find();
     }
 
+    @Override
+    public List<Pattern> getTriggerPatterns() {
+        return List.of(SEARCH_PATTERN, SEARCH_ALL_PATTERN);
+    }
+
     @Override
     void parallelExecuteReact(String strMessage,
                               @Nullable Server server,
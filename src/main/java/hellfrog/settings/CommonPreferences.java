@@ -1,16 +1,21 @@
 package hellfrog.settings;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.io.Serializable;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Общие настройки бота
  */
 @Deprecated
 public class CommonPreferences
-        implements Serializable {
+        implements Serializable, TrackedSettings {
 
+    @JsonIgnore
+    private final AtomicLong changesCount = new AtomicLong(0L);
     /**
      * Префикс по-умолчанию. Используется при прямом обращении к боту, либо если
      * в настройках для сервера не указано иное
@@ -51,6 +56,7 @@ public class CommonPreferences
     @Deprecated
     public void setCommonBotPrefix(String commonBotPrefix) {
         this.commonBotPrefix = commonBotPrefix;
+        markChanged();
     }
 
     @Deprecated
@@ -61,6 +67,7 @@ public class CommonPreferences
     @Deprecated
     public void setBotName(String botName) {
         this.botName = botName;
+        markChanged();
     }
 
     @Deprecated
@@ -71,12 +78,14 @@ public class CommonPreferences
     @Deprecated
     public void setGlobalBotOwners(List<Long> globalBotOwners) {
         this.globalBotOwners = new CopyOnWriteArrayList<>(globalBotOwners);
+        markChanged();
     }
 
     @Deprecated
     public boolean addGlobalBotOwner(long id) {
         if (id < 0 || globalBotOwners.contains(id)) return false;
         globalBotOwners.add(id);
+        markChanged();
         return true;
     }
 
@@ -84,6 +93,7 @@ public class CommonPreferences
     public boolean delGlobalBotOwner(long id) {
         if (id < 0 || !globalBotOwners.contains(id)) return false;
         globalBotOwners.remove(id);
+        markChanged();
         return true;
     }
 
@@ -95,6 +105,7 @@ public class CommonPreferences
     @Deprecated
     public void setApiKey(String apiKey) {
         this.apiKey = apiKey;
+        markChanged();
     }
 
     @Deprecated
@@ -105,6 +116,7 @@ public class CommonPreferences
     @Deprecated
     public void setEnableRemoteDebug(boolean enableRemoteDebug) {
         this.enableRemoteDebug = enableRemoteDebug;
+        markChanged();
     }
 
     @Deprecated
@@ -115,6 +127,7 @@ public class CommonPreferences
     @Deprecated
     public void setServerTransfer(Long serverTransfer) {
         this.serverTransfer = serverTransfer;
+        markChanged();
     }
 
     @Deprecated
@@ -125,5 +138,16 @@ public class CommonPreferences
     @Deprecated
     public void setServerTextChatTransfer(Long serverTextChatTransfer) {
         this.serverTextChatTransfer = serverTextChatTransfer;
+        markChanged();
+    }
+
+    @Override
+    public void markChanged() {
+        changesCount.incrementAndGet();
+    }
+
+    @Override
+    public long changesCount() {
+        return changesCount.get();
     }
 }
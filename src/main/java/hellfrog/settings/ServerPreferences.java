@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -13,8 +14,10 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 @Deprecated
 public class ServerPreferences
-        implements Serializable {
+        implements Serializable, TrackedSettings {
 
+    @JsonIgnore
+    private final AtomicLong changesCount = new AtomicLong(0L);
     @JsonIgnore
     private final ReentrantLock commandRightsGenLock = new ReentrantLock();
     /**
@@ -60,6 +63,7 @@ public class ServerPreferences
     @Deprecated
     public void setBotPrefix(String botPrefix) {
         this.botPrefix = botPrefix;
+        markChanged();
     }
 
     @Deprecated
@@ -70,6 +74,7 @@ public class ServerPreferences
     @Deprecated
     public void setSrvCommandRights(ConcurrentHashMap<String, CommandRights> commandRights) {
         this.srvCommandRights = new ConcurrentHashMap<>(commandRights);
+        markChanged();
     }
 
     @Deprecated
@@ -83,6 +88,7 @@ public class ServerPreferences
                 CommandRights commandRights = new CommandRights();
                 commandRights.setCommandPrefix(commandPrefix);
                 srvCommandRights.put(commandPrefix, commandRights);
+                markChanged();
             }
         } finally {
             commandRightsGenLock.unlock();
@@ -98,6 +104,7 @@ public class ServerPreferences
     @Deprecated
     public void setActiveVotes(List<ActiveVote> activeVotes) {
         this.activeVotes = new CopyOnWriteArrayList<>(activeVotes);
+        markChanged();
     }
 
     @Deprecated
@@ -108,6 +115,7 @@ public class ServerPreferences
     @Deprecated
     public void setJoinLeaveDisplay(boolean state) {
         this.joinLeaveDisplay = state;
+        markChanged();
     }
 
     @Deprecated
@@ -118,6 +126,7 @@ public class ServerPreferences
     @Deprecated
     public void setJoinLeaveChannel(long textChannelId) {
         this.joinLeaveChannel = textChannelId;
+        markChanged();
     }
 
     @Deprecated
@@ -128,6 +137,7 @@ public class ServerPreferences
     @Deprecated
     public void setNewAclMode(boolean newAclMode) {
         this.newAclMode = newAclMode;
+        markChanged();
     }
 
     @Deprecated
@@ -138,6 +148,7 @@ public class ServerPreferences
     @Deprecated
     public void setAutoPromoteEnabled(Boolean autoPromoteEnabled) {
         this.autoPromoteEnabled = autoPromoteEnabled != null ? autoPromoteEnabled : false;
+        markChanged();
     }
 
     @Deprecated
@@ -148,6 +159,7 @@ public class ServerPreferences
     @Deprecated
     public void setAutoPromoteRoleId(Long autoPromoteRoleId) {
         this.autoPromoteRoleId = autoPromoteRoleId;
+        markChanged();
     }
 
     @Deprecated
@@ -160,6 +172,7 @@ public class ServerPreferences
     public void setAutoPromoteTimeout(Long autoPromoteTimeout) {
         this.autoPromoteTimeout = autoPromoteTimeout != null && autoPromoteTimeout >= 0L
                 ? autoPromoteTimeout : 0L;
+        markChanged();
     }
 
     @Deprecated
@@ -171,6 +184,7 @@ public class ServerPreferences
     public void setCommunityControlUsers(List<Long> communityControlUsers) {
         this.communityControlUsers = communityControlUsers != null ?
                 new CopyOnWriteArrayList<>(communityControlUsers) : new CopyOnWriteArrayList<>();
+        markChanged();
     }
 
     @Deprecated
@@ -182,6 +196,7 @@ public class ServerPreferences
     public void setCommunityControlThreshold(Long communityControlThreshold) {
         this.communityControlThreshold = communityControlThreshold != null ?
                 communityControlThreshold : 0L;
+        markChanged();
     }
 
     @Deprecated
@@ -193,6 +208,7 @@ public class ServerPreferences
     public void setCommunityControlRoleId(Long communityControlRoleId) {
         this.communityControlRoleId = communityControlRoleId != null ?
                 communityControlRoleId : 0L;
+        markChanged();
     }
 
     @Deprecated
@@ -205,6 +221,7 @@ public class ServerPreferences
     public void setCommunityControlCustomEmojiId(Long communityControlCustomEmojiId) {
         this.communityControlCustomEmojiId = communityControlCustomEmojiId != null ?
                 communityControlCustomEmojiId : 0L;
+        markChanged();
     }
 
     @Deprecated
@@ -215,6 +232,7 @@ public class ServerPreferences
     @Deprecated
     public void setCommunityControlEmoji(String communityControlEmoji) {
         this.communityControlEmoji = communityControlEmoji;
+        markChanged();
     }
 
     @Deprecated
@@ -225,6 +243,7 @@ public class ServerPreferences
     @Deprecated
     public void setWtfMapper(ConcurrentHashMap<Long, WtfMap> wtfMapper) {
         this.wtfMapper = wtfMapper != null ? wtfMapper : new ConcurrentHashMap<>();
+        markChanged();
     }
 
     @Deprecated
@@ -235,6 +254,7 @@ public class ServerPreferences
     @Deprecated
     public void setCongratulationChannel(Long congratulationChannel) {
         this.congratulationChannel = congratulationChannel;
+        markChanged();
     }
 
     @Deprecated
@@ -245,5 +265,16 @@ public class ServerPreferences
     @Deprecated
     public void setTimezone(String timezone) {
         this.timezone = timezone;
+        markChanged();
+    }
+
+    @Override
+    public void markChanged() {
+        changesCount.incrementAndGet();
+    }
+
+    @Override
+    public long changesCount() {
+        return changesCount.get();
     }
 }
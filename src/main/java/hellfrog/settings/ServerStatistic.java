@@ -14,11 +14,15 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 @Deprecated
-public class ServerStatistic {
+public class ServerStatistic
+        implements TrackedSettings {
 
+    @JsonIgnore
+    private final AtomicLong changesCount = new AtomicLong(0L);
     @JsonIgnore
     private final ReentrantLock createSmileStatLock = new ReentrantLock();
     @JsonIgnore
@@ -52,6 +56,7 @@ public class ServerStatistic {
     @Deprecated
     public void setStartDate(Long startDate) {
         this.startDate = startDate != null ? startDate : 0L;
+        markChanged();
     }
 
     @Deprecated
@@ -62,6 +67,7 @@ public class ServerStatistic {
     @Deprecated
     public void setCollectNonDefaultSmileStats(boolean collectNonDefaultSmileStats) {
         this.collectNonDefaultSmileStats = collectNonDefaultSmileStats;
+        markChanged();
     }
 
     @Deprecated
@@ -72,6 +78,7 @@ public class ServerStatistic {
     @Deprecated
     public void setNonDefaultSmileStats(ConcurrentHashMap<Long, SmileStatistic> nonDefaultSmileStats) {
         this.nonDefaultSmileStats = nonDefaultSmileStats;
+        markChanged();
     }
 
     @Deprecated
@@ -82,6 +89,7 @@ public class ServerStatistic {
     @Deprecated
     public void setUserMessagesStats(ConcurrentHashMap<Long, MessageStatistic> userMessagesStats) {
         this.userMessagesStats = userMessagesStats;
+        markChanged();
     }
 
     @Deprecated
@@ -92,6 +100,7 @@ public class ServerStatistic {
     @Deprecated
     public void setTextChatStats(ConcurrentHashMap<Long, MessageStatistic> textChatStats) {
         this.textChatStats = textChatStats;
+        markChanged();
     }
 
     @Deprecated
@@ -105,6 +114,7 @@ public class ServerStatistic {
                 if (!nonDefaultSmileStats.containsKey(emojiId)) {
                     SmileStatistic smileStatistic = new SmileStatistic();
                     nonDefaultSmileStats.put(emojiId, smileStatistic);
+                    markChanged();
                 }
                 return nonDefaultSmileStats.get(emojiId);
             } finally {
@@ -144,6 +154,7 @@ public class ServerStatistic {
                     messageStatistic.setEntityId(entityId);
                     messageStatistic.setLastKnownName(entityName);
                     statsMap.put(entityId, messageStatistic);
+                    markChanged();
                 }
                 return statsMap.get(entityId);
             } finally {
@@ -160,6 +171,7 @@ public class ServerStatistic {
             userMessagesStats.clear();
         if (textChatStats != null)
             textChatStats.clear();
+        markChanged();
     }
 
     @Deprecated
@@ -247,4 +259,14 @@ public class ServerStatistic {
 
         return result;
     }
+
+    @Override
+    public void markChanged() {
+        changesCount.incrementAndGet();
+    }
+
+    @Override
+    public long changesCount() {
+        return changesCount.get();
+    }
 }
@@ -3,8 +3,12 @@ package hellfrog.settings;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import hellfrog.common.CommonUtils;
+import hellfrog.common.GptOrchestrator;
 import hellfrog.common.HttpClientsPool;
+import hellfrog.common.ResponseCache;
+import hellfrog.common.SchedulerService;
 import hellfrog.core.*;
+import hellfrog.settings.db.CommonPreferencesDAO;
 import hellfrog.settings.db.InstanceType;
 import hellfrog.settings.db.MainDBController;
 import org.apache.logging.log4j.LogManager;
@@ -21,13 +25,19 @@ import java.nio.file.*;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class SettingsController {
+public class SettingsController
+        implements EventsContext {
 
     private static final Logger log = LogManager.getLogger("Settings controller");
+    private static final int SCHEDULER_POOL_SIZE = 4;
+    private static final int RESPONSE_CACHE_THREADS = 4;
+    private static final int RESPONSE_CACHE_QUEUE_CAPACITY = 64;
     private final Path SETTINGS_PATH = Paths.get("./settings/");
 
     private final String COMMON_SETTINGS_FILE_NAME = "common.json";
@@ -39,14 +49,15 @@ public class SettingsController {
     private final ConcurrentHashMap<Long, ServerStatistic> statByServer = new ConcurrentHashMap<>();
 
     private final ReentrantLock serverPrefCreateLock = new ReentrantLock();
-    private final ReentrantLock serverPrefSaveLock = new ReentrantLock();
-    private final ReentrantLock commonPrefSaveLock = new ReentrantLock();
     private final ReentrantLock serverStatCreateLock = new ReentrantLock();
-    private final ReentrantLock serverStatSaveLock = new ReentrantLock();
 
     private final VoteController voteController;
+    private final VoteTallyService voteTallyService;
+    private final CommunityControlLedger communityControlLedger;
+    private final MessageCacheService messageCacheService;
     private final InvitesController invitesController;
     private final HttpClientsPool httpClientsPool;
+    private final GptOrchestrator gptOrchestrator;
     private final AutoSaveSettingsTask autoSaveSettingsTask;
     private final SessionsCheckTask sessionsCheckTask;
     private final CongratulationsController congratulationsController;
@@ -56,9 +67,16 @@ public class SettingsController {
     private final AccessControlService accessControlService;
     private final AutoPromoteService autoPromoteService;
     private final StatisticService statisticService;
+    private final MediaIndexService mediaIndexService;
     private final OutageDetector outageDetector;
+    private final EventsExecutor eventsExecutor;
+    private final SchedulerService schedulerService;
+    private final ExecutorService responseCacheExecutor;
+    private final SettingsWriter settingsWriter;
+    private final List<String> startupReport;
 
     private final MessagesForwarder messagesForwarder = new MessagesForwarder();
+    private final DispatchMetrics dispatchMetrics = new DispatchMetrics();
 
     private CommonPreferences commonPreferences = new CommonPreferences();
     private DiscordApi discordApi = null;
@@ -69,39 +87,91 @@ public class SettingsController {
 
     private SettingsController() {
 
+        // БД, устаревшие json-настройки и сетевые клиенты не зависят друг от друга и загружаются одновременно.
+        // Действия в потоках инициализации не должны обращаться к статическим членам этого класса:
+        // он ещё инициализируется в текущем потоке, и обращение заблокирует поток инициализации навсегда.
+        // Поэтому там используются только анонимные классы и ссылки на методы других классов,
+        // а json-настройки загружаются в текущем потоке
+        schedulerService = new SchedulerService(SCHEDULER_POOL_SIZE);
+        responseCacheExecutor = ResponseCache.createLoadersExecutor(RESPONSE_CACHE_THREADS,
+                RESPONSE_CACHE_QUEUE_CAPACITY);
+        settingsWriter = new SettingsWriter(SETTINGS_PATH, buildMapper().writer(), schedulerService.getExecutor());
+        Bootstrap bootstrap = new Bootstrap("settings");
+        Bootstrap.Phase<MainDBController> database = bootstrap.phase(InstanceType.PROD + " database",
+                new Callable<>() {
+                    @Override
+                    public MainDBController call() throws Exception {
+                        return MainDBController.getInstance(InstanceType.PROD);
+                    }
+                });
+        Bootstrap.Phase<HttpClientsPool> httpPool = bootstrap.phase("http clients pool",
+                new Callable<>() {
+                    @Override
+                    public HttpClientsPool call() {
+                        return new HttpClientsPool(schedulerService);
+                    }
+                });
+        Bootstrap.Phase<GptOrchestrator> gpt = bootstrap.phase("gpt orchestrator",
+                new Callable<>() {
+                    @Override
+                    public GptOrchestrator call() {
+                        return GptOrchestrator.createDefault(schedulerService);
+                    }
+                });
         try {
-            mainDBController = MainDBController.getInstance(InstanceType.PROD);
-        } catch (Exception err) {
-            String errMsg = String.format("Unable to start %s database: %s", InstanceType.PROD, err.getMessage());
+            bootstrap.run("json settings", () -> {
+                loadCommonSettings();
+                loadServersSettings();
+                return null;
+            });
+            bootstrap.await();
+        } catch (BootstrapException err) {
+            String errMsg = String.format("Unable to start settings controller: %s", err.getMessage());
             log.fatal(errMsg, err);
             System.exit(2);
         }
-
-        loadCommonSettings();
-        loadServersSettings();
-
-        httpClientsPool = new HttpClientsPool();
-        voteController = new VoteController();
-        invitesController = new InvitesController();
-        autoSaveSettingsTask = new AutoSaveSettingsTask();
-        sessionsCheckTask = new SessionsCheckTask();
-        congratulationsController = new CongratulationsController();
-        serviceLogsNotificator = new ServiceLogsNotificator();
-        autoBackupService = new AutoBackupService();
-        nameCacheService = new NameCacheService(this, mainDBController.getEntityNameCacheDAO());
+        mainDBController = database.join();
+        httpClientsPool = httpPool.join();
+        gptOrchestrator = gpt.join();
+        startupReport = bootstrap.describe();
+
+        CommonPreferencesDAO commonPreferencesDAO = mainDBController.getCommonPreferencesDAO();
+        eventsExecutor = new EventsExecutor(
+                (int) Math.max(1L, commonPreferencesDAO.getEventsLanes()),
+                (int) Math.max(1L, commonPreferencesDAO.getEventsQueueCapacity()),
+                (int) Math.max(1L, commonPreferencesDAO.getEventsIoThreads()),
+                EventsExecutor.OverflowPolicy.parse(commonPreferencesDAO.getEventsLowPriorityOverflow(),
+                        EventsExecutor.OverflowPolicy.BLOCK));
+
+        voteTallyService = new VoteTallyService(mainDBController.getVotesDAO());
+        voteController = new VoteController(schedulerService);
+        communityControlLedger = new CommunityControlLedger(mainDBController.getCommunityControlDAO(),
+                eventsExecutor);
+        messageCacheService = new MessageCacheService();
+        invitesController = new InvitesController(schedulerService);
+        autoSaveSettingsTask = new AutoSaveSettingsTask(schedulerService);
+        sessionsCheckTask = new SessionsCheckTask(schedulerService);
+        congratulationsController = new CongratulationsController(mainDBController.getServerPreferencesDAO(),
+                schedulerService);
+        serviceLogsNotificator = new ServiceLogsNotificator(schedulerService);
+        autoBackupService = new AutoBackupService(schedulerService);
+        nameCacheService = new NameCacheService(this, mainDBController.getEntityNameCacheDAO(), schedulerService);
         accessControlService = new AccessControlService(mainDBController, nameCacheService);
 
         autoPromoteService = new AutoPromoteService(mainDBController.getAutoPromoteRolesDAO(),
                 mainDBController.getRoleAssignDAO(),
-                mainDBController.getServerPreferencesDAO());
+                mainDBController.getServerPreferencesDAO(),
+                schedulerService);
 
         statisticService = new StatisticService(mainDBController.getTotalStatisticDAO(),
                 mainDBController.getServerPreferencesDAO(), nameCacheService);
 
+        mediaIndexService = new MediaIndexService(mainDBController.getMediaUrlsDAO());
+
         Runtime.getRuntime().addShutdownHook(new Thread(() ->
                 SettingsController.getInstance().mainDBController.close()));
 
-        outageDetector = new OutageDetector();
+        outageDetector = new OutageDetector(schedulerService);
     }
 
     @Contract(pure = true)
@@ -116,9 +186,17 @@ public class SettingsController {
 
     public void shutdown() {
 
+        // дожидается выполнения поставленных в очереди обработчиков событий и обновлений статистики,
+        // пока используемые ими службы ещё работают
+        eventsExecutor.stop();
+        // отменяет все периодические задачи и дожидается завершения выполняющихся
+        schedulerService.stop();
         autoBackupService.stop();
         httpClientsPool.stop();
+        gptOrchestrator.stop();
+        responseCacheExecutor.shutdown();
         voteController.stop();
+        voteTallyService.stop();
         congratulationsController.stop();
         invitesController.stop();
         autoSaveSettingsTask.stop();
@@ -127,9 +205,7 @@ public class SettingsController {
         autoPromoteService.stop();
         nameCacheService.stop();
 
-        getServerListWithStatistic().forEach(this::saveServerSideStatistic);
-        getServerListWithConfig().forEach(this::saveServerSideParameters);
-        saveCommonPreferences();
+        settingsWriter.flush(true);
 
         if (discordApi != null) {
             discordApi.disconnect();
@@ -170,6 +246,8 @@ public class SettingsController {
 
         try (BufferedReader reader = Files.newBufferedReader(COMMON_SETTINGS)) {
             commonPreferences = objectMapper.readValue(reader, CommonPreferences.class);
+            // исправления значений по-умолчанию ниже отмечаются как изменения и будут записаны
+            settingsWriter.track(COMMON_SETTINGS_FILE_NAME, commonPreferences, true);
         } catch (IOException err) {
             System.err.println("Unable to read common preferences from file " + COMMON_SETTINGS + ": " + err);
             System.exit(2);
@@ -212,6 +290,7 @@ public class SettingsController {
 
                     long serverId = Long.parseLong(serverIdRaw);
                     ServerPreferences serverPreferences = objectMapper.readValue(reader, ServerPreferences.class);
+                    settingsWriter.track(serverId + SERVER_SETTINGS_FILES_SUFFIX, serverPreferences, true);
 
                     if (CommonUtils.isTrStringEmpty(serverPreferences.getBotPrefix()))
                         serverPreferences.setBotPrefix(commonPreferences.getCommonBotPrefix());
@@ -247,6 +326,7 @@ public class SettingsController {
                 }
                 try (BufferedReader bfReader = Files.newBufferedReader(entry, StandardCharsets.UTF_8)) {
                     ServerStatistic stat = objectMapper.readValue(bfReader, ServerStatistic.class);
+                    settingsWriter.track(serverId + SERVER_STATISTICS_FILES_SUFFIX, stat, true);
                     if (stat.getNonDefaultSmileStats() == null) {
                         stat.setNonDefaultSmileStats(new ConcurrentHashMap<>());
                     }
@@ -341,6 +421,7 @@ public class SettingsController {
                 if (!prefByServer.containsKey(serverId)) {
                     ServerPreferences serverPreferences = new ServerPreferences();
                     serverPreferences.setBotPrefix(commonPreferences.getCommonBotPrefix());
+                    settingsWriter.track(serverId + SERVER_SETTINGS_FILES_SUFFIX, serverPreferences, false);
                     prefByServer.put(serverId, serverPreferences);
                 }
             } finally {
@@ -357,6 +438,7 @@ public class SettingsController {
             try {
                 if (!statByServer.containsKey(serverId)) {
                     ServerStatistic serverStatistic = new ServerStatistic();
+                    settingsWriter.track(serverId + SERVER_STATISTICS_FILES_SUFFIX, serverStatistic, false);
                     statByServer.put(serverId, serverStatistic);
                 }
             } finally {
@@ -376,73 +458,43 @@ public class SettingsController {
         return new ArrayList<>(prefByServer.keySet());
     }
 
+    /**
+     * Отметить изменение настроек сервера и запросить их запись
+     */
     @Deprecated
     public void saveServerSideParameters(long serverId) {
-        String fileName = serverId + SERVER_SETTINGS_FILES_SUFFIX;
-        ServerPreferences toSave = getServerPreferences(serverId);
-        serverPrefSaveLock.lock();
-        try {
-            saveWithReplace(toSave, fileName);
-        } finally {
-            serverPrefSaveLock.unlock();
-        }
+        getServerPreferences(serverId).markChanged();
+        settingsWriter.requestFlush();
     }
 
     @Deprecated
     public void saveServerSideStatistic(long serverId) {
-        String fileName = serverId + SERVER_STATISTICS_FILES_SUFFIX;
-        ServerStatistic toSave = getServerStatistic(serverId);
-        serverStatSaveLock.lock();
-        try {
-            saveWithReplace(toSave, fileName);
-        } finally {
-            serverStatSaveLock.unlock();
-        }
+        getServerStatistic(serverId).markChanged();
+        settingsWriter.requestFlush();
     }
 
     @Deprecated
     public void saveCommonPreferences() {
-        commonPrefSaveLock.lock();
-        try {
-            saveWithReplace(commonPreferences, COMMON_SETTINGS_FILE_NAME);
-        } finally {
-            commonPrefSaveLock.unlock();
-        }
-    }
-
-    @Deprecated
-    private void saveWithReplace(@NotNull Object value,
-                                 @NotNull String fileName) {
-        String tempFileName = fileName + ".tmp";
-        Path tempFile = SETTINGS_PATH.resolve(tempFileName);
-        Path configFile = SETTINGS_PATH.resolve(fileName);
-        ObjectMapper objectMapper = buildMapper();
-        try (BufferedWriter bufferedWriter = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
-            objectMapper.writeValue(bufferedWriter, value);
-        } catch (IOException err) {
-            String errMsg = String.format("Unable to save temp file \"%s\": %s",
-                    tempFile, err.getMessage());
-            log.error(errMsg, err);
-            return;
-        }
-        try {
-            Files.move(tempFile, configFile, StandardCopyOption.REPLACE_EXISTING,
-                    StandardCopyOption.ATOMIC_MOVE);
-        } catch (IOException first) {
-            try {
-                Files.move(tempFile, configFile, StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException err) {
-                String errMsg = String.format("Unable to replace old settings file \"%s\" by temp file \"%s\": %s",
-                        configFile, tempFile, err.getMessage());
-                log.error(errMsg, err);
-            }
-        }
+        commonPreferences.markChanged();
+        settingsWriter.requestFlush();
     }
 
     public VoteController getVoteController() {
         return voteController;
     }
 
+    public VoteTallyService getVoteTallyService() {
+        return voteTallyService;
+    }
+
+    public CommunityControlLedger getCommunityControlLedger() {
+        return communityControlLedger;
+    }
+
+    public MessageCacheService getMessageCacheService() {
+        return messageCacheService;
+    }
+
     public InvitesController getInvitesController() {
         return invitesController;
     }
@@ -513,10 +565,29 @@ public class SettingsController {
         return this.mainDBController;
     }
 
+    public SchedulerService getSchedulerService() {
+        return schedulerService;
+    }
+
+    public SettingsWriter getSettingsWriter() {
+        return settingsWriter;
+    }
+
     public HttpClientsPool getHttpClientsPool() {
         return httpClientsPool;
     }
 
+    public GptOrchestrator getGptOrchestrator() {
+        return gptOrchestrator;
+    }
+
+    /**
+     * Пул загрузок кэшей ответов внешних сервисов ({@link ResponseCache})
+     */
+    public ExecutorService getResponseCacheExecutor() {
+        return responseCacheExecutor;
+    }
+
     public ServiceLogsNotificator getServiceLogsNotificator() {
         return serviceLogsNotificator;
     }
@@ -533,6 +604,14 @@ public class SettingsController {
         return nameCacheService;
     }
 
+    public DispatchMetrics getDispatchMetrics() {
+        return dispatchMetrics;
+    }
+
+    public EventsExecutor getEventsExecutor() {
+        return eventsExecutor;
+    }
+
     public AccessControlService getAccessControlService() {
         return accessControlService;
     }
@@ -541,7 +620,15 @@ public class SettingsController {
         return statisticService;
     }
 
+    public MediaIndexService getMediaIndexService() {
+        return mediaIndexService;
+    }
+
     public MessagesForwarder getMessagesForwarder() {
         return messagesForwarder;
     }
+
+    public List<String> getStartupReport() {
+        return startupReport;
+    }
 }
@@ -0,0 +1,369 @@
+package hellfrog.settings;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Запись устаревших json-настроек в файлы.
+ * <p>
+ * Записываются только изменённые настройки ({@link TrackedSettings}). Запросы на сохранение
+ * объединяются: запись выполняется один раз через {@link #COALESCE_DELAY_MILLIS} мс после первого запроса.
+ * Все изменённые файлы записываются одним пакетом: сначала во временные файлы, затем данные
+ * сбрасываются на диск, временные файлы заменяют основные и каталог сбрасывается на диск один раз на пакет.
+ * Файл не перезаписывается, если его содержимое не изменилось. Собирается статистика записанных байт по минутам
+ */
+public class SettingsWriter {
+
+    static final long COALESCE_DELAY_MILLIS = 1000L;
+    private static final int METRICS_MINUTES = 15;
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    private final Logger log = LogManager.getLogger("Settings writer");
+    private final Path settingsPath;
+    private final ObjectWriter objectWriter;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder filesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder unchangedSkipped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final long[] minuteBytes = new long[METRICS_MINUTES];
+    private final long[] minuteStamps = new long[METRICS_MINUTES];
+
+    /**
+     * @param settingsPath каталог файлов настроек
+     * @param objectWriter сериализатор, используется для всех записей
+     * @param executor     пул для отложенной записи
+     */
+    public SettingsWriter(@NotNull final Path settingsPath,
+                          @NotNull final ObjectWriter objectWriter,
+                          @NotNull final ScheduledExecutorService executor) {
+        this.settingsPath = settingsPath;
+        this.objectWriter = objectWriter;
+        this.executor = executor;
+    }
+
+    /**
+     * Отслеживать изменения настроек
+     *
+     * @param fileName имя файла настроек в каталоге настроек
+     * @param settings настройки
+     * @param saved    файл уже содержит текущее состояние настроек (настройки прочитаны из него)
+     */
+    public void track(@NotNull final String fileName,
+                      @NotNull final TrackedSettings settings,
+                      final boolean saved) {
+        final Tracked entry = new Tracked(fileName, settings);
+        if (saved) {
+            entry.savedChanges = settings.changesCount();
+            try {
+                byte[] content = objectWriter.writeValueAsBytes(settings);
+                entry.savedChecksum = checksum(content);
+                entry.savedLength = content.length;
+            } catch (JsonProcessingException err) {
+                String errMsg = String.format("Unable to serialize settings \"%s\": %s",
+                        fileName, err.getMessage());
+                log.error(errMsg, err);
+            }
+        }
+        tracked.put(fileName, entry);
+    }
+
+    /**
+     * Запросить запись изменённых настроек. Запросы, поступившие до начала записи, объединяются
+     */
+    public void requestFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.schedule(this::scheduledFlush, COALESCE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException err) {
+            // планировщик остановлен, изменения будут записаны при завершении работы
+            flushScheduled.set(false);
+        }
+    }
+
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        flush(false);
+    }
+
+    /**
+     * Записать изменённые настройки
+     *
+     * @param verifyAll также проверить настройки без отмеченных изменений: они записываются,
+     *                  если их содержимое отличается от записанного ранее
+     * @return количество записанных файлов
+     */
+    public int flush(final boolean verifyAll) {
+        flushLock.lock();
+        try {
+            List<Pending> batch = new ArrayList<>();
+            for (Tracked entry : tracked.values()) {
+                // счётчик читается до сериализации: изменение во время сериализации будет записано следующим пакетом
+                final long changes = entry.settings.changesCount();
+                if (!verifyAll && changes == entry.savedChanges) {
+                    continue;
+                }
+                final byte[] content;
+                try {
+                    content = objectWriter.writeValueAsBytes(entry.settings);
+                } catch (JsonProcessingException err) {
+                    failures.increment();
+                    String errMsg = String.format("Unable to serialize settings \"%s\": %s",
+                            entry.fileName, err.getMessage());
+                    log.error(errMsg, err);
+                    continue;
+                }
+                final long checksum = checksum(content);
+                if (entry.savedLength == content.length && entry.savedChecksum == checksum) {
+                    if (changes != entry.savedChanges) {
+                        entry.savedChanges = changes;
+                        unchangedSkipped.increment();
+                    }
+                    continue;
+                }
+                batch.add(new Pending(entry, changes, content, checksum));
+            }
+            if (!batch.isEmpty()) {
+                flushes.increment();
+                return writeBatch(batch);
+            }
+            return 0;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int writeBatch(@NotNull final List<Pending> batch) {
+        List<Pending> synced = new ArrayList<>(batch.size());
+        List<FileChannel> channels = new ArrayList<>(batch.size());
+        try {
+            for (Pending pending : batch) {
+                try {
+                    FileChannel channel = FileChannel.open(pending.tempFile, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    channels.add(channel);
+                    ByteBuffer buffer = ByteBuffer.wrap(pending.content);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    pending.channel = channel;
+                } catch (IOException err) {
+                    onWriteError(pending, err);
+                }
+            }
+            // данные всех временных файлов сбрасываются на диск после записи последнего из них
+            for (Pending pending : batch) {
+                if (pending.channel == null) {
+                    continue;
+                }
+                try {
+                    pending.channel.force(false);
+                    synced.add(pending);
+                } catch (IOException err) {
+                    onWriteError(pending, err);
+                }
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        int written = 0;
+        long batchBytes = 0L;
+        for (Pending pending : synced) {
+            if (replace(pending)) {
+                pending.entry.savedChanges = pending.changes;
+                pending.entry.savedChecksum = pending.checksum;
+                pending.entry.savedLength = pending.content.length;
+                batchBytes += pending.content.length;
+                written++;
+            }
+        }
+        if (written > 0) {
+            syncDirectory();
+            filesWritten.add(written);
+            bytesWritten.add(batchBytes);
+            countMinuteBytes(batchBytes);
+        }
+        return written;
+    }
+
+    private boolean replace(@NotNull final Pending pending) {
+        try {
+            Files.move(pending.tempFile, pending.configFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException first) {
+            try {
+                Files.move(pending.tempFile, pending.configFile, StandardCopyOption.REPLACE_EXISTING);
+                return true;
+            } catch (IOException err) {
+                failures.increment();
+                String errMsg = String.format("Unable to replace old settings file \"%s\" by temp file \"%s\": %s",
+                        pending.configFile, pending.tempFile, err.getMessage());
+                log.error(errMsg, err);
+                return false;
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        try (FileChannel directory = FileChannel.open(settingsPath, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException err) {
+            // не все файловые системы позволяют открыть каталог, замена файлов уже выполнена
+            log.debug("Unable to sync settings directory {}: {}", settingsPath, err.getMessage());
+        }
+    }
+
+    private void onWriteError(@NotNull final Pending pending, @NotNull final IOException err) {
+        failures.increment();
+        pending.channel = null;
+        String errMsg = String.format("Unable to save temp file \"%s\": %s",
+                pending.tempFile, err.getMessage());
+        log.error(errMsg, err);
+    }
+
+    private void countMinuteBytes(final long bytes) {
+        final long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+        final int slot = (int) (minute % METRICS_MINUTES);
+        synchronized (minuteBytes) {
+            if (minuteStamps[slot] != minute) {
+                minuteStamps[slot] = minute;
+                minuteBytes[slot] = 0L;
+            }
+            minuteBytes[slot] += bytes;
+        }
+    }
+
+    /**
+     * @return количество байт, записанных в текущую минуту
+     */
+    public long getBytesThisMinute() {
+        final long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+        final int slot = (int) (minute % METRICS_MINUTES);
+        synchronized (minuteBytes) {
+            return minuteStamps[slot] == minute ? minuteBytes[slot] : 0L;
+        }
+    }
+
+    /**
+     * @return среднее количество байт в минуту за последние {@link #METRICS_MINUTES} минут, включая текущую
+     */
+    public long getAverageBytesPerMinute() {
+        final long minute = System.currentTimeMillis() / MINUTE_MILLIS;
+        long total = 0L;
+        synchronized (minuteBytes) {
+            for (int i = 0; i < METRICS_MINUTES; i++) {
+                if (minute - minuteStamps[i] < METRICS_MINUTES) {
+                    total += minuteBytes[i];
+                }
+            }
+        }
+        return total / METRICS_MINUTES;
+    }
+
+    long getFilesWritten() {
+        return filesWritten.sum();
+    }
+
+    long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    long getUnchangedSkipped() {
+        return unchangedSkipped.sum();
+    }
+
+    /**
+     * Статистика записи: количество файлов, записанные байты, байты в минуту
+     */
+    public List<String> describe() {
+        long dirty = tracked.values().stream()
+                .filter(entry -> entry.settings.changesCount() != entry.savedChanges)
+                .count();
+        return List.of(
+                String.format("Settings files: %d tracked, %d changed, flush %s",
+                        tracked.size(), dirty, flushScheduled.get() ? "scheduled" : "idle"),
+                String.format("Written %d files, %d bytes in %d batches, skipped unchanged %d, failed %d",
+                        filesWritten.sum(), bytesWritten.sum(), flushes.sum(), unchangedSkipped.sum(),
+                        failures.sum()),
+                String.format("Bytes per minute: %d this minute, %d average for last %d minutes",
+                        getBytesThisMinute(), getAverageBytesPerMinute(), METRICS_MINUTES));
+    }
+
+    private static long checksum(@NotNull final byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static class Tracked {
+
+        private final String fileName;
+        private final TrackedSettings settings;
+        private volatile long savedChanges = -1L;
+        private volatile long savedChecksum = -1L;
+        private volatile int savedLength = -1;
+
+        private Tracked(@NotNull final String fileName,
+                        @NotNull final TrackedSettings settings) {
+            this.fileName = fileName;
+            this.settings = settings;
+        }
+    }
+
+    private class Pending {
+
+        private final Tracked entry;
+        private final long changes;
+        private final byte[] content;
+        private final long checksum;
+        private final Path tempFile;
+        private final Path configFile;
+        private FileChannel channel = null;
+
+        private Pending(@NotNull final Tracked entry,
+                        final long changes,
+                        @NotNull final byte[] content,
+                        final long checksum) {
+            this.entry = entry;
+            this.changes = changes;
+            this.content = content;
+            this.checksum = checksum;
+            this.tempFile = settingsPath.resolve(entry.fileName + ".tmp");
+            this.configFile = settingsPath.resolve(entry.fileName);
+        }
+    }
+}
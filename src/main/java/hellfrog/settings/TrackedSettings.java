@@ -0,0 +1,20 @@
+package hellfrog.settings;
+
+/**
+ * Настройки, сохраняемые в json-файл только после изменения.
+ * <p>
+ * Каждое изменение увеличивает счётчик изменений, {@link SettingsWriter} записывает файл,
+ * если счётчик отличается от значения на момент последней записи
+ */
+public interface TrackedSettings {
+
+    /**
+     * Отметить изменение настроек. Вызывается после изменения значения
+     */
+    void markChanged();
+
+    /**
+     * @return количество изменений с момента создания объекта
+     */
+    long changesCount();
+}
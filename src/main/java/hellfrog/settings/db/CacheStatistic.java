@@ -0,0 +1,48 @@
+package hellfrog.settings.db;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики попаданий и промахов in-memory кэша
+ */
+public class CacheStatistic {
+
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CacheStatistic(@NotNull final String name) {
+        this.name = name;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        long hitsCount = getHits();
+        long missesCount = getMisses();
+        long total = hitsCount + missesCount;
+        double ratio = total > 0L ? (hitsCount * 100.0D / total) : 0.0D;
+        return String.format("%s: hits %d, misses %d (%.1f%% hit ratio)", name, hitsCount, missesCount, ratio);
+    }
+}
@@ -49,6 +49,15 @@ public interface CommonPreferencesDAO {
     String FUN_BONK_CHANNEL_KEY = "bot.fun.bonk.channel";
     String FUN_SPANK_CHANNEL_KEY = "bot.fun.spank.channel";
 
+    long EVENTS_LANES_DEFAULT = 4L;
+    long EVENTS_QUEUE_CAPACITY_DEFAULT = 1000L;
+    String EVENTS_LOW_PRIORITY_OVERFLOW_DEFAULT = "block";
+    long EVENTS_IO_THREADS_DEFAULT = 8L;
+    String EVENTS_LANES_KEY = "bot.events.lanes";
+    String EVENTS_QUEUE_CAPACITY_KEY = "bot.events.queue.capacity";
+    String EVENTS_LOW_PRIORITY_OVERFLOW_KEY = "bot.events.low.overflow";
+    String EVENTS_IO_THREADS_KEY = "bot.events.io.threads";
+
     String getApiKey();
 
     String setApiKey(@NotNull String newApiKey);
@@ -124,4 +133,20 @@ public interface CommonPreferencesDAO {
     long getFunSpankChannel();
 
     long setFunSpankChannel(long newFunSpankChannelId);
+
+    long getEventsLanes();
+
+    long setEventsLanes(long newEventsLanes);
+
+    long getEventsQueueCapacity();
+
+    long setEventsQueueCapacity(long newEventsQueueCapacity);
+
+    String getEventsLowPriorityOverflow();
+
+    String setEventsLowPriorityOverflow(@NotNull String newEventsLowPriorityOverflow);
+
+    long getEventsIoThreads();
+
+    long setEventsIoThreads(long newEventsIoThreads);
 }
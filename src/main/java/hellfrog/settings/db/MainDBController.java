@@ -10,6 +10,7 @@ import org.jetbrains.annotations.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.List;
 
 public abstract class MainDBController implements Closeable, AutoCloseable {
 
@@ -53,6 +54,15 @@ public abstract class MainDBController implements Closeable, AutoCloseable {
 
     public abstract CommunityControlDAO getCommunityControlDAO();
 
+    public abstract MediaUrlsDAO getMediaUrlsDAO();
+
+    public abstract List<CacheStatistic> getCacheStatistics();
+
+    /**
+     * Количество транзакций, открытых с момента запуска
+     */
+    public abstract long getTransactionsCount();
+
     public abstract byte[] generateDDL();
 
     public abstract void createBackup();
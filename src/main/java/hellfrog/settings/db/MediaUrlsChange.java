@@ -0,0 +1,45 @@
+package hellfrog.settings.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Change of the channel URLs caused by a single message: URLs that appeared in the channel
+ * and URLs that are no longer used by any message of the channel
+ */
+public class MediaUrlsChange {
+
+    public static final MediaUrlsChange NONE = new MediaUrlsChange(List.of(), List.of());
+
+    private final List<String> added;
+    private final List<String> removed;
+
+    public MediaUrlsChange(@NotNull final Collection<String> added, @NotNull final Collection<String> removed) {
+        this.added = List.copyOf(added);
+        this.removed = List.copyOf(removed);
+    }
+
+    @NotNull
+    @UnmodifiableView
+    public List<String> getAdded() {
+        return added;
+    }
+
+    @NotNull
+    @UnmodifiableView
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MediaUrlsChange{added=" + added + ", removed=" + removed + '}';
+    }
+}
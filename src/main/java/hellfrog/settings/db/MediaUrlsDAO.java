@@ -0,0 +1,48 @@
+package hellfrog.settings.db;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistent index of media URLs found in the pictures source channels.
+ * Each channel keeps a watermark (the latest indexed message ID), so only newer
+ * messages have to be fetched from Discord after restart
+ */
+public interface MediaUrlsDAO {
+
+    /**
+     * Get distinct URLs of the channel in the order they were indexed
+     */
+    @NotNull
+    @UnmodifiableView List<String> getUrls(final long channelId);
+
+    /**
+     * Get the latest indexed message ID of the channel, or 0 if the channel was never indexed
+     */
+    long getLastMessageId(final long channelId);
+
+    /**
+     * Replace the URLs of a single message. The channel watermark is not changed: a live message
+     * does not mean that the older messages were indexed
+     *
+     * @return URLs added to and removed from the channel, URLs still used by other messages are not reported
+     */
+    @NotNull
+    MediaUrlsChange setMessageUrls(final long channelId, final long messageId, @NotNull final Collection<String> urls);
+
+    /**
+     * Remove all URLs of a single message
+     *
+     * @return URLs removed from the channel, URLs still used by other messages are not reported
+     */
+    @NotNull
+    MediaUrlsChange removeMessage(final long channelId, final long messageId);
+
+    /**
+     * Move the channel watermark forward. A smaller message ID than the stored one is ignored
+     */
+    void updateLastMessageId(final long channelId, final long messageId);
+}
@@ -3,11 +3,22 @@ package hellfrog.settings.db;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 public interface RightsDAO {
 
     List<Long> getAllAllowed(long serverId, @NotNull String commandPrefix);
 
+    /**
+     * Получить все разрешения сервера одним запросом
+     *
+     * @param serverId идентификатор сервера
+     * @return префикс команды -> идентификаторы сущностей, которым она разрешена,
+     * либо пустое значение, если прочитать разрешения не удалось
+     */
+    Optional<Map<String, List<Long>>> getAllAllowedByCommands(long serverId);
+
     long getAllowedCount(long serverId, @NotNull String commandPrefix);
 
     boolean isAllowed(long serverId, long who, @NotNull String commandPrefix);
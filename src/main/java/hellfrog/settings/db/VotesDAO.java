@@ -1,10 +1,12 @@
 package hellfrog.settings.db;
 
 import hellfrog.settings.db.entity.Vote;
+import hellfrog.settings.db.entity.VoteBallot;
 import org.jetbrains.annotations.NotNull;
 
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -49,6 +51,11 @@ import java.util.List;
  * FOREIGN KEY("vote_id") REFERENCES "active_votes"("vote_id")
  * );
  * </p>
+ * <p>
+ * Ballots (the reactions of members to the voting points) are stored by the message ID of the vote
+ * and updated one by one from the reaction events, so the results of a vote can be counted
+ * without requesting the reactions from Discord.
+ * </p>
  */
 public interface VotesDAO {
 
@@ -99,4 +106,35 @@ public interface VotesDAO {
 
     boolean deleteVote(@NotNull Vote vote);
 
+    /**
+     * Get all stored ballots of the vote
+     *
+     * @param messageId message ID of the vote
+     */
+    @NotNull
+    List<VoteBallot> getBallots(long messageId);
+
+    /**
+     * Store a single ballot
+     *
+     * @return true if the ballot was not stored before
+     */
+    boolean addBallot(long messageId, long pointId, long userId);
+
+    /**
+     * Remove a single ballot
+     *
+     * @return true if the ballot was stored before
+     */
+    boolean removeBallot(long messageId, long pointId, long userId);
+
+    /**
+     * Replace all ballots of the vote (after reconciliation with the reactions of the vote message)
+     */
+    void replaceBallots(long messageId, @NotNull Collection<VoteBallot> ballots);
+
+    /**
+     * Remove all ballots of the vote
+     */
+    void deleteBallots(long messageId);
 }
@@ -0,0 +1,77 @@
+package hellfrog.settings.db.entity;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+@Entity
+@Table(name = "media_channels")
+public class MediaChannel {
+
+    private long channelId;
+    private long lastMessageId;
+    private Timestamp createDate;
+    private Timestamp updateDate;
+
+    @PrePersist
+    public void prePersist() {
+        if (createDate == null) {
+            createDate = Timestamp.from(Instant.now());
+        }
+        if (updateDate == null) {
+            updateDate = Timestamp.from(Instant.now());
+        }
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updateDate = Timestamp.from(Instant.now());
+    }
+
+    @Id
+    @Column(name = "channel_id", nullable = false, unique = true)
+    public long getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(long channelId) {
+        this.channelId = channelId;
+    }
+
+    @Column(name = "last_message_id", nullable = false)
+    public long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    @Column(name = "create_date", nullable = false)
+    public Timestamp getCreateDate() {
+        return createDate;
+    }
+
+    public void setCreateDate(Timestamp createDate) {
+        this.createDate = createDate;
+    }
+
+    @Column(name = "update_date", nullable = false)
+    public Timestamp getUpdateDate() {
+        return updateDate;
+    }
+
+    public void setUpdateDate(Timestamp updateDate) {
+        this.updateDate = updateDate;
+    }
+
+    @Override
+    public String toString() {
+        return "MediaChannel{" +
+                "channelId=" + channelId +
+                ", lastMessageId=" + lastMessageId +
+                ", createDate=" + createDate +
+                ", updateDate=" + updateDate +
+                '}';
+    }
+}
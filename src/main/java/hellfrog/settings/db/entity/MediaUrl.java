@@ -0,0 +1,86 @@
+package hellfrog.settings.db.entity;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+@Entity
+@Table(name = "media_urls", indexes = {
+        @Index(name = "uniq_media_url", unique = true, columnList = "channel_id,message_id,url"),
+        @Index(name = "media_urls_channel_idx", columnList = "channel_id")
+})
+public class MediaUrl {
+
+    private long id;
+    private long channelId;
+    private long messageId;
+    private String url;
+    private Timestamp createDate;
+
+    @PrePersist
+    @PreUpdate
+    public void prePersist() {
+        if (createDate == null) {
+            createDate = Timestamp.from(Instant.now());
+        }
+    }
+
+    @Id
+    @GeneratedValue(generator = "media_url_idx", strategy = GenerationType.SEQUENCE)
+    @SequenceGenerator(name = "media_url_idx", sequenceName = "media_url_idx")
+    @Column(name = "id", nullable = false, unique = true)
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @Column(name = "channel_id", nullable = false)
+    public long getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(long channelId) {
+        this.channelId = channelId;
+    }
+
+    @Column(name = "message_id", nullable = false)
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(long messageId) {
+        this.messageId = messageId;
+    }
+
+    @Column(name = "url", nullable = false, length = 2000)
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    @Column(name = "create_date", nullable = false)
+    public Timestamp getCreateDate() {
+        return createDate;
+    }
+
+    public void setCreateDate(Timestamp createDate) {
+        this.createDate = createDate;
+    }
+
+    @Override
+    public String toString() {
+        return "MediaUrl{" +
+                "id=" + id +
+                ", channelId=" + channelId +
+                ", messageId=" + messageId +
+                ", url='" + url + '\'' +
+                ", createDate=" + createDate +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package hellfrog.settings.db.entity;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+@Entity
+@Table(name = "vote_ballots", indexes = {
+        @Index(name = "uniq_vote_ballot", unique = true, columnList = "message_id,point_id,user_id"),
+        @Index(name = "vote_ballots_msg", columnList = "message_id")
+})
+public class VoteBallot {
+
+    private long id;
+    private long messageId;
+    private long pointId;
+    private long userId;
+    private Timestamp createDate;
+
+    public VoteBallot() {
+    }
+
+    public VoteBallot(long messageId, long pointId, long userId) {
+        this.messageId = messageId;
+        this.pointId = pointId;
+        this.userId = userId;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void prePersist() {
+        if (createDate == null) {
+            createDate = Timestamp.from(Instant.now());
+        }
+    }
+
+    @Id
+    @GeneratedValue(generator = "vote_ballot_idx", strategy = GenerationType.SEQUENCE)
+    @SequenceGenerator(name = "vote_ballot_idx", sequenceName = "vote_ballot_idx")
+    @Column(name = "id", nullable = false, unique = true)
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    @Column(name = "message_id", nullable = false)
+    public long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(long messageId) {
+        this.messageId = messageId;
+    }
+
+    @Column(name = "point_id", nullable = false)
+    public long getPointId() {
+        return pointId;
+    }
+
+    public void setPointId(long pointId) {
+        this.pointId = pointId;
+    }
+
+    @Column(name = "user_id", nullable = false)
+    public long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(long userId) {
+        this.userId = userId;
+    }
+
+    @Column(name = "create_date", nullable = false)
+    public Timestamp getCreateDate() {
+        return createDate;
+    }
+
+    public void setCreateDate(Timestamp createDate) {
+        this.createDate = createDate;
+    }
+
+    @Override
+    public String toString() {
+        return "VoteBallot{" +
+                "id=" + id +
+                ", messageId=" + messageId +
+                ", pointId=" + pointId +
+                ", userId=" + userId +
+                ", createDate=" + createDate +
+                '}';
+    }
+}
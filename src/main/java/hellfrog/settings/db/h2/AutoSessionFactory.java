@@ -3,15 +3,26 @@ package hellfrog.settings.db.h2;
 import org.hibernate.SessionFactory;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.atomic.LongAdder;
+
 class AutoSessionFactory {
 
     private final SessionFactory sessionFactory;
+    private final LongAdder openedSessions = new LongAdder();
 
     AutoSessionFactory(@NotNull SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
 
     @NotNull AutoSession openSession() throws Exception {
+        openedSessions.increment();
         return new AutoSession(sessionFactory.openSession());
     }
+
+    /**
+     * Each session runs in its own transaction, so this is also the count of transactions
+     */
+    long getOpenedSessionsCount() {
+        return openedSessions.sum();
+    }
 }
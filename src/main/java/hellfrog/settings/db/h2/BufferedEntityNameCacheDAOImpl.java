@@ -0,0 +1,295 @@
+package hellfrog.settings.db.h2;
+
+import hellfrog.core.LogsStorage;
+import hellfrog.settings.db.CacheStatistic;
+import hellfrog.settings.db.EntityNameCacheDAO;
+import hellfrog.settings.db.entity.EntityNameCache;
+import hellfrog.settings.db.entity.NameType;
+import hellfrog.settings.db.entity.ServerNameCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coalescing write-through cache in front of {@link EntityNameCacheDAOImpl}.
+ * <p>
+ * Last written names are kept in LRU maps keyed by entity id and by (server, entity) ids,
+ * so updates with unchanged names do not touch the database. Changed names are collected
+ * in dirty maps, where only the latest name of each entity is kept, and written to the
+ * database as one transaction every {@link #FLUSH_PERIOD_SECONDS} seconds.
+ * Lookups return pending names, so callers always see actual values.
+ * <p>
+ * When the database is unavailable, flushes are retried with growing delay, and once
+ * more than {@link #MAX_PENDING} names are pending, the failed names are dropped.
+ */
+class BufferedEntityNameCacheDAOImpl
+        implements EntityNameCacheDAO, Closeable {
+
+    private static final long FLUSH_PERIOD_SECONDS = 5L;
+    private static final int LRU_CAPACITY = 10_000;
+    private static final int MAX_PENDING = 50_000;
+    private static final long MAX_RETRY_DELAY_SECONDS = 300L;
+
+    private final EntityNameCacheDAOImpl delegate;
+    private final Map<Long, NameValue> lastNames = lruMap();
+    private final Map<ServerNameKey, String> lastServerNames = lruMap();
+    private final ConcurrentHashMap<Long, NameValue> namesPending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ServerNameKey, String> serverNamesPending = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService flushExecutor;
+    private final CacheStatistic cacheStatistic = new CacheStatistic("Entity names");
+    private final Logger log = LogManager.getLogger("Entity cache");
+    private volatile boolean closed = false;
+    private volatile long retryAt = System.nanoTime();
+    private int failedFlushes = 0;
+
+    BufferedEntityNameCacheDAOImpl(@NotNull final EntityNameCacheDAOImpl delegate) {
+        this.delegate = delegate;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.flushExecutor.scheduleWithFixedDelay(this::scheduledFlush,
+                FLUSH_PERIOD_SECONDS, FLUSH_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Optional<EntityNameCache> find(long entityId) {
+        flushLock.readLock().lock();
+        try {
+            NameValue pending = namesPending.get(entityId);
+            Optional<EntityNameCache> stored = delegate.find(entityId);
+            if (pending == null) {
+                return stored;
+            }
+            EntityNameCache result = stored.orElseGet(() -> {
+                EntityNameCache created = new EntityNameCache();
+                created.setEntityId(entityId);
+                created.setCreateDate(Timestamp.from(Instant.now()));
+                return created;
+            });
+            result.setName(pending.name);
+            result.setEntityType(pending.nameType);
+            result.setUpdateDate(Timestamp.from(Instant.now()));
+            return Optional.of(result);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(long entityId, @NotNull String entityName, @NotNull NameType nameType) {
+        final NameValue value = new NameValue(entityName, nameType);
+        namesPending.compute(entityId, (key, pending) -> {
+            if (value.equals(lastNames.get(key))) {
+                cacheStatistic.hit();
+                return pending;
+            }
+            cacheStatistic.miss();
+            lastNames.put(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void update(@NotNull EntityNameCache entityNameCache) {
+        update(entityNameCache.getEntityId(), entityNameCache.getName(), entityNameCache.getEntityType());
+    }
+
+    @Override
+    public Optional<ServerNameCache> find(long serverId, long entityId) {
+        flushLock.readLock().lock();
+        try {
+            String pending = serverNamesPending.get(new ServerNameKey(serverId, entityId));
+            Optional<ServerNameCache> stored = delegate.find(serverId, entityId);
+            if (pending == null) {
+                return stored;
+            }
+            ServerNameCache result = stored.orElseGet(() -> {
+                ServerNameCache created = new ServerNameCache();
+                created.setServerId(serverId);
+                created.setEntityId(entityId);
+                created.setCreateDate(Timestamp.from(Instant.now()));
+                return created;
+            });
+            result.setName(pending);
+            result.setUpdateDate(Timestamp.from(Instant.now()));
+            return Optional.of(result);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(long serverId, long entityId, @NotNull String entityName) {
+        serverNamesPending.compute(new ServerNameKey(serverId, entityId), (key, pending) -> {
+            if (entityName.equals(lastServerNames.get(key))) {
+                cacheStatistic.hit();
+                return pending;
+            }
+            cacheStatistic.miss();
+            lastServerNames.put(key, entityName);
+            return entityName;
+        });
+    }
+
+    @Override
+    public void update(@NotNull ServerNameCache nameCache) {
+        update(nameCache.getServerId(), nameCache.getEntityId(), nameCache.getName());
+    }
+
+    private void scheduledFlush() {
+        if (System.nanoTime() - retryAt >= 0L) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all pending names to the database in a single transaction.
+     * Names that failed to be written are returned to the dirty maps, unless
+     * they were changed again in the meantime, and retried after a delay, which
+     * doubles on each failure up to {@link #MAX_RETRY_DELAY_SECONDS}. If the dirty maps
+     * already hold more than {@link #MAX_PENDING} names, the failed names are dropped.
+     */
+    void flush() {
+        flushLock.writeLock().lock();
+        try {
+            Map<Long, NameValue> names = drain(namesPending);
+            Map<ServerNameKey, String> serverNames = drain(serverNamesPending);
+            if (names.isEmpty() && serverNames.isEmpty()) {
+                return;
+            }
+            if (delegate.updateAll(names, serverNames)) {
+                failedFlushes = 0;
+                if (log.isDebugEnabled()) {
+                    log.debug("Flushed {} entity names and {} server entity names", names.size(), serverNames.size());
+                }
+                return;
+            }
+            failedFlushes++;
+            long retryDelay = Math.min(MAX_RETRY_DELAY_SECONDS,
+                    FLUSH_PERIOD_SECONDS << Math.min(failedFlushes, 6));
+            retryAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryDelay);
+            int pending = namesPending.size() + serverNamesPending.size() + names.size() + serverNames.size();
+            if (pending > MAX_PENDING) {
+                // dropped names must be written again on the next update, so they may not stay in LRU maps
+                invalidateCache();
+                String errMsg = String.format("Entity names buffer exceeded %d pending names, " +
+                        "dropped %d entity names and %d server entity names", MAX_PENDING, names.size(), serverNames.size());
+                log.error(errMsg);
+                LogsStorage.addErrorMessage(errMsg);
+            } else {
+                names.forEach(namesPending::putIfAbsent);
+                serverNames.forEach(serverNamesPending::putIfAbsent);
+            }
+        } catch (Exception err) {
+            log.error("Unable to flush entity names: " + err.getMessage(), err);
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    void invalidateCache() {
+        lastNames.clear();
+        lastServerNames.clear();
+    }
+
+    CacheStatistic getCacheStatistic() {
+        return cacheStatistic;
+    }
+
+    @NotNull
+    private static <K, V> Map<K, V> drain(@NotNull final ConcurrentHashMap<K, V> pending) {
+        Map<K, V> result = new HashMap<>();
+        for (K key : pending.keySet()) {
+            V value = pending.remove(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    private static <K, V> Map<K, V> lruMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LRU_CAPACITY;
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(30L, TimeUnit.SECONDS)) {
+                flushExecutor.shutdownNow();
+            }
+        } catch (InterruptedException err) {
+            flushExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    static final class NameValue {
+
+        final String name;
+        final NameType nameType;
+
+        NameValue(@NotNull String name, @NotNull NameType nameType) {
+            this.name = name;
+            this.nameType = nameType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            NameValue that = (NameValue) o;
+            return name.equals(that.name) && nameType == that.nameType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, nameType);
+        }
+    }
+
+    static final class ServerNameKey {
+
+        final long serverId;
+        final long entityId;
+
+        ServerNameKey(long serverId, long entityId) {
+            this.serverId = serverId;
+            this.entityId = entityId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ServerNameKey that = (ServerNameKey) o;
+            return serverId == that.serverId && entityId == that.entityId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serverId, entityId);
+        }
+    }
+}
@@ -0,0 +1,543 @@
+package hellfrog.settings.db.h2;
+
+import hellfrog.core.LogsStorage;
+import hellfrog.settings.db.TotalStatisticDAO;
+import hellfrog.settings.db.entity.EmojiTotalStatistic;
+import hellfrog.settings.db.entity.TextChannelTotalStatistic;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer in front of {@link TotalStatisticDAOImpl}.
+ * <p>
+ * Increments and decrements are accumulated in memory per (server, channel, user) and
+ * per (server, emoji) keys and written to the database as one transaction, either
+ * periodically or when the amount of pending keys exceeds {@link #FLUSH_THRESHOLD}.
+ * Statistic queries merge pending changes with stored values, so callers always
+ * see actual counters.
+ * <p>
+ * When the database is unavailable, flushes are retried with growing delay, and once
+ * more than {@link #MAX_PENDING} keys are pending, the failed changes are dropped.
+ */
+class BufferedTotalStatisticDAOImpl
+        implements TotalStatisticDAO, Closeable {
+
+    private static final long FLUSH_PERIOD_SECONDS = 10L;
+    private static final int FLUSH_THRESHOLD = 1000;
+    private static final int MAX_PENDING = 50_000;
+    private static final long MAX_RETRY_DELAY_SECONDS = 300L;
+
+    private final TotalStatisticDAOImpl delegate;
+    private final ConcurrentHashMap<ChannelKey, ChannelDelta> channelPending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<EmojiKey, EmojiDelta> emojiPending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final ScheduledExecutorService flushExecutor;
+    private final Logger log = LogManager.getLogger("Total statistic");
+    private volatile boolean closed = false;
+    private volatile long retryAt = System.nanoTime();
+    private int failedFlushes = 0;
+
+    BufferedTotalStatisticDAOImpl(@NotNull final TotalStatisticDAOImpl delegate) {
+        this.delegate = delegate;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.flushExecutor.scheduleWithFixedDelay(this::scheduledFlush,
+                FLUSH_PERIOD_SECONDS, FLUSH_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void reset(long serverId) {
+        flushLock.lock();
+        try {
+            channelPending.keySet().removeIf(key -> key.serverId == serverId);
+            emojiPending.keySet().removeIf(key -> key.serverId == serverId);
+            delegate.reset(serverId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void removeEmojiStats(long serverId, long emojiId) {
+        flushLock.lock();
+        try {
+            emojiPending.remove(new EmojiKey(serverId, emojiId));
+            delegate.removeEmojiStats(serverId, emojiId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertEmojiStats(long serverId, long emojiId, long usagesCount, @NotNull Instant lastUsage) {
+        flushLock.lock();
+        try {
+            emojiPending.remove(new EmojiKey(serverId, emojiId));
+            delegate.insertEmojiStats(serverId, emojiId, usagesCount, lastUsage);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void incrementEmoji(long serverId, long emojiId) {
+        updateEmoji(serverId, emojiId, Instant.now(), 1L);
+    }
+
+    @Override
+    public void incrementEmojiWithDate(long serverId, long emojiId, @NotNull Instant lastDate) {
+        updateEmoji(serverId, emojiId, lastDate, 1L);
+    }
+
+    @Override
+    public void decrementEmoji(long serverId, long emojiId) {
+        updateEmoji(serverId, emojiId, null, -1L);
+    }
+
+    private void updateEmoji(final long serverId,
+                             final long emojiId,
+                             @Nullable final Instant lastUsage,
+                             final long change) {
+
+        emojiPending.compute(new EmojiKey(serverId, emojiId), (key, delta) -> {
+            if (delta == null) {
+                delta = new EmojiDelta();
+            }
+            delta.add(change, lastUsage);
+            return delta;
+        });
+        checkThreshold();
+    }
+
+    @Override
+    public List<EmojiTotalStatistic> getEmojiUsagesStatistic(long serverId) {
+        flushLock.lock();
+        try {
+            List<EmojiTotalStatistic> stored = delegate.getEmojiUsagesStatistic(serverId);
+            List<EmojiKey> pendingKeys = new ArrayList<>();
+            for (EmojiKey key : emojiPending.keySet()) {
+                if (key.serverId == serverId) {
+                    pendingKeys.add(key);
+                }
+            }
+            if (pendingKeys.isEmpty()) {
+                return stored;
+            }
+            Map<EmojiKey, EmojiTotalStatistic> merged = new LinkedHashMap<>();
+            stored.forEach(item -> merged.put(new EmojiKey(item.getServerId(), item.getEmojiId()), item));
+            for (EmojiKey pendingKey : pendingKeys) {
+                emojiPending.computeIfPresent(pendingKey, (key, delta) -> {
+                    EmojiTotalStatistic statistic = merged.get(key);
+                    if (statistic == null) {
+                        statistic = delta.newEntity(key);
+                        merged.put(key, statistic);
+                    }
+                    delta.applyTo(statistic);
+                    return delta;
+                });
+            }
+            return List.copyOf(merged.values());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertChannelStats(long serverId,
+                                   long textChannelId,
+                                   long userId,
+                                   long messagesCount,
+                                   @NotNull Instant lastMessageDate,
+                                   long symbolsCount,
+                                   long bytesCount) {
+
+        flushLock.lock();
+        try {
+            channelPending.remove(new ChannelKey(serverId, textChannelId, userId));
+            delegate.insertChannelStats(serverId, textChannelId, userId, messagesCount, lastMessageDate,
+                    symbolsCount, bytesCount);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void incrementChannelStatsWithDate(long serverId,
+                                              long textChannelId,
+                                              long userId,
+                                              @NotNull Instant lastDate,
+                                              int messageLength,
+                                              long bytesCount) {
+
+        updateChannel(serverId, textChannelId, userId, lastDate, 1L, messageLength, bytesCount);
+    }
+
+    @Override
+    public void incrementChannelStats(long serverId,
+                                      long textChannelId,
+                                      long userId,
+                                      int messageLength,
+                                      long bytesCount) {
+
+        updateChannel(serverId, textChannelId, userId, Instant.now(), 1L, messageLength, bytesCount);
+    }
+
+    @Override
+    public void decrementChannelStats(long serverId,
+                                      long textChannelId,
+                                      long userId,
+                                      int messageLength,
+                                      long bytesCount) {
+
+        updateChannel(serverId, textChannelId, userId, null, -1L, -messageLength, -bytesCount);
+    }
+
+    private void updateChannel(final long serverId,
+                               final long textChannelId,
+                               final long userId,
+                               @Nullable final Instant lastDate,
+                               final long messages,
+                               final long symbols,
+                               final long bytes) {
+
+        channelPending.compute(new ChannelKey(serverId, textChannelId, userId), (key, delta) -> {
+            if (delta == null) {
+                delta = new ChannelDelta();
+            }
+            delta.add(messages, symbols, bytes, lastDate);
+            return delta;
+        });
+        checkThreshold();
+    }
+
+    @Override
+    public List<TextChannelTotalStatistic> getChannelsStatistics(long serverId) {
+        flushLock.lock();
+        try {
+            List<TextChannelTotalStatistic> stored = delegate.getChannelsStatistics(serverId);
+            List<ChannelKey> pendingKeys = new ArrayList<>();
+            for (ChannelKey key : channelPending.keySet()) {
+                if (key.serverId == serverId) {
+                    pendingKeys.add(key);
+                }
+            }
+            if (pendingKeys.isEmpty()) {
+                return stored;
+            }
+            Map<ChannelKey, TextChannelTotalStatistic> merged = new LinkedHashMap<>();
+            stored.forEach(item -> merged.put(new ChannelKey(item.getServerId(), item.getTextChannelId(),
+                    item.getUserId()), item));
+            for (ChannelKey pendingKey : pendingKeys) {
+                channelPending.computeIfPresent(pendingKey, (key, delta) -> {
+                    TextChannelTotalStatistic statistic = merged.get(key);
+                    if (statistic == null) {
+                        statistic = delta.newEntity(key);
+                        merged.put(key, statistic);
+                    }
+                    delta.applyTo(statistic);
+                    return delta;
+                });
+            }
+            return List.copyOf(merged.values());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void checkThreshold() {
+        if (!closed && channelPending.size() + emojiPending.size() >= FLUSH_THRESHOLD
+                && isRetryAllowed() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(this::flush);
+            } catch (RuntimeException err) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private boolean isRetryAllowed() {
+        return System.nanoTime() - retryAt >= 0L;
+    }
+
+    private void scheduledFlush() {
+        if (isRetryAllowed()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all pending changes to the database in a single transaction.
+     * Changes that failed to be written are returned to the buffer and will be
+     * retried after a delay, which doubles on each failure up to
+     * {@link #MAX_RETRY_DELAY_SECONDS}. If the buffer already holds more than
+     * {@link #MAX_PENDING} keys, the failed changes are dropped.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            Map<ChannelKey, ChannelDelta> channels = drain(channelPending);
+            Map<EmojiKey, EmojiDelta> emoji = drain(emojiPending);
+            if (channels.isEmpty() && emoji.isEmpty()) {
+                return;
+            }
+            if (delegate.applyDeltas(channels, emoji)) {
+                failedFlushes = 0;
+                if (log.isDebugEnabled()) {
+                    log.debug("Flushed {} channel and {} emoji statistic changes", channels.size(), emoji.size());
+                }
+                return;
+            }
+            failedFlushes++;
+            long retryDelay = Math.min(MAX_RETRY_DELAY_SECONDS,
+                    FLUSH_PERIOD_SECONDS << Math.min(failedFlushes, 5));
+            retryAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryDelay);
+            int pending = channelPending.size() + emojiPending.size() + channels.size() + emoji.size();
+            if (pending > MAX_PENDING) {
+                String errMsg = String.format("Total statistic buffer exceeded %d pending keys, " +
+                        "dropped %d channel and %d emoji statistic changes", MAX_PENDING, channels.size(), emoji.size());
+                log.error(errMsg);
+                LogsStorage.addErrorMessage(errMsg);
+            } else {
+                channels.forEach((key, failed) -> channelPending.merge(key, failed, (current, ignored) -> {
+                    current.mergeEarlier(failed);
+                    return current;
+                }));
+                emoji.forEach((key, failed) -> emojiPending.merge(key, failed, (current, ignored) -> {
+                    current.mergeEarlier(failed);
+                    return current;
+                }));
+            }
+        } catch (Exception err) {
+            log.error("Unable to flush total statistic changes: " + err.getMessage(), err);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @NotNull
+    private static <K, V> Map<K, V> drain(@NotNull final ConcurrentHashMap<K, V> pending) {
+        Map<K, V> result = new HashMap<>();
+        for (K key : pending.keySet()) {
+            V value = pending.remove(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(30L, TimeUnit.SECONDS)) {
+                flushExecutor.shutdownNow();
+            }
+        } catch (InterruptedException err) {
+            flushExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Pending change of a single non-negative counter.
+     * Every stored change is clamped to zero, so the accumulated change is kept as
+     * function {@code value -> max(floor, value + offset)}, which gives exactly the
+     * same result as applying all changes one by one.
+     */
+    static final class Counter {
+
+        private long offset = 0L;
+        private long floor = 0L;
+
+        void add(final long change) {
+            offset += change;
+            floor = Math.max(0L, floor + change);
+        }
+
+        void mergeEarlier(@NotNull final Counter earlier) {
+            floor = Math.max(floor, earlier.floor + offset);
+            offset += earlier.offset;
+        }
+
+        long applyTo(final long value) {
+            return Math.max(floor, value + offset);
+        }
+    }
+
+    static final class EmojiKey {
+
+        final long serverId;
+        final long emojiId;
+
+        EmojiKey(long serverId, long emojiId) {
+            this.serverId = serverId;
+            this.emojiId = emojiId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            EmojiKey that = (EmojiKey) o;
+            return serverId == that.serverId && emojiId == that.emojiId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serverId, emojiId);
+        }
+    }
+
+    static final class EmojiDelta {
+
+        private final Counter usages = new Counter();
+        private final Instant created = Instant.now();
+        private Instant lastUsage = null;
+
+        void add(final long change, @Nullable final Instant usageDate) {
+            usages.add(change);
+            lastUsage = latest(lastUsage, usageDate);
+        }
+
+        void mergeEarlier(@NotNull final EmojiDelta earlier) {
+            usages.mergeEarlier(earlier.usages);
+            lastUsage = latest(lastUsage, earlier.lastUsage);
+        }
+
+        @NotNull
+        EmojiTotalStatistic newEntity(@NotNull final EmojiKey key) {
+            EmojiTotalStatistic statistic = new EmojiTotalStatistic();
+            statistic.setServerId(key.serverId);
+            statistic.setEmojiId(key.emojiId);
+            statistic.setUsagesCount(0L);
+            statistic.setLastUsage(Timestamp.from(lastUsage != null ? lastUsage : created));
+            statistic.setCreateDate(Timestamp.from(Instant.now()));
+            return statistic;
+        }
+
+        void applyTo(@NotNull final EmojiTotalStatistic statistic) {
+            statistic.setUsagesCount(usages.applyTo(statistic.getUsagesCount()));
+            if (lastUsage != null) {
+                statistic.setLastUsage(latest(statistic.getLastUsage(), lastUsage));
+            }
+            statistic.setUpdateDate(Timestamp.from(Instant.now()));
+        }
+    }
+
+    static final class ChannelKey {
+
+        final long serverId;
+        final long textChannelId;
+        final long userId;
+
+        ChannelKey(long serverId, long textChannelId, long userId) {
+            this.serverId = serverId;
+            this.textChannelId = textChannelId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ChannelKey that = (ChannelKey) o;
+            return serverId == that.serverId && textChannelId == that.textChannelId && userId == that.userId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(serverId, textChannelId, userId);
+        }
+    }
+
+    static final class ChannelDelta {
+
+        private final Counter messages = new Counter();
+        private final Counter symbols = new Counter();
+        private final Counter bytes = new Counter();
+        private final Instant created = Instant.now();
+        private Instant lastMessageDate = null;
+
+        void add(final long messagesChange,
+                 final long symbolsChange,
+                 final long bytesChange,
+                 @Nullable final Instant messageDate) {
+
+            messages.add(messagesChange);
+            symbols.add(symbolsChange);
+            bytes.add(bytesChange);
+            lastMessageDate = latest(lastMessageDate, messageDate);
+        }
+
+        void mergeEarlier(@NotNull final ChannelDelta earlier) {
+            messages.mergeEarlier(earlier.messages);
+            symbols.mergeEarlier(earlier.symbols);
+            bytes.mergeEarlier(earlier.bytes);
+            lastMessageDate = latest(lastMessageDate, earlier.lastMessageDate);
+        }
+
+        @NotNull
+        TextChannelTotalStatistic newEntity(@NotNull final ChannelKey key) {
+            TextChannelTotalStatistic statistic = new TextChannelTotalStatistic();
+            statistic.setServerId(key.serverId);
+            statistic.setTextChannelId(key.textChannelId);
+            statistic.setUserId(key.userId);
+            statistic.setMessagesCount(0L);
+            statistic.setSymbolsCount(0L);
+            statistic.setBytesCount(0L);
+            statistic.setLastMessageDate(Timestamp.from(lastMessageDate != null ? lastMessageDate : created));
+            statistic.setCreateDate(Timestamp.from(Instant.now()));
+            return statistic;
+        }
+
+        void applyTo(@NotNull final TextChannelTotalStatistic statistic) {
+            statistic.setMessagesCount(messages.applyTo(statistic.getMessagesCount()));
+            statistic.setSymbolsCount(symbols.applyTo(statistic.getSymbolsCount()));
+            statistic.setBytesCount(bytes.applyTo(statistic.getBytesCount()));
+            if (lastMessageDate != null) {
+                statistic.setLastMessageDate(latest(statistic.getLastMessageDate(), lastMessageDate));
+            }
+            statistic.setUpdateDate(Timestamp.from(Instant.now()));
+        }
+    }
+
+    @Nullable
+    private static Instant latest(@Nullable final Instant first, @Nullable final Instant second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return first.isAfter(second) ? first : second;
+    }
+
+    @NotNull
+    private static Timestamp latest(@Nullable final Timestamp current, @NotNull final Instant newDate) {
+        Timestamp newStamp = Timestamp.from(newDate);
+        if (current == null || newStamp.after(current)) {
+            return newStamp;
+        }
+        return current;
+    }
+}
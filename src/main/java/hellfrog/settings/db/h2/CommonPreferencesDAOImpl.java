@@ -1,6 +1,7 @@
 package hellfrog.settings.db.h2;
 
 import hellfrog.core.LogsStorage;
+import hellfrog.settings.db.CacheStatistic;
 import hellfrog.settings.db.CommonPreferencesDAO;
 import hellfrog.settings.db.entity.CommonPreference;
 import org.apache.logging.log4j.LogManager;
@@ -12,12 +13,15 @@ import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 class CommonPreferencesDAOImpl
         implements CommonPreferencesDAO {
 
     private final AutoSessionFactory sessionFactory;
     private final Logger log = LogManager.getLogger("Common preferences");
+    private final ConcurrentHashMap<String, Optional<CommonPreference>> cache = new ConcurrentHashMap<>();
+    private final CacheStatistic cacheStatistic = new CacheStatistic("Common preferences");
 
     public CommonPreferencesDAOImpl(AutoSessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
@@ -48,42 +52,53 @@ class CommonPreferencesDAOImpl
             LogsStorage.addErrorMessage(errMsg);
             log.error(errMsg, err);
         }
+        invalidateCache();
     }
 
+    /**
+     * Returns current value of the common preference. Values are cached, so reading
+     * does not touch the database after the first lookup. Missing values are cached
+     * as empty and are not stored until explicitly set.
+     *
+     * @param override write new value to the database and cache
+     * @return value before update (if override)
+     */
     private Optional<CommonPreference> upsert(@NotNull final String key,
                                               @NotNull final String stringValue,
                                               final long longValue,
                                               final boolean override) {
 
-        boolean present = false;
-        CommonPreference currentValue = null;
+        if (!override) {
+            Optional<CommonPreference> cached = cache.get(key);
+            if (cached != null) {
+                cacheStatistic.hit();
+                return cached;
+            }
+            cacheStatistic.miss();
+            try {
+                Optional<CommonPreference> fetched = fetch(key);
+                cached = cache.putIfAbsent(key, fetched);
+                return cached != null ? cached : fetched;
+            } catch (Exception err) {
+                logFetchError(key, err);
+                return Optional.empty();
+            }
+        }
 
-        try (AutoSession session = sessionFactory.openSession()) {
-            List<CommonPreference> result = session.createQuery("from CommonPreference cp where cp.key = :key",
-                    CommonPreference.class)
-                    .setParameter("key", key)
-                    .list();
-            session.success();
-            if (result != null && !result.isEmpty()) {
-                currentValue = result.get(0);
-                present = true;
-                if (log.isDebugEnabled()) {
-                    log.debug("Value for key \"{}\" present, is \"{}\"", key, currentValue.toString());
+        synchronized (cache) {
+            Optional<CommonPreference> currentValue = cache.get(key);
+            if (currentValue == null) {
+                try {
+                    currentValue = fetch(key);
+                } catch (Exception err) {
+                    logFetchError(key, err);
+                    currentValue = Optional.empty();
                 }
             }
-        } catch (Exception err) {
-            String errMsg = String.format("Unable to fetch common preference value for \"%s\": %s", key, err.getMessage());
-            log.error(errMsg, err);
-            LogsStorage.addErrorMessage(errMsg);
-        }
 
-        if (!present || override) {
             CommonPreference newValue = new CommonPreference();
-            if (currentValue != null) {
-                newValue.setCreateDate(currentValue.getCreateDate());
-            } else {
-                newValue.setCreateDate(Timestamp.from(Instant.now()));
-            }
+            currentValue.ifPresentOrElse(value -> newValue.setCreateDate(value.getCreateDate()),
+                    () -> newValue.setCreateDate(Timestamp.from(Instant.now())));
             newValue.setKey(key);
             newValue.setLongValue(longValue);
             newValue.setStringValue(stringValue);
@@ -91,15 +106,48 @@ class CommonPreferencesDAOImpl
 
             try (AutoSession session = sessionFactory.openSession()) {
                 session.save(newValue);
+                cache.put(key, Optional.of(newValue));
             } catch (Exception err) {
+                cache.remove(key);
                 String errMsg = String.format("Unable to persist common preference value %s: %s",
                         newValue.toString(), err.getMessage());
                 log.error(errMsg, err);
                 LogsStorage.addErrorMessage(errMsg);
             }
+            return currentValue;
+        }
+    }
+
+    private Optional<CommonPreference> fetch(@NotNull final String key) throws Exception {
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<CommonPreference> result = session.createQuery("from CommonPreference cp where cp.key = :key",
+                    CommonPreference.class)
+                    .setParameter("key", key)
+                    .list();
+            session.success();
+            if (result != null && !result.isEmpty()) {
+                CommonPreference currentValue = result.get(0);
+                if (log.isDebugEnabled()) {
+                    log.debug("Value for key \"{}\" present, is \"{}\"", key, currentValue.toString());
+                }
+                return Optional.of(currentValue);
+            }
+            return Optional.empty();
         }
+    }
+
+    private void logFetchError(@NotNull final String key, @NotNull final Exception err) {
+        String errMsg = String.format("Unable to fetch common preference value for \"%s\": %s", key, err.getMessage());
+        log.error(errMsg, err);
+        LogsStorage.addErrorMessage(errMsg);
+    }
+
+    void invalidateCache() {
+        cache.clear();
+    }
 
-        return Optional.ofNullable(currentValue);
+    CacheStatistic getCacheStatistic() {
+        return cacheStatistic;
     }
 
     private String getString(@NotNull String key, @NotNull String defaultValue) {
@@ -315,4 +363,45 @@ class CommonPreferencesDAOImpl
     public long setFunSpankChannel(long newFunSpankChannelId) {
         return setLong(FUN_SPANK_CHANNEL_KEY, newFunSpankChannelId, FUN_SPANK_CHANNEL_DEFAULT);
     }
+
+    @Override
+    public long getEventsLanes() {
+        return getLong(EVENTS_LANES_KEY, EVENTS_LANES_DEFAULT);
+    }
+
+    @Override
+    public long setEventsLanes(long newEventsLanes) {
+        return setLong(EVENTS_LANES_KEY, newEventsLanes, EVENTS_LANES_DEFAULT);
+    }
+
+    @Override
+    public long getEventsQueueCapacity() {
+        return getLong(EVENTS_QUEUE_CAPACITY_KEY, EVENTS_QUEUE_CAPACITY_DEFAULT);
+    }
+
+    @Override
+    public long setEventsQueueCapacity(long newEventsQueueCapacity) {
+        return setLong(EVENTS_QUEUE_CAPACITY_KEY, newEventsQueueCapacity, EVENTS_QUEUE_CAPACITY_DEFAULT);
+    }
+
+    @Override
+    public String getEventsLowPriorityOverflow() {
+        return getString(EVENTS_LOW_PRIORITY_OVERFLOW_KEY, EVENTS_LOW_PRIORITY_OVERFLOW_DEFAULT);
+    }
+
+    @Override
+    public String setEventsLowPriorityOverflow(@NotNull String newEventsLowPriorityOverflow) {
+        return setString(EVENTS_LOW_PRIORITY_OVERFLOW_KEY, newEventsLowPriorityOverflow,
+                EVENTS_LOW_PRIORITY_OVERFLOW_DEFAULT);
+    }
+
+    @Override
+    public long getEventsIoThreads() {
+        return getLong(EVENTS_IO_THREADS_KEY, EVENTS_IO_THREADS_DEFAULT);
+    }
+
+    @Override
+    public long setEventsIoThreads(long newEventsIoThreads) {
+        return setLong(EVENTS_IO_THREADS_KEY, newEventsIoThreads, EVENTS_IO_THREADS_DEFAULT);
+    }
 }
@@ -1,12 +1,16 @@
 package hellfrog.settings.db.h2;
 
 import hellfrog.core.LogsStorage;
+import hellfrog.settings.db.CacheStatistic;
 import hellfrog.settings.db.CommunityControlDAO;
 import hellfrog.settings.db.entity.CommunityControlSettings;
 import hellfrog.settings.db.entity.CommunityControlUser;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.eclipse.collections.api.set.primitive.ImmutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.UnmodifiableView;
 
 import java.sql.Timestamp;
@@ -14,12 +18,17 @@ import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 class CommunityControlDAOImpl
         implements CommunityControlDAO {
 
     private final AutoSessionFactory sessionFactory;
     private final Logger log = LogManager.getLogger("Community control DB");
+    private final ConcurrentHashMap<Long, ControlSnapshot> cache = new ConcurrentHashMap<>();
+    private final CacheStatistic cacheStatistic = new CacheStatistic("Community control");
+    private final AtomicLong writesCount = new AtomicLong(0L);
 
     private static final String GET_SETTINGS_QUERY = "from " + CommunityControlSettings.class.getSimpleName() + " s "
             + "where s.serverId = :serverId";
@@ -28,29 +37,70 @@ class CommunityControlDAOImpl
             + "where u.serverId = :serverId";
     private static final String GET_COMMUNITY_CONTROL_USER_QUERY = "from " + CommunityControlUser.class.getSimpleName() + " u "
             + "where u.serverId = :serverId and u.userId = :userId";
-    private static final String CHECK_COMMUNITY_CONTROL_USER_QUERY = "select count(u) from " + CommunityControlUser.class.getSimpleName() + " u "
-            + "where u.serverId = :serverId and u.userId = :userId";
 
     CommunityControlDAOImpl(@NotNull AutoSessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
 
-    @Override
-    @NotNull
-    public Optional<CommunityControlSettings> getSettings(final long serverId) {
+    /**
+     * Returns settings and users of the server community control. Both are cached per server
+     * and are evicted by any write, so the reaction handlers do not touch the database.
+     * Snapshots loaded concurrently with a write are not cached.
+     */
+    @Nullable
+    private ControlSnapshot getSnapshot(final long serverId) {
+        ControlSnapshot cached = cache.get(serverId);
+        if (cached != null) {
+            cacheStatistic.hit();
+            return cached;
+        }
+        cacheStatistic.miss();
+        final long writesBefore = writesCount.get();
         try (AutoSession session = sessionFactory.openSession()) {
-            return session.createQuery(GET_SETTINGS_QUERY, CommunityControlSettings.class)
+            CommunityControlSettings settings = session.createQuery(GET_SETTINGS_QUERY, CommunityControlSettings.class)
+                    .setParameter("serverId", serverId)
+                    .uniqueResult();
+            List<Long> userIds = session.createQuery(GET_USER_IDS_QUERY, Long.class)
                     .setParameter("serverId", serverId)
-                    .uniqueResultOptional();
+                    .list();
+            ControlSnapshot snapshot = new ControlSnapshot(settings != null ? copyOf(settings) : null,
+                    userIds != null ? userIds : Collections.emptyList());
+            if (writesCount.get() == writesBefore) {
+                cache.put(serverId, snapshot);
+            }
+            return snapshot;
         } catch (Exception err) {
             String errMsg = String.format("Unable to fetch community control settings for server id %d: %s",
                     serverId, err.getMessage());
             log.error(errMsg, err);
             LogsStorage.addErrorMessage(errMsg);
-            return Optional.empty();
+            return null;
         }
     }
 
+    private void evict(final long serverId) {
+        writesCount.incrementAndGet();
+        cache.remove(serverId);
+    }
+
+    void invalidateCache() {
+        writesCount.incrementAndGet();
+        cache.clear();
+    }
+
+    CacheStatistic getCacheStatistic() {
+        return cacheStatistic;
+    }
+
+    @Override
+    @NotNull
+    public Optional<CommunityControlSettings> getSettings(final long serverId) {
+        ControlSnapshot snapshot = getSnapshot(serverId);
+        return snapshot != null && snapshot.settings != null
+                ? Optional.of(copyOf(snapshot.settings))
+                : Optional.empty();
+    }
+
     @Override
     public void setSettings(@NotNull final CommunityControlSettings settings) {
         try (AutoSession session = sessionFactory.openSession()) {
@@ -73,6 +123,8 @@ class CommunityControlDAOImpl
                     settings.toString(), err.getMessage());
             log.error(errMsg, err);
             LogsStorage.addErrorMessage(errMsg);
+        } finally {
+            evict(settings.getServerId());
         }
     }
 
@@ -80,28 +132,17 @@ class CommunityControlDAOImpl
     @NotNull
     @UnmodifiableView
     public List<Long> getUsers(final long serverId) {
-        try (AutoSession session = sessionFactory.openSession()) {
-            List<Long> result = session.createQuery(GET_USER_IDS_QUERY, Long.class)
-                    .setParameter("serverId", serverId)
-                    .list();
-            if (result == null || result.isEmpty()) {
-                if (log.isDebugEnabled()) {
-                    log.debug("No community control users found for server id {}", serverId);
-                }
-                return Collections.emptyList();
-            } else {
-                if (log.isDebugEnabled()) {
-                    log.debug("Found {} community control users for server id {}", result.size(), serverId);
-                }
-                return Collections.unmodifiableList(result);
+        ControlSnapshot snapshot = getSnapshot(serverId);
+        if (snapshot == null || snapshot.users.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("No community control users found for server id {}", serverId);
             }
-        } catch (Exception err) {
-            String errMsg = String.format("Unable to fetch community control users for server id %d: %s",
-                    serverId, err.getMessage());
-            log.error(errMsg, err);
-            LogsStorage.addErrorMessage(errMsg);
             return Collections.emptyList();
         }
+        if (log.isDebugEnabled()) {
+            log.debug("Found {} community control users for server id {}", snapshot.users.size(), serverId);
+        }
+        return Collections.unmodifiableList(snapshot.usersList);
     }
 
     @Override
@@ -125,6 +166,8 @@ class CommunityControlDAOImpl
                         serverId, userId, err.getMessage());
                 log.error(errMsg, err);
                 LogsStorage.addErrorMessage(errMsg);
+            } finally {
+                evict(serverId);
             }
         }
         return false;
@@ -146,24 +189,45 @@ class CommunityControlDAOImpl
                     serverId, userId, err.getMessage());
             log.error(errMsg, err);
             LogsStorage.addErrorMessage(errMsg);
+        } finally {
+            evict(serverId);
         }
         return false;
     }
 
     @Override
     public boolean isControlUser(final long serverId, final long userId) {
-        try (AutoSession session = sessionFactory.openSession()) {
-            long count = session.createQuery(CHECK_COMMUNITY_CONTROL_USER_QUERY, Long.class)
-                    .setParameter("serverId", serverId)
-                    .setParameter("userId", userId)
-                    .uniqueResult();
-            return count > 0L;
-        } catch (Exception err) {
-            String errMsg = String.format("Unable check that user with id %d from community control users list by server id %d: %s",
-                    userId, serverId, err.getMessage());
-            log.error(errMsg, err);
-            LogsStorage.addErrorMessage(errMsg);
+        ControlSnapshot snapshot = getSnapshot(serverId);
+        return snapshot != null && snapshot.users.contains(userId);
+    }
+
+    @NotNull
+    private static CommunityControlSettings copyOf(@NotNull final CommunityControlSettings settings) {
+        CommunityControlSettings copy = new CommunityControlSettings();
+        copy.setId(settings.getId());
+        copy.setServerId(settings.getServerId());
+        copy.setRoleId(settings.getRoleId());
+        copy.setThreshold(settings.getThreshold());
+        copy.setUnicodeEmoji(settings.getUnicodeEmoji());
+        copy.setCustomEmojiId(settings.getCustomEmojiId());
+        copy.setCreateDate(settings.getCreateDate());
+        copy.setUpdateDate(settings.getUpdateDate());
+        return copy;
+    }
+
+    private static class ControlSnapshot {
+
+        private final CommunityControlSettings settings;
+        private final List<Long> usersList;
+        private final ImmutableLongSet users;
+
+        ControlSnapshot(@Nullable final CommunityControlSettings settings,
+                        @NotNull final List<Long> usersList) {
+            this.settings = settings;
+            this.usersList = List.copyOf(usersList);
+            this.users = LongSets.immutable.of(usersList.stream()
+                    .mapToLong(Long::longValue)
+                    .toArray());
         }
-        return false;
     }
 }
@@ -11,6 +11,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
 
 class EntityNameCacheDAOImpl
@@ -43,16 +44,7 @@ class EntityNameCacheDAOImpl
     @Override
     public void update(long entityId, @NotNull String entityName, @NotNull NameType nameType) {
         try (AutoSession session = sessionFactory.openSession()) {
-            EntityNameCache stored = session.find(EntityNameCache.class, entityId);
-            if (stored == null) {
-                stored = new EntityNameCache();
-                stored.setEntityId(entityId);
-                stored.setCreateDate(Timestamp.from(Instant.now()));
-            }
-            stored.setName(entityName);
-            stored.setEntityType(nameType);
-            stored.setUpdateDate(Timestamp.from(Instant.now()));
-            session.save(stored);
+            saveName(session, entityId, entityName, nameType);
         } catch (Exception err) {
             String errMsg = String.format("Unable to store entity name to cache, id %d, name \"%s\", type %s: %s",
                     entityId, entityName, nameType, err.getMessage());
@@ -85,19 +77,7 @@ class EntityNameCacheDAOImpl
     @Override
     public void update(long serverId, long entityId, @NotNull final String entityName) {
         try (AutoSession session = sessionFactory.openSession()) {
-            ServerNameCache nameCache = session.createQuery(FIND_SERVER_NAME_QUERY, ServerNameCache.class)
-                    .setParameter("serverId", serverId)
-                    .setParameter("entityId", entityId)
-                    .uniqueResult();
-            if (nameCache == null) {
-                nameCache = new ServerNameCache();
-                nameCache.setServerId(serverId);
-                nameCache.setEntityId(entityId);
-                nameCache.setCreateDate(Timestamp.from(Instant.now()));
-            }
-            nameCache.setName(entityName);
-            nameCache.setUpdateDate(Timestamp.from(Instant.now()));
-            session.save(nameCache);
+            saveServerName(session, serverId, entityId, entityName);
         } catch (Exception err) {
             String errMsg = String.format("Unable to store entity name to cache, server id %d, entity id %d, name \"%s\": %s",
                     serverId, entityId, entityName, err.getMessage());
@@ -109,4 +89,72 @@ class EntityNameCacheDAOImpl
     public void update(@NotNull final ServerNameCache nameCache) {
         update(nameCache.getServerId(), nameCache.getEntityId(), nameCache.getName());
     }
+
+    /**
+     * Writes all names in a single transaction
+     *
+     * @return true if all names are written
+     */
+    boolean updateAll(@NotNull final Map<Long, BufferedEntityNameCacheDAOImpl.NameValue> names,
+                      @NotNull final Map<BufferedEntityNameCacheDAOImpl.ServerNameKey, String> serverNames) {
+
+        try (AutoSession session = sessionFactory.openSession()) {
+            try {
+                for (Map.Entry<Long, BufferedEntityNameCacheDAOImpl.NameValue> entry : names.entrySet()) {
+                    saveName(session, entry.getKey(), entry.getValue().name, entry.getValue().nameType);
+                }
+                for (Map.Entry<BufferedEntityNameCacheDAOImpl.ServerNameKey, String> entry : serverNames.entrySet()) {
+                    saveServerName(session, entry.getKey().serverId, entry.getKey().entityId, entry.getValue());
+                }
+                session.success();
+            } catch (RuntimeException err) {
+                session.resetSuccess();
+                throw err;
+            }
+            return true;
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to store %d entity names and %d server entity names to cache: %s",
+                    names.size(), serverNames.size(), err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return false;
+        }
+    }
+
+    private void saveName(@NotNull final AutoSession session,
+                          long entityId,
+                          @NotNull final String entityName,
+                          @NotNull final NameType nameType) {
+
+        EntityNameCache stored = session.find(EntityNameCache.class, entityId);
+        if (stored == null) {
+            stored = new EntityNameCache();
+            stored.setEntityId(entityId);
+            stored.setCreateDate(Timestamp.from(Instant.now()));
+        }
+        stored.setName(entityName);
+        stored.setEntityType(nameType);
+        stored.setUpdateDate(Timestamp.from(Instant.now()));
+        session.save(stored);
+    }
+
+    private void saveServerName(@NotNull final AutoSession session,
+                                long serverId,
+                                long entityId,
+                                @NotNull final String entityName) {
+
+        ServerNameCache nameCache = session.createQuery(FIND_SERVER_NAME_QUERY, ServerNameCache.class)
+                .setParameter("serverId", serverId)
+                .setParameter("entityId", entityId)
+                .uniqueResult();
+        if (nameCache == null) {
+            nameCache = new ServerNameCache();
+            nameCache.setServerId(serverId);
+            nameCache.setEntityId(entityId);
+            nameCache.setCreateDate(Timestamp.from(Instant.now()));
+        }
+        nameCache.setName(entityName);
+        nameCache.setUpdateDate(Timestamp.from(Instant.now()));
+        session.save(nameCache);
+    }
 }
@@ -13,9 +13,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
 abstract class EntityRightsDAOImpl<T extends EntityRight> {
 
@@ -26,6 +24,7 @@ abstract class EntityRightsDAOImpl<T extends EntityRight> {
     private final String entityField;
     private final String getAllAllowedQuery;
     private final String getAllowedCountQuery;
+    private final String getAllAllowedByCommandsQuery;
 
     EntityRightsDAOImpl(@NotNull final AutoSessionFactory sessionFactory,
                         @NotNull final String loggerName,
@@ -44,6 +43,31 @@ abstract class EntityRightsDAOImpl<T extends EntityRight> {
         this.getAllowedCountQuery = "select count(e) " +
                 "from " + managedClass.getSimpleName() + " e " +
                 "where e.serverId = :serverId and e.commandPrefix = :commandPrefix";
+        this.getAllAllowedByCommandsQuery = "select e.commandPrefix, e." + entityField + " " +
+                "from " + managedClass.getSimpleName() + " e where e.serverId = :serverId";
+    }
+
+    public Optional<Map<String, List<Long>>> getAllAllowedByCommands(long serverId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<Object[]> rows = session.createQuery(getAllAllowedByCommandsQuery, Object[].class)
+                    .setParameter("serverId", serverId)
+                    .list();
+            Map<String, List<Long>> result = new HashMap<>();
+            if (rows != null) {
+                for (Object[] row : rows) {
+                    String commandPrefix = (String) row[0];
+                    long entityId = ((Number) row[1]).longValue();
+                    result.computeIfAbsent(commandPrefix, k -> new ArrayList<>()).add(entityId);
+                }
+            }
+            return Optional.of(Collections.unmodifiableMap(result));
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to get all allowed \"%s\" for server %d: %s",
+                    managedClass.getSimpleName(), serverId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+        }
+        return Optional.empty();
     }
 
     public List<Long> getAllAllowed(long serverId, @NotNull String commandPrefix) {
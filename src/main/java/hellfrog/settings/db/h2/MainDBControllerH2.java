@@ -33,23 +33,25 @@ public class MainDBControllerH2
     private final Metadata metadata;
     private final SessionFactory sessionFactory;
     private final BotOwnersDAO botOwnersDAO;
-    private final CommonPreferencesDAO commonPreferencesDAO;
-    private final ServerPreferencesDAO serverPreferencesDAO;
+    private final CommonPreferencesDAOImpl commonPreferencesDAO;
+    private final ServerPreferencesDAOImpl serverPreferencesDAO;
     private final UserRightsDAO userRightsDAO;
     private final RoleRightsDAO roleRightsDAO;
     private final ChannelRightsDAO channelRightsDAO;
     private final ChannelCategoryRightsDAO categoryRightsDAO;
-    private final TotalStatisticDAO totalStatisticDAO;
+    private final BufferedTotalStatisticDAOImpl totalStatisticDAO;
     private final WtfAssignDAO wtfAssignDAO;
     private final VotesDAO votesDAO;
-    private final EntityNameCacheDAO entityNameCacheDAO;
+    private final BufferedEntityNameCacheDAOImpl entityNameCacheDAO;
     private final AutoPromoteRolesDAO autoPromoteRolesDAO;
     private final RoleAssignDAO roleAssignDAO;
-    private final CommunityControlDAO communityControlDAO;
+    private final CommunityControlDAOImpl communityControlDAO;
+    private final MediaUrlsDAO mediaUrlsDAO;
     private final String connectionURL;
     private final String connectionLogin;
     private final String connectionPassword;
     private final DatabaseBackupH2 databaseBackupH2;
+    private final AutoSessionFactory autoSessionFactory;
     private boolean closed = false;
 
     public MainDBControllerH2(@Nullable InstanceType type) throws IOException, SQLException {
@@ -104,7 +106,7 @@ public class MainDBControllerH2
             metadata = metadataSources.getMetadataBuilder().build();
             sessionFactory = metadata.buildSessionFactory();
 
-            final AutoSessionFactory autoSessionFactory = new AutoSessionFactory(sessionFactory);
+            autoSessionFactory = new AutoSessionFactory(sessionFactory);
             botOwnersDAO = new BotOwnersDAOImpl(autoSessionFactory);
             commonPreferencesDAO = new CommonPreferencesDAOImpl(autoSessionFactory);
             serverPreferencesDAO = new ServerPreferencesDAOImpl(autoSessionFactory);
@@ -114,11 +116,12 @@ public class MainDBControllerH2
             categoryRightsDAO = new ChannelCategoryRightsDAOImpl(autoSessionFactory);
             wtfAssignDAO = new WtfAssignDAOImpl(autoSessionFactory);
             votesDAO = new VotesDAOImpl(autoSessionFactory);
-            totalStatisticDAO = new TotalStatisticDAOImpl(autoSessionFactory);
-            entityNameCacheDAO = new EntityNameCacheDAOImpl(autoSessionFactory);
+            totalStatisticDAO = new BufferedTotalStatisticDAOImpl(new TotalStatisticDAOImpl(autoSessionFactory));
+            entityNameCacheDAO = new BufferedEntityNameCacheDAOImpl(new EntityNameCacheDAOImpl(autoSessionFactory));
             autoPromoteRolesDAO = new AutoPromoteRolesDAOImpl(autoSessionFactory);
             roleAssignDAO = new RoleAssignDAOImpl(autoSessionFactory);
             communityControlDAO = new CommunityControlDAOImpl(autoSessionFactory);
+            mediaUrlsDAO = new MediaUrlsDAOImpl(autoSessionFactory);
 
         } catch (Exception err) {
             String errMsg = String.format("Unable to create session factory: %s", err.getMessage());
@@ -227,6 +230,8 @@ public class MainDBControllerH2
             }
         } catch (SQLException err) {
             return err.getMessage();
+        } finally {
+            invalidateCaches();
         }
 
         return result.toString();
@@ -259,6 +264,8 @@ public class MainDBControllerH2
             }
         } catch (Exception err) {
             return err.getMessage();
+        } finally {
+            invalidateCaches();
         }
     }
 
@@ -332,6 +339,31 @@ public class MainDBControllerH2
         return communityControlDAO;
     }
 
+    @Override
+    public MediaUrlsDAO getMediaUrlsDAO() {
+        return mediaUrlsDAO;
+    }
+
+    @Override
+    public List<CacheStatistic> getCacheStatistics() {
+        return List.of(commonPreferencesDAO.getCacheStatistic(),
+                serverPreferencesDAO.getCacheStatistic(),
+                entityNameCacheDAO.getCacheStatistic(),
+                communityControlDAO.getCacheStatistic());
+    }
+
+    @Override
+    public long getTransactionsCount() {
+        return autoSessionFactory.getOpenedSessionsCount();
+    }
+
+    private void invalidateCaches() {
+        commonPreferencesDAO.invalidateCache();
+        serverPreferencesDAO.invalidateCache();
+        entityNameCacheDAO.invalidateCache();
+        communityControlDAO.invalidateCache();
+    }
+
     @Override
     public void createBackup() {
         databaseBackupH2.backupAction();
@@ -340,6 +372,8 @@ public class MainDBControllerH2
     @Override
     public void close() {
         if (!closed) {
+            totalStatisticDAO.close();
+            entityNameCacheDAO.close();
             sessionFactory.close();
             registry.close();
             sqlLog.info("Database closed");
@@ -0,0 +1,207 @@
+package hellfrog.settings.db.h2;
+
+import hellfrog.core.LogsStorage;
+import hellfrog.settings.db.MediaUrlsChange;
+import hellfrog.settings.db.MediaUrlsDAO;
+import hellfrog.settings.db.entity.MediaChannel;
+import hellfrog.settings.db.entity.MediaUrl;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+class MediaUrlsDAOImpl
+        implements MediaUrlsDAO {
+
+    private static final int MAX_URL_LENGTH = 2000;
+
+    private final AutoSessionFactory sessionFactory;
+    private final Logger log = LogManager.getLogger("Media URLs DB");
+
+    private static final String GET_CHANNEL_URLS_QUERY = "select m.url from " + MediaUrl.class.getSimpleName() + " m "
+            + "where m.channelId = :channelId order by m.id";
+    private static final String GET_MESSAGE_URLS_QUERY = "from " + MediaUrl.class.getSimpleName() + " m "
+            + "where m.channelId = :channelId and m.messageId = :messageId";
+    private static final String GET_OTHER_MESSAGES_URLS_QUERY = "select distinct m.url from " + MediaUrl.class.getSimpleName() + " m "
+            + "where m.channelId = :channelId and m.messageId <> :messageId and m.url in (:urls)";
+    private static final String DELETE_MESSAGE_URLS_QUERY = "delete from " + MediaUrl.class.getSimpleName() + " m "
+            + "where m.channelId = :channelId and m.messageId = :messageId";
+
+    MediaUrlsDAOImpl(@NotNull AutoSessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    @NotNull
+    @UnmodifiableView
+    public List<String> getUrls(final long channelId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<String> result = session.createQuery(GET_CHANNEL_URLS_QUERY, String.class)
+                    .setParameter("channelId", channelId)
+                    .list();
+            if (result == null || result.isEmpty()) {
+                return Collections.emptyList();
+            }
+            return List.copyOf(new LinkedHashSet<>(result));
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to fetch media URLs for channel id %d: %s",
+                    channelId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public long getLastMessageId(final long channelId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            MediaChannel mediaChannel = session.find(MediaChannel.class, channelId);
+            return mediaChannel != null ? mediaChannel.getLastMessageId() : 0L;
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to fetch latest indexed message for channel id %d: %s",
+                    channelId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return 0L;
+        }
+    }
+
+    @Override
+    @NotNull
+    public MediaUrlsChange setMessageUrls(final long channelId, final long messageId, @NotNull final Collection<String> urls) {
+        Set<String> actual = new LinkedHashSet<>();
+        for (String url : urls) {
+            if (url != null && !url.isBlank() && url.length() <= MAX_URL_LENGTH) {
+                actual.add(url);
+            }
+        }
+        try (AutoSession session = sessionFactory.openSession()) {
+            try {
+                return replaceMessageUrls(session, channelId, messageId, actual);
+            } catch (RuntimeException err) {
+                // remove and save have already marked the session as successful
+                session.resetSuccess();
+                throw err;
+            }
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to save media URLs for channel id %d, message id %d: %s",
+                    channelId, messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return MediaUrlsChange.NONE;
+        }
+    }
+
+    @NotNull
+    private MediaUrlsChange replaceMessageUrls(@NotNull final AutoSession session, final long channelId,
+                                               final long messageId, @NotNull final Set<String> actual) {
+        List<MediaUrl> stored = session.createQuery(GET_MESSAGE_URLS_QUERY, MediaUrl.class)
+                .setParameter("channelId", channelId)
+                .setParameter("messageId", messageId)
+                .list();
+        Set<String> removedUrls = new LinkedHashSet<>();
+        for (MediaUrl mediaUrl : stored) {
+            if (!actual.remove(mediaUrl.getUrl())) {
+                removedUrls.add(mediaUrl.getUrl());
+            }
+        }
+        Set<String> changedUrls = new HashSet<>(removedUrls);
+        changedUrls.addAll(actual);
+        Set<String> otherUrls = getOtherMessagesUrls(session, channelId, messageId, changedUrls);
+        for (MediaUrl mediaUrl : stored) {
+            if (removedUrls.contains(mediaUrl.getUrl())) {
+                session.remove(mediaUrl);
+            }
+        }
+        List<MediaUrl> added = new ArrayList<>(actual.size());
+        for (String url : actual) {
+            MediaUrl mediaUrl = new MediaUrl();
+            mediaUrl.setChannelId(channelId);
+            mediaUrl.setMessageId(messageId);
+            mediaUrl.setUrl(url);
+            mediaUrl.setCreateDate(Timestamp.from(Instant.now()));
+            added.add(mediaUrl);
+        }
+        session.saveAll(added);
+        session.success();
+        actual.removeAll(otherUrls);
+        removedUrls.removeAll(otherUrls);
+        return new MediaUrlsChange(actual, removedUrls);
+    }
+
+    /**
+     * Get those of the specified URLs, which are used by other messages of the channel
+     */
+    @NotNull
+    private Set<String> getOtherMessagesUrls(@NotNull final AutoSession session, final long channelId,
+                                             final long messageId, @NotNull final Collection<String> urls) {
+        if (urls.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(session.createQuery(GET_OTHER_MESSAGES_URLS_QUERY, String.class)
+                .setParameter("channelId", channelId)
+                .setParameter("messageId", messageId)
+                .setParameterList("urls", urls)
+                .list());
+    }
+
+    @Override
+    @NotNull
+    public MediaUrlsChange removeMessage(final long channelId, final long messageId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            Set<String> removedUrls = new LinkedHashSet<>();
+            session.createQuery(GET_MESSAGE_URLS_QUERY, MediaUrl.class)
+                    .setParameter("channelId", channelId)
+                    .setParameter("messageId", messageId)
+                    .list()
+                    .forEach(mediaUrl -> removedUrls.add(mediaUrl.getUrl()));
+            removedUrls.removeAll(getOtherMessagesUrls(session, channelId, messageId, removedUrls));
+            int deletedRows = session.createQuery(DELETE_MESSAGE_URLS_QUERY)
+                    .setParameter("channelId", channelId)
+                    .setParameter("messageId", messageId)
+                    .executeUpdate();
+            session.success();
+            if (log.isDebugEnabled()) {
+                log.debug("Deleted {} media URLs of message {} in channel {}", deletedRows, messageId, channelId);
+            }
+            return new MediaUrlsChange(Collections.emptyList(), removedUrls);
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to delete media URLs for channel id %d, message id %d: %s",
+                    channelId, messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return MediaUrlsChange.NONE;
+        }
+    }
+
+    @Override
+    public void updateLastMessageId(final long channelId, final long messageId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            moveWatermark(session, channelId, messageId);
+            session.success();
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to update latest indexed message for channel id %d to %d: %s",
+                    channelId, messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+        }
+    }
+
+    private void moveWatermark(@NotNull final AutoSession session, final long channelId, final long messageId) {
+        MediaChannel mediaChannel = session.find(MediaChannel.class, channelId);
+        if (mediaChannel == null) {
+            mediaChannel = new MediaChannel();
+            mediaChannel.setChannelId(channelId);
+            mediaChannel.setCreateDate(Timestamp.from(Instant.now()));
+        } else if (mediaChannel.getLastMessageId() >= messageId) {
+            return;
+        }
+        mediaChannel.setLastMessageId(messageId);
+        mediaChannel.setUpdateDate(Timestamp.from(Instant.now()));
+        session.save(mediaChannel);
+    }
+}
@@ -45,7 +45,10 @@ class SchemaVersionCheckerH2 {
     private final String connectionPassword;
     private final Logger log = LogManager.getLogger("Schema version checker");
 
-    private final Map<Long, String> MIGRATION_SCRIPTS = Map.of(1L, "sql/h2/schema/001_schema_create_query.sql");
+    private final SortedMap<Long, String> MIGRATION_SCRIPTS = new TreeMap<>(Map.of(
+            1L, "sql/h2/schema/001_schema_create_query.sql",
+            2L, "sql/h2/schema/002_media_urls_index.sql",
+            3L, "sql/h2/schema/003_vote_ballots.sql"));
 
     private final Pattern OLD_LAST_KNOWN_DISCRIMINATE_DETECTOR = Pattern.compile("\\(.{2,32}#\\d{4}\\)", Pattern.UNICODE_CHARACTER_CLASS);
 
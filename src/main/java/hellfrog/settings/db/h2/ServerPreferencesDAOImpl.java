@@ -1,6 +1,7 @@
 package hellfrog.settings.db.h2;
 
 import hellfrog.core.LogsStorage;
+import hellfrog.settings.db.CacheStatistic;
 import hellfrog.settings.db.ServerPreferencesDAO;
 import hellfrog.settings.db.entity.ServerPrefKey;
 import hellfrog.settings.db.entity.ServerPreference;
@@ -12,12 +13,16 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 class ServerPreferencesDAOImpl
         implements ServerPreferencesDAO {
 
     private final AutoSessionFactory sessionFactory;
     private final Logger log = LogManager.getLogger("Server preferences");
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<ServerPrefKey, Optional<ServerPreference>>> cache =
+            new ConcurrentHashMap<>();
+    private final CacheStatistic cacheStatistic = new CacheStatistic("Server preferences");
     private static final boolean OVERRIDE = true;
     private static final boolean NOT_OVERRIDE = false;
 
@@ -25,6 +30,14 @@ class ServerPreferencesDAOImpl
         this.sessionFactory = sessionFactory;
     }
 
+    /**
+     * Returns current value of the server preference. Values are cached per server,
+     * so reading does not touch the database after the first lookup. Missing values
+     * are cached as empty and are not stored until explicitly set.
+     *
+     * @param override write new value to the database and cache
+     * @return value before update (if override)
+     */
     private Optional<ServerPreference> upsert(final long serverId,
                                               @NotNull final ServerPrefKey key,
                                               @NotNull final String stringValue,
@@ -33,38 +46,42 @@ class ServerPreferencesDAOImpl
                                               @NotNull final Instant dateTimeValue,
                                               final boolean override) {
 
-        boolean present = false;
-        ServerPreference currentValue = null;
+        final ConcurrentHashMap<ServerPrefKey, Optional<ServerPreference>> serverCache =
+                cache.computeIfAbsent(serverId, id -> new ConcurrentHashMap<>());
 
-        try (AutoSession session = sessionFactory.openSession()) {
-            List<ServerPreference> preferences = session.createQuery("from " + ServerPreference.class.getSimpleName()
-                            + " sp where sp.serverId = :serverId and sp.key = :key",
-                    ServerPreference.class)
-                    .setParameter("serverId", serverId)
-                    .setParameter("key", key)
-                    .list();
-            if (preferences != null && !preferences.isEmpty()) {
-                currentValue = preferences.get(0);
-                present = true;
-                if (log.isDebugEnabled()) {
-                    log.debug("Value for key \"{}\" present, is \"{}\"", key, currentValue.toString());
-                }
+        if (!override) {
+            Optional<ServerPreference> cached = serverCache.get(key);
+            if (cached != null) {
+                cacheStatistic.hit();
+                return cached;
+            }
+            cacheStatistic.miss();
+            try {
+                Optional<ServerPreference> fetched = fetch(serverId, key);
+                cached = serverCache.putIfAbsent(key, fetched);
+                return cached != null ? cached : fetched;
+            } catch (Exception err) {
+                logFetchError(serverId, key, err);
+                return Optional.empty();
             }
-        } catch (Exception err) {
-            String errMsg = String.format("Unable to fetch value for server id %d and key \"%s\": %s",
-                    serverId, key, err.getMessage());
-            log.error(errMsg, err);
-            LogsStorage.addErrorMessage(errMsg);
         }
 
-        if (!present || override) {
-            ServerPreference newValue = new ServerPreference();
-            if (currentValue != null) {
-                newValue.setId(currentValue.getId());
-                newValue.setCreateDate(currentValue.getCreateDate());
-            } else {
-                newValue.setCreateDate(Timestamp.from(Instant.now()));
+        synchronized (serverCache) {
+            Optional<ServerPreference> currentValue = serverCache.get(key);
+            if (currentValue == null) {
+                try {
+                    currentValue = fetch(serverId, key);
+                } catch (Exception err) {
+                    logFetchError(serverId, key, err);
+                    currentValue = Optional.empty();
+                }
             }
+
+            ServerPreference newValue = new ServerPreference();
+            currentValue.ifPresentOrElse(value -> {
+                newValue.setId(value.getId());
+                newValue.setCreateDate(value.getCreateDate());
+            }, () -> newValue.setCreateDate(Timestamp.from(Instant.now())));
             newValue.setKey(key);
             newValue.setServerId(serverId);
             newValue.setStringValue(stringValue);
@@ -75,15 +92,54 @@ class ServerPreferencesDAOImpl
 
             try (AutoSession session = sessionFactory.openSession()) {
                 session.save(newValue);
+                serverCache.put(key, Optional.of(newValue));
             } catch (Exception err) {
+                serverCache.remove(key);
                 String errMsg = String.format("Unable to persist server preference value %s: %s",
                         newValue.toString(), err.getMessage());
                 log.error(errMsg, err);
                 LogsStorage.addErrorMessage(errMsg);
             }
+            return currentValue;
+        }
+    }
+
+    private Optional<ServerPreference> fetch(final long serverId,
+                                             @NotNull final ServerPrefKey key) throws Exception {
+
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<ServerPreference> preferences = session.createQuery("from " + ServerPreference.class.getSimpleName()
+                            + " sp where sp.serverId = :serverId and sp.key = :key",
+                    ServerPreference.class)
+                    .setParameter("serverId", serverId)
+                    .setParameter("key", key)
+                    .list();
+            if (preferences != null && !preferences.isEmpty()) {
+                ServerPreference currentValue = preferences.get(0);
+                if (log.isDebugEnabled()) {
+                    log.debug("Value for key \"{}\" present, is \"{}\"", key, currentValue.toString());
+                }
+                return Optional.of(currentValue);
+            }
+            return Optional.empty();
         }
+    }
+
+    private void logFetchError(final long serverId,
+                               @NotNull final ServerPrefKey key,
+                               @NotNull final Exception err) {
+        String errMsg = String.format("Unable to fetch value for server id %d and key \"%s\": %s",
+                serverId, key, err.getMessage());
+        log.error(errMsg, err);
+        LogsStorage.addErrorMessage(errMsg);
+    }
+
+    void invalidateCache() {
+        cache.clear();
+    }
 
-        return Optional.ofNullable(currentValue);
+    CacheStatistic getCacheStatistic() {
+        return cacheStatistic;
     }
 
     private String getStringValue(final long serverId,
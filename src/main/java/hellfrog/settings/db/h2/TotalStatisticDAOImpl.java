@@ -13,6 +13,7 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 class TotalStatisticDAOImpl
         implements TotalStatisticDAO {
@@ -316,6 +317,48 @@ class TotalStatisticDAOImpl
         updateChannelStats(serverId, textChannelId, userId, Instant.now(), messageLength, bytesCount, DECREMENT);
     }
 
+    boolean applyDeltas(@NotNull final Map<BufferedTotalStatisticDAOImpl.ChannelKey, BufferedTotalStatisticDAOImpl.ChannelDelta> channels,
+                        @NotNull final Map<BufferedTotalStatisticDAOImpl.EmojiKey, BufferedTotalStatisticDAOImpl.EmojiDelta> emoji) {
+
+        try (AutoSession session = sessionFactory.openSession()) {
+            try {
+                for (Map.Entry<BufferedTotalStatisticDAOImpl.ChannelKey, BufferedTotalStatisticDAOImpl.ChannelDelta> entry
+                        : channels.entrySet()) {
+                    BufferedTotalStatisticDAOImpl.ChannelKey key = entry.getKey();
+                    TextChannelTotalStatistic current = findTextChannelStatistic(session, key.serverId,
+                            key.textChannelId, key.userId);
+                    if (current == null) {
+                        current = entry.getValue().newEntity(key);
+                    }
+                    entry.getValue().applyTo(current);
+                    session.save(current);
+                }
+                for (Map.Entry<BufferedTotalStatisticDAOImpl.EmojiKey, BufferedTotalStatisticDAOImpl.EmojiDelta> entry
+                        : emoji.entrySet()) {
+                    BufferedTotalStatisticDAOImpl.EmojiKey key = entry.getKey();
+                    EmojiTotalStatistic current = findEmojiStatistic(session, key.serverId, key.emojiId);
+                    if (current == null) {
+                        current = entry.getValue().newEntity(key);
+                    }
+                    entry.getValue().applyTo(current);
+                    session.save(current);
+                }
+                session.success();
+            } catch (RuntimeException err) {
+                // failed changes are returned to the buffer, so nothing of them may be committed
+                session.resetSuccess();
+                throw err;
+            }
+            return true;
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to write %d channel and %d emoji statistic changes: %s",
+                    channels.size(), emoji.size(), err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return false;
+        }
+    }
+
     @Override
     public List<TextChannelTotalStatistic> getChannelsStatistics(long serverId) {
         try (AutoSession session = sessionFactory.openSession()) {
@@ -5,6 +5,7 @@ import hellfrog.core.LogsStorage;
 import hellfrog.settings.db.VoteCreateException;
 import hellfrog.settings.db.VotesDAO;
 import hellfrog.settings.db.entity.Vote;
+import hellfrog.settings.db.entity.VoteBallot;
 import hellfrog.settings.db.entity.VotePoint;
 import hellfrog.settings.db.entity.VoteRoleFilter;
 import org.apache.logging.log4j.LogManager;
@@ -14,6 +15,8 @@ import org.jetbrains.annotations.NotNull;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -23,6 +26,13 @@ class VotesDAOImpl
     private final Logger log = LogManager.getLogger("Votes");
     private final AutoSessionFactory sessionFactory;
 
+    private static final String GET_BALLOTS_QUERY = "from " + VoteBallot.class.getSimpleName() + " b "
+            + "where b.messageId = :messageId order by b.id";
+    private static final String GET_BALLOT_QUERY = "from " + VoteBallot.class.getSimpleName() + " b "
+            + "where b.messageId = :messageId and b.pointId = :pointId and b.userId = :userId";
+    private static final String DELETE_BALLOTS_QUERY = "delete from " + VoteBallot.class.getSimpleName() + " b "
+            + "where b.messageId = :messageId";
+
     VotesDAOImpl(@NotNull AutoSessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
@@ -284,6 +294,9 @@ class VotesDAOImpl
             if (persisted == null) {
                 return false;
             }
+            session.createQuery(DELETE_BALLOTS_QUERY)
+                    .setParameter("messageId", persisted.getMessageId())
+                    .executeUpdate();
             session.removeAll(persisted.getRolesFilter());
             session.removeAll(persisted.getVotePoints());
             session.remove(persisted);
@@ -296,4 +309,110 @@ class VotesDAOImpl
             return false;
         }
     }
+
+    @Override
+    @NotNull
+    public List<VoteBallot> getBallots(long messageId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<VoteBallot> result = session.createQuery(GET_BALLOTS_QUERY, VoteBallot.class)
+                    .setParameter("messageId", messageId)
+                    .list();
+            if (result == null || result.isEmpty()) {
+                return Collections.emptyList();
+            } else {
+                return Collections.unmodifiableList(result);
+            }
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to fetch ballots for vote with message id \"%d\": %s",
+                    messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public boolean addBallot(long messageId, long pointId, long userId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<VoteBallot> stored = findBallot(session, messageId, pointId, userId);
+            if (!stored.isEmpty()) {
+                return false;
+            }
+            session.save(new VoteBallot(messageId, pointId, userId));
+            return true;
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to add ballot of user \"%d\" for point \"%d\" " +
+                    "of vote with message id \"%d\": %s", userId, pointId, messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeBallot(long messageId, long pointId, long userId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            List<VoteBallot> stored = findBallot(session, messageId, pointId, userId);
+            if (stored.isEmpty()) {
+                return false;
+            }
+            session.removeAll(stored);
+            return true;
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to remove ballot of user \"%d\" for point \"%d\" " +
+                    "of vote with message id \"%d\": %s", userId, pointId, messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+            return false;
+        }
+    }
+
+    private List<VoteBallot> findBallot(@NotNull AutoSession session, long messageId, long pointId, long userId) {
+        return session.createQuery(GET_BALLOT_QUERY, VoteBallot.class)
+                .setParameter("messageId", messageId)
+                .setParameter("pointId", pointId)
+                .setParameter("userId", userId)
+                .list();
+    }
+
+    @Override
+    public void replaceBallots(long messageId, @NotNull Collection<VoteBallot> ballots) {
+        List<VoteBallot> actual = new ArrayList<>(ballots.size());
+        for (VoteBallot ballot : ballots) {
+            actual.add(new VoteBallot(messageId, ballot.getPointId(), ballot.getUserId()));
+        }
+        try (AutoSession session = sessionFactory.openSession()) {
+            try {
+                session.createQuery(DELETE_BALLOTS_QUERY)
+                        .setParameter("messageId", messageId)
+                        .executeUpdate();
+                session.saveAll(actual);
+                session.success();
+            } catch (RuntimeException err) {
+                // saveAll has already marked the session as successful
+                session.resetSuccess();
+                throw err;
+            }
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to replace ballots of vote with message id \"%d\": %s",
+                    messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+        }
+    }
+
+    @Override
+    public void deleteBallots(long messageId) {
+        try (AutoSession session = sessionFactory.openSession()) {
+            session.createQuery(DELETE_BALLOTS_QUERY)
+                    .setParameter("messageId", messageId)
+                    .executeUpdate();
+            session.success();
+        } catch (Exception err) {
+            String errMsg = String.format("Unable to delete ballots of vote with message id \"%d\": %s",
+                    messageId, err.getMessage());
+            log.error(errMsg, err);
+            LogsStorage.addErrorMessage(errMsg);
+        }
+    }
 }
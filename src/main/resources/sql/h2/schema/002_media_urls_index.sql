@@ -0,0 +1,44 @@
+----------------------
+-- Create new entities
+----------------------
+-- hellfrog.settings.db.h2.MediaUrlsDAOImpl
+-- hellfrog.settings.db.entity.MediaUrl
+create table `media_urls`
+(
+    `id`             bigint          not null    primary key,
+    `channel_id`     bigint          not null,
+    `message_id`     bigint          not null,
+    `url`            varchar(2000)   not null,
+    `create_date`    timestamp       not null    default localtimestamp,
+    constraint `uniq_media_url` unique (`channel_id`, `message_id`, `url`)
+);
+
+create index `media_urls_channel_idx` on media_urls (channel_id);
+
+comment on table `media_urls` is 'Media URLs found in messages of the pictures source channels';
+comment on column `media_urls`.`id` is 'Unique record ID';
+comment on column `media_urls`.`channel_id` is 'Discord text channel ID';
+comment on column `media_urls`.`message_id` is 'Discord message ID';
+comment on column `media_urls`.`url` is 'Attachment or link URL';
+comment on column `media_urls`.`create_date` is 'Record create date';
+
+create sequence `media_url_idx` start with 1 increment by 50;
+
+-- hellfrog.settings.db.h2.MediaUrlsDAOImpl
+-- hellfrog.settings.db.entity.MediaChannel
+create table `media_channels`
+(
+    `channel_id`         bigint       not null    primary key,
+    `last_message_id`    bigint       not null    default 0,
+    `create_date`        timestamp    not null    default localtimestamp,
+    `update_date`        timestamp    not null    default localtimestamp
+);
+
+comment on table `media_channels` is 'Indexed pictures source channels';
+comment on column `media_channels`.`channel_id` is 'Discord text channel ID';
+comment on column `media_channels`.`last_message_id` is 'Latest indexed message ID (watermark)';
+comment on column `media_channels`.`create_date` is 'Record create date';
+comment on column `media_channels`.`update_date` is 'Record update date';
+
+insert into `schema_versions` (`version`, `script_name`)
+values (2, '002_media_urls_index.sql');
@@ -0,0 +1,28 @@
+----------------------
+-- Create new entities
+----------------------
+-- hellfrog.settings.db.h2.VotesDAOImpl
+-- hellfrog.settings.db.entity.VoteBallot
+create table `vote_ballots`
+(
+    `id`             bigint       not null    primary key,
+    `message_id`     bigint       not null,
+    `point_id`       bigint       not null,
+    `user_id`        bigint       not null,
+    `create_date`    timestamp    not null    default localtimestamp,
+    constraint `uniq_vote_ballot` unique (`message_id`, `point_id`, `user_id`)
+);
+
+create index `vote_ballots_msg` on vote_ballots (message_id);
+
+comment on table `vote_ballots` is 'Reactions of members to the voting points (live tally of the active votes)';
+comment on column `vote_ballots`.`id` is 'Unique record ID';
+comment on column `vote_ballots`.`message_id` is 'Discord message ID, what contain vote';
+comment on column `vote_ballots`.`point_id` is 'Voting point ID within the vote';
+comment on column `vote_ballots`.`user_id` is 'Discord user ID of the voter';
+comment on column `vote_ballots`.`create_date` is 'Record create date';
+
+create sequence `vote_ballot_idx` start with 1 increment by 50;
+
+insert into `schema_versions` (`version`, `script_name`)
+values (3, '003_vote_ballots.sql');
@@ -0,0 +1,62 @@
+package hellfrog.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class ClassRegistryTest {
+
+    @Test
+    public void testRegistryMatchesScan() {
+        Map<String, List<String>> registry = ClassRegistry.load();
+        Assertions.assertNotNull(registry, "class registry is not generated at compile time");
+
+        // реестр, сформированный при компиляции, совпадает с результатом сканирования classpath
+        Map<String, List<String>> scanned = ClassRegistry.scan();
+        for (String base : List.of(ClassRegistry.BOT_COMMAND, ClassRegistry.SCENARIO,
+                ClassRegistry.MSG_CREATE_REACTION, ClassRegistry.ENTITY)) {
+            Assertions.assertFalse(registry.getOrDefault(base, List.of()).isEmpty(), base);
+            Assertions.assertEquals(scanned.get(base), registry.get(base), base);
+        }
+        Assertions.assertTrue(ClassRegistry.getClassNames(ClassRegistry.BOT_COMMAND)
+                .contains("hellfrog.commands.cmdline.ServiceCommand"));
+    }
+
+    @Test
+    public void testIncrementalCompileKeepsRegistry() throws IOException {
+        Path workDir = Files.createTempDirectory("class_registry_");
+        Path source = workDir.resolve("src").resolve("Sample.java");
+        Path output = workDir.resolve("classes");
+        Path registryFile = output.resolve(ClassRegistry.RESOURCE);
+        Files.createDirectories(source.getParent());
+        Files.createDirectories(registryFile.getParent());
+        Files.writeString(source, "@javax.persistence.Entity public class Sample {}", StandardCharsets.UTF_8);
+        Files.writeString(registryFile, String.join("\n",
+                ClassRegistry.BOT_COMMAND + " hellfrog.commands.cmdline.ServiceCommand",
+                ClassRegistry.BOT_COMMAND + " hellfrog.commands.cmdline.RemovedCommand"), StandardCharsets.UTF_8);
+
+        // компилируется только один класс, ранее найденные классы сохраняются, удалённые исключаются
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int exitCode = compiler.run(null, null, null, "-proc:only",
+                "-processor", ClassRegistryProcessor.class.getName(),
+                "-cp", System.getProperty("java.class.path"),
+                "-d", output.toString(), source.toString());
+        Assertions.assertEquals(0, exitCode);
+        Map<String, List<String>> registry;
+        try (InputStream in = Files.newInputStream(registryFile)) {
+            registry = ClassRegistry.parse(in);
+        }
+        Assertions.assertEquals(List.of("hellfrog.commands.cmdline.ServiceCommand"),
+                registry.get(ClassRegistry.BOT_COMMAND));
+        Assertions.assertEquals(List.of("Sample"), registry.get(ClassRegistry.ENTITY));
+    }
+}
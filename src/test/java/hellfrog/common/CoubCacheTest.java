@@ -0,0 +1,58 @@
+package hellfrog.common;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CoubCacheTest {
+
+    private static final int VIDEO_SIZE = 1024;
+
+    @Test
+    public void testEviction(@TempDir Path tempDir) throws IOException {
+        Path cacheDir = tempDir.resolve("coub_cache");
+        CoubCache coubCache = new CoubCache(cacheDir, VIDEO_SIZE * 2L);
+
+        Path first = coubCache.store("first", video(tempDir, "first"), "Track - first");
+        Path second = coubCache.store("second", video(tempDir, "second"), null);
+        coubCache.release("first");
+        coubCache.release("second");
+        Assertions.assertEquals(VIDEO_SIZE * 2L, coubCache.getTotalSize());
+        Assertions.assertEquals("Track - first", coubCache.getAudioTag("first"));
+
+        // запрошенное видео вытесняется последним, отправляемое - не вытесняется
+        Assertions.assertEquals(first, coubCache.acquire("first").orElseThrow());
+        coubCache.release("first");
+        Assertions.assertEquals(second, coubCache.acquire("second").orElseThrow());
+        coubCache.store("third", video(tempDir, "third"), null);
+        Assertions.assertTrue(coubCache.acquire("first").isEmpty());
+        Assertions.assertTrue(Files.notExists(first));
+        Assertions.assertTrue(Files.exists(second));
+        coubCache.release("second");
+        coubCache.release("third");
+
+        // содержимое кэша восстанавливается после перезапуска
+        CoubCache restored = new CoubCache(cacheDir, VIDEO_SIZE * 2L);
+        Assertions.assertEquals(VIDEO_SIZE * 2L, restored.getTotalSize());
+        Assertions.assertTrue(restored.acquire("second").isPresent());
+        Assertions.assertTrue(restored.acquire("third").isPresent());
+        Assertions.assertNull(restored.getAudioTag("third"));
+    }
+
+    @Test
+    public void testCoubId() {
+        Assertions.assertEquals("2dnhtv", CoubGrabber.getCoubId(URI.create("https://coub.com/view/2dnhtv")));
+        Assertions.assertEquals("2dnhtv", CoubGrabber.getCoubId(CoubGrabber.findFirst("see https://coub.com/embed/2dnhtv")));
+    }
+
+    @NotNull
+    private static Path video(@NotNull Path tempDir, @NotNull String name) throws IOException {
+        return Files.write(tempDir.resolve(name + "_.tmp"), new byte[VIDEO_SIZE]);
+    }
+}
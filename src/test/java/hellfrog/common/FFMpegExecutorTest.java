@@ -0,0 +1,80 @@
+package hellfrog.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class FFMpegExecutorTest {
+
+    @Test
+    public void testExecute() throws IOException {
+        FFMpegExecutor executor = new FFMpegExecutor(1, 1);
+        FFMpegResult result = executor.execute(List.of("sh", "-c", "echo out; echo err 1>&2; exit 3"),
+                5L, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, result.getExitCode());
+        Assertions.assertTrue(result.getOutput().contains("out"));
+        Assertions.assertTrue(result.getOutput().contains("err"));
+
+        // не завершившийся вовремя процесс принудительно завершается
+        long started = System.nanoTime();
+        Assertions.assertThrows(IOException.class, () ->
+                executor.execute(List.of("sh", "-c", "sleep 30"), 200L, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 10L);
+        Assertions.assertTrue(executor.describe().get(0).contains("timeouts 1"));
+    }
+
+    @Test
+    public void testRejection() {
+        FFMpegExecutor executor = new FFMpegExecutor(1, 1);
+        List<String> sleep = List.of("sh", "-c", "sleep 1");
+        CompletableFuture<FFMpegResult> running = CompletableFuture.supplyAsync(() -> execute(executor, sleep));
+        waitFor(() -> executor.describe().get(0).contains("running 1/1"));
+        CompletableFuture<FFMpegResult> queued = CompletableFuture.supplyAsync(() -> execute(executor, sleep));
+        waitFor(() -> executor.describe().get(0).contains("queued 1/1"));
+
+        // очередь заполнена, задание отклоняется
+        Assertions.assertThrows(IOException.class, () -> executor.execute(sleep, 5L, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, running.join().getExitCode());
+        Assertions.assertEquals(0, queued.join().getExitCode());
+        Assertions.assertTrue(executor.describe().get(0).contains("rejected 1"));
+    }
+
+    @Test
+    public void testQueueWaitingTimeout() {
+        FFMpegExecutor executor = new FFMpegExecutor(1, 1, Duration.ZERO);
+        CompletableFuture<FFMpegResult> running = CompletableFuture.supplyAsync(() ->
+                execute(executor, List.of("sh", "-c", "sleep 7")));
+        waitFor(() -> executor.describe().get(0).contains("running 1/1"));
+
+        // вызывающий поток не ждёт дольше отведённого времени, задание из очереди отменяется
+        long started = System.nanoTime();
+        Assertions.assertThrows(IOException.class, () ->
+                executor.execute(List.of("sh", "-c", "exit 0"), 100L, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 7L);
+        Assertions.assertTrue(executor.describe().get(0).contains("timeouts 1"));
+        Assertions.assertEquals(0, running.join().getExitCode());
+        Assertions.assertTrue(executor.describe().get(0).contains("completed 1,"));
+    }
+
+    private static FFMpegResult execute(FFMpegExecutor executor, List<String> cmdline) {
+        try {
+            return executor.execute(cmdline, 10L, TimeUnit.SECONDS);
+        } catch (IOException err) {
+            throw new RuntimeException(err);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "Condition timeout");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hellfrog.common;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GptOrchestratorTest {
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFallbackAndTimeout() throws Exception {
+        CompletableFuture<GptResult> never = new CompletableFuture<>();
+        GptOrchestrator orchestrator = new GptOrchestrator(Duration.ZERO, scheduler, executor)
+                .addProvider("failed", 0, 1, Duration.ofSeconds(5L),
+                        text -> CompletableFuture.failedFuture(new GptException("failed")))
+                .addProvider("silent", 1, 1, Duration.ofMillis(100L), text -> never)
+                .addProvider("slow", 2, 1, Duration.ofSeconds(5L), text -> answer(text, "slow", 50L));
+
+        // неудачный и не ответивший вовремя сервисы пропускаются
+        Assertions.assertEquals("text slow", orchestrator.appendText("text").get(5L, TimeUnit.SECONDS)
+                .getResultText());
+        // не ответивший сервис остаётся занятым, пока запрос не завершится
+        Assertions.assertFalse(never.isDone());
+        Assertions.assertTrue(orchestrator.describe().get(2).contains("running 1/1"), orchestrator.describe().get(2));
+        never.complete(new GptResult(" late", "silent"));
+        Assertions.assertTrue(orchestrator.describe().get(2).startsWith("silent: ok 0, failed 0, timeouts 1"),
+                orchestrator.describe().get(2));
+        Assertions.assertTrue(orchestrator.describe().get(2).contains("running 0/1"), orchestrator.describe().get(2));
+    }
+
+    @Test
+    public void testAllFailed() {
+        GptOrchestrator orchestrator = new GptOrchestrator(Duration.ZERO, scheduler, executor)
+                .addProvider("first", 0, 1, Duration.ofSeconds(5L),
+                        text -> CompletableFuture.failedFuture(new GptException("first")))
+                .addProvider("second", 1, 1, Duration.ofSeconds(5L),
+                        text -> CompletableFuture.failedFuture(new GptException("second")));
+
+        ExecutionException err = Assertions.assertThrows(ExecutionException.class,
+                () -> orchestrator.appendText("text").get(5L, TimeUnit.SECONDS));
+        Assertions.assertEquals("second", err.getCause().getMessage());
+    }
+
+    @Test
+    public void testHedging() throws Exception {
+        GptOrchestrator orchestrator = new GptOrchestrator(Duration.ofMillis(100L), scheduler, executor)
+                .addProvider("slow", 0, 1, Duration.ofSeconds(10L), text -> answer(text, "slow", 3_000L))
+                .addProvider("fast", 1, 1, Duration.ofSeconds(10L), text -> answer(text, "fast", 10L));
+
+        // второй сервис опрашивается, не дожидаясь ответа первого
+        long startedAt = System.nanoTime();
+        Assertions.assertEquals("text fast", orchestrator.appendText("text").get(5L, TimeUnit.SECONDS)
+                .getResultText());
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) < 2_000L);
+        Assertions.assertTrue(orchestrator.describe().get(0).contains("hedged 1"), orchestrator.describe().get(0));
+    }
+
+    @Test
+    public void testCoalescingAndConcurrencyLimit() throws Exception {
+        AtomicInteger calls = new AtomicInteger(0);
+        CompletableFuture<GptResult> pending = new CompletableFuture<>();
+        GptOrchestrator orchestrator = new GptOrchestrator(Duration.ZERO, scheduler, executor)
+                .addProvider("single", 0, 1, Duration.ofSeconds(10L), text -> {
+                    calls.incrementAndGet();
+                    return pending;
+                });
+
+        CompletableFuture<GptResult> first = orchestrator.appendText("text");
+        CompletableFuture<GptResult> second = orchestrator.appendText("text");
+        Assertions.assertEquals(1, calls.get());
+
+        // другой запрос не выполняется, пока сервис занят
+        ExecutionException err = Assertions.assertThrows(ExecutionException.class,
+                () -> orchestrator.appendText("other").get(5L, TimeUnit.SECONDS));
+        Assertions.assertTrue(err.getCause() instanceof GptException);
+        Assertions.assertEquals(1, calls.get());
+
+        pending.complete(new GptResult(" done", "test"));
+        Assertions.assertEquals(" done", first.get(5L, TimeUnit.SECONDS).getResultText());
+        Assertions.assertEquals(" done", second.get(5L, TimeUnit.SECONDS).getResultText());
+        Assertions.assertTrue(orchestrator.describe().get(0).contains("coalesced 1"), orchestrator.describe().get(0));
+    }
+
+    private CompletableFuture<GptResult> answer(String text, String suffix, long delayMillis) {
+        return CompletableFuture.supplyAsync(() -> new GptResult(text + " " + suffix, suffix),
+                CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, executor));
+    }
+}
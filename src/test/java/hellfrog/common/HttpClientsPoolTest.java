@@ -0,0 +1,49 @@
+package hellfrog.common;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+public class HttpClientsPoolTest {
+
+    @Test
+    public void testConnectionReuse() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        SchedulerService schedulerService = new SchedulerService(1);
+        HttpClientsPool pool = new HttpClientsPool(schedulerService);
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+            for (int i = 0; i < 3; i++) {
+                SimpleHttpClient client = pool.borrowClient();
+                try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+                    Assertions.assertEquals("ok", EntityUtils.toString(response.getEntity()));
+                } finally {
+                    pool.returnClient(client);
+                }
+            }
+            // все запросы к одному хосту выполнены через одно соединение, которое вернулось в пул
+            Assertions.assertTrue(pool.describe().get(0)
+                    .startsWith("HTTP connections: leased 0, available 1, pending 0"), pool.describe().get(0));
+        } finally {
+            pool.stop();
+            schedulerService.stop();
+            server.stop(0);
+        }
+    }
+}
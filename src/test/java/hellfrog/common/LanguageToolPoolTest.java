@@ -0,0 +1,45 @@
+package hellfrog.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.languagetool.language.AmericanEnglish;
+import org.languagetool.rules.RuleMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LanguageToolPoolTest {
+
+    @Test
+    public void testLazyPoolAndCache() throws Exception {
+        AtomicInteger languagesCreated = new AtomicInteger(0);
+        LanguageToolPool pool = new LanguageToolPool(() -> {
+            languagesCreated.incrementAndGet();
+            return new AmericanEnglish();
+        }, 2);
+        // язык не загружается до первой проверки
+        Assertions.assertEquals(0, languagesCreated.get());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<RuleMatch>>> checks = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String text = "This are a test number " + i + ".";
+                checks.add(executor.submit(() -> pool.check(text)));
+            }
+            for (Future<List<RuleMatch>> check : checks) {
+                Assertions.assertFalse(check.get(2L, TimeUnit.MINUTES).isEmpty());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1, languagesCreated.get());
+        Assertions.assertTrue(pool.getInstancesCount() >= 1 && pool.getInstancesCount() <= 2);
+
+        // повторная проверка того же текста берётся из кэша
+        List<RuleMatch> first = pool.check("This are a test.");
+        Assertions.assertSame(first, pool.check("This are a test."));
+    }
+}
@@ -0,0 +1,148 @@
+package hellfrog.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResponseCacheTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1L).toNanos();
+
+    @Test
+    public void testStaleWhileRevalidate() throws Exception {
+        AtomicLong clock = new AtomicLong(0L);
+        AtomicInteger loads = new AtomicInteger(0);
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ResponseCache<String, String> cache = new ResponseCache<>("test", 2,
+                Duration.ofMinutes(10L), Duration.ofMinutes(10L), Duration.ofMinutes(1L),
+                key -> key + loads.incrementAndGet(), clock::get, tasks::add);
+
+        // параллельные запросы отсутствующего значения ожидают одну загрузку
+        CompletableFuture<String> first = cache.get("a");
+        CompletableFuture<String> second = cache.get("a");
+        Assertions.assertEquals(1, tasks.size());
+        tasks.poll().run();
+        Assertions.assertEquals("a1", first.get());
+        Assertions.assertEquals("a1", second.get());
+
+        clock.addAndGet(5L * MINUTE);
+        Assertions.assertEquals("a1", cache.get("a").getNow(null));
+        Assertions.assertTrue(tasks.isEmpty());
+
+        // устаревшее значение отдаётся сразу, обновление одно
+        clock.addAndGet(10L * MINUTE);
+        Assertions.assertEquals("a1", cache.get("a").getNow(null));
+        Assertions.assertEquals("a1", cache.get("a").getNow(null));
+        Assertions.assertEquals(1, tasks.size());
+        tasks.poll().run();
+        Assertions.assertEquals("a2", cache.get("a").getNow(null));
+
+        // после окончания времени устаревания значение загружается заново
+        clock.addAndGet(30L * MINUTE);
+        CompletableFuture<String> reloaded = cache.get("a");
+        Assertions.assertFalse(reloaded.isDone());
+        tasks.poll().run();
+        Assertions.assertEquals("a3", reloaded.get());
+        Assertions.assertEquals(4L, cache.getCacheStatistic().getHits());
+        Assertions.assertEquals(3L, cache.getCacheStatistic().getMisses());
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        AtomicLong clock = new AtomicLong(0L);
+        AtomicInteger loads = new AtomicInteger(0);
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ResponseCache<String, String> cache = new ResponseCache<>("test", 2,
+                Duration.ofMinutes(10L), Duration.ofMinutes(10L), Duration.ofMinutes(1L),
+                key -> {
+                    loads.incrementAndGet();
+                    throw new IOException("service unavailable");
+                }, clock::get, tasks::add);
+
+        CompletableFuture<String> failed = cache.get("a");
+        tasks.poll().run();
+        ExecutionException err = Assertions.assertThrows(ExecutionException.class, failed::get);
+        Assertions.assertTrue(err.getCause() instanceof IOException);
+
+        // ошибка отдаётся из кэша, пока не истекло время её хранения
+        Assertions.assertTrue(cache.get("a").isCompletedExceptionally());
+        Assertions.assertTrue(tasks.isEmpty());
+        clock.addAndGet(2L * MINUTE);
+        Assertions.assertFalse(cache.get("a").isDone());
+        Assertions.assertEquals(1, tasks.size());
+        tasks.poll().run();
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testFailedRevalidateKeepsStaleValue() {
+        AtomicLong clock = new AtomicLong(0L);
+        AtomicInteger loads = new AtomicInteger(0);
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ResponseCache<String, String> cache = new ResponseCache<>("test", 2,
+                Duration.ofMinutes(10L), Duration.ofMinutes(10L), Duration.ofMinutes(1L),
+                key -> {
+                    if (loads.incrementAndGet() > 1) {
+                        throw new IOException("service unavailable");
+                    }
+                    return key;
+                }, clock::get, tasks::add);
+
+        cache.get("a");
+        tasks.poll().run();
+        clock.addAndGet(11L * MINUTE);
+        Assertions.assertEquals("a", cache.get("a").getNow(null));
+        tasks.poll().run();
+
+        // после неудачного обновления старое значение отдаётся без повторных попыток до истечения времени ошибки
+        Assertions.assertEquals("a", cache.get("a").getNow(null));
+        Assertions.assertTrue(tasks.isEmpty());
+        clock.addAndGet(2L * MINUTE);
+        Assertions.assertEquals("a", cache.get("a").getNow(null));
+        Assertions.assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testBoundedSize() throws Exception {
+        AtomicInteger loads = new AtomicInteger(0);
+        ResponseCache<String, String> cache = new ResponseCache<>("test", 2,
+                Duration.ofMinutes(10L), Duration.ofMinutes(10L), Duration.ofMinutes(1L),
+                key -> key + loads.incrementAndGet(), () -> 0L, Runnable::run);
+
+        Assertions.assertEquals("a1", cache.get("a").get());
+        Assertions.assertEquals("b2", cache.get("b").get());
+        Assertions.assertEquals("a1", cache.get("a").get());
+        Assertions.assertEquals("c3", cache.get("c").get());
+        // вытеснен ключ, который дольше всего не запрашивался
+        Assertions.assertEquals("a1", cache.get("a").get());
+        Assertions.assertEquals("b4", cache.get("b").get());
+    }
+
+    @Test
+    public void testRejectedLoadIsNotCached() throws Exception {
+        AtomicInteger loads = new AtomicInteger(0);
+        AtomicInteger rejects = new AtomicInteger(1);
+        ResponseCache<String, String> cache = new ResponseCache<>("test", 2,
+                Duration.ofMinutes(10L), Duration.ofMinutes(10L), Duration.ofMinutes(1L),
+                key -> key + loads.incrementAndGet(), () -> 0L, task -> {
+            if (rejects.getAndDecrement() > 0) {
+                throw new RejectedExecutionException("queue is full");
+            }
+            task.run();
+        });
+
+        // переполнение пула загрузок не кэшируется как ошибка сервиса
+        ExecutionException err = Assertions.assertThrows(ExecutionException.class, () -> cache.get("a").get());
+        Assertions.assertTrue(err.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals("a1", cache.get("a").get());
+    }
+}
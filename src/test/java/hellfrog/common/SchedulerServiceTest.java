@@ -0,0 +1,78 @@
+package hellfrog.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SchedulerServiceTest {
+
+    @Test
+    public void testPeriodicRunsAndFailures() throws Exception {
+        SchedulerService schedulerService = new SchedulerService(2);
+        try {
+            AtomicInteger calls = new AtomicInteger(0);
+            CountDownLatch done = new CountDownLatch(3);
+            SchedulerService.ScheduledTask task = schedulerService.schedule("failing", 0L, 20L,
+                    TimeUnit.MILLISECONDS, () -> {
+                        calls.incrementAndGet();
+                        done.countDown();
+                        throw new IllegalStateException("failed");
+                    });
+            // ошибка запуска не отменяет последующие запуски
+            Assertions.assertTrue(done.await(5L, TimeUnit.SECONDS));
+            task.cancel();
+            Assertions.assertTrue(schedulerService.getTaskNames().isEmpty());
+            Thread.sleep(100L);
+            final int callsAfterCancel = calls.get();
+            Thread.sleep(100L);
+            Assertions.assertEquals(callsAfterCancel, calls.get());
+            Assertions.assertEquals(callsAfterCancel, task.getFailures());
+            Assertions.assertEquals(callsAfterCancel, task.getRuns());
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> {
+                schedulerService.schedule("twice", 1L, 1L, TimeUnit.HOURS, () -> {
+                });
+                schedulerService.schedule("twice", 1L, 1L, TimeUnit.HOURS, () -> {
+                });
+            });
+        } finally {
+            schedulerService.stop();
+        }
+    }
+
+    @Test
+    public void testOverrunAndTrigger() throws Exception {
+        SchedulerService schedulerService = new SchedulerService(2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean(false);
+        SchedulerService.ScheduledTask task = schedulerService.schedule("slow", 1L, 1L, TimeUnit.HOURS, () -> {
+            started.countDown();
+            try {
+                release.await(5L, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            finished.set(true);
+        });
+        try {
+            Assertions.assertTrue(schedulerService.trigger("slow"));
+            Assertions.assertTrue(started.await(5L, TimeUnit.SECONDS));
+            // пока задача выполняется, повторный запуск пропускается
+            Assertions.assertFalse(schedulerService.trigger("slow"));
+            Assertions.assertFalse(schedulerService.trigger("unknown"));
+            Assertions.assertTrue(task.isRunning());
+            Assertions.assertTrue(schedulerService.describe().get(1).startsWith("slow: every 3600 s, runs 0"),
+                    schedulerService.describe().get(1));
+        } finally {
+            release.countDown();
+            // остановка дожидается завершения выполняющейся задачи
+            schedulerService.stop();
+        }
+        Assertions.assertTrue(finished.get());
+        Assertions.assertEquals(1L, task.getRuns());
+    }
+}
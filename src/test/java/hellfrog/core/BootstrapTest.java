@@ -0,0 +1,65 @@
+package hellfrog.core;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class BootstrapTest {
+
+    @Test
+    public void testParallelPhases() throws Exception {
+        Bootstrap bootstrap = new Bootstrap("test");
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        // каждый этап ждёт начала другого, при последовательном запуске этапы не завершатся
+        Bootstrap.Phase<String> first = bootstrap.phase("first", () -> {
+            bothStarted.countDown();
+            Assertions.assertTrue(bothStarted.await(5L, TimeUnit.SECONDS));
+            return "first";
+        });
+        Bootstrap.Phase<String> second = bootstrap.phase("second", () -> {
+            bothStarted.countDown();
+            Assertions.assertTrue(bothStarted.await(5L, TimeUnit.SECONDS));
+            return "second";
+        });
+        Bootstrap.Phase<String> joined = bootstrap.phase("joined",
+                () -> first.join() + " " + second.join(), first, second);
+
+        bootstrap.await();
+        Assertions.assertEquals("first second", joined.get());
+        List<String> report = bootstrap.describe();
+        Assertions.assertEquals(4, report.size());
+        Assertions.assertTrue(report.get(3).startsWith("  joined: ok, started at "), report.get(3));
+    }
+
+    @Test
+    public void testFailedDependency() {
+        Bootstrap bootstrap = new Bootstrap("test");
+        AtomicBoolean dependentStarted = new AtomicBoolean(false);
+        Bootstrap.Phase<Void> failed = bootstrap.phase("failed", () -> {
+            throw new IOException("no database");
+        });
+        Bootstrap.Phase<Void> dependent = bootstrap.phase("dependent", () -> {
+            dependentStarted.set(true);
+            return null;
+        }, failed);
+        Bootstrap.Phase<String> independent = bootstrap.phase("independent", () -> "ok");
+
+        BootstrapException err = Assertions.assertThrows(BootstrapException.class, bootstrap::await);
+        Assertions.assertEquals("failed", err.getPhaseName());
+        Assertions.assertTrue(err.getCause() instanceof IOException);
+        // зависящий этап не запускается и сообщает об ошибке исходного этапа
+        Assertions.assertEquals("failed",
+                Assertions.assertThrows(BootstrapException.class, dependent::get).getPhaseName());
+        Assertions.assertFalse(dependentStarted.get());
+        Assertions.assertEquals("ok", independent.join());
+
+        List<String> report = bootstrap.describe();
+        Assertions.assertTrue(report.get(1).startsWith("  failed: failed"), report.get(1));
+        Assertions.assertEquals("  dependent: skipped", report.get(2));
+    }
+}
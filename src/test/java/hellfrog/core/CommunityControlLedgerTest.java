@@ -0,0 +1,109 @@
+package hellfrog.core;
+
+import hellfrog.settings.db.CommunityControlDAO;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.Reaction;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.reaction.SingleReactionEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class CommunityControlLedgerTest {
+
+    private static final long AUTHOR_ID = 246149070702247936L;
+    private static final long FIRST_USER = AUTHOR_ID + 1L;
+    private static final long SECOND_USER = AUTHOR_ID + 2L;
+    private static final long THIRD_USER = AUTHOR_ID + 3L;
+
+    @Test
+    public void testSeedAndCount() {
+        CommunityControlLedger.ReactionCounter counter = new CommunityControlLedger.ReactionCounter();
+
+        // до запроса реакций сообщения изменения не учитываются
+        Assertions.assertFalse(counter.apply(FIRST_USER, true));
+        Assertions.assertTrue(counter.beginSeed());
+        Assertions.assertFalse(counter.beginSeed());
+
+        // события, пришедшие во время запроса реакций, применяются поверх полученного результата
+        Assertions.assertFalse(counter.apply(SECOND_USER, true));
+        Assertions.assertFalse(counter.apply(FIRST_USER, false));
+        counter.finishSeed(AUTHOR_ID, LongSets.mutable.of(FIRST_USER, THIRD_USER));
+        Assertions.assertTrue(counter.isSeeded());
+        Assertions.assertFalse(counter.beginSeed());
+        Assertions.assertEquals(AUTHOR_ID, counter.getAuthorId());
+        Assertions.assertEquals(2, counter.count(userId -> true));
+
+        Assertions.assertTrue(counter.apply(FIRST_USER, true));
+        Assertions.assertTrue(counter.apply(FIRST_USER, true));
+        Assertions.assertEquals(3, counter.count(userId -> true));
+        Assertions.assertTrue(counter.apply(THIRD_USER, false));
+        Assertions.assertEquals(2, counter.count(userId -> true));
+
+        // исключённые из общественного контроля участники не учитываются
+        Assertions.assertEquals(1, counter.count(userId -> userId != SECOND_USER));
+    }
+
+    @Test
+    public void testFailedSeed() {
+        CommunityControlLedger.ReactionCounter counter = new CommunityControlLedger.ReactionCounter();
+        Assertions.assertTrue(counter.beginSeed());
+        Assertions.assertFalse(counter.apply(FIRST_USER, true));
+        counter.finishSeed(0L, null);
+        Assertions.assertFalse(counter.isSeeded());
+
+        // повторный запрос реакций не использует изменения неудачного запроса
+        Assertions.assertTrue(counter.beginSeed());
+        counter.finishSeed(AUTHOR_ID, LongSets.mutable.empty());
+        Assertions.assertEquals(0, counter.count(userId -> true));
+    }
+
+    @Test
+    public void testStuckSeedDoesNotBlockOtherMessages() throws Exception {
+        EventsExecutor eventsExecutor = new EventsExecutor(1, 16, 2, EventsExecutor.OverflowPolicy.BLOCK);
+        CommunityControlDAO controlDAO = StubEntities.stub(CommunityControlDAO.class, Map.of(
+                "isControlUser", true));
+        CommunityControlLedger ledger = new CommunityControlLedger(controlDAO, eventsExecutor);
+        CompletableFuture<Message> stuckMessage = new CompletableFuture<>();
+        try {
+            // сообщение первого события не загружается
+            TextChannel stuckChannel = StubEntities.stub(TextChannel.class, Map.of(
+                    "getMessageById", (StubEntities.Answer) args -> stuckMessage));
+            ledger.onControlReaction(reactionEvent(1L, Optional.empty(), stuckChannel), "key", true,
+                    (authorId, count) -> Assertions.fail("stuck message must not be counted"));
+
+            User controlUser = StubEntities.stub(User.class, Map.of("getId", FIRST_USER));
+            Reaction reaction = StubEntities.stub(Reaction.class, Map.of(
+                    "getUsers", (StubEntities.Answer) args -> CompletableFuture.completedFuture(List.of(controlUser))));
+            User author = StubEntities.stub(User.class, Map.of("getId", AUTHOR_ID));
+            Message message = StubEntities.stub(Message.class, Map.of(
+                    "getUserAuthor", Optional.of(author),
+                    "getReactionByEmoji", Optional.of(reaction)));
+            CompletableFuture<long[]> counted = new CompletableFuture<>();
+            ledger.onControlReaction(reactionEvent(2L, Optional.of(message), stuckChannel), "key", true,
+                    (authorId, count) -> counted.complete(new long[]{authorId, count}));
+            Assertions.assertArrayEquals(new long[]{AUTHOR_ID, 1L}, counted.get(5L, TimeUnit.SECONDS));
+        } finally {
+            stuckMessage.completeExceptionally(new IllegalStateException("test is over"));
+            eventsExecutor.stop();
+        }
+    }
+
+    private static SingleReactionEvent reactionEvent(long messageId, Optional<Message> message, TextChannel channel) {
+        Server server = StubEntities.stub(Server.class, Map.of("getId", 1L));
+        return StubEntities.stub(SingleReactionEvent.class, Map.of(
+                "getServer", Optional.of(server),
+                "getMessageId", messageId,
+                "getUserId", FIRST_USER,
+                "getMessage", message,
+                "getChannel", channel));
+    }
+}
@@ -0,0 +1,48 @@
+package hellfrog.core;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class DispatchIndexTest {
+
+    @Test
+    public void testCombinedTriggers() {
+        List<Pattern> patterns = List.of(
+                Pattern.compile("^(wtf|втф)\\s+.*", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE),
+                Pattern.compile("^[qtцт]{2}.*channels/\\d+/\\d+/\\d+",
+                        Pattern.MULTILINE | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE),
+                Pattern.compile("https://coub\\.com/(embed|view|v)/\\w+"),
+                Pattern.compile("^\\s*\\d+\\s?[dд]\\s?\\d+", Pattern.MULTILINE));
+
+        Pattern combined = DispatchIndex.combinePatterns(patterns);
+
+        List<String> messages = List.of(
+                "ВТФ someone",
+                "hello\nwtf someone", // без MULTILINE шаблон срабатывает только в начале текста
+                "hi\nТТ https://discord.com/channels/1/2/3",
+                "look https://coub.com/view/abc",
+                "look HTTPS://COUB.COM/view/abc", // шаблон без флагов регистр учитывает
+                "roll\n2d20",
+                "2D20",
+                "just a plain message",
+                "");
+
+        // объединённый шаблон находит совпадение тогда и только тогда, когда его находит хотя бы один из исходных
+        for (String message : messages) {
+            boolean expected = patterns.stream().anyMatch(p -> p.matcher(message).find());
+            Assertions.assertEquals(expected, combined.matcher(message).find(), message);
+        }
+    }
+
+    @Test
+    public void testNotCombinable() {
+        Assertions.assertTrue(DispatchIndex.isCombinable(Pattern.compile("(a)b")));
+        Assertions.assertFalse(DispatchIndex.isCombinable(Pattern.compile("(a)\\1")));
+        Assertions.assertFalse(DispatchIndex.isCombinable(Pattern.compile("a.b", Pattern.LITERAL)));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> DispatchIndex.combinePatterns(List.of(Pattern.compile("(a)\\1"))));
+    }
+}
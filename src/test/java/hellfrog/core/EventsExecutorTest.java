@@ -0,0 +1,144 @@
+package hellfrog.core;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EventsExecutorTest {
+
+    @Test
+    public void testServerOrder() throws Exception {
+        EventsExecutor executor = new EventsExecutor(4, 100, 2, EventsExecutor.OverflowPolicy.BLOCK);
+        try {
+            final long serverId = 612645599132778517L;
+            final int tasksCount = 1000;
+            final List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+            final CountDownLatch done = new CountDownLatch(tasksCount);
+            for (int i = 0; i < tasksCount; i++) {
+                final int number = i;
+                // очередь меньше числа задач, отправитель должен ожидать без потери задач
+                Assertions.assertTrue(executor.execute(serverId, EventsExecutor.Priority.NORMAL, () -> {
+                    executed.add(number);
+                    done.countDown();
+                }));
+            }
+            Assertions.assertTrue(done.await(10L, TimeUnit.SECONDS));
+            for (int i = 0; i < tasksCount; i++) {
+                Assertions.assertEquals(i, executed.get(i));
+            }
+        } finally {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testOverflow() throws Exception {
+        EventsExecutor executor = new EventsExecutor(2, 2, 2, EventsExecutor.OverflowPolicy.DROP);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final long noisyServerId = 0L;
+            final long quietServerId = 1L;
+            final CountDownLatch started = new CountDownLatch(1);
+            Assertions.assertTrue(executor.execute(noisyServerId, EventsExecutor.Priority.NORMAL, () -> {
+                started.countDown();
+                awaitQuietly(release);
+            }));
+            Assertions.assertTrue(started.await(10L, TimeUnit.SECONDS));
+            Assertions.assertTrue(executor.execute(noisyServerId, EventsExecutor.Priority.LOW, () -> {
+            }));
+            Assertions.assertTrue(executor.execute(noisyServerId, EventsExecutor.Priority.LOW, () -> {
+            }));
+
+            // очередь полосы заполнена, задачи низкого приоритета отбрасываются
+            Assertions.assertFalse(executor.execute(noisyServerId, EventsExecutor.Priority.LOW, () -> {
+            }));
+            Assertions.assertTrue(executor.describe().get(0).endsWith("dropped 1"), executor.describe().get(0));
+
+            // занятая полоса не задерживает серверы других полос
+            final CountDownLatch quietDone = new CountDownLatch(1);
+            Assertions.assertTrue(executor.execute(quietServerId, EventsExecutor.Priority.NORMAL,
+                    quietDone::countDown));
+            Assertions.assertTrue(quietDone.await(10L, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testBlockingTasksDoNotDelayLanes() throws Exception {
+        EventsExecutor executor = new EventsExecutor(1, 10, 2, EventsExecutor.OverflowPolicy.BLOCK);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final long busyServerId = 0L;
+            final long otherServerId = 1L;
+            final CountDownLatch started = new CountDownLatch(1);
+            Assertions.assertTrue(executor.executeBlocking(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            }));
+            Assertions.assertTrue(started.await(10L, TimeUnit.SECONDS));
+
+            // долгая обработка одного сервера не занимает единственную полосу
+            final CountDownLatch laneDone = new CountDownLatch(2);
+            Assertions.assertTrue(executor.execute(busyServerId, EventsExecutor.Priority.NORMAL,
+                    laneDone::countDown));
+            Assertions.assertTrue(executor.execute(otherServerId, EventsExecutor.Priority.LOW,
+                    laneDone::countDown));
+            Assertions.assertTrue(laneDone.await(10L, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void testStopDrainsQueuedTasks() throws Exception {
+        EventsExecutor executor = new EventsExecutor(1, 100, 1, EventsExecutor.OverflowPolicy.BLOCK);
+        final CountDownLatch release = new CountDownLatch(1);
+        final long serverId = 0L;
+        final int tasksCount = 50;
+        final AtomicInteger executed = new AtomicInteger(0);
+        final CountDownLatch started = new CountDownLatch(1);
+        Assertions.assertTrue(executor.execute(serverId, EventsExecutor.Priority.NORMAL, () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        Assertions.assertTrue(started.await(10L, TimeUnit.SECONDS));
+        for (int i = 0; i < tasksCount; i++) {
+            Assertions.assertTrue(executor.execute(serverId, EventsExecutor.Priority.LOW,
+                    executed::incrementAndGet));
+        }
+        Assertions.assertTrue(executor.executeBlocking(executed::incrementAndGet));
+
+        // остановка выполняет уже поставленные задачи и не принимает новые
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        });
+        releaser.start();
+        executor.stop();
+        Assertions.assertEquals(tasksCount + 1, executed.get());
+        Assertions.assertFalse(executor.execute(serverId, EventsExecutor.Priority.LOW, executed::incrementAndGet));
+        Assertions.assertFalse(executor.executeBlocking(executed::incrementAndGet));
+        Assertions.assertEquals(tasksCount + 1, executed.get());
+        releaser.join();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10L, TimeUnit.SECONDS);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package hellfrog.core;
+
+import hellfrog.commands.cmdline.BotCommand;
+import hellfrog.common.SchedulerService;
+import hellfrog.settings.ServerPreferences;
+import hellfrog.settings.db.CommonPreferencesDAO;
+import hellfrog.settings.db.InstanceType;
+import hellfrog.settings.db.MainDBController;
+import hellfrog.settings.db.ServerPreferencesDAO;
+import org.apache.commons.cli.CommandLine;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.Icon;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.emoji.CustomEmoji;
+import org.javacord.api.entity.emoji.Emoji;
+import org.javacord.api.entity.emoji.KnownCustomEmoji;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAttachment;
+import org.javacord.api.entity.message.MessageAuthor;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.javacord.api.event.message.MessageDeleteEvent;
+import org.javacord.api.event.message.reaction.ReactionAddEvent;
+import org.javacord.api.event.message.reaction.ReactionRemoveEvent;
+import org.javacord.api.event.server.member.ServerMemberJoinEvent;
+import org.javacord.api.event.server.member.ServerMemberLeaveEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Воспроизведение записанных ({@link EventsCapture}) или сгенерированных событий без подключения к Discord.
+ * <p>
+ * События передаются в {@link EventsListener}, которому вместо {@link hellfrog.settings.SettingsController}
+ * передаются службы, работающие с тестовой базой H2. Сущности Discord заменены заглушками.
+ * Команды заменены заглушками с префиксами настоящих команд, которые только проверяют права доступа,
+ * сценарии и реакции на сообщения не выполняются: они отправляют сообщения в Discord.
+ * <p>
+ * По окончании выводится число событий в секунду (с учётом выполнения отложенных задач полос
+ * обработки событий), задержки обработки события обработчиком (p50/p99) и количество транзакций
+ * на событие, включая отложенную запись буферизованных DAO.
+ * <p>
+ * Запуск: {@code EventsReplay [файл записи|-] [событий в секунду, 0 - без ограничения]
+ * [серверов] [пользователей] [каналов] [событий]}
+ */
+public class EventsReplay
+        implements EventsContext {
+
+    private static final long BOT_OWNER_ID = 1L;
+    private static final long BOT_USER_ID = 2L;
+    private static final String BOT_AVATAR_URL = "https://cdn.discordapp.com/embed/avatars/0.png";
+
+    private final MainDBController mainDBController;
+    private final ServerPreferencesDAO serverPreferencesDAO;
+    private final DiscordApi discordApi;
+    private final SchedulerService schedulerService = new SchedulerService(1);
+    private final EventsExecutor eventsExecutor;
+    private final DispatchMetrics dispatchMetrics = new DispatchMetrics();
+    private final NameCacheService nameCacheService;
+    private final StatisticService statisticService;
+    private final AccessControlService accessControlService;
+    private final MessageCacheService messageCacheService = new MessageCacheService();
+    private final MessagesForwarder messagesForwarder = new MessagesForwarder();
+    private final VoteTallyService voteTallyService;
+    private final VoteController voteController;
+    private final CommunityControlLedger communityControlLedger;
+    private final CongratulationsController congratulationsController;
+    private final InvitesController invitesController;
+    private final AutoPromoteService autoPromoteService;
+    private final EventsListener eventsListener;
+
+    private final ConcurrentHashMap<Long, Server> servers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, User> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, TextChannel> channels = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ServerPreferences> serverPreferences = new ConcurrentHashMap<>();
+
+    private EventsReplay(@NotNull MainDBController mainDBController) throws MalformedURLException {
+        this.mainDBController = mainDBController;
+        this.serverPreferencesDAO = mainDBController.getServerPreferencesDAO();
+        Icon avatar = StubEntities.stub(Icon.class, Map.of("getUrl", new URL(BOT_AVATAR_URL)));
+        User yourself = StubEntities.stub(User.class, Map.of(
+                "getId", BOT_USER_ID,
+                "getName", "hellfrog",
+                "getAvatar", avatar,
+                "isBot", true,
+                "isYourself", true));
+        this.discordApi = StubEntities.stub(DiscordApi.class, Map.of(
+                "getOwnerId", BOT_OWNER_ID,
+                "getClientId", BOT_USER_ID,
+                "getYourself", yourself));
+        CommonPreferencesDAO commonPreferencesDAO = mainDBController.getCommonPreferencesDAO();
+        this.eventsExecutor = new EventsExecutor(
+                (int) Math.max(1L, commonPreferencesDAO.getEventsLanes()),
+                (int) Math.max(1L, commonPreferencesDAO.getEventsQueueCapacity()),
+                (int) Math.max(1L, commonPreferencesDAO.getEventsIoThreads()),
+                EventsExecutor.OverflowPolicy.parse(commonPreferencesDAO.getEventsLowPriorityOverflow(),
+                        EventsExecutor.OverflowPolicy.BLOCK));
+        this.nameCacheService = new NameCacheService(() -> discordApi, mainDBController.getEntityNameCacheDAO(),
+                schedulerService);
+        this.statisticService = new StatisticService(mainDBController.getTotalStatisticDAO(),
+                serverPreferencesDAO, nameCacheService);
+        this.accessControlService = new AccessControlService(mainDBController, nameCacheService);
+        this.voteTallyService = new VoteTallyService(mainDBController.getVotesDAO());
+        this.voteController = new VoteController(schedulerService);
+        this.communityControlLedger = new CommunityControlLedger(mainDBController.getCommunityControlDAO(),
+                eventsExecutor);
+        this.congratulationsController = new CongratulationsController(serverPreferencesDAO, schedulerService);
+        this.invitesController = new InvitesController(schedulerService);
+        this.autoPromoteService = new AutoPromoteService(mainDBController.getAutoPromoteRolesDAO(),
+                mainDBController.getRoleAssignDAO(), serverPreferencesDAO, schedulerService);
+        // периодические задачи этих служб обращаются к подключению к Discord и не воспроизводятся
+        congratulationsController.stop();
+        invitesController.stop();
+        autoPromoteService.stop();
+
+        List<BotCommand> commands = BotCommand.all().stream()
+                .map(BotCommand::getPrefix)
+                .distinct()
+                .map(AclProbeCommand::new)
+                .collect(Collectors.toUnmodifiableList());
+        this.eventsListener = new EventsListener(this,
+                new DispatchIndex(Collections.emptyList(), commands, Collections.emptyList()));
+    }
+
+    /**
+     * Воспроизвести события на чистой тестовой базе
+     *
+     * @param events          события в порядке воспроизведения
+     * @param eventsPerSecond ограничение скорости, 0 - без ограничения
+     */
+    @NotNull
+    public static Report run(@NotNull List<CapturedEvent> events, int eventsPerSecond) throws Exception {
+        MainDBController.destroyTestDatabase();
+        MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST);
+        EventsReplay replay = new EventsReplay(mainDBController);
+        try {
+            events.stream()
+                    .mapToLong(CapturedEvent::getServerId)
+                    .filter(serverId -> serverId != 0L)
+                    .distinct()
+                    .forEach(serverId -> replay.serverPreferencesDAO.setStatisticEnabled(serverId, true));
+
+            long transactionsBefore = mainDBController.getTransactionsCount();
+            long[] latencies = new long[events.size()];
+            long periodNanos = eventsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1L) / eventsPerSecond : 0L;
+            long started = System.nanoTime();
+            for (int i = 0; i < events.size(); i++) {
+                if (periodNanos > 0L) {
+                    long waitNanos = started + i * periodNanos - System.nanoTime();
+                    if (waitNanos > 0L) {
+                        LockSupport.parkNanos(waitNanos);
+                    }
+                }
+                long eventStarted = System.nanoTime();
+                replay.dispatch(events.get(i));
+                latencies[i] = System.nanoTime() - eventStarted;
+            }
+            // дожидается обновления статистики и кэша имён в полосах обработки событий
+            replay.eventsExecutor.stop();
+            long elapsed = System.nanoTime() - started;
+
+            replay.nameCacheService.stop();
+            // закрытие записывает отложенные изменения, они входят в число транзакций
+            mainDBController.close();
+            long transactions = mainDBController.getTransactionsCount() - transactionsBefore;
+            return new Report(events.size(), elapsed, latencies, transactions);
+        } finally {
+            replay.eventsExecutor.stop();
+            replay.voteTallyService.stop();
+            replay.schedulerService.stop();
+            mainDBController.close();
+        }
+    }
+
+    private void dispatch(@NotNull CapturedEvent event) {
+        switch (event.getType()) {
+            case MESSAGE_CREATE -> eventsListener.onMessageCreate(messageCreateEvent(event));
+            case MESSAGE_DELETE -> eventsListener.onMessageDelete(messageDeleteEvent(event));
+            case REACTION_ADD -> eventsListener.onReactionAdd(reactionEvent(ReactionAddEvent.class, event));
+            case REACTION_REMOVE -> eventsListener.onReactionRemove(reactionEvent(ReactionRemoveEvent.class, event));
+            case MEMBER_JOIN -> eventsListener.onServerMemberJoin(memberEvent(ServerMemberJoinEvent.class, event));
+            case MEMBER_LEAVE -> eventsListener.onServerMemberLeave(memberEvent(ServerMemberLeaveEvent.class, event));
+        }
+    }
+
+    @NotNull
+    private MessageCreateEvent messageCreateEvent(@NotNull CapturedEvent event) {
+        Message message = message(event);
+        Map<String, Object> answers = new HashMap<>(channelEventAnswers(event));
+        answers.put("getMessage", message);
+        answers.put("getMessageAuthor", message.getAuthor());
+        answers.put("getMessageContent", event.getText());
+        return StubEntities.stub(MessageCreateEvent.class, answers);
+    }
+
+    @NotNull
+    private MessageDeleteEvent messageDeleteEvent(@NotNull CapturedEvent event) {
+        Optional<Message> message = event.getUserId() != 0L ? Optional.of(message(event)) : Optional.empty();
+        Map<String, Object> answers = new HashMap<>(channelEventAnswers(event));
+        answers.put("getMessage", message);
+        answers.put("getMessageAuthor", message.map(Message::getAuthor));
+        return StubEntities.stub(MessageDeleteEvent.class, answers);
+    }
+
+    @NotNull
+    private <T> T reactionEvent(@NotNull Class<T> type, @NotNull CapturedEvent event) {
+        Emoji emoji;
+        if (event.getEmojiId() != 0L) {
+            emoji = StubEntities.stub(CustomEmoji.class, Map.of(
+                    "getId", event.getEmojiId(),
+                    "asUnicodeEmoji", Optional.empty()));
+        } else {
+            emoji = StubEntities.stub(Emoji.class, Map.of(
+                    "asCustomEmoji", Optional.empty(),
+                    "asUnicodeEmoji", Optional.of(event.getText())));
+        }
+        Map<String, Object> answers = new HashMap<>(channelEventAnswers(event));
+        answers.put("getEmoji", emoji);
+        answers.put("getUser", Optional.of(user(event)));
+        answers.put("getUserId", event.getUserId());
+        return StubEntities.stub(type, answers);
+    }
+
+    @NotNull
+    private <T> T memberEvent(@NotNull Class<T> type, @NotNull CapturedEvent event) {
+        return StubEntities.stub(type, Map.of(
+                "getApi", discordApi,
+                "getServer", server(event.getServerId()),
+                "getUser", user(event)));
+    }
+
+    @NotNull
+    private Map<String, Object> channelEventAnswers(@NotNull CapturedEvent event) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getApi", discordApi);
+        answers.put("getMessageId", event.getMessageId());
+        if (event.getServerId() != 0L) {
+            Server server = server(event.getServerId());
+            ServerTextChannel channel = channel(server, event.getChannelId());
+            answers.put("getServer", Optional.of(server));
+            answers.put("getChannel", channel);
+            answers.put("getServerTextChannel", Optional.of(channel));
+        } else {
+            answers.put("getServer", Optional.empty());
+            answers.put("getChannel", privateChannel(event.getChannelId()));
+            answers.put("getServerTextChannel", Optional.empty());
+        }
+        return answers;
+    }
+
+    @NotNull
+    private Message message(@NotNull CapturedEvent event) {
+        User user = user(event);
+        MessageAuthor author = StubEntities.stub(MessageAuthor.class, Map.of(
+                "getId", event.getUserId(),
+                "asUser", Optional.of(user),
+                "isBotUser", event.isBot(),
+                "getDiscriminatedName", event.getUserName()));
+        List<MessageAttachment> attachments = event.getAttachmentsSize() > 0L
+                ? List.of(StubEntities.stub(MessageAttachment.class, Map.of("getSize", (int) event.getAttachmentsSize())))
+                : Collections.emptyList();
+        return StubEntities.stub(Message.class, Map.of(
+                "getId", event.getMessageId(),
+                "getAuthor", author,
+                "getContent", event.getText(),
+                "getReadableContent", event.getText(),
+                "getCreationTimestamp", Instant.ofEpochMilli(event.getTimestamp()),
+                "getAttachments", attachments));
+    }
+
+    @NotNull
+    private User user(@NotNull CapturedEvent event) {
+        return users.computeIfAbsent(event.getUserId(), userId -> {
+            String[] nameParts = event.getUserName().split("#", 2);
+            String name = nameParts[0];
+            String discriminator = nameParts.length > 1 ? nameParts[1] : "0000";
+            return StubEntities.stub(User.class, Map.of(
+                    "getId", userId,
+                    "getName", name,
+                    "getDiscriminator", discriminator,
+                    "getDiscriminatedName", name + "#" + discriminator,
+                    "isBot", event.isBot(),
+                    "isYourself", false,
+                    "getDisplayName", name,
+                    "getRoles", Collections.emptyList()));
+        });
+    }
+
+    @NotNull
+    private Server server(long serverId) {
+        return servers.computeIfAbsent(serverId, id -> StubEntities.stub(Server.class, Map.of(
+                "getId", id,
+                "getName", "Server " + id,
+                "isAdmin", false,
+                "canManage", false,
+                "getCustomEmojiById", (StubEntities.Answer) args -> Optional.of(StubEntities.stub(
+                        KnownCustomEmoji.class, Map.of("getId", args[0]))),
+                "getMemberById", (StubEntities.Answer) args -> Optional.ofNullable(users.get((Long) args[0])),
+                "getTextChannelById", (StubEntities.Answer) args -> Optional.ofNullable(channels.get((Long) args[0]))
+                        .filter(ServerTextChannel.class::isInstance),
+                "getChannelById", (StubEntities.Answer) args -> Optional.ofNullable(channels.get((Long) args[0]))
+                        .filter(ServerTextChannel.class::isInstance),
+                "getRoleById", Optional.empty())));
+    }
+
+    @NotNull
+    private ServerTextChannel channel(@NotNull Server server, long channelId) {
+        return (ServerTextChannel) channels.computeIfAbsent(channelId, id -> StubEntities.stub(ServerTextChannel.class,
+                Map.of("getId", id,
+                        "getName", "channel-" + id,
+                        "getServer", server,
+                        "getCategory", Optional.empty())));
+    }
+
+    @NotNull
+    private TextChannel privateChannel(long channelId) {
+        return channels.computeIfAbsent(channelId, id -> StubEntities.stub(TextChannel.class, Map.of("getId", id)));
+    }
+
+    @Nullable
+    @Override
+    public DiscordApi getDiscordApi() {
+        return discordApi;
+    }
+
+    @Override
+    public MainDBController getMainDBController() {
+        return mainDBController;
+    }
+
+    @Override
+    public String getBotName() {
+        return mainDBController.getCommonPreferencesDAO().getBotName();
+    }
+
+    @Override
+    public String getBotPrefix(long serverId) {
+        return serverPreferencesDAO.getPrefix(serverId);
+    }
+
+    @Override
+    public String getGlobalCommonPrefix() {
+        return mainDBController.getCommonPreferencesDAO().getBotPrefix();
+    }
+
+    @Override
+    public ServerPreferences getServerPreferences(long serverId) {
+        return serverPreferences.computeIfAbsent(serverId, id -> new ServerPreferences());
+    }
+
+    @Override
+    public List<Long> getServerListWithConfig() {
+        return new ArrayList<>(serverPreferences.keySet());
+    }
+
+    @Override
+    public EventsExecutor getEventsExecutor() {
+        return eventsExecutor;
+    }
+
+    @Override
+    public DispatchMetrics getDispatchMetrics() {
+        return dispatchMetrics;
+    }
+
+    @Override
+    public StatisticService getStatisticService() {
+        return statisticService;
+    }
+
+    @Override
+    public NameCacheService getNameCacheService() {
+        return nameCacheService;
+    }
+
+    @Override
+    public MessageCacheService getMessageCacheService() {
+        return messageCacheService;
+    }
+
+    @Override
+    public MessagesForwarder getMessagesForwarder() {
+        return messagesForwarder;
+    }
+
+    @Override
+    public AccessControlService getAccessControlService() {
+        return accessControlService;
+    }
+
+    @Override
+    public VoteTallyService getVoteTallyService() {
+        return voteTallyService;
+    }
+
+    @Override
+    public VoteController getVoteController() {
+        return voteController;
+    }
+
+    @Override
+    public CommunityControlLedger getCommunityControlLedger() {
+        return communityControlLedger;
+    }
+
+    @Override
+    public CongratulationsController getCongratulationsController() {
+        return congratulationsController;
+    }
+
+    @Override
+    public InvitesController getInvitesController() {
+        return invitesController;
+    }
+
+    @Override
+    public AutoPromoteService getAutoPromoteService() {
+        return autoPromoteService;
+    }
+
+    /**
+     * Заглушка команды: вместо выполнения только проверяет право выполнения команды на сервере
+     */
+    private final class AclProbeCommand
+            extends BotCommand {
+
+        AclProbeCommand(@NotNull String prefix) {
+            super(prefix, "Access control probe");
+        }
+
+        @Override
+        public void executeCreateMessageEvent(@NotNull MessageCreateEvent event,
+                                              @NotNull String[] rawCmdline,
+                                              ArrayList<String> anotherLines) {
+            event.getServer().ifPresent(server ->
+                    accessControlService.canExecuteOnServer(getPrefix(), event, server, false));
+        }
+
+        @Override
+        protected void executeCreateMessageEventServer(Server server, CommandLine cmdline,
+                                                       ArrayList<String> cmdlineArgs, TextChannel channel,
+                                                       MessageCreateEvent event, ArrayList<String> anotherLines) {
+        }
+
+        @Override
+        protected void executeCreateMessageEventDirect(CommandLine cmdline, ArrayList<String> cmdlineArgs,
+                                                       TextChannel channel, MessageCreateEvent event,
+                                                       ArrayList<String> anotherLines) {
+        }
+    }
+
+    /**
+     * Синтетическая нагрузка: сообщения (часть с пользовательскими эмодзи и командами), реакции,
+     * удаления сообщений, входы и выходы участников
+     */
+    @NotNull
+    public static List<CapturedEvent> generate(int serversCount, int usersCount, int channelsCount,
+                                               int eventsCount, long seed) {
+        Random random = new Random(seed);
+        long[] serverIds = randomIds(random, serversCount);
+        long[] userIds = randomIds(random, usersCount);
+        long[] channelIds = randomIds(random, channelsCount);
+        long[] emojiIds = randomIds(random, 16);
+        long messageId = 900000000000000000L;
+        long timestamp = Instant.now().toEpochMilli();
+        String[] words = {"привет", "hello", "как дела", "норм", "lol", "что там по игре", "го", "ок",
+                "Съешь же ещё этих мягких французских булок, да выпей чаю"};
+        String[] commands = {">>help", ">>stat -s", ">>vote new", ">>roll 2d20", ">>wtf"};
+
+        List<CapturedEvent> events = new ArrayList<>(eventsCount);
+        for (int i = 0; i < eventsCount; i++) {
+            int serverIndex = random.nextInt(serversCount);
+            long serverId = serverIds[serverIndex];
+            long channelId = channelIds[(serverIndex * 7 + random.nextInt(Math.max(1, channelsCount / serversCount)))
+                    % channelsCount];
+            int userIndex = random.nextInt(usersCount);
+            long userId = userIds[userIndex];
+            String userName = "user" + userIndex + "#" + String.format("%04d", userIndex % 10000);
+            long emojiId = emojiIds[random.nextInt(emojiIds.length)];
+            timestamp += random.nextInt(500);
+            int kind = random.nextInt(100);
+            if (kind < 70) {
+                messageId++;
+                String text;
+                if (kind < 5) {
+                    text = commands[random.nextInt(commands.length)];
+                } else if (kind < 20) {
+                    text = words[random.nextInt(words.length)] + " <:frog:" + emojiId + ">";
+                } else {
+                    text = words[random.nextInt(words.length)];
+                }
+                long attachments = kind % 17 == 0 ? random.nextInt(1_000_000) : 0L;
+                events.add(new CapturedEvent(CapturedEvent.Type.MESSAGE_CREATE, timestamp, serverId, channelId,
+                        userId, messageId, 0L, false, userName, text, attachments));
+            } else if (kind < 88) {
+                events.add(new CapturedEvent(CapturedEvent.Type.REACTION_ADD, timestamp, serverId, channelId,
+                        userId, messageId, kind % 2 == 0 ? emojiId : 0L, false, userName, "👍", 0L));
+            } else if (kind < 93) {
+                events.add(new CapturedEvent(CapturedEvent.Type.REACTION_REMOVE, timestamp, serverId, channelId,
+                        userId, messageId, kind % 2 == 0 ? emojiId : 0L, false, userName, "👍", 0L));
+            } else if (kind < 96) {
+                events.add(new CapturedEvent(CapturedEvent.Type.MESSAGE_DELETE, timestamp, serverId, channelId,
+                        userId, messageId, 0L, false, userName, words[0], 0L));
+            } else if (kind < 99) {
+                events.add(new CapturedEvent(CapturedEvent.Type.MEMBER_JOIN, timestamp, serverId, 0L,
+                        userId, 0L, 0L, false, userName, "", 0L));
+            } else {
+                events.add(new CapturedEvent(CapturedEvent.Type.MEMBER_LEAVE, timestamp, serverId, 0L,
+                        userId, 0L, 0L, false, userName, "", 0L));
+            }
+        }
+        return events;
+    }
+
+    private static long[] randomIds(@NotNull Random random, int count) {
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = 100000000000000000L + (random.nextLong() & Long.MAX_VALUE) % 800000000000000000L;
+        }
+        return result;
+    }
+
+    public static void main(String... args) throws Exception {
+        List<CapturedEvent> events;
+        if (args.length > 0 && !args[0].equals("-")) {
+            Path capture = Paths.get(args[0]);
+            List<CapturedEvent> captured = new ArrayList<>();
+            EventsCapture.readAll(capture, captured::add);
+            events = captured;
+        } else {
+            int serversCount = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+            int usersCount = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+            int channelsCount = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+            int eventsCount = args.length > 5 ? Integer.parseInt(args[5]) : 50_000;
+            events = generate(serversCount, usersCount, channelsCount, eventsCount, 42L);
+        }
+        int eventsPerSecond = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        Report report = run(events, eventsPerSecond);
+        System.out.println(report);
+        System.exit(0);
+    }
+
+    public static final class Report {
+
+        private final int events;
+        private final long elapsedNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long transactions;
+
+        Report(int events, long elapsedNanos, long[] latencies, long transactions) {
+            this.events = events;
+            this.elapsedNanos = elapsedNanos;
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            this.p50Nanos = percentile(sorted, 0.50D);
+            this.p99Nanos = percentile(sorted, 0.99D);
+            this.transactions = transactions;
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0L;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedNanos > 0L ? events / (elapsedNanos / 1_000_000_000.0D) : 0.0D;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public double getTransactionsPerEvent() {
+            return events > 0 ? transactions / (double) events : 0.0D;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Events: %d, elapsed %d ms, %.1f events/sec, p50 %.3f ms, p99 %.3f ms, " +
+                            "%.3f DB transactions per event", events, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    getEventsPerSecond(), p50Nanos / 1_000_000.0D, p99Nanos / 1_000_000.0D,
+                    getTransactionsPerEvent());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package hellfrog.core;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventsReplayTest {
+
+    @Test
+    public void testCaptureRoundTrip() throws Exception {
+        List<CapturedEvent> generated = EventsReplay.generate(3, 50, 9, 500, 1L);
+        Path file = Files.createTempFile("hellfrog_events", ".cap");
+        try {
+            Files.delete(file);
+            // запись дописывается в конец файла, заголовок пишется только один раз
+            for (List<CapturedEvent> part : List.of(generated.subList(0, 200), generated.subList(200, 500))) {
+                try (EventsCapture capture = new EventsCapture(file)) {
+                    part.forEach(capture::record);
+                }
+            }
+            List<CapturedEvent> restored = new ArrayList<>();
+            Assertions.assertEquals(generated.size(), EventsCapture.readAll(file, restored::add));
+            for (int i = 0; i < generated.size(); i++) {
+                CapturedEvent expected = generated.get(i);
+                CapturedEvent actual = restored.get(i);
+                Assertions.assertEquals(expected.getType(), actual.getType());
+                Assertions.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+                Assertions.assertEquals(expected.getServerId(), actual.getServerId());
+                Assertions.assertEquals(expected.getChannelId(), actual.getChannelId());
+                Assertions.assertEquals(expected.getUserId(), actual.getUserId());
+                Assertions.assertEquals(expected.getMessageId(), actual.getMessageId());
+                Assertions.assertEquals(expected.getEmojiId(), actual.getEmojiId());
+                Assertions.assertEquals(expected.getUserName(), actual.getUserName());
+                Assertions.assertEquals(expected.getText(), actual.getText());
+                Assertions.assertEquals(expected.getAttachmentsSize(), actual.getAttachmentsSize());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSyntheticReplay() throws Exception {
+        List<CapturedEvent> events = EventsReplay.generate(5, 200, 25, 1000, 42L);
+        EventsReplay.Report report = EventsReplay.run(events, 0);
+        Logger log = LogManager.getLogger("Events replay");
+        log.info("Synthetic replay: {}", report);
+        Assertions.assertTrue(report.getEventsPerSecond() > 0.0D);
+        Assertions.assertTrue(report.getP50Nanos() <= report.getP99Nanos());
+        Assertions.assertTrue(report.getTransactionsPerEvent() > 0.0D);
+        Assertions.assertTrue(LogsStorage.isErrorsEmpty(), "Errors log must be empty");
+    }
+}
@@ -0,0 +1,111 @@
+package hellfrog.core;
+
+import hellfrog.settings.db.InstanceType;
+import hellfrog.settings.db.MainDBController;
+import hellfrog.settings.db.MediaUrlsDAO;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.MessageAttachment;
+import org.javacord.api.event.message.MessageCreateEvent;
+import org.javacord.api.event.message.MessageDeleteEvent;
+import org.javacord.api.listener.message.MessageCreateListener;
+import org.javacord.api.listener.message.MessageDeleteListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+public class MediaIndexServiceTest {
+
+    private static final long CHANNEL_ID = 525287388818178050L;
+    private static final long OLD_MESSAGE_ID = 200L;
+    private static final long LIVE_MESSAGE_ID = 300L;
+    private static final long COPY_MESSAGE_ID = 301L;
+    private static final String OLD_URL = "https://cdn.discordapp.com/attachments/1/2/old.png";
+    private static final String LIVE_URL = "https://cdn.discordapp.com/attachments/1/3/live.png";
+
+    @Test
+    public void testLiveMessageAfterFailedCatchUp() throws Exception {
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            MediaUrlsDAO mediaUrlsDAO = mainDBController.getMediaUrlsDAO();
+            MediaIndexService mediaIndexService = new MediaIndexService(mediaUrlsDAO);
+            CopyOnWriteArrayList<String> target = new CopyOnWriteArrayList<>();
+            Message oldMessage = message(OLD_MESSAGE_ID, OLD_URL);
+            Message liveMessage = message(LIVE_MESSAGE_ID, LIVE_URL);
+
+            // история канала недоступна, индексация при подключении завершается ошибкой
+            AtomicReference<MessageCreateListener> createListener = new AtomicReference<>();
+            AtomicReference<MessageDeleteListener> deleteListener = new AtomicReference<>();
+            ServerTextChannel brokenChannel = channel(args -> {
+                throw new IllegalStateException("history is not available");
+            }, createListener, deleteListener);
+            mediaIndexService.attach(api(brokenChannel), CHANNEL_ID, target, "test", false);
+            Assertions.assertNotNull(createListener.get());
+            Assertions.assertTrue(target.isEmpty());
+
+            // новое сообщение индексируется, но не сдвигает отметку выше непроиндексированной истории
+            createListener.get().onMessageCreate(StubEntities.stub(MessageCreateEvent.class,
+                    Map.of("getMessage", liveMessage)));
+            Assertions.assertEquals(List.of(LIVE_URL), target);
+            Assertions.assertEquals(0L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+
+            // повторное подключение индексирует пропущенную историю
+            AtomicReference<MessageCreateListener> secondListener = new AtomicReference<>();
+            ServerTextChannel channel = channel(args -> Stream.of(liveMessage, oldMessage), secondListener,
+                    new AtomicReference<>());
+            mediaIndexService.attach(api(channel), CHANNEL_ID, target, "test", false);
+            Assertions.assertNull(secondListener.get(), "Listeners must be added once");
+            Assertions.assertEquals(List.of(LIVE_URL, OLD_URL), target);
+            Assertions.assertEquals(List.of(LIVE_URL, OLD_URL), mediaUrlsDAO.getUrls(CHANNEL_ID));
+            Assertions.assertEquals(LIVE_MESSAGE_ID, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+
+            // ссылка удаляется из списка только вместе с последним сообщением, которое её содержит
+            createListener.get().onMessageCreate(StubEntities.stub(MessageCreateEvent.class,
+                    Map.of("getMessage", message(COPY_MESSAGE_ID, OLD_URL))));
+            deleteListener.get().onMessageDelete(StubEntities.stub(MessageDeleteEvent.class,
+                    Map.of("getMessageId", OLD_MESSAGE_ID)));
+            Assertions.assertEquals(List.of(LIVE_URL, OLD_URL), target);
+            deleteListener.get().onMessageDelete(StubEntities.stub(MessageDeleteEvent.class,
+                    Map.of("getMessageId", COPY_MESSAGE_ID)));
+            Assertions.assertEquals(List.of(LIVE_URL), target);
+        }
+    }
+
+    private static DiscordApi api(ServerTextChannel channel) {
+        return StubEntities.stub(DiscordApi.class, Map.of("getServerTextChannelById", Optional.of(channel)));
+    }
+
+    private static ServerTextChannel channel(StubEntities.Answer history,
+                                             AtomicReference<MessageCreateListener> createListener,
+                                             AtomicReference<MessageDeleteListener> deleteListener) {
+        return StubEntities.stub(ServerTextChannel.class, Map.of(
+                "getId", CHANNEL_ID,
+                "canYouSee", true,
+                "canYouReadMessageHistory", true,
+                "getMessagesAsStream", history,
+                "addMessageCreateListener", (StubEntities.Answer) args -> {
+                    createListener.set((MessageCreateListener) args[0]);
+                    return null;
+                },
+                "addMessageDeleteListener", (StubEntities.Answer) args -> {
+                    deleteListener.set((MessageDeleteListener) args[0]);
+                    return null;
+                }));
+    }
+
+    private static Message message(long messageId, String url) throws Exception {
+        MessageAttachment attachment = StubEntities.stub(MessageAttachment.class, Map.of("getUrl", new URL(url)));
+        return StubEntities.stub(Message.class, Map.of(
+                "getId", messageId,
+                "getAttachments", List.of(attachment)));
+    }
+}
@@ -0,0 +1,105 @@
+package hellfrog.core;
+
+import org.javacord.api.entity.channel.TextChannel;
+import org.javacord.api.entity.message.Message;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MessageCacheServiceTest {
+
+    private static final long CHANNEL_ID = 525287388818178050L;
+    private static final long MESSAGE_ID = 790000000000000001L;
+
+    @Test
+    public void testCoalescing() {
+        MessageCacheService cacheService = new MessageCacheService();
+        Map<Long, CompletableFuture<Message>> requests = new HashMap<>();
+        AtomicInteger requestsCount = new AtomicInteger(0);
+        TextChannel channel = channel(requests, requestsCount);
+
+        // одновременные запросы одного сообщения выполняются одним обращением
+        CompletableFuture<Message> first = cacheService.getMessage(channel, MESSAGE_ID);
+        CompletableFuture<Message> second = cacheService.getMessage(channel, MESSAGE_ID);
+        Assertions.assertEquals(1, requestsCount.get());
+        Assertions.assertFalse(first.isDone());
+
+        // отмена запроса одним вызывающим не затрагивает остальных
+        CompletableFuture<Message> cancelled = cacheService.getMessage(channel, MESSAGE_ID);
+        cancelled.cancel(true);
+        Assertions.assertFalse(first.isDone());
+        Assertions.assertFalse(second.isDone());
+
+        Message message = message(MESSAGE_ID, channel, "quoted");
+        requests.get(MESSAGE_ID).complete(message);
+        Assertions.assertSame(message, first.join());
+        Assertions.assertSame(message, second.join());
+
+        // повторный запрос обслуживается кэшем
+        Assertions.assertSame(message, cacheService.getMessage(channel, MESSAGE_ID).join());
+        Assertions.assertEquals(1, requestsCount.get());
+        Assertions.assertEquals(1L, cacheService.getCacheStatistic().getHits());
+
+        // сообщение, удалённое во время запроса, в кэш не попадает
+        cacheService.onMessageDelete(MESSAGE_ID);
+        CompletableFuture<Message> deleted = cacheService.getMessage(channel, MESSAGE_ID);
+        cacheService.onMessageDelete(MESSAGE_ID);
+        requests.get(MESSAGE_ID).complete(message);
+        Assertions.assertSame(message, deleted.join());
+        Assertions.assertTrue(cacheService.getCached(MESSAGE_ID).isEmpty());
+        Assertions.assertEquals(2, requestsCount.get());
+    }
+
+    @Test
+    public void testEviction() {
+        TextChannel channel = channel(new HashMap<>(), new AtomicInteger(0));
+        Message first = message(MESSAGE_ID, channel, "a".repeat(100));
+        Message second = message(MESSAGE_ID + 1L, channel, "b".repeat(100));
+        Message third = message(MESSAGE_ID + 2L, channel, "c".repeat(100));
+        long weight = MessageCacheService.weightOf(first);
+
+        // в кэш помещаются только два сообщения, давно не запрашиваемое вытесняется
+        MessageCacheService cacheService = new MessageCacheService(10, weight * 2L);
+        Map<Long, CompletableFuture<Message>> requests = new HashMap<>();
+        channel = channel(requests, new AtomicInteger(0));
+        for (Message message : new Message[]{first, second}) {
+            CompletableFuture<Message> request = cacheService.getMessage(channel, message.getId());
+            requests.get(message.getId()).complete(message);
+            Assertions.assertSame(message, request.join());
+        }
+        Assertions.assertTrue(cacheService.getCached(MESSAGE_ID).isPresent());
+        CompletableFuture<Message> request = cacheService.getMessage(channel, third.getId());
+        requests.get(third.getId()).complete(third);
+        request.join();
+
+        Assertions.assertTrue(cacheService.getCached(MESSAGE_ID).isPresent());
+        Assertions.assertTrue(cacheService.getCached(MESSAGE_ID + 1L).isEmpty());
+        Assertions.assertTrue(cacheService.getCached(MESSAGE_ID + 2L).isPresent());
+    }
+
+    @NotNull
+    private static TextChannel channel(@NotNull Map<Long, CompletableFuture<Message>> requests,
+                                       @NotNull AtomicInteger requestsCount) {
+        return StubEntities.stub(TextChannel.class, Map.of(
+                "getId", CHANNEL_ID,
+                "getMessageById", (StubEntities.Answer) args -> {
+                    requestsCount.incrementAndGet();
+                    CompletableFuture<Message> request = new CompletableFuture<>();
+                    requests.put((Long) args[0], request);
+                    return request;
+                }));
+    }
+
+    @NotNull
+    private static Message message(long messageId, @NotNull TextChannel channel, @NotNull String content) {
+        return StubEntities.stub(Message.class, Map.of(
+                "getId", messageId,
+                "getChannel", channel,
+                "getContent", content));
+    }
+}
@@ -0,0 +1,117 @@
+package hellfrog.core;
+
+import hellfrog.TestUtils;
+import hellfrog.settings.db.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.LongUnaryOperator;
+
+public class ServerAclSnapshotTest {
+
+    private static final String COMMAND = "test";
+    private static final int ROLES_COUNT = 50;
+
+    @Test
+    public void testDecisionsMatchDAO() throws Exception {
+        final long serverId = TestUtils.randomDiscordEntityId();
+        final long userId = TestUtils.randomDiscordEntityId();
+        final long channelId = TestUtils.randomDiscordEntityId();
+        final long categoryId = TestUtils.randomDiscordEntityId();
+        final long deniedChannelId = TestUtils.randomDiscordEntityId();
+        final List<Long> roles = TestUtils.randomDiscordEntitiesIds(ROLES_COUNT, ROLES_COUNT);
+        final long[] roleIds = roles.stream().mapToLong(Long::longValue).toArray();
+        // разрешена только последняя роль пользователя - худший случай для перебора ролей
+        final long allowedRoleId = roleIds[roleIds.length - 1];
+        final LongUnaryOperator categoryOf = id -> id == channelId ? categoryId : 0L;
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            UserRightsDAO userRightsDAO = mainDBController.getUserRightsDAO();
+            RoleRightsDAO roleRightsDAO = mainDBController.getRoleRightsDAO();
+            ChannelRightsDAO channelRightsDAO = mainDBController.getChannelRightsDAO();
+            ChannelCategoryRightsDAO categoryRightsDAO = mainDBController.getChannelCategoryRightsDAO();
+            ServerPreferencesDAO serverPreferencesDAO = mainDBController.getServerPreferencesDAO();
+
+            Assertions.assertTrue(roleRightsDAO.allow(serverId, allowedRoleId, COMMAND));
+            Assertions.assertTrue(categoryRightsDAO.allow(serverId, categoryId, COMMAND));
+
+            ServerAclSnapshot snapshot = ServerAclSnapshot.compile(serverPreferencesDAO.isNewAclMode(serverId),
+                    userRightsDAO.getAllAllowedByCommands(serverId).orElseThrow(),
+                    roleRightsDAO.getAllAllowedByCommands(serverId).orElseThrow(),
+                    channelRightsDAO.getAllAllowedByCommands(serverId).orElseThrow(),
+                    categoryRightsDAO.getAllAllowedByCommands(serverId).orElseThrow());
+
+            // решения снимка должны совпадать с решениями по запросам в БД
+            for (boolean strict : new boolean[]{false, true}) {
+                for (long targetChannel : new long[]{channelId, deniedChannelId}) {
+                    boolean byDAO = canExecuteByDAO(userRightsDAO, roleRightsDAO, channelRightsDAO,
+                            categoryRightsDAO, serverPreferencesDAO, serverId, userId, roleIds,
+                            strict, targetChannel, categoryOf);
+                    boolean bySnapshot = snapshot.canExecute(COMMAND, userId, roleIds, strict,
+                            new long[]{targetChannel}, categoryOf);
+                    Assertions.assertEquals(byDAO, bySnapshot);
+                }
+            }
+            Assertions.assertTrue(snapshot.canExecute(COMMAND, userId, roleIds, true,
+                    new long[]{channelId}, categoryOf));
+            Assertions.assertFalse(snapshot.canExecute(COMMAND, userId, new long[0], false,
+                    new long[]{channelId}, categoryOf));
+            Assertions.assertFalse(snapshot.canExecute("unknown", userId, roleIds, false,
+                    new long[]{channelId}, categoryOf));
+
+            // изменение создаёт новый снимок, исходный остаётся прежним
+            ServerAclSnapshot updated = snapshot.withCommand(COMMAND,
+                    ServerAclSnapshot.CommandAcl.compile(List.of(userId), null, null, null));
+            Assertions.assertTrue(updated.canExecute(COMMAND, userId, new long[0], false,
+                    new long[]{channelId}, categoryOf));
+            Assertions.assertFalse(snapshot.canExecute(COMMAND, userId, new long[0], false,
+                    new long[]{channelId}, categoryOf));
+            // в новом режиме ACL без разрешённых пользователей и ролей достаточно разрешённого канала
+            ServerAclSnapshot channelsOnly = snapshot.withCommand(COMMAND,
+                    ServerAclSnapshot.CommandAcl.compile(null, null, List.of(channelId), null));
+            Assertions.assertFalse(channelsOnly.withNewAclMode(false).canExecute(COMMAND, userId, roleIds, true,
+                    new long[]{channelId}, categoryOf));
+            Assertions.assertTrue(channelsOnly.withNewAclMode(true).canExecute(COMMAND, userId, roleIds, true,
+                    new long[]{channelId}, categoryOf));
+            Assertions.assertFalse(channelsOnly.withNewAclMode(true).canExecute(COMMAND, userId, roleIds, true,
+                    new long[]{deniedChannelId}, categoryOf));
+        }
+    }
+
+    // Прежний порядок проверки: запросы в БД на пользователя, каждую роль, канал и категорию
+    private static boolean canExecuteByDAO(UserRightsDAO userRightsDAO,
+                                           RoleRightsDAO roleRightsDAO,
+                                           ChannelRightsDAO channelRightsDAO,
+                                           ChannelCategoryRightsDAO categoryRightsDAO,
+                                           ServerPreferencesDAO serverPreferencesDAO,
+                                           long serverId, long userId, long[] roleIds,
+                                           boolean strictByChannels, long channelId,
+                                           LongUnaryOperator categoryOf) {
+        boolean isAllowUser = userRightsDAO.isAllowed(serverId, userId, COMMAND);
+        boolean isHasAllowedRole = false;
+        for (long roleId : roleIds) {
+            if (roleRightsDAO.isAllowed(serverId, roleId, COMMAND)) {
+                isHasAllowedRole = true;
+                break;
+            }
+        }
+        if (!strictByChannels) {
+            return isAllowUser || isHasAllowedRole;
+        }
+        boolean isAllowedChannel = channelRightsDAO.isAllowed(serverId, channelId, COMMAND)
+                || categoryRightsDAO.isAllowed(serverId, categoryOf.applyAsLong(channelId), COMMAND);
+        if (!isAllowedChannel) {
+            return false;
+        }
+        if (serverPreferencesDAO.isNewAclMode(serverId)) {
+            boolean hasRequiredUsersOrRoles = roleRightsDAO.getAllowedCount(serverId, COMMAND) > 0L
+                    || userRightsDAO.getAllowedCount(serverId, COMMAND) > 0L;
+            if (!hasRequiredUsersOrRoles) {
+                return true;
+            }
+        }
+        return isAllowUser || isHasAllowedRole;
+    }
+}
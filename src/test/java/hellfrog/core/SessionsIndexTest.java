@@ -0,0 +1,140 @@
+package hellfrog.core;
+
+import hellfrog.commands.scenes.Scenario;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class SessionsIndexTest {
+
+    private static final long USER_ID = 1001L;
+    private static final long CHANNEL_ID = 2001L;
+    private static final long ANOTHER_CHANNEL_ID = 2002L;
+    private static final long MESSAGE_ID = 3001L;
+    private static final int RACE_ROUNDS = 200;
+
+    @Test
+    public void testClaim() {
+        SessionsIndex index = new SessionsIndex();
+        SessionState first = session(CHANNEL_ID, MESSAGE_ID, 1L);
+        SessionState another = session(ANOTHER_CHANNEL_ID, 0L, 1L);
+        index.add(first);
+        index.add(another);
+
+        // неподходящая сессия остаётся в индексе
+        Assertions.assertNull(index.claim(USER_ID, CHANNEL_ID, sessionState -> sessionState.stepIdIs(2L)));
+        Assertions.assertTrue(index.contains(USER_ID, CHANNEL_ID, sessionState -> true));
+        Assertions.assertTrue(index.hasMessage(MESSAGE_ID));
+
+        Assertions.assertSame(first, index.claim(USER_ID, CHANNEL_ID, sessionState -> true));
+        Assertions.assertNull(index.claim(USER_ID, CHANNEL_ID, sessionState -> true));
+        Assertions.assertFalse(index.hasMessage(MESSAGE_ID));
+        Assertions.assertFalse(index.remove(first));
+        // сессии другого канала не затрагиваются
+        Assertions.assertEquals(List.of(another), index.all());
+    }
+
+    @Test
+    public void testConcurrentClaimOfSameKey() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < RACE_ROUNDS; round++) {
+                SessionsIndex index = new SessionsIndex();
+                SessionState session = session(CHANNEL_ID, MESSAGE_ID, 1L);
+                index.add(session);
+                List<SessionState> claimed = claimConcurrently(executor, index);
+                // сессию получает только один из конкурирующих вызовов
+                Assertions.assertEquals(1, claimed.stream().filter(sessionState -> sessionState != null).count());
+                Assertions.assertTrue(claimed.contains(session));
+                Assertions.assertTrue(index.all().isEmpty());
+                Assertions.assertFalse(index.hasMessage(MESSAGE_ID));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLostRaceTakesNextSession() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < RACE_ROUNDS; round++) {
+                SessionsIndex index = new SessionsIndex();
+                SessionState first = session(CHANNEL_ID, 0L, 1L);
+                SessionState second = session(CHANNEL_ID, 0L, 1L);
+                index.add(first);
+                index.add(second);
+                // проигравший гонку за первую сессию вызов переходит к следующей подходящей
+                List<SessionState> claimed = claimConcurrently(executor, index);
+                Assertions.assertTrue(claimed.contains(first), "round " + round);
+                Assertions.assertTrue(claimed.contains(second), "round " + round);
+                Assertions.assertTrue(index.all().isEmpty());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRollbackAfterClaim() {
+        SessionsIndex index = new SessionsIndex();
+        SessionState session = session(CHANNEL_ID, MESSAGE_ID, 1L).withTimeout(Duration.ofMillis(-1L));
+        index.add(session);
+        SessionState claimed = index.claim(USER_ID, CHANNEL_ID, sessionState -> true);
+        Assertions.assertSame(session, claimed);
+
+        // откат шага возвращает клон сессии с новым таймаутом
+        SessionState rolledBack = claimed.resetTimeout();
+        index.add(rolledBack);
+        Assertions.assertTrue(index.hasMessage(MESSAGE_ID));
+        // истёкший таймаут изъятой сессии не удаляет её клон
+        Assertions.assertTrue(index.pollExpired().isEmpty());
+        Assertions.assertSame(rolledBack, index.claim(USER_ID, CHANNEL_ID, sessionState -> true));
+    }
+
+    @Test
+    public void testExpiredCleanup() {
+        SessionsIndex index = new SessionsIndex();
+        SessionState expired = session(CHANNEL_ID, MESSAGE_ID, 1L).withTimeout(Duration.ofMillis(-1L));
+        SessionState active = session(CHANNEL_ID, 0L, 2L);
+        SessionState claimedExpired = session(ANOTHER_CHANNEL_ID, 0L, 1L).withTimeout(Duration.ofMillis(-1L));
+        index.add(expired);
+        index.add(active);
+        index.add(claimedExpired);
+        Assertions.assertSame(claimedExpired, index.claim(USER_ID, ANOTHER_CHANNEL_ID, sessionState -> true));
+
+        // уже изъятые сессии не возвращаются повторно, активные остаются в индексе
+        Assertions.assertEquals(List.of(expired), index.pollExpired());
+        Assertions.assertTrue(index.pollExpired().isEmpty());
+        Assertions.assertFalse(index.hasMessage(MESSAGE_ID));
+        Assertions.assertEquals(List.of(active), index.all());
+    }
+
+    private static List<SessionState> claimConcurrently(ExecutorService executor, SessionsIndex index)
+            throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Callable<SessionState> claim = () -> {
+            barrier.await(5L, TimeUnit.SECONDS);
+            return index.claim(USER_ID, CHANNEL_ID, sessionState -> true);
+        };
+        Future<SessionState> first = executor.submit(claim);
+        Future<SessionState> second = executor.submit(claim);
+        List<SessionState> result = new ArrayList<>(2);
+        result.add(first.get(5L, TimeUnit.SECONDS));
+        result.add(second.get(5L, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static SessionState session(long textChannelId, long messageId, long stepId) {
+        Scenario scenario = Scenario.all().get(0);
+        return SessionState.forScenario(scenario, stepId)
+                .setUserId(USER_ID)
+                .setTextChannelId(textChannelId)
+                .setMessageId(messageId)
+                .build();
+    }
+}
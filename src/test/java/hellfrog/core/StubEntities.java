@@ -0,0 +1,87 @@
+package hellfrog.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Заглушки интерфейсов Javacord на основе {@link Proxy}.
+ * Методы, указанные в таблице ответов, возвращают заданные значения, методы по-умолчанию
+ * интерфейса выполняются как есть, остальные возвращают пустые значения своего типа
+ */
+final class StubEntities {
+
+    @FunctionalInterface
+    interface Answer {
+        Object answer(Object[] args);
+    }
+
+    private StubEntities() {
+    }
+
+    @NotNull
+    static <T> T stub(@NotNull Class<T> type, @NotNull Map<String, Object> answers) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object[] arguments = args != null ? args : new Object[0];
+            switch (method.getName()) {
+                case "equals":
+                    if (arguments.length == 1 && method.getParameterTypes()[0] == Object.class) {
+                        return proxy == arguments[0];
+                    }
+                    break;
+                case "hashCode":
+                    if (arguments.length == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    break;
+                case "toString":
+                    if (arguments.length == 0) {
+                        return type.getSimpleName() + answers.getOrDefault("getId", "");
+                    }
+                    break;
+            }
+            if (answers.containsKey(method.getName())) {
+                Object value = answers.get(method.getName());
+                return value instanceof Answer ? ((Answer) value).answer(arguments) : value;
+            }
+            if (method.isDefault()) {
+                return invokeDefault(proxy, method, arguments);
+            }
+            return emptyValue(method.getReturnType());
+        };
+        return type.cast(Proxy.newProxyInstance(StubEntities.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invokeDefault(Object proxy, Method method, Object[] args) throws Throwable {
+        Class<?> declaring = method.getDeclaringClass();
+        return MethodHandles.privateLookupIn(declaring, MethodHandles.lookup())
+                .unreflectSpecial(method, declaring)
+                .bindTo(proxy)
+                .invokeWithArguments(args);
+    }
+
+    private static Object emptyValue(@NotNull Class<?> type) {
+        if (type == Optional.class) return Optional.empty();
+        if (type == List.class || type == Collection.class) return Collections.emptyList();
+        if (type == Set.class) return Collections.emptySet();
+        if (type == Map.class) return Collections.emptyMap();
+        if (type == Stream.class) return Stream.empty();
+        if (type == String.class) return "";
+        if (type == CompletableFuture.class) return CompletableFuture.completedFuture(null);
+        if (type == boolean.class) return false;
+        if (type == long.class) return 0L;
+        if (type == int.class) return 0;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == double.class) return 0.0D;
+        if (type == float.class) return 0.0F;
+        if (type == char.class) return '\0';
+        return null;
+    }
+}
@@ -0,0 +1,214 @@
+package hellfrog.core;
+
+import hellfrog.settings.ActiveVote;
+import hellfrog.settings.VotePoint;
+import hellfrog.settings.db.VotesDAO;
+import hellfrog.settings.db.entity.VoteBallot;
+import org.eclipse.collections.api.set.primitive.ImmutableLongSet;
+import org.eclipse.collections.api.set.primitive.MutableLongSet;
+import org.eclipse.collections.impl.factory.primitive.LongSets;
+import org.javacord.api.DiscordApi;
+import org.javacord.api.entity.channel.ServerTextChannel;
+import org.javacord.api.entity.emoji.Emoji;
+import org.javacord.api.entity.message.Message;
+import org.javacord.api.entity.message.Reaction;
+import org.javacord.api.entity.permission.PermissionType;
+import org.javacord.api.entity.permission.Role;
+import org.javacord.api.entity.server.Server;
+import org.javacord.api.entity.user.User;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class VoteTallyTest {
+
+    private static final long CHANNEL_ID = 525287388818178050L;
+    private static final long MESSAGE_ID = 790000000000000001L;
+    private static final long ROLE_ID = 525728457225797656L;
+    private static final long FIRST_USER = 246149070702247936L;
+    private static final long SECOND_USER = FIRST_USER + 1L;
+    private static final long BOT_USER = FIRST_USER + 2L;
+    private static final long THIRD_USER = FIRST_USER + 3L;
+    private static final long FOURTH_USER = FIRST_USER + 4L;
+
+    @Test
+    public void testReconcile() {
+        VoteTallyService.VoteTally tally = new VoteTallyService.VoteTally(vote(votePoints(2)), false);
+        tally.load(List.of(new VoteBallot(MESSAGE_ID, 1L, FIRST_USER),
+                new VoteBallot(MESSAGE_ID, 2L, SECOND_USER)));
+        Assertions.assertFalse(tally.isReconciled());
+
+        long generation = tally.beginReconcile();
+        // события, пришедшие во время запроса реакций, применяются поверх полученного результата
+        Assertions.assertTrue(tally.apply(2L, THIRD_USER, true));
+        Assertions.assertTrue(tally.apply(1L, FIRST_USER, false));
+        Assertions.assertFalse(tally.apply(1L, FIRST_USER, false));
+
+        Map<Long, MutableLongSet> fromDiscord = new HashMap<>();
+        fromDiscord.put(1L, LongSets.mutable.of(FIRST_USER, FOURTH_USER));
+        fromDiscord.put(2L, LongSets.mutable.empty());
+        Assertions.assertTrue(tally.finishReconcile(generation, fromDiscord));
+        Assertions.assertTrue(tally.isReconciled());
+
+        Map<Long, ImmutableLongSet> snapshot = tally.snapshot();
+        Assertions.assertEquals(LongSets.immutable.of(FOURTH_USER), snapshot.get(1L));
+        Assertions.assertEquals(LongSets.immutable.of(THIRD_USER), snapshot.get(2L));
+        Assertions.assertEquals(2, tally.toBallots(MESSAGE_ID).size());
+
+        // учёт выбранных участником пунктов для голосований с единственным выбором
+        Assertions.assertTrue(tally.apply(1L, THIRD_USER, true));
+        Assertions.assertTrue(tally.hasAnotherPoint(1L, THIRD_USER));
+        Assertions.assertTrue(tally.hasAnotherPoint(2L, THIRD_USER));
+        Assertions.assertTrue(tally.hasAnotherPoint(2L, FOURTH_USER));
+        Assertions.assertFalse(tally.hasAnotherPoint(1L, FOURTH_USER));
+        Assertions.assertFalse(tally.hasAnotherPoint(1L, SECOND_USER));
+        Assertions.assertTrue(tally.apply(1L, THIRD_USER, false));
+        Assertions.assertFalse(tally.hasAnotherPoint(2L, THIRD_USER));
+
+        // результат устаревшей сверки не применяется
+        long stale = tally.beginReconcile();
+        long actual = tally.beginReconcile();
+        Assertions.assertFalse(tally.finishReconcile(stale, new HashMap<>()));
+        Assertions.assertEquals(snapshot, tally.snapshot());
+        tally.clear();
+        Assertions.assertTrue(tally.finishReconcile(actual, fromDiscord));
+        Assertions.assertTrue(tally.snapshot().values().stream().allMatch(ImmutableLongSet::isEmpty));
+
+        Assertions.assertEquals(OptionalLong.empty(), tally.findPointId(null));
+    }
+
+    @Test
+    public void testCountVotes() {
+        Map<Long, User> members = new LinkedHashMap<>();
+        Map<String, Object> serverAnswers = new HashMap<>();
+        serverAnswers.put("getId", 612645599132778517L);
+        serverAnswers.put("getMemberById", (StubEntities.Answer) args ->
+                Optional.ofNullable(members.get((Long) args[0])));
+        serverAnswers.put("getMembers", (StubEntities.Answer) args -> new LinkedHashSet<>(members.values()));
+        Server server = StubEntities.stub(Server.class, serverAnswers);
+        Role votersRole = StubEntities.stub(Role.class, Map.of("getId", ROLE_ID));
+
+        members.put(FIRST_USER, member(FIRST_USER, false, List.of(votersRole)));
+        members.put(SECOND_USER, member(SECOND_USER, false, List.of()));
+        members.put(BOT_USER, member(BOT_USER, true, List.of(votersRole)));
+        members.put(THIRD_USER, member(THIRD_USER, false, List.of(votersRole)));
+        members.put(FOURTH_USER, member(FOURTH_USER, false, List.of()));
+
+        ServerTextChannel channel = StubEntities.stub(ServerTextChannel.class, Map.of(
+                "getId", CHANNEL_ID,
+                "getServer", server,
+                "getEffectiveAllowedPermissions", (StubEntities.Answer) args ->
+                        List.of(PermissionType.READ_MESSAGES, PermissionType.ADD_REACTIONS)));
+
+        // единственный выбор и фильтр по роли
+        ActiveVote exceptional = vote(votePoints(3));
+        exceptional.setExceptionalVote(true);
+        exceptional.setRolesFilter(List.of(ROLE_ID));
+        Map<Long, ImmutableLongSet> ballots = Map.of(
+                1L, LongSets.immutable.of(FIRST_USER),
+                2L, LongSets.immutable.of(FIRST_USER, SECOND_USER, BOT_USER, THIRD_USER));
+        Assertions.assertEquals(List.of(1, 1, 0), levels(VoteController.countVotes(exceptional, ballots, channel)));
+
+        // первый пункт по-умолчанию: все не проголосовавшие участники
+        ActiveVote withDefault = vote(votePoints(3));
+        withDefault.setWithDefaultPoint(true);
+        ballots = Map.of(
+                1L, LongSets.immutable.of(FOURTH_USER),
+                2L, LongSets.immutable.of(FIRST_USER, BOT_USER),
+                3L, LongSets.immutable.of(THIRD_USER));
+        Assertions.assertEquals(List.of(2, 1, 1), levels(VoteController.countVotes(withDefault, ballots, channel)));
+    }
+
+    @Test
+    public void testSlowVoteDoesNotBlockReconcile() {
+        long slowChannelId = CHANNEL_ID + 1L;
+        long slowMessageId = MESSAGE_ID + 1L;
+        ActiveVote slowVote = vote(votePoints(2));
+        slowVote.setTextChatId(slowChannelId);
+        slowVote.setMessageId(slowMessageId);
+        ActiveVote vote = vote(votePoints(2));
+
+        ServerTextChannel slowChannel = StubEntities.stub(ServerTextChannel.class, Map.of(
+                "getId", slowChannelId,
+                "getMessageById", (StubEntities.Answer) args -> new CompletableFuture<Message>()));
+        Emoji emoji = StubEntities.stub(Emoji.class, Map.of(
+                "isUnicodeEmoji", true,
+                "asUnicodeEmoji", Optional.of(vote.getVotePoints().get(1).getEmoji())));
+        Reaction reaction = StubEntities.stub(Reaction.class, Map.of(
+                "getEmoji", emoji,
+                "getUsers", (StubEntities.Answer) args -> CompletableFuture.completedFuture(
+                        List.of(member(FIRST_USER, false, List.of()), member(BOT_USER, true, List.of())))));
+        Message message = StubEntities.stub(Message.class, Map.of("getReactions", List.of(reaction)));
+        ServerTextChannel channel = StubEntities.stub(ServerTextChannel.class, Map.of(
+                "getId", CHANNEL_ID,
+                "getMessageById", (StubEntities.Answer) args -> CompletableFuture.completedFuture(message)));
+        DiscordApi api = StubEntities.stub(DiscordApi.class, Map.of(
+                "getYourself", member(THIRD_USER, true, List.of()),
+                "getServerTextChannelById", (StubEntities.Answer) args ->
+                        Optional.of((Long) args[0] == slowChannelId ? slowChannel : channel)));
+        List<String> stored = new CopyOnWriteArrayList<>();
+        VotesDAO votesDAO = StubEntities.stub(VotesDAO.class, Map.of(
+                "getBallots", (StubEntities.Answer) args -> List.of(),
+                "replaceBallots", (StubEntities.Answer) args -> {
+                    stored.add("replace " + args[0]);
+                    return null;
+                }));
+
+        VoteTallyService service = new VoteTallyService(votesDAO);
+        try {
+            // сообщение первого голосования не загружается, сверка второго выполняется без ожидания
+            service.restore(api, List.of(slowVote));
+            long startedAt = System.nanoTime();
+            Optional<Map<Long, ImmutableLongSet>> ballots = service.getBallots(api, vote);
+            Assertions.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt) < 5L);
+            Assertions.assertTrue(ballots.isPresent());
+            Assertions.assertEquals(LongSets.immutable.of(FIRST_USER), ballots.get().get(2L));
+            Assertions.assertEquals(List.of("replace " + MESSAGE_ID), stored);
+        } finally {
+            service.stop();
+        }
+    }
+
+    @NotNull
+    private static User member(long userId, boolean isBot, @NotNull List<Role> roles) {
+        return StubEntities.stub(User.class, Map.of(
+                "getId", userId,
+                "isBot", isBot,
+                "getRoles", (StubEntities.Answer) args -> roles));
+    }
+
+    @NotNull
+    private static List<VotePoint> votePoints(int count) {
+        List<VotePoint> result = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            VotePoint votePoint = new VotePoint();
+            votePoint.setId(i);
+            votePoint.setEmoji(String.valueOf(Character.toChars(0x1F600 + i)));
+            votePoint.setPointText("point " + i);
+            result.add(votePoint);
+        }
+        return result;
+    }
+
+    @NotNull
+    private static ActiveVote vote(@NotNull List<VotePoint> votePoints) {
+        ActiveVote activeVote = new ActiveVote();
+        activeVote.setTextChatId(CHANNEL_ID);
+        activeVote.setMessageId(MESSAGE_ID);
+        activeVote.setVotePoints(votePoints);
+        activeVote.setExceptionalVote(false);
+        activeVote.setWithDefaultPoint(false);
+        activeVote.setWinThreshold(0L);
+        return activeVote;
+    }
+
+    @NotNull
+    private static List<Integer> levels(@NotNull Map<VotePoint, Integer> pointsLevel) {
+        return new ArrayList<>(pointsLevel.values());
+    }
+}
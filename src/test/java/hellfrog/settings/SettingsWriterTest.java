@@ -0,0 +1,65 @@
+package hellfrog.settings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import hellfrog.common.SchedulerService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+public class SettingsWriterTest {
+
+    @Test
+    public void testOnlyChangedSettingsWritten(@TempDir Path tempDir) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        SchedulerService schedulerService = new SchedulerService(1);
+        try {
+            SettingsWriter settingsWriter = new SettingsWriter(tempDir, objectMapper.writer(),
+                    schedulerService.getExecutor());
+            ServerPreferences loaded = new ServerPreferences();
+            ServerPreferences created = new ServerPreferences();
+            settingsWriter.track("1_server.json", loaded, true);
+            settingsWriter.track("2_server.json", created, false);
+
+            // записываются только новые настройки, прочитанные из файла не изменялись
+            Assertions.assertEquals(1, settingsWriter.flush(false));
+            Assertions.assertFalse(Files.exists(tempDir.resolve("1_server.json")));
+            Assertions.assertEquals(0, settingsWriter.flush(true));
+
+            loaded.setBotPrefix("!");
+            Assertions.assertEquals(1, settingsWriter.flush(false));
+            Assertions.assertEquals("!", objectMapper.readValue(tempDir.resolve("1_server.json").toFile(),
+                    ServerPreferences.class).getBotPrefix());
+            Assertions.assertFalse(Files.exists(tempDir.resolve("1_server.json.tmp")));
+
+            // изменение без изменения содержимого не перезаписывает файл
+            created.setBotPrefix(created.getBotPrefix());
+            Assertions.assertEquals(0, settingsWriter.flush(false));
+            Assertions.assertEquals(1L, settingsWriter.getUnchangedSkipped());
+            Assertions.assertEquals(2L, settingsWriter.getFilesWritten());
+            Assertions.assertTrue(settingsWriter.getAverageBytesPerMinute() > 0L);
+
+            // несколько запросов записи объединяются в одну запись
+            created.setTimezone("UTC");
+            for (int i = 0; i < 10; i++) {
+                created.markChanged();
+                settingsWriter.requestFlush();
+            }
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5L);
+            while (settingsWriter.getFilesWritten() < 3L && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            Thread.sleep(SettingsWriter.COALESCE_DELAY_MILLIS + 200L);
+            Assertions.assertEquals(3L, settingsWriter.getFilesWritten());
+            Assertions.assertEquals("UTC", objectMapper.readValue(tempDir.resolve("2_server.json").toFile(),
+                    ServerPreferences.class).getTimezone());
+        } finally {
+            schedulerService.stop();
+        }
+    }
+}
@@ -80,6 +80,13 @@ public class CommonPreferencesDAOTest {
             Assertions.assertEquals(CommonPreferencesDAO.FUN_BITE_CHANNEL_DEFAULT, oldFunBiteChannelId);
             Assertions.assertEquals(CommonPreferencesDAO.FUN_BONK_CHANNEL_DEFAULT, oldFunBonkChannelId);
             Assertions.assertEquals(CommonPreferencesDAO.FUN_SPANK_CHANNEL_DEFAULT, oldFunSpankChannelId);
+            Assertions.assertEquals(CommonPreferencesDAO.EVENTS_LANES_DEFAULT, preferencesDAO.getEventsLanes());
+            Assertions.assertEquals(CommonPreferencesDAO.EVENTS_QUEUE_CAPACITY_DEFAULT,
+                    preferencesDAO.getEventsQueueCapacity());
+            Assertions.assertEquals(CommonPreferencesDAO.EVENTS_LOW_PRIORITY_OVERFLOW_DEFAULT,
+                    preferencesDAO.getEventsLowPriorityOverflow());
+            Assertions.assertEquals(CommonPreferencesDAO.EVENTS_IO_THREADS_DEFAULT,
+                    preferencesDAO.getEventsIoThreads());
 
             // проверяем замену данных, должны извлечься умолчания
             oldKey = preferencesDAO.setApiKey(botApi);
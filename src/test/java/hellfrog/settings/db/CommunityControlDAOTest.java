@@ -42,6 +42,13 @@ public class CommunityControlDAOTest {
                     Optional<CommunityControlSettings> mayBeChanged = communityControlDAO.getSettings(testServer.serverId);
                     Assertions.assertTrue(mayBeChanged.isPresent(), "Override settings must be present: "
                             + printChange(testServer.serverId, change));
+                    Assertions.assertEquals(change.threshold, mayBeChanged.get().getThreshold());
+                    // изменение полученных настроек не должно затрагивать кэш
+                    mayBeChanged.get().setThreshold(change.threshold + 1L);
+                    Assertions.assertEquals(change.threshold,
+                            communityControlDAO.getSettings(testServer.serverId)
+                                    .map(CommunityControlSettings::getThreshold)
+                                    .orElse(0L));
                 });
             });
         }
@@ -73,6 +73,55 @@ public class EntityNameCacheDAOTest {
         Assertions.assertTrue(LogsStorage.isWarnsEmpty(), "Warning logs must be empty");
     }
 
+    @Test
+    public void testCoalescedUpdates() throws Exception {
+        final NameEntity global = new NameEntity();
+        final ServerNameEntity server = new ServerNameEntity();
+        final NameEntity globalRenamed = new NameEntity(global.id);
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            final EntityNameCacheDAO entityNameCacheDAO = mainDBController.getEntityNameCacheDAO();
+            CacheStatistic cacheStatistic = mainDBController.getCacheStatistics().stream()
+                    .filter(statistic -> statistic.getName().equals("Entity names"))
+                    .findFirst()
+                    .orElseThrow();
+
+            entityNameCacheDAO.update(global.id, global.name, global.type);
+            entityNameCacheDAO.update(server.serverId, server.entityId, server.entityName);
+            long misses = cacheStatistic.getMisses();
+            long hits = cacheStatistic.getHits();
+
+            // повторная запись неизменного имени не должна доходить до БД
+            for (int i = 0; i < 10; i++) {
+                entityNameCacheDAO.update(global.id, global.name, global.type);
+                entityNameCacheDAO.update(server.serverId, server.entityId, server.entityName);
+            }
+            Assertions.assertEquals(misses, cacheStatistic.getMisses());
+            Assertions.assertEquals(hits + 20L, cacheStatistic.getHits());
+
+            // новое имя видно сразу, ещё до записи в БД
+            entityNameCacheDAO.update(globalRenamed.id, globalRenamed.name, globalRenamed.type);
+            entityNameCacheDAO.find(global.id).ifPresentOrElse(stored -> {
+                Assertions.assertEquals(globalRenamed.name, stored.getName());
+                Assertions.assertEquals(globalRenamed.type, stored.getEntityType());
+            }, Assertions::fail);
+        }
+
+        // при закрытии все отложенные имена записываются в БД
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            final EntityNameCacheDAO entityNameCacheDAO = mainDBController.getEntityNameCacheDAO();
+            entityNameCacheDAO.find(global.id).ifPresentOrElse(stored -> {
+                Assertions.assertEquals(globalRenamed.name, stored.getName());
+                Assertions.assertEquals(globalRenamed.type, stored.getEntityType());
+            }, Assertions::fail);
+            entityNameCacheDAO.find(server.serverId, server.entityId).ifPresentOrElse(stored ->
+                    Assertions.assertEquals(server.entityName, stored.getName()), Assertions::fail);
+        }
+
+        Assertions.assertTrue(LogsStorage.isErrorsEmpty(), "Errors log must be empty");
+    }
+
     private void testGlobalUpdate(@NotNull final List<NameEntity> updates,
                                   @NotNull final EntityNameCacheDAO entityNameCacheDAO) {
 
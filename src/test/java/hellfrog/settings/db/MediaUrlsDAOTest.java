@@ -0,0 +1,63 @@
+package hellfrog.settings.db;
+
+import hellfrog.core.LogsStorage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class MediaUrlsDAOTest {
+
+    private static final long CHANNEL_ID = 525287388818178050L;
+    private static final long ANOTHER_CHANNEL_ID = 525287388818178051L;
+    private static final String FIRST_URL = "https://cdn.discordapp.com/attachments/1/2/first.png";
+    private static final String SECOND_URL = "https://cdn.discordapp.com/attachments/1/3/second.gif";
+    private static final String THIRD_URL = "https://example.com/third.jpg";
+
+    @Test
+    public void testIndex() throws Exception {
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            MediaUrlsDAO mediaUrlsDAO = mainDBController.getMediaUrlsDAO();
+
+            Assertions.assertEquals(0L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+            Assertions.assertTrue(mediaUrlsDAO.getUrls(CHANNEL_ID).isEmpty());
+
+            Assertions.assertEquals(List.of(FIRST_URL, SECOND_URL),
+                    mediaUrlsDAO.setMessageUrls(CHANNEL_ID, 100L, List.of(FIRST_URL, SECOND_URL, FIRST_URL)).getAdded());
+            // адрес, уже известный по другому сообщению канала, не считается добавленным
+            Assertions.assertTrue(mediaUrlsDAO.setMessageUrls(CHANNEL_ID, 101L, List.of(SECOND_URL)).isEmpty());
+            Assertions.assertEquals(List.of(THIRD_URL),
+                    mediaUrlsDAO.setMessageUrls(ANOTHER_CHANNEL_ID, 102L, List.of(THIRD_URL)).getAdded());
+            // один и тот же адрес в разных сообщениях канала выдаётся один раз
+            Assertions.assertEquals(List.of(FIRST_URL, SECOND_URL), mediaUrlsDAO.getUrls(CHANNEL_ID));
+            Assertions.assertEquals(List.of(THIRD_URL), mediaUrlsDAO.getUrls(ANOTHER_CHANNEL_ID));
+            // отметку сдвигает только индексация истории канала
+            Assertions.assertEquals(0L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+            mediaUrlsDAO.updateLastMessageId(CHANNEL_ID, 101L);
+            Assertions.assertEquals(101L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+
+            // изменение сообщения заменяет его ссылки, отметка не изменяется
+            Assertions.assertTrue(mediaUrlsDAO.setMessageUrls(CHANNEL_ID, 100L, List.of(SECOND_URL, FIRST_URL)).isEmpty());
+            // второй адрес остаётся в другом сообщении, поэтому из канала удаляется только первый
+            MediaUrlsChange change = mediaUrlsDAO.setMessageUrls(CHANNEL_ID, 100L, List.of(THIRD_URL, "x".repeat(2001)));
+            Assertions.assertEquals(List.of(THIRD_URL), change.getAdded());
+            Assertions.assertEquals(List.of(FIRST_URL), change.getRemoved());
+            Assertions.assertEquals(List.of(SECOND_URL, THIRD_URL), mediaUrlsDAO.getUrls(CHANNEL_ID));
+            Assertions.assertEquals(101L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+
+            Assertions.assertEquals(List.of(SECOND_URL), mediaUrlsDAO.removeMessage(CHANNEL_ID, 101L).getRemoved());
+            Assertions.assertTrue(mediaUrlsDAO.removeMessage(CHANNEL_ID, 101L).isEmpty());
+            Assertions.assertEquals(List.of(THIRD_URL), mediaUrlsDAO.getUrls(CHANNEL_ID));
+
+            mediaUrlsDAO.updateLastMessageId(CHANNEL_ID, 50L);
+            Assertions.assertEquals(101L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+            mediaUrlsDAO.updateLastMessageId(CHANNEL_ID, 200L);
+            Assertions.assertEquals(200L, mediaUrlsDAO.getLastMessageId(CHANNEL_ID));
+        }
+
+        Assertions.assertTrue(LogsStorage.isErrorsEmpty(), "Errors log must be empty");
+        Assertions.assertTrue(LogsStorage.isWarnsEmpty(), "Warning logs must be empty");
+    }
+}
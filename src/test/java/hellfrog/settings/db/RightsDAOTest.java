@@ -127,6 +127,29 @@ public class RightsDAOTest {
             ChannelRightsDAO channelRightsDAO = mainDBController.getChannelRightsDAO();
             ChannelCategoryRightsDAO channelCategoryRightsDAO = mainDBController.getChannelCategoryRightsDAO();
 
+            // выборка всех разрешений сервера одним запросом должна совпадать с запросами по командам
+            for (TestServer testServer : testServers) {
+                Map<String, List<Long>> allowedUsers = userRightsDAO.getAllAllowedByCommands(testServer.serverId)
+                        .orElseThrow();
+                Map<String, List<Long>> allowedRoles = roleRightsDAO.getAllAllowedByCommands(testServer.serverId)
+                        .orElseThrow();
+                Map<String, List<Long>> allowedChats = channelRightsDAO.getAllAllowedByCommands(testServer.serverId)
+                        .orElseThrow();
+                Map<String, List<Long>> allowedCategories = channelCategoryRightsDAO
+                        .getAllAllowedByCommands(testServer.serverId)
+                        .orElseThrow();
+                testServer.testRights.forEach((cmd, rights) -> {
+                    Assertions.assertEquals(new HashSet<>(rights.allowedUsers),
+                            new HashSet<>(allowedUsers.getOrDefault(cmd, Collections.emptyList())));
+                    Assertions.assertEquals(new HashSet<>(rights.allowedRoles),
+                            new HashSet<>(allowedRoles.getOrDefault(cmd, Collections.emptyList())));
+                    Assertions.assertEquals(new HashSet<>(rights.allowedTextChats),
+                            new HashSet<>(allowedChats.getOrDefault(cmd, Collections.emptyList())));
+                    Assertions.assertEquals(new HashSet<>(rights.allowedCategories),
+                            new HashSet<>(allowedCategories.getOrDefault(cmd, Collections.emptyList())));
+                });
+            }
+
             testServers.parallelStream()
                     .forEach(testServer -> testServer.testRights.keySet().parallelStream().forEach(cmd -> {
                         TestCommandRights rights = testServer.testRights.get(cmd);
@@ -190,6 +190,43 @@ public class ServerPreferencesDAOTest {
         Assertions.assertTrue(LogsStorage.isWarnsEmpty(), "Warning logs must be empty");
     }
 
+    @Test
+    public void testCache() throws Exception {
+        final long serverId = TestUtils.randomDiscordEntityId();
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            ServerPreferencesDAO preferencesDAO = mainDBController.getServerPreferencesDAO();
+            CacheStatistic cacheStatistic = mainDBController.getCacheStatistics().stream()
+                    .filter(statistic -> statistic.getName().equals("Server preferences"))
+                    .findFirst()
+                    .orElseThrow();
+
+            // повторное извлечение значения должно браться из кэша
+            Assertions.assertEquals(ServerPreferencesDAO.PREFIX_DEFAULT, preferencesDAO.getPrefix(serverId));
+            long misses = cacheStatistic.getMisses();
+            long hits = cacheStatistic.getHits();
+            Assertions.assertEquals(ServerPreferencesDAO.PREFIX_DEFAULT, preferencesDAO.getPrefix(serverId));
+            Assertions.assertEquals(misses, cacheStatistic.getMisses());
+            Assertions.assertEquals(hits + 1L, cacheStatistic.getHits());
+
+            // значение по-умолчанию не должно записываться в БД
+            Assertions.assertEquals("", mainDBController.executeRawJPQL("select sp.id from ServerPreference sp " +
+                    "where sp.serverId = " + serverId));
+
+            // запись идёт через кэш
+            Assertions.assertEquals(ServerPreferencesDAO.PREFIX_DEFAULT, preferencesDAO.setPrefix(serverId, "!"));
+            Assertions.assertEquals("!", preferencesDAO.getPrefix(serverId));
+
+            // прямое изменение БД сбрасывает кэш
+            mainDBController.executeRawQuery("update server_preferences set string_value = '?' " +
+                    "where server_id = " + serverId);
+            Assertions.assertEquals("?", preferencesDAO.getPrefix(serverId));
+        }
+
+        Assertions.assertTrue(LogsStorage.isErrorsEmpty(), "Errors log must be empty");
+    }
+
     private static class ServerSettings {
 
         final String prefix;
@@ -221,6 +221,56 @@ public class TotalStatisticDAOTest
         Assertions.assertTrue(LogsStorage.isWarnsEmpty(), "Warning logs must be empty");
     }
 
+    @Test
+    public void testBufferedChanges() throws Exception {
+        final long serverId = TestUtils.randomDiscordEntityId();
+        final long channelId = TestUtils.randomDiscordEntityId();
+        final long userId = TestUtils.randomDiscordEntityId();
+        final long emojiId = TestUtils.randomDiscordEntityId();
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            TotalStatisticDAO statisticDAO = mainDBController.getTotalStatisticDAO();
+
+            // уменьшение ниже нуля не должно накапливаться в буфере изменений
+            statisticDAO.decrementChannelStats(serverId, channelId, userId, 10, 10L);
+            statisticDAO.incrementChannelStats(serverId, channelId, userId, 5, 7L);
+            statisticDAO.incrementEmoji(serverId, emojiId);
+            statisticDAO.decrementEmoji(serverId, emojiId);
+            statisticDAO.decrementEmoji(serverId, emojiId);
+            statisticDAO.incrementEmoji(serverId, emojiId);
+
+            // ещё не записанные изменения должны отдаваться в отчётах
+            List<TextChannelTotalStatistic> channelStats = statisticDAO.getChannelsStatistics(serverId);
+            Assertions.assertEquals(1, channelStats.size());
+            Assertions.assertEquals(1L, channelStats.get(0).getMessagesCount());
+            Assertions.assertEquals(5L, channelStats.get(0).getSymbolsCount());
+            Assertions.assertEquals(7L, channelStats.get(0).getBytesCount());
+            List<EmojiTotalStatistic> emojiStats = statisticDAO.getEmojiUsagesStatistic(serverId);
+            Assertions.assertEquals(1, emojiStats.size());
+            Assertions.assertEquals(1L, emojiStats.get(0).getUsagesCount());
+        }
+
+        // при закрытии буфер должен быть записан в БД
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            TotalStatisticDAO statisticDAO = mainDBController.getTotalStatisticDAO();
+            List<TextChannelTotalStatistic> channelStats = statisticDAO.getChannelsStatistics(serverId);
+            Assertions.assertEquals(1, channelStats.size());
+            Assertions.assertEquals(1L, channelStats.get(0).getMessagesCount());
+            Assertions.assertEquals(5L, channelStats.get(0).getSymbolsCount());
+            Assertions.assertEquals(7L, channelStats.get(0).getBytesCount());
+            statisticDAO.decrementChannelStats(serverId, channelId, userId, 10, 10L);
+            channelStats = statisticDAO.getChannelsStatistics(serverId);
+            Assertions.assertEquals(0L, channelStats.get(0).getMessagesCount());
+            Assertions.assertEquals(0L, channelStats.get(0).getSymbolsCount());
+            Assertions.assertEquals(0L, channelStats.get(0).getBytesCount());
+            List<EmojiTotalStatistic> emojiStats = statisticDAO.getEmojiUsagesStatistic(serverId);
+            Assertions.assertEquals(1L, emojiStats.get(0).getUsagesCount());
+        }
+
+        Assertions.assertTrue(LogsStorage.isErrorsEmpty(), "Errors log must be empty");
+    }
+
     private static class TestServer {
 
         final long serverId = TestUtils.randomDiscordEntityId();
@@ -3,6 +3,7 @@ package hellfrog.settings.db;
 import hellfrog.TestUtils;
 import hellfrog.core.LogsStorage;
 import hellfrog.settings.db.entity.Vote;
+import hellfrog.settings.db.entity.VoteBallot;
 import hellfrog.settings.db.entity.VotePoint;
 import hellfrog.settings.db.entity.VoteRoleFilter;
 import org.jetbrains.annotations.Nullable;
@@ -149,6 +150,55 @@ public class VotesDAOTest {
         Assertions.assertTrue(LogsStorage.isWarnsEmpty(), "Warning logs must be empty");
     }
 
+    @Test
+    public void testBallots() throws Exception {
+
+        long messageId = TestUtils.randomDiscordEntityId();
+        long anotherMessageId = TestUtils.randomDiscordEntityId();
+        long firstUser = TestUtils.randomDiscordEntityId();
+        long secondUser = TestUtils.randomDiscordEntityId();
+
+        MainDBController.destroyTestDatabase();
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            VotesDAO votesDAO = mainDBController.getVotesDAO();
+
+            Assertions.assertTrue(votesDAO.getBallots(messageId).isEmpty());
+            Assertions.assertTrue(votesDAO.addBallot(messageId, 1L, firstUser));
+            Assertions.assertFalse(votesDAO.addBallot(messageId, 1L, firstUser));
+            Assertions.assertTrue(votesDAO.addBallot(messageId, 2L, firstUser));
+            Assertions.assertTrue(votesDAO.addBallot(messageId, 2L, secondUser));
+            Assertions.assertTrue(votesDAO.addBallot(anotherMessageId, 1L, secondUser));
+            Assertions.assertEquals(Set.of("1:" + firstUser, "2:" + firstUser, "2:" + secondUser),
+                    ballotsOf(votesDAO, messageId));
+
+            Assertions.assertTrue(votesDAO.removeBallot(messageId, 2L, firstUser));
+            Assertions.assertFalse(votesDAO.removeBallot(messageId, 2L, firstUser));
+            Assertions.assertEquals(Set.of("1:" + firstUser, "2:" + secondUser), ballotsOf(votesDAO, messageId));
+        }
+
+        try (MainDBController mainDBController = MainDBController.getInstance(InstanceType.TEST)) {
+            VotesDAO votesDAO = mainDBController.getVotesDAO();
+
+            Assertions.assertEquals(Set.of("1:" + firstUser, "2:" + secondUser), ballotsOf(votesDAO, messageId));
+            votesDAO.replaceBallots(messageId, List.of(new VoteBallot(messageId, 3L, firstUser),
+                    new VoteBallot(messageId, 3L, secondUser)));
+            Assertions.assertEquals(Set.of("3:" + firstUser, "3:" + secondUser), ballotsOf(votesDAO, messageId));
+
+            votesDAO.deleteBallots(messageId);
+            Assertions.assertTrue(votesDAO.getBallots(messageId).isEmpty());
+            Assertions.assertEquals(Set.of("1:" + secondUser), ballotsOf(votesDAO, anotherMessageId));
+        }
+
+        Assertions.assertTrue(LogsStorage.isErrorsEmpty(), "Errors log must be empty");
+        Assertions.assertTrue(LogsStorage.isWarnsEmpty(), "Warning logs must be empty");
+    }
+
+    private Set<String> ballotsOf(VotesDAO votesDAO, long messageId) {
+        return votesDAO.getBallots(messageId).stream()
+                .map(ballot -> ballot.getPointId() + ":" + ballot.getUserId())
+                .collect(Collectors.toSet());
+    }
+
     private void compareVotes(@Nullable Vote first, @Nullable Vote second) {
         Assertions.assertNotNull(first);
         Assertions.assertNotNull(second);